@@ -32,6 +32,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -67,6 +68,10 @@ public abstract class AbstractDictionaryRegistry implements DictionaryRegistry
     private List<String> urisCache = new ArrayList<String>(20);
     private Map<String, String> prefixesCache = new ConcurrentHashMap<String, String>(0);
 
+    // class hierarchy snapshot, replaced whenever the models change
+    private final AtomicLong modelsVersion = new AtomicLong();
+    private volatile DictionaryClassHierarchy classHierarchy;
+
     public AbstractDictionaryRegistry(DictionaryDAO dictionaryDAO)
     {
     	this.dictionaryDAO = dictionaryDAO;
@@ -77,6 +82,39 @@ public abstract class AbstractDictionaryRegistry implements DictionaryRegistry
     {
     	setCompiledModels(new HashMap<QName,CompiledModel>());
     	setUriToModels(new HashMap<String, List<CompiledModel>>());
+    	modelsChanged();
+    }
+
+    @Override
+    public DictionaryClassHierarchy getClassHierarchy()
+    {
+        DictionaryClassHierarchy inherited = getInheritedClassHierarchy();
+        DictionaryClassHierarchy hierarchy = classHierarchy;
+        long version = modelsVersion.get();
+        if (hierarchy == null || hierarchy.getRegistryVersion() != version || hierarchy.getInherited() != inherited)
+        {
+            // Built without locking: a concurrent model change bumps the version, so a stale
+            // snapshot is never returned once the change is complete
+            hierarchy = new DictionaryClassHierarchy(version, inherited, getCompiledModels(true).values());
+            classHierarchy = hierarchy;
+        }
+        return hierarchy;
+    }
+
+    /**
+     * @return the class hierarchy of the registry this registry inherits models from, or <tt>null</tt>
+     */
+    protected DictionaryClassHierarchy getInheritedClassHierarchy()
+    {
+        return null;
+    }
+
+    /**
+     * Invalidates the class hierarchy snapshot after a change to the models.
+     */
+    protected void modelsChanged()
+    {
+        modelsVersion.incrementAndGet();
     }
 
     public Map<String, List<CompiledModel>> getUriToModels()
@@ -165,6 +203,7 @@ public abstract class AbstractDictionaryRegistry implements DictionaryRegistry
 	        }
 	
 			compiledModels.remove(modelName);
+			modelsChanged();
 	    }
 
 	    return compiledModel;
@@ -254,6 +293,7 @@ public abstract class AbstractDictionaryRegistry implements DictionaryRegistry
         }
 
 		compiledModels.put(modelName, model);
+		modelsChanged();
 
 		return modelName;
     }
@@ -690,6 +730,7 @@ public abstract class AbstractDictionaryRegistry implements DictionaryRegistry
 	{
 	    uriToModels.clear();
 	    compiledModels.clear();
+	    modelsChanged();
 	    urisCacheRWLock.writeLock().lock();
 	    try
 	    {
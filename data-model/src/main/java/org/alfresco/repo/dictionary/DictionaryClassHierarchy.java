@@ -0,0 +1,227 @@
+/*
+ * #%L
+ * Alfresco Data model classes
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.dictionary;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.service.cmr.dictionary.AspectDefinition;
+import org.alfresco.service.cmr.dictionary.ClassDefinition;
+import org.alfresco.service.cmr.dictionary.TypeDefinition;
+import org.alfresco.service.namespace.QName;
+
+/**
+ * Immutable snapshot of the type and aspect hierarchy of a dictionary registry.
+ * <p>
+ * Every class is given a dense id and the set of its super-classes (including itself) is held as a
+ * {@link BitSet}, so that sub-class checks do not need to walk up the hierarchy.  A snapshot is never
+ * modified once built; the owning registry replaces it when its models change.
+ * 
+ * @since 23.2
+ */
+public class DictionaryClassHierarchy
+{
+    private final long registryVersion;
+    private final DictionaryClassHierarchy inherited;
+
+    private final Map<QName, Integer> classIds;
+    private final ClassDefinition[] classes;
+    private final BitSet[] superClasses;
+    private final BitSet aspects;
+
+    /**
+     * @param registryVersion       the version of the owning registry the snapshot was built from
+     * @param inherited             the snapshot of the inherited (core) registry, if any
+     * @param compiledModels        the compiled models, including any inherited models
+     */
+    DictionaryClassHierarchy(long registryVersion, DictionaryClassHierarchy inherited, Collection<CompiledModel> compiledModels)
+    {
+        this.registryVersion = registryVersion;
+        this.inherited = inherited;
+
+        // Types take precedence over aspects of the same name, as for CompiledModel.getClass()
+        Map<QName, ClassDefinition> classDefs = new HashMap<QName, ClassDefinition>(512);
+        for (CompiledModel model : compiledModels)
+        {
+            for (AspectDefinition aspect : model.getAspects())
+            {
+                classDefs.put(aspect.getName(), aspect);
+            }
+        }
+        for (CompiledModel model : compiledModels)
+        {
+            for (TypeDefinition type : model.getTypes())
+            {
+                classDefs.put(type.getName(), type);
+            }
+        }
+
+        int size = classDefs.size();
+        this.classIds = new HashMap<QName, Integer>(size * 2);
+        this.classes = new ClassDefinition[size];
+        this.superClasses = new BitSet[size];
+        this.aspects = new BitSet(size);
+
+        int id = 0;
+        for (ClassDefinition classDef : classDefs.values())
+        {
+            classIds.put(classDef.getName(), id);
+            classes[id] = classDef;
+            if (classDef.isAspect())
+            {
+                aspects.set(id);
+            }
+            id++;
+        }
+
+        for (id = 0; id < size; id++)
+        {
+            BitSet supers = new BitSet(size);
+            ClassDefinition classDef = classes[id];
+            boolean isAspect = classDef.isAspect();
+            Integer currentId = id;
+            while (currentId != null && !supers.get(currentId))
+            {
+                ClassDefinition current = classes[currentId];
+                if (current.isAspect() != isAspect)
+                {
+                    // Types and aspects are separate hierarchies
+                    break;
+                }
+                supers.set(currentId);
+                QName parentName = current.getParentName();
+                currentId = (parentName == null) ? null : classIds.get(parentName);
+            }
+            superClasses[id] = supers;
+        }
+    }
+
+    /**
+     * @return the version of the owning registry this snapshot was built from
+     */
+    long getRegistryVersion()
+    {
+        return registryVersion;
+    }
+
+    /**
+     * @return the snapshot of the inherited registry this snapshot was built on, or <tt>null</tt>
+     */
+    DictionaryClassHierarchy getInherited()
+    {
+        return inherited;
+    }
+
+    /**
+     * @param className     the class name
+     * @return the class definition or <tt>null</tt> if the class is unknown
+     */
+    public ClassDefinition getClass(QName className)
+    {
+        Integer id = classIds.get(className);
+        return (id == null) ? null : classes[id];
+    }
+
+    /**
+     * Determine if a class is a sub-class of (or the same as) another class.  Types and aspects are
+     * never sub-classes of each other.
+     * 
+     * @param className     the sub-class to test
+     * @param ofClassName   the super-class to test against
+     * @return <tt>true</tt> if both classes are known and <tt>className</tt> is a sub-class of <tt>ofClassName</tt>
+     */
+    public boolean isSubClass(QName className, QName ofClassName)
+    {
+        Integer id = classIds.get(className);
+        if (id == null)
+        {
+            return false;
+        }
+        Integer ofId = classIds.get(ofClassName);
+        if (ofId == null)
+        {
+            return false;
+        }
+        return superClasses[id].get(ofId);
+    }
+
+    /**
+     * @param superClassName    the super-class (type or aspect)
+     * @param follow            <tt>true</tt> to include the class and all its descendants,
+     *                          <tt>false</tt> for immediate sub-classes only
+     * @return the sub-classes of the given class
+     */
+    public Set<QName> getSubClasses(QName superClassName, boolean follow)
+    {
+        Set<QName> subClasses = new HashSet<QName>();
+        Integer superId = classIds.get(superClassName);
+        if (superId == null)
+        {
+            return subClasses;
+        }
+        boolean isAspect = aspects.get(superId);
+        for (int id = 0; id < classes.length; id++)
+        {
+            if (aspects.get(id) != isAspect)
+            {
+                continue;
+            }
+            ClassDefinition classDef = classes[id];
+            if (follow ? superClasses[id].get(superId) : superClassName.equals(classDef.getParentName()))
+            {
+                subClasses.add(classDef.getName());
+            }
+        }
+        return subClasses;
+    }
+
+    /**
+     * @param className     the class name
+     * @return the names of the class and all its super-classes, or an empty list if the class is unknown
+     */
+    public List<QName> getSuperClasses(QName className)
+    {
+        Integer id = classIds.get(className);
+        if (id == null)
+        {
+            return Collections.emptyList();
+        }
+        BitSet supers = superClasses[id];
+        List<QName> names = new ArrayList<QName>(supers.cardinality());
+        for (int superId = supers.nextSetBit(0); superId >= 0; superId = supers.nextSetBit(superId + 1))
+        {
+            names.add(classes[superId].getName());
+        }
+        return names;
+    }
+}
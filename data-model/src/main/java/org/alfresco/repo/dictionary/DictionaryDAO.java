@@ -102,6 +102,18 @@ public interface DictionaryDAO extends ModelQuery
      */
     Collection<QName> getSubTypes(QName superType, boolean follow);
 
+    /**
+     * Determine if a class is a sub-class of another class, using the precomputed class hierarchy
+     * of the current tenant.
+     * 
+     * @param className
+     *            the sub-class to test
+     * @param ofClassName
+     *            the super-class to test against
+     * @return true => the class is a sub-class (or the same class) of ofClassName
+     */
+    boolean isSubClass(QName className, QName ofClassName);
+
     /**
      * @param model
      *            the model to retrieve aspects for
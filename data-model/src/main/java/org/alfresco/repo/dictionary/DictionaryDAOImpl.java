@@ -346,49 +346,7 @@ public class DictionaryDAOImpl implements DictionaryDAO, NamespaceDAO,
     @Override
     public Collection<QName> getSubTypes(QName superType, boolean follow)
     {
-        // note: could be optimised further, if compiled into the model
-
-        // Get all types (with parent type) for all models
-        Map<QName, QName> allTypesAndParents = new HashMap<QName, QName>(); // name,
-                                                                            // parent
-
-        for (CompiledModel model : getCompiledModels(true).values())
-        {
-            for (TypeDefinition type : model.getTypes())
-            {
-                allTypesAndParents.put(type.getName(), type.getParentName());
-            }
-        }
-
-        // Get sub types
-        HashSet<QName> subTypes = new HashSet<QName>();
-        for (QName type : allTypesAndParents.keySet())
-        {
-            if (follow)
-            {
-                // all sub types
-                QName current = type;
-                while ((current != null) && !current.equals(superType))
-                {
-                    current = allTypesAndParents.get(current); // get parent
-                }
-                if (current != null)
-                {
-                    subTypes.add(type);
-                }
-            }
-            else
-            {
-                // immediate sub types only
-                QName typesSuperType = allTypesAndParents.get(type);
-                if (typesSuperType != null && typesSuperType.equals(superType))
-                {
-                    subTypes.add(type);
-                }
-            }
-
-        }
-        return subTypes;
+        return getSubClasses(superType, follow, false);
     }
 
     @Override
@@ -407,50 +365,69 @@ public class DictionaryDAOImpl implements DictionaryDAO, NamespaceDAO,
     @Override
     public Collection<QName> getSubAspects(QName superAspect, boolean follow)
     {
-        // note: could be optimised further, if compiled into the model
+        return getSubClasses(superAspect, follow, true);
+    }
 
-        // Get all aspects (with parent aspect) for all models
-        Map<QName, QName> allAspectsAndParents = new HashMap<QName, QName>(); // name,
-                                                                              // parent
+    private Collection<QName> getSubClasses(QName superClass, boolean follow, boolean aspects)
+    {
+        DictionaryClassHierarchy hierarchy = getTenantDictionaryRegistry().getClassHierarchy();
+        ClassDefinition superClassDef = hierarchy.getClass(superClass);
+        if (superClassDef == null || superClassDef.isAspect() != aspects)
+        {
+            // Not a class of the requested kind: walk the models as before, as classes of that kind
+            // may still name it as their parent
+            return walkSubClasses(superClass, follow, aspects);
+        }
+        return hierarchy.getSubClasses(superClass, follow);
+    }
 
+    private Collection<QName> walkSubClasses(QName superClass, boolean follow, boolean aspects)
+    {
+        // Get all classes of the requested kind (with parent class) for all models
+        Map<QName, QName> allClassesAndParents = new HashMap<QName, QName>(); // name, parent
         for (CompiledModel model : getCompiledModels(true).values())
         {
-            for (AspectDefinition aspect : model.getAspects())
+            Collection<? extends ClassDefinition> classDefs = aspects ? model.getAspects() : model.getTypes();
+            for (ClassDefinition classDef : classDefs)
             {
-                allAspectsAndParents.put(aspect.getName(),
-                        aspect.getParentName());
+                allClassesAndParents.put(classDef.getName(), classDef.getParentName());
             }
         }
 
-        // Get sub aspects
-        HashSet<QName> subAspects = new HashSet<QName>();
-        for (QName aspect : allAspectsAndParents.keySet())
+        // Get sub classes
+        HashSet<QName> subClasses = new HashSet<QName>();
+        for (QName className : allClassesAndParents.keySet())
         {
             if (follow)
             {
-                // all sub aspects
-                QName current = aspect;
-                while ((current != null) && !current.equals(superAspect))
+                // all sub classes
+                QName current = className;
+                while ((current != null) && !current.equals(superClass))
                 {
-                    current = allAspectsAndParents.get(current); // get parent
+                    current = allClassesAndParents.get(current); // get parent
                 }
                 if (current != null)
                 {
-                    subAspects.add(aspect);
+                    subClasses.add(className);
                 }
             }
             else
             {
-                // immediate sub aspects only
-                QName typesSuperAspect = allAspectsAndParents.get(aspect);
-                if (typesSuperAspect != null
-                        && typesSuperAspect.equals(superAspect))
+                // immediate sub classes only
+                QName parentName = allClassesAndParents.get(className);
+                if (parentName != null && parentName.equals(superClass))
                 {
-                    subAspects.add(aspect);
+                    subClasses.add(className);
                 }
             }
         }
-        return subAspects;
+        return subClasses;
+    }
+
+    @Override
+    public boolean isSubClass(QName className, QName ofClassName)
+    {
+        return getTenantDictionaryRegistry().getClassHierarchy().isSubClass(className, ofClassName);
     }
 
     @Override
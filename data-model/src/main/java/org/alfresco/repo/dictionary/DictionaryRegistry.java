@@ -79,4 +79,5 @@ public interface DictionaryRegistry
     Collection<QName> getAssociations(boolean includeInherited);
     Collection<QName> getAspects(boolean includeInherited);
     String getNamespaceURI(String prefix);
+    DictionaryClassHierarchy getClassHierarchy();
 }
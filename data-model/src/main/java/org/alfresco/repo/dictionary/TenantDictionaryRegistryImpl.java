@@ -86,6 +86,12 @@ public class TenantDictionaryRegistryImpl extends AbstractDictionaryRegistry
 		return ret;
 	}
 
+	@Override
+	protected DictionaryClassHierarchy getInheritedClassHierarchy()
+	{
+		return getParent().getClassHierarchy();
+	}
+
 	@Override
     public List<CompiledModel> getModelsForUri(String uri)
     {
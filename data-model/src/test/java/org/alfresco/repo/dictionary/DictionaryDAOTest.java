@@ -582,6 +582,51 @@ public class DictionaryDAOTest
         assertFalse(test5);
     }
 
+    @Test
+    public void testClassHierarchySnapshot()
+    {
+        QName base = QName.createQName(TEST_URL, "base");
+        QName file = QName.createQName(TEST_URL, "file");
+        QName fileDerived = QName.createQName(TEST_URL, "file-derived");
+        QName folder = QName.createQName(TEST_URL, "folder");
+        QName aspectBase = QName.createQName(TEST_URL, "aspect-base");
+        QName aspectOne = QName.createQName(TEST_URL, "aspect-one");
+
+        assertTrue(dictionaryDAO.isSubClass(fileDerived, base));
+        assertFalse(dictionaryDAO.isSubClass(base, fileDerived));
+        assertFalse(dictionaryDAO.isSubClass(file, aspectBase));
+        assertTrue(dictionaryDAO.isSubClass(aspectOne, aspectBase));
+
+        Collection<QName> subTypes = dictionaryDAO.getSubTypes(base, true);
+        assertTrue(subTypes.contains(base));
+        assertTrue(subTypes.contains(fileDerived));
+        assertTrue(subTypes.contains(folder));
+        Collection<QName> childTypes = dictionaryDAO.getSubTypes(base, false);
+        assertFalse(childTypes.contains(base));
+        assertTrue(childTypes.contains(file));
+        assertFalse(childTypes.contains(fileDerived));
+        assertTrue(dictionaryDAO.getSubTypes(aspectBase, true).isEmpty());
+        assertTrue(dictionaryDAO.getSubAspects(aspectBase, false).contains(aspectOne));
+
+        // Unknown classes have no sub-classes, as before the snapshot
+        QName unknown = QName.createQName(TEST_URL, "unknown");
+        assertNotNull(dictionaryDAO.getSubTypes(unknown, true));
+        assertTrue(dictionaryDAO.getSubTypes(unknown, true).isEmpty());
+        assertTrue(dictionaryDAO.getSubTypes(unknown, false).isEmpty());
+        assertTrue(dictionaryDAO.getSubAspects(unknown, true).isEmpty());
+        assertTrue(dictionaryDAO.getSubAspects(unknown, false).isEmpty());
+        assertTrue(dictionaryDAO.getSubTypes(null, true).isEmpty());
+        assertTrue(dictionaryDAO.getSubAspects(base, true).isEmpty());
+
+        // The snapshot is shared until the models change
+        DictionaryRegistry registry = dictionaryDAO.getDictionaryRegistry(TenantService.DEFAULT_DOMAIN);
+        DictionaryClassHierarchy hierarchy = registry.getClassHierarchy();
+        assertTrue(hierarchy == registry.getClassHierarchy());
+        dictionaryDAO.removeModel(QName.createQName(TEST_URL, "dictionarydaotest"));
+        assertFalse(hierarchy == registry.getClassHierarchy());
+        assertFalse(dictionaryDAO.isSubClass(fileDerived, base));
+    }
+
     @Test
     public void testPropertyOverride()
     {
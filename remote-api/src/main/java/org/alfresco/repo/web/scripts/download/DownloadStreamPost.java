@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.web.scripts.download;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.service.cmr.download.DownloadService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script that streams a zip archive of the requested nodes straight to the response,
+ * without creating a download node.
+ * 
+ * The optional firstEntry argument resumes an interrupted download: the archive only holds
+ * the entries from that index onwards.
+ *
+ * @since 23.2
+ */
+public class DownloadStreamPost extends AbstractWebScript
+{
+    private static final String PARAM_FIRST_ENTRY = "firstEntry";
+
+    private DownloadService downloadService;
+
+    public void setDownloadService(DownloadService downloadService)
+    {
+        this.downloadService = downloadService;
+    }
+
+    @Override
+    public void execute(WebScriptRequest req, WebScriptResponse res) throws IOException
+    {
+        String contentType = req.getContentType();
+        if (contentType != null && contentType.indexOf(';') != -1)
+        {
+           contentType = contentType.substring(0, contentType.indexOf(';'));
+        }
+        
+        List<NodeRef> nodes = new LinkedList<NodeRef>();
+        if (MimetypeMap.MIMETYPE_JSON.equals(contentType))
+        {
+           JSONParser parser = new JSONParser();
+           try
+           {
+              JSONArray json = (JSONArray)parser.parse(req.getContent().getContent());
+              for (int i = 0 ; i < json.size() ; i++)
+              {
+                JSONObject obj = (JSONObject)json.get(i);
+                String nodeRefString = (String)obj.get("nodeRef");
+                if (nodeRefString != null) 
+                {
+                    nodes.add(new NodeRef(nodeRefString));
+                }
+              }
+           }
+           catch (org.json.simple.parser.ParseException je)
+           {
+               throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Unexpected ParseException", je);
+           }
+        }
+        
+        if (nodes.size() <= 0) 
+        {
+            throw new WebScriptException(Status.STATUS_BAD_REQUEST, "No nodeRefs provided");
+        }
+        
+        int firstEntry = 0;
+        String firstEntryParam = req.getParameter(PARAM_FIRST_ENTRY);
+        if (firstEntryParam != null)
+        {
+            try
+            {
+                firstEntry = Integer.parseInt(firstEntryParam);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Invalid " + PARAM_FIRST_ENTRY + ": " + firstEntryParam);
+            }
+            if (firstEntry < 0)
+            {
+                throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Invalid " + PARAM_FIRST_ENTRY + ": " + firstEntryParam);
+            }
+        }
+        
+        res.setContentType(MimetypeMap.MIMETYPE_ZIP);
+        res.setHeader("Content-Disposition", "attachment; filename=download.zip");
+        downloadService.writeDownload(nodes.toArray(new NodeRef[nodes.size()]), res.getOutputStream(), firstEntry);
+    }
+}
@@ -26,8 +26,12 @@
 
 package org.alfresco.repo.web.scripts.transfer;
 
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
 import jakarta.servlet.http.HttpServletRequest;
 
+import org.alfresco.repo.transfer.requisite.RequsiteModel;
 import org.alfresco.service.cmr.transfer.TransferException;
 import org.alfresco.service.cmr.transfer.TransferReceiver;
 import org.apache.commons.fileupload2.core.FileItemInput;
@@ -103,6 +107,9 @@ public class PostContentCommandProcessor implements CommandProcessor
 
         //Read the transfer id from the request
         String transferId = servletRequest.getParameter("transferId");
+        
+        //Content parts are gzip compressed if the sender has been told we accept it 
+        boolean compressed = RequsiteModel.CONTENT_ENCODING_GZIP.equals(servletRequest.getParameter(RequsiteModel.ATTRIBUTE_CONTENT_ENCODING));
 
         if ((transferId == null) || !JakartaServletFileUpload.isMultipartContent(servletRequest))
         {
@@ -122,7 +129,12 @@ public class PostContentCommandProcessor implements CommandProcessor
                 if (!item.isFormField())
                 {
                     logger.debug("got content Mime Part : " + name);
-                    receiver.saveContent(transferId, item.getName(), item.getInputStream());
+                    InputStream contentStream = item.getInputStream();
+                    if (compressed)
+                    {
+                        contentStream = new GZIPInputStream(contentStream);
+                    }
+                    receiver.saveContent(transferId, item.getName(), contentStream);
                 }
             }            
             
@@ -38,15 +38,19 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.SessionUser;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
 import org.alfresco.repo.webdav.auth.AuthenticationFilter;
 import org.alfresco.service.cmr.model.FileInfo;
 import org.alfresco.service.cmr.model.FileNotFoundException;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.ContentData;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.datatype.DefaultTypeConverter;
 import org.alfresco.service.cmr.repository.datatype.TypeConverter;
 import org.alfresco.service.namespace.InvalidQNameException;
 import org.alfresco.service.namespace.QName;
+import org.alfresco.service.namespace.RegexQNamePattern;
 import org.dom4j.DocumentHelper;
 import org.dom4j.io.OutputFormat;
 import org.dom4j.io.XMLWriter;
@@ -280,6 +284,9 @@ public class PropFindMethod extends WebDAVMethod
                         continue;
                     }
                     
+                    // Resolve the parent and lock state of all the children at once, for the lock discovery
+                    cacheChildLockState(curNodeInfo, childNodeInfos);
+                    
                     // Output the child node details
                     // Generate the base path for the current parent node
 
@@ -341,6 +348,46 @@ public class PropFindMethod extends WebDAVMethod
         flushXML(xml);
     }
 
+    /**
+     * Caches the parent of each primary child of the given folder, and which of the children are
+     * not locked, for this request. Checking each child for a lock then neither reads its primary
+     * parent nor looks up its lock state separately. The children's properties have already been
+     * bulk loaded by the folder listing.
+     * 
+     * @param parentInfo FileInfo
+     * @param childInfos the children of the folder
+     */
+    protected void cacheChildLockState(final FileInfo parentInfo, List<FileInfo> childInfos)
+    {
+        if (parentInfo.getNodeRef() == null || m_mode == FIND_PROPS)
+        {
+            // Thor root, or the lock state is not reported
+            return;
+        }
+        
+        // perf optimisation - run against unprotected nodeService (to bypass repeated permission checks)
+        AuthenticationUtil.runAsSystem(new RunAsWork<Void>()
+        {
+            @Override
+            public Void doWork() throws Exception
+            {
+                List<ChildAssociationRef> childAssocs = getNodeService().getChildAssocs(
+                        parentInfo.getNodeRef(), ContentModel.ASSOC_CONTAINS, RegexQNamePattern.MATCH_ALL, false);
+                for (ChildAssociationRef childAssoc : childAssocs)
+                {
+                    if (childAssoc.isPrimary())
+                    {
+                        // temporarily cache - for this request
+                        m_childToParent.put(childAssoc.getChildRef(), childAssoc.getParentRef());
+                    }
+                }
+                return null;
+            }
+        });
+        
+        m_unlockedNodes.addAll(getDAVLockService().getUnlockedNodes(childInfos));
+    }
+
     @Override
     protected OutputFormat getXMLOutputFormat()
     {
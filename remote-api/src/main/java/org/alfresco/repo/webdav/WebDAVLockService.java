@@ -26,9 +26,13 @@
 
 package org.alfresco.repo.webdav;
 
+import java.util.List;
+import java.util.Set;
+
 import jakarta.servlet.http.HttpSession;
 
 import org.alfresco.service.cmr.lock.LockService;
+import org.alfresco.service.cmr.model.FileInfo;
 import org.alfresco.service.cmr.repository.NodeRef;
 
 /**
@@ -77,6 +81,15 @@ public interface WebDAVLockService
      */
     LockInfo getLockInfo(NodeRef nodeRef);
     
+    /**
+     * Finds which of the given nodes are certainly not locked, without getting their lock info one at a time.
+     * The lock info of the other nodes must still be looked up with {@link #getLockInfo(NodeRef)}.
+     * 
+     * @param nodeInfos  the nodes, along with their properties
+     * @return           the nodes that are not locked
+     */
+    Set<NodeRef> getUnlockedNodes(List<FileInfo> nodeInfos);
+    
     /**
      * Determines if the node is locked AND it's not a WRITE_LOCK for the current user.<p>
      *
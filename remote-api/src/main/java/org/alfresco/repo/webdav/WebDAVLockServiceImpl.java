@@ -27,20 +27,25 @@
 package org.alfresco.repo.webdav;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import jakarta.servlet.http.HttpSession;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.lock.mem.Lifetime;
 import org.alfresco.repo.lock.mem.LockState;
+import org.alfresco.repo.lock.mem.LockStore;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
+import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.cmr.coci.CheckOutCheckInService;
 import org.alfresco.service.cmr.lock.LockService;
 import org.alfresco.service.cmr.lock.LockStatus;
 import org.alfresco.service.cmr.lock.LockType;
+import org.alfresco.service.cmr.model.FileInfo;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeService;
 import org.alfresco.service.transaction.TransactionService;
@@ -68,6 +73,8 @@ public class WebDAVLockServiceImpl implements WebDAVLockService
     private NodeService nodeService;
     private TransactionService transactionService;
     private CheckOutCheckInService checkOutCheckInService;
+    private LockStore lockStore;
+    private TenantService tenantService;
 
     /**
      * Set the LockService
@@ -108,6 +115,26 @@ public class WebDAVLockServiceImpl implements WebDAVLockService
     {
         this.checkOutCheckInService = checkOutCheckInService;
     }
+
+    /**
+     * Set the LockStore holding the in-memory locks
+     * 
+     * @param lockStore LockStore
+     */
+    public void setLockStore(LockStore lockStore)
+    {
+        this.lockStore = lockStore;
+    }
+
+    /**
+     * Set the TenantService
+     * 
+     * @param tenantService TenantService
+     */
+    public void setTenantService(TenantService tenantService)
+    {
+        this.tenantService = tenantService;
+    }
     
     /**
      * Caches current session to the thread local variable
@@ -383,6 +410,28 @@ public class WebDAVLockServiceImpl implements WebDAVLockService
         return lockInfo;
     }
 
+    /**
+     * A WebDAV lock is described by the lock's additional info, so a node is not locked if there is no
+     * additional info among its properties, which hold any persistent lock, and the lock store does not
+     * hold an in-memory lock for it.
+     */
+    @Override
+    public Set<NodeRef> getUnlockedNodes(List<FileInfo> nodeInfos)
+    {
+        Set<NodeRef> unlockedNodes = new HashSet<NodeRef>(nodeInfos.size() * 2);
+        for (FileInfo nodeInfo : nodeInfos)
+        {
+            NodeRef nodeRef = nodeInfo.getNodeRef();
+            if (nodeRef != null
+                        && nodeInfo.getProperties().get(ContentModel.PROP_LOCK_ADDITIONAL_INFO) == null
+                        && !lockStore.mayBeLocked(tenantService.getName(nodeRef)))
+            {
+                unlockedNodes.add(nodeRef);
+            }
+        }
+        return unlockedNodes;
+    }
+
     /**
      * Determines if the node is locked AND it's not a WRITE_LOCK for the current user.<p>
      *
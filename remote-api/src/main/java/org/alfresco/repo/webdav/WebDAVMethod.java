@@ -35,6 +35,7 @@ import java.io.InputStreamReader;
 import java.net.SocketException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -158,6 +159,7 @@ public abstract class WebDAVMethod
     // request scope
     protected Map<NodeRef, NodeRef> m_childToParent = new HashMap<NodeRef, NodeRef>();
     protected Map<NodeRef, LockInfo> m_parentLockInfo = new HashMap<NodeRef, LockInfo>();
+    protected Set<NodeRef> m_unlockedNodes = new HashSet<NodeRef>();
 
     private String siteId;
 
@@ -1346,6 +1348,12 @@ public abstract class WebDAVMethod
      */
     private LockInfo getNodeLockInfoDirect(FileInfo nodeInfo)
     {
+        if (m_unlockedNodes.contains(nodeInfo.getNodeRef()))
+        {
+            // Already known not to be locked - for this request
+            return null;
+        }
+        
         LockInfo lock = getDAVLockService().getLockInfo(nodeInfo.getNodeRef());
         
         if (lock == null)
@@ -1368,6 +1376,11 @@ public abstract class WebDAVMethod
      */
     private LockInfo getNodeLockInfoIndirect(NodeRef parent)
     {
+        if (m_unlockedNodes.contains(parent))
+        {
+            return null;
+        }
+        
         LockInfo parentLock = getDAVLockService().getLockInfo(parent);
         
         if (parentLock == null)
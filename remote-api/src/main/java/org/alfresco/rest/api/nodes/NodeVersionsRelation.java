@@ -33,12 +33,14 @@ import java.util.Map;
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.alfresco.model.ContentModel;
+import org.alfresco.query.PagingResults;
 import org.alfresco.repo.content.directurl.DirectAccessUrlDisabledException;
 import org.alfresco.repo.node.integrity.IntegrityException;
 import org.alfresco.repo.policy.BehaviourFilter;
 import org.alfresco.repo.version.Version2Model;
 import org.alfresco.repo.version.VersionModel;
 import org.alfresco.rest.api.DirectAccessUrlHelper;
+import org.alfresco.rest.api.impl.Util;
 import org.alfresco.rest.api.model.DirectAccessUrlRequest;
 import org.alfresco.rest.api.model.Node;
 import org.alfresco.rest.api.model.UserInfo;
@@ -56,6 +58,7 @@ import org.alfresco.rest.framework.resource.actions.interfaces.RelationshipResou
 import org.alfresco.rest.framework.resource.actions.interfaces.RelationshipResourceBinaryAction;
 import org.alfresco.rest.framework.resource.content.BinaryResource;
 import org.alfresco.rest.framework.resource.parameters.CollectionWithPagingInfo;
+import org.alfresco.rest.framework.resource.parameters.Paging;
 import org.alfresco.rest.framework.resource.parameters.Parameters;
 import org.alfresco.rest.framework.webscripts.WithResponse;
 import org.alfresco.service.cmr.coci.CheckOutCheckInService;
@@ -119,24 +122,24 @@ public class NodeVersionsRelation extends AbstractNodeRelation implements
     {
         NodeRef nodeRef = nodes.validateOrLookupNode(nodeId);
 
-        VersionHistory vh = versionService.getVersionHistory(nodeRef);
+        // only the requested page of versions is loaded (most recent first)
+        Paging paging = parameters.getPaging();
+        PagingResults<Version> versions = versionService.getVersionHistory(nodeRef, Util.getPagingRequest(paging));
 
         Map<String, UserInfo> mapUserInfo = new HashMap<>(10);
         List<String> includeParam = parameters.getInclude();
-        
-        List<Node> collection = null;
-        if (vh != null)
+
+        List<Version> page = versions.getPage();
+        List<Node> collection = new ArrayList<>(page.size());
+        for (Version v : page)
         {
-            collection = new ArrayList<>(vh.getAllVersions().size());
-            for (Version v : vh.getAllVersions())
-            {
-                Node node = nodes.getFolderOrDocument(v.getFrozenStateNodeRef(), null, null, includeParam, mapUserInfo);
-                mapVersionInfo(v, node);
-                collection.add(node);
-            }
+            Node node = nodes.getFolderOrDocument(v.getFrozenStateNodeRef(), null, null, includeParam, mapUserInfo);
+            mapVersionInfo(v, node);
+            collection.add(node);
         }
-        
-        return listPage(collection, parameters.getPaging());
+
+        Integer totalItems = versions.getTotalResultCount() != null ? versions.getTotalResultCount().getFirst() : null;
+        return CollectionWithPagingInfo.asPaged(paging, collection, versions.hasMoreItems(), totalItems);
     }
 
     private void mapVersionInfo(Version v, Node aNode)
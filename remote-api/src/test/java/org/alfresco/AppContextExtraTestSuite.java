@@ -80,6 +80,7 @@ import org.junit.runners.Suite;
 
     // [classpath:alfresco/application-context.xml]
     org.alfresco.repo.webdav.GetMethodRegressionTest.class,
+    org.alfresco.repo.webdav.PropFindMethodTest.class,
     org.alfresco.repo.webdav.WebDAVHelperIntegrationTest.class,
     org.alfresco.repo.web.scripts.person.UserCSVUploadTest.class,
 
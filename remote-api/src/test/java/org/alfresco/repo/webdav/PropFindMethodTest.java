@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * Alfresco Remote API
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.webdav;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.transaction.Status;
+import jakarta.transaction.UserTransaction;
+
+import junit.framework.TestCase;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.nodelocator.CompanyHomeNodeLocator;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.ServiceRegistry;
+import org.alfresco.service.cmr.model.FileFolderService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.ApplicationContextHelper;
+import org.alfresco.util.GUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests {@link PropFindMethod} in real environment, using mock HTTP request and response
+ */
+public class PropFindMethodTest extends TestCase
+{
+    private static final int DOCUMENTS_AMOUNT = 5;
+
+    private static final String TEST_WEBDAV_URL_PREFIX = "/";
+
+    private WebDAVHelper davHelper;
+
+    private WebDAVLockService lockService;
+
+    private WebDAVLockService lockServiceSpy;
+
+    private FileFolderService fileFolderService;
+
+    private TransactionService transactionService;
+
+    private UserTransaction transaction;
+
+    private NodeRef companyHomeNodeRef;
+
+    private String rootTestFolderName;
+
+    private NodeRef rootTestFolder;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        ApplicationContext applicationContext = ApplicationContextHelper.getApplicationContext();
+        ServiceRegistry registry = (ServiceRegistry) applicationContext.getBean(ServiceRegistry.SERVICE_REGISTRY);
+        davHelper = (WebDAVHelper) applicationContext.getBean(WebDAVHelper.BEAN_NAME);
+        fileFolderService = registry.getFileFolderService();
+        transactionService = registry.getTransactionService();
+
+        // Count the lock lookups made by the method
+        lockService = davHelper.getLockService();
+        lockServiceSpy = spy(lockService);
+        davHelper.setLockService(lockServiceSpy);
+
+        transaction = transactionService.getUserTransaction();
+        transaction.begin();
+        AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
+
+        companyHomeNodeRef = registry.getNodeLocatorService().getNode(CompanyHomeNodeLocator.NAME, null, null);
+        rootTestFolderName = "TestFolder-" + GUID.generate();
+        rootTestFolder = fileFolderService.create(companyHomeNodeRef, rootTestFolderName, ContentModel.TYPE_FOLDER).getNodeRef();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        davHelper.setLockService(lockService);
+
+        if ((null != transaction) && (Status.STATUS_ROLLEDBACK != transaction.getStatus()) && (Status.STATUS_COMMITTED != transaction.getStatus()))
+        {
+            transaction.rollback();
+        }
+
+        AuthenticationUtil.clearCurrentSecurityContext();
+    }
+
+    /**
+     * A depth 1 PROPFIND only looks up the lock of the children that may be locked, and still reports their locks
+     */
+    @Test
+    public void testLockLookedUpForLockedChildrenOnly() throws Exception
+    {
+        List<NodeRef> documents = new ArrayList<NodeRef>(DOCUMENTS_AMOUNT);
+        for (int i = 0; i < DOCUMENTS_AMOUNT; i++)
+        {
+            documents.add(fileFolderService.create(rootTestFolder, "TestDocument-" + i + ".txt", ContentModel.TYPE_CONTENT).getNodeRef());
+        }
+        NodeRef lockedDocument = documents.get(0);
+        String userName = AuthenticationUtil.getAdminUserName();
+        lockService.lock(lockedDocument, userName, 3600);
+        try
+        {
+            MockHttpServletRequest mockRequest = new MockHttpServletRequest(WebDAV.METHOD_PROPFIND, TEST_WEBDAV_URL_PREFIX + rootTestFolderName);
+            mockRequest.addHeader(WebDAV.HEADER_DEPTH, WebDAV.ONE);
+            MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+            PropFindMethod testingMethod = new PropFindMethod();
+            testingMethod.setDetails(mockRequest, mockResponse, davHelper, companyHomeNodeRef);
+            testingMethod.parseRequestHeaders();
+            testingMethod.executeImpl();
+            assertEquals(WebDAV.WEBDAV_SC_MULTI_STATUS, mockResponse.getStatus());
+
+            verify(lockServiceSpy, times(1)).getLockInfo(lockedDocument);
+            for (NodeRef document : documents.subList(1, DOCUMENTS_AMOUNT))
+            {
+                verify(lockServiceSpy, never()).getLockInfo(document);
+            }
+            assertTrue("The lock should be reported",
+                    mockResponse.getContentAsString().contains(WebDAV.makeLockToken(lockedDocument, userName)));
+        }
+        finally
+        {
+            lockService.unlock(lockedDocument);
+        }
+    }
+}
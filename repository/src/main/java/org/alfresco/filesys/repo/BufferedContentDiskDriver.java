@@ -29,6 +29,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.alfresco.filesys.config.ServerConfigurationBean;
 import org.alfresco.filesys.alfresco.ExtendedDiskInterface;
@@ -57,12 +60,17 @@ import org.alfresco.jlan.server.locking.OpLockInterface;
 import org.alfresco.jlan.server.locking.OpLockManager;
 import org.alfresco.jlan.smb.SMBException;
 import org.alfresco.jlan.util.DataBuffer;
+import org.alfresco.model.ContentModel;
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.node.NodeServicePolicies;
 import org.alfresco.repo.policy.JavaBehaviour;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.EqualsHelper;
 import org.alfresco.util.PropertyCheck;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -86,7 +94,8 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
     OpLockInterface, 
     FileLockingInterface,
     NodeServicePolicies.OnDeleteNodePolicy,
-    NodeServicePolicies.OnMoveNodePolicy 
+    NodeServicePolicies.OnMoveNodePolicy,
+    NodeServicePolicies.OnUpdatePropertiesPolicy
 {
     // Logging
     private static final Log logger = LogFactory.getLog(BufferedContentDiskDriver.class);
@@ -102,6 +111,8 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
     private FileLockingInterface fileLockingInterface; 
     
     private PolicyComponent policyComponent;
+    
+    private TransactionService transactionService;
         
     public void init()
     {
@@ -118,6 +129,10 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
                 this, new JavaBehaviour(this, "onDeleteNode"));   
         getPolicyComponent().bindClassBehaviour( NodeServicePolicies.OnMoveNodePolicy.QNAME,
                 this, new JavaBehaviour(this, "onMoveNode"));
+        getPolicyComponent().bindClassBehaviour( NodeServicePolicies.OnUpdatePropertiesPolicy.QNAME,
+                ContentModel.TYPE_CMOBJECT, new JavaBehaviour(this, "onUpdateProperties"));
+        getPolicyComponent().bindClassBehaviour( NodeServicePolicies.OnUpdatePropertiesPolicy.QNAME,
+                ContentModel.TYPE_FOLDER, new JavaBehaviour(this, "onUpdateFolderProperties"));
     }
     
     /**
@@ -135,6 +150,64 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
         this.fileInfoCache = cache;
     }
     
+    /**
+     * The path keys each node is cached under, so that a single node can be dropped from the cache.
+     * Nodes that have since gone from the cache are pruned once the index grows past pruneThreshold.
+     */
+    private final Map<NodeRef, Set<FileInfoKey>> nodePathKeys = new ConcurrentHashMap<NodeRef, Set<FileInfoKey>>();
+    
+    private static final int MIN_PRUNE_THRESHOLD = 1000;
+    
+    private volatile int pruneThreshold = MIN_PRUNE_THRESHOLD;
+    
+    /**
+     * Cache the FileInfo under its NodeRef and, if given, under its path key
+     */
+    private void cacheFileInfo(FileInfoKey key, FileInfo info)
+    {
+        if(key != null)
+        {
+            fileInfoCache.put(key, info);
+        }
+        if(info instanceof ContentFileInfo)
+        {
+            NodeRef nodeRef = ((ContentFileInfo)info).getNodeRef();
+            fileInfoCache.put(nodeRef, info);
+            if(key != null)
+            {
+                nodePathKeys.computeIfAbsent(nodeRef, k -> ConcurrentHashMap.newKeySet()).add(key);
+                if(nodePathKeys.size() > pruneThreshold)
+                {
+                    nodePathKeys.entrySet().removeIf(e -> !fileInfoCache.contains(e.getKey()) &&
+                            e.getValue().stream().noneMatch(fileInfoCache::contains));
+                    pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, nodePathKeys.size() * 2);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Drop a node from the cache, under its NodeRef and all of its path keys
+     */
+    private void removeFileInfo(NodeRef nodeRef)
+    {
+        fileInfoCache.remove(nodeRef);
+        Set<FileInfoKey> keys = nodePathKeys.remove(nodeRef);
+        if(keys != null)
+        {
+            for(FileInfoKey key : keys)
+            {
+                fileInfoCache.remove(key);
+            }
+        }
+    }
+    
+    private void clearFileInfoCache()
+    {
+        fileInfoCache.clear();
+        nodePathKeys.clear();
+    }
+    
     private static class FileInfoKey implements Serializable
     {
         /**
@@ -232,20 +305,10 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
         {
             /**
              * Don't cache directories since the modification date is important.
+             * 
+             * Dual Key the cache so it can be looked up by NodeRef or Path
              */
-            if(!info.isDirectory())
-            {
-                fileInfoCache.put(key, info);
-            }
-        }
-         
-        /*
-         * Dual Key the cache so it can be looked up by NodeRef or Path
-         */
-        if(info instanceof ContentFileInfo)
-        {
-            ContentFileInfo cinfo = (ContentFileInfo)info;
-            fileInfoCache.put(cinfo.getNodeRef(), info);    
+            cacheFileInfo(info.isDirectory() ? null : key, info);
         }
         
         return info;
@@ -457,7 +520,7 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
          */
         if(!param.isDirectory() && !param.isReadOnly())
         {
-            fileInfoCache.clear();
+            clearFileInfoCache();
         }
     }
 
@@ -543,10 +606,34 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
     }
 
     @Override
-    public SearchContext startSearch(SrvSession sess, TreeConnection tree,
+    public SearchContext startSearch(final SrvSession sess, final TreeConnection tree,
             String searchPath, int attrib) throws FileNotFoundException
     {
-        return diskInterface.startSearch(sess, tree, searchPath, attrib);
+        SearchContext ctx = diskInterface.startSearch(sess, tree, searchPath, attrib);
+        
+        /*
+         * Fill the FileInfo cache from the folder listing, so that the stat calls
+         * clients make for each listed file are answered from the cache.
+         * Files listed while the repository is read-only are not cached since
+         * their read-only attribute differs from a direct lookup.
+         */
+        if(ctx instanceof ContentSearchContext && (transactionService == null || transactionService.getAllowWrite()))
+        {
+            ((ContentSearchContext)ctx).setSearchResultListener(new SearchResultListener()
+            {
+                @Override
+                public void fileFound(FileInfo info, String folderPath)
+                {
+                    if(info.isDirectory())
+                    {
+                        return;
+                    }
+                    cacheFileInfo(new FileInfoKey(sess, folderPath + info.getFileName(), tree), info);
+                }
+            });
+        }
+        
+        return ctx;
     }
 
     @Override
@@ -608,7 +695,7 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
         if(fileInfoCache.contains(oldChildAssocRef.getChildRef()))
         {
             logger.debug("cached node moved - clear the cache");
-            fileInfoCache.clear();
+            clearFileInfoCache();
         }
     }
 
@@ -618,7 +705,36 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
         if(fileInfoCache.contains(oldChildAssocRef.getChildRef()))
         {
             logger.debug("cached node deleted - clear the cache");
-            fileInfoCache.clear();
+            clearFileInfoCache();
+        }
+    }
+    
+    /**
+     * Names, content and dates may have been changed by another client or protocol.
+     * Only the updated node is dropped from the cache.
+     */
+    @Override
+    public void onUpdateProperties(NodeRef nodeRef, Map<QName, Serializable> before,
+            Map<QName, Serializable> after)
+    {
+        if(fileInfoCache.contains(nodeRef) || nodePathKeys.containsKey(nodeRef))
+        {
+            logger.debug("cached node updated - remove it from the cache");
+            removeFileInfo(nodeRef);
+        }
+    }
+    
+    /**
+     * Renaming a folder changes the paths of everything below it.
+     */
+    public void onUpdateFolderProperties(NodeRef nodeRef, Map<QName, Serializable> before,
+            Map<QName, Serializable> after)
+    {
+        if(!before.isEmpty() &&
+                !EqualsHelper.nullSafeEquals(before.get(ContentModel.PROP_NAME), after.get(ContentModel.PROP_NAME)))
+        {
+            logger.debug("folder renamed - clear the cache");
+            clearFileInfoCache();
         }
     }
 
@@ -631,6 +747,11 @@ public class BufferedContentDiskDriver implements ExtendedDiskInterface,
     {
         return policyComponent;
     }
+    
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
 
     public void setOpLockInterface(OpLockInterface opLockInterface)
     {
@@ -64,6 +64,13 @@ public class ContentSearchContext extends SearchContext
     {
         this.corrector = corrector;
     }
+
+    private SearchResultListener listener;
+
+    public void setSearchResultListener(SearchResultListener listener)
+    {
+        this.listener = listener;
+    }
     
     // List of nodes returned from the folder search
     
@@ -192,6 +199,11 @@ public class ContentSearchContext extends SearchContext
 		            nextInfo = cifsHelper.getFileInformation(nextNodeRef, "", false, lockedFilesAsOffline);
 		            info.copyFrom(nextInfo);
 
+		            if(listener != null && m_relPath != null)
+		            {
+		                listener.fileFound(nextInfo, m_relPath);
+		            }
+
 		            /**
 		             * Apply in flight correction
 		             */
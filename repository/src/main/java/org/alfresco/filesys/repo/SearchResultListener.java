@@ -0,0 +1,44 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.filesys.repo;
+
+import org.alfresco.jlan.server.filesys.FileInfo;
+
+/**
+ * Receives the repository file information of each entry returned by a folder search,
+ * before any in flight correction is applied, so that it can be reused for later lookups
+ * of the same paths.
+ *
+ * @since 23.2
+ */
+public interface SearchResultListener
+{
+    /**
+     * @param info the file information of the entry
+     * @param folderPath the path of the folder being searched, ending with a separator
+     */
+    public void fileFound(FileInfo info, String folderPath);
+}
@@ -542,7 +542,7 @@ public class AlfrescoCmisServiceImpl extends AbstractCmisService implements Alfr
                 	boolean isObjectInfoRequired = getContext().isObjectInfoRequired();
                     if (isObjectInfoRequired)
                     {
-                        getObjectInfo(repositoryId, ni.getObjectId(), includeRelationships);
+                        getObjectInfo(repositoryId, ni, object, filter, includeRelationships);
                     }
 
                     ObjectInFolderDataImpl childData = new ObjectInFolderDataImpl();
@@ -766,7 +766,7 @@ public class AlfrescoCmisServiceImpl extends AbstractCmisService implements Alfr
                         renditionFilter, false, false));
                 if (isObjectInfoRequired)
                 {
-                    getObjectInfo(repositoryId, ni.getObjectId(), includeRelationships);
+                    getObjectInfo(repositoryId, ni, object.getObject(), filter, includeRelationships);
                 }
 
                 if (includePathSegment)
@@ -2863,6 +2863,56 @@ public class AlfrescoCmisServiceImpl extends AbstractCmisService implements Alfr
         return info;
     }
 
+    /**
+     * Collects the {@link ObjectInfo} about an object that has just been built for a listing.
+     * <p/>
+     * If the listing was not filtered, the object already carries every property the info needs
+     * and is reused rather than building the same CMIS object a second time.
+     */
+    private ObjectInfo getObjectInfo(
+            String repositoryId, CMISNodeInfo nodeInfo, ObjectData object, String filter,
+            IncludeRelationships includeRelationships)
+    {
+        if (!isUnfiltered(filter))
+        {
+            return getObjectInfo(repositoryId, nodeInfo.getObjectId(), includeRelationships);
+        }
+
+        ObjectInfo info = objectInfoMap.get(nodeInfo.getObjectId());
+        if (info == null)
+        {
+            try
+            {
+                info = getObjectInfoIntern(repositoryId, object);
+
+                // add object info
+                objectInfoMap.put(nodeInfo.getObjectId(), info);
+            }
+            catch (Exception e)
+            {
+                logger.error("Failed to collect the object info of " + nodeInfo.getObjectId(), e);
+                info = null;
+            }
+        }
+        return info;
+    }
+
+    private static boolean isUnfiltered(String filter)
+    {
+        if (filter == null || filter.trim().length() == 0)
+        {
+            return true;
+        }
+        for (String s : filter.split(","))
+        {
+            if (s.trim().equals("*"))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String getRequestParameterRenditionFilter()
     {
         QueryStringHttpServletRequestWrapper httpServletRequest = getHttpServletRequest();
@@ -66,7 +66,6 @@ import org.alfresco.opencmis.dictionary.CMISAllowedActionEnum;
 import org.alfresco.opencmis.dictionary.CMISDictionaryService;
 import org.alfresco.opencmis.dictionary.CMISNodeInfo;
 import org.alfresco.opencmis.dictionary.CMISObjectVariant;
-import org.alfresco.opencmis.dictionary.CMISPropertyAccessor;
 import org.alfresco.opencmis.dictionary.DocumentTypeDefinitionWrapper;
 import org.alfresco.opencmis.dictionary.FolderTypeDefintionWrapper;
 import org.alfresco.opencmis.dictionary.ItemTypeDefinitionWrapper;
@@ -352,6 +351,9 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
     private String proxyUser;
     private boolean openHttpSession = false;
 
+    private boolean propertyAccessorStatisticsEnabled = false;
+    private final PropertyAccessorStatistics propertyAccessorStatistics = new PropertyAccessorStatistics();
+
     // OpenCMIS objects
     private BigInteger typesDefaultMaxItems = TYPES_DEFAULT_MAX_ITEMS;
     private BigInteger typesDefaultDepth = TYPES_DEFAULT_DEPTH;
@@ -369,6 +371,10 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
     private int bulkBatchSize = 20;
     private int bulkWorkerThreads = 2;
 
+    // Query cursors
+    private final CMISQueryCursorCache queryCursorCache = new CMISQueryCursorCache();
+    private int queryCursorWindowSize = 1000;
+
     // --------------------------------------------------------------
     // Configuration
     // --------------------------------------------------------------
@@ -500,6 +506,52 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
         return openHttpSession;
     }
 
+    /**
+     * Set how long the result set of a paged query is kept for the next page (0 disables query cursors).
+     */
+    public void setQueryCursorTtlSeconds(int queryCursorTtlSeconds)
+    {
+        queryCursorCache.setTtlMillis(queryCursorTtlSeconds * 1000L);
+    }
+
+    /**
+     * Set the maximum number of query result sets kept for subsequent pages.
+     */
+    public void setQueryCursorMaxCount(int queryCursorMaxCount)
+    {
+        queryCursorCache.setMaxCursors(queryCursorMaxCount);
+    }
+
+    /**
+     * Set the maximum number of rows fetched, and hydrated, in one go for a query cursor. The first
+     * page only fetches its own rows; the window doubles each time the following pages run out of rows.
+     */
+    public void setQueryCursorWindowSize(int queryCursorWindowSize)
+    {
+        this.queryCursorWindowSize = queryCursorWindowSize;
+    }
+
+    public CMISQueryCursorCache getQueryCursorCache()
+    {
+        return queryCursorCache;
+    }
+
+    /**
+     * Enable the collection of per-property accessor evaluation counts and times.
+     */
+    public void setPropertyAccessorStatisticsEnabled(boolean propertyAccessorStatisticsEnabled)
+    {
+        this.propertyAccessorStatisticsEnabled = propertyAccessorStatisticsEnabled;
+    }
+
+    /**
+     * @return the accessor evaluation counts and times collected so far (empty unless enabled)
+     */
+    public PropertyAccessorStatistics getPropertyAccessorStatistics()
+    {
+        return propertyAccessorStatistics;
+    }
+
     /**
      *
      *
@@ -920,6 +972,7 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
         @Override
         protected void onShutdown(ApplicationEvent event)
         {
+            queryCursorCache.clear();
         }
     }
 
@@ -1578,7 +1631,7 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
         if (info.isRelationship())
         {
             // set properties
-            result.setProperties(getAssocProperties(info, filter));
+            result.setProperties(nodeProps);
 
             // set ACL
             if (includeAcl)
@@ -1921,7 +1974,7 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
                         continue;
                     }
 
-                    Serializable value = propDef.getPropertyAccessor().getValue(info);
+                    Serializable value = getPropertyValue(propDef, info);
                     result.addProperty(getProperty(propDef.getPropertyDefinition().getPropertyType(), propDef, value));
 
                     // mark property as 'added'
@@ -1949,7 +2002,7 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
                 }
             }
 
-            Serializable value = propDef.getPropertyAccessor().getValue(info);
+            Serializable value = getPropertyValue(propDef, info);
             result.addProperty(getProperty(propDef.getPropertyDefinition().getPropertyType(), propDef, value));
         }
 
@@ -1958,6 +2011,27 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
         return result;
     }
 
+    /**
+     * Evaluates a single property through its accessor, recording the cost of the accessor when enabled.
+     */
+    private Serializable getPropertyValue(PropertyDefinitionWrapper propDef, CMISNodeInfo info)
+    {
+        if (!propertyAccessorStatisticsEnabled)
+        {
+            return propDef.getPropertyAccessor().getValue(info);
+        }
+
+        long start = System.nanoTime();
+        try
+        {
+            return propDef.getPropertyAccessor().getValue(info);
+        }
+        finally
+        {
+            propertyAccessorStatistics.record(propDef.getPropertyId(), System.nanoTime() - start);
+        }
+    }
+
     public Properties getAssocProperties(CMISNodeInfo info, String filter)
     {
         PropertiesImpl result = new PropertiesImpl();
@@ -1973,8 +2047,7 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
                 continue;
             }
 
-            CMISPropertyAccessor cmisPropertyAccessor = propDefWrap.getPropertyAccessor();
-            Serializable value = cmisPropertyAccessor.getValue(info);
+            Serializable value = getPropertyValue(propDefWrap, info);
             PropertyType propType = propDef.getPropertyType();
             PropertyData<?> propertyData = getProperty(propType, propDefWrap, value);
             result.addProperty(propertyData);
@@ -2024,7 +2097,7 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
                     continue;
                 }
 
-                Serializable value = propDef.getPropertyAccessor().getValue(info);
+                Serializable value = getPropertyValue(propDef, info);
                 propertyExtensionList.add(createAspectPropertyExtension(propDef.getPropertyDefinition(), value));
 
                 // mark property as 'added'
@@ -2984,22 +3057,55 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
             options.setSkipCount(skip);
         }
 
+        int max = -1;
         if ((maxItems != null) && (maxItems.intValue() >= 0))
         {
-            options.setMaxItems(maxItems.intValue());
+            max = maxItems.intValue();
+            options.setMaxItems(max);
         }
 
         boolean fetchObject = includeAllowableActions || (includeRelationships != IncludeRelationships.NONE)
                 || (!RENDITION_NONE.equals(renditionFilter));
 
+        // resume the result set left by the previous page, if any
+        boolean useCursor = queryCursorCache.isEnabled() && (max > 0) && (max < Integer.MAX_VALUE);
+        String user = AuthenticationUtil.getFullyAuthenticatedUser();
+        String cursorQuery = cmisVersion + "\n" + statement;
+        CMISQueryCursorCache.Cursor cursor = (useCursor ? queryCursorCache.take(user, cursorQuery, skip) : null);
+        boolean resumed = (cursor != null) && (cursor.getResultSet() != null);
+
         // query
-        CMISResultSet rs = getOpenCMISQueryService().query(options);
+        CMISResultSet rs;
+        int index;
+        int window = max;
+        if (resumed)
+        {
+            rs = cursor.getResultSet();
+            index = cursor.getIndex();
+            window = cursor.getWindow();
+        }
+        else
+        {
+            if (cursor != null)
+            {
+                // the previous pages are being followed, fetch a window of rows the next pages can resume
+                window = cursor.getWindow();
+                options.setMaxItems(window);
+            }
+            rs = getOpenCMISQueryService().query(options);
+            index = 0;
+        }
+
+        boolean keepResultSet = false;
         try
         {
             CMISResultSetColumn[] columns = rs.getMetaData().getColumns();
 
-            for (CMISResultSetRow row : rs)
+            int length = rs.getLength();
+            int end = (useCursor ? Math.min(length, index + max) : length);
+            for (; index < end; index++)
             {
+                CMISResultSetRow row = rs.getRow(index);
                 NodeRef nodeRef = row.getNodeRef();
 
                 if(!nodeService.exists(nodeRef) || filter(nodeRef))
@@ -3007,6 +3113,12 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
                     continue;
                 }
 
+                // permissions were evaluated when the query ran, but may have changed since
+                if (resumed && (permissionService.hasReadPermission(nodeRef) != AccessStatus.ALLOWED))
+                {
+                    continue;
+                }
+
                 TypeDefinitionWrapper type = getType(nodeRef);
                 if (type == null)
                 {
@@ -3068,11 +3180,32 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
             {
             	result.setNumItems(BigInteger.valueOf(numberFound));
             }
-            result.setHasMoreItems(rs.hasMore());
+
+            if (useCursor && (index < length))
+            {
+                // keep the remaining rows for the next page
+                queryCursorCache.put(user, cursorQuery, skip + max, new CMISQueryCursorCache.Cursor(rs, index, window));
+                keepResultSet = true;
+                result.setHasMoreItems(true);
+            }
+            else
+            {
+                result.setHasMoreItems(rs.hasMore());
+                if (useCursor && rs.hasMore())
+                {
+                    // the window is used up, the next page fetches a larger one
+                    int maxWindow = Math.max(max, (queryCursorWindowSize / max) * max);
+                    int nextWindow = (int) Math.min((long) window * 2, maxWindow);
+                    queryCursorCache.put(user, cursorQuery, skip + max, new CMISQueryCursorCache.Cursor(null, 0, nextWindow));
+                }
+            }
 
         } finally
         {
-            rs.close();
+            if (!keepResultSet)
+            {
+                rs.close();
+            }
         }
 
         return result;
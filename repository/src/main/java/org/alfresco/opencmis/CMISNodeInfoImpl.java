@@ -330,7 +330,6 @@ public class CMISNodeInfoImpl implements CMISNodeInfo
         				if (currentVersion != null)
         				{
         					versionLabel = currentVersion.getVersionLabel();
-        					versionHistory = connector.getVersionService().getVersionHistory(nodeRef);
         				}
         				else
         				{
@@ -0,0 +1,192 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.opencmis;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.alfresco.opencmis.search.CMISResultSet;
+
+/**
+ * Keeps the open result sets of CMIS queries between page requests, so that a client paging
+ * through a large result resumes where the previous page ended instead of re-running the query.
+ * <p/>
+ * A cursor is keyed by the user, the query and the skip count at which the next page starts.
+ * It can be taken once; the caller puts it back if the result set has rows left. Once a result
+ * set is used up, a cursor without one records how many rows the next page should fetch. Cursors
+ * that are not resumed within the time to live are closed, as are the oldest ones when the maximum
+ * number of cursors is reached.
+ *
+ * @since 23.2
+ */
+public class CMISQueryCursorCache
+{
+    private final Map<String, Cursor> cursors = new LinkedHashMap<String, Cursor>();
+
+    private long ttlMillis = 0;
+    private int maxCursors = 100;
+
+    /**
+     * @param ttlMillis how long a cursor is kept without being resumed; 0 or less disables cursors
+     */
+    public void setTtlMillis(long ttlMillis)
+    {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @param maxCursors the maximum number of cursors kept at any time
+     */
+    public void setMaxCursors(int maxCursors)
+    {
+        this.maxCursors = maxCursors;
+    }
+
+    public boolean isEnabled()
+    {
+        return ttlMillis > 0 && maxCursors > 0;
+    }
+
+    /**
+     * Removes and returns the cursor positioned at the given skip count, if there is one.
+     *
+     * @return the cursor or <tt>null</tt> if the query must be executed
+     */
+    public synchronized Cursor take(String user, String query, int skipCount)
+    {
+        purgeExpired(System.currentTimeMillis());
+        return cursors.remove(getKey(user, query, skipCount));
+    }
+
+    /**
+     * Keeps a cursor that the next page, starting at the given skip count, can resume.
+     */
+    public synchronized void put(String user, String query, int skipCount, Cursor cursor)
+    {
+        long now = System.currentTimeMillis();
+        purgeExpired(now);
+
+        cursor.expires = now + ttlMillis;
+        Cursor replaced = cursors.remove(getKey(user, query, skipCount));
+        if (replaced != null)
+        {
+            replaced.close();
+        }
+        while (cursors.size() >= maxCursors)
+        {
+            Iterator<Cursor> iterator = cursors.values().iterator();
+            iterator.next().close();
+            iterator.remove();
+        }
+        cursors.put(getKey(user, query, skipCount), cursor);
+    }
+
+    public synchronized int size()
+    {
+        return cursors.size();
+    }
+
+    /**
+     * Closes and discards all cursors.
+     */
+    public synchronized void clear()
+    {
+        for (Cursor cursor : cursors.values())
+        {
+            cursor.close();
+        }
+        cursors.clear();
+    }
+
+    private void purgeExpired(long now)
+    {
+        // cursors are kept in the order they were put, so the expired ones come first
+        Iterator<Cursor> iterator = cursors.values().iterator();
+        while (iterator.hasNext())
+        {
+            Cursor cursor = iterator.next();
+            if (cursor.expires > now)
+            {
+                break;
+            }
+            cursor.close();
+            iterator.remove();
+        }
+    }
+
+    private static String getKey(String user, String query, int skipCount)
+    {
+        return user + "\n" + skipCount + "\n" + query;
+    }
+
+    /**
+     * An open result set, the index of the next row to return from it and the number of rows
+     * fetched for the pages that follow.
+     */
+    public static class Cursor
+    {
+        private final CMISResultSet resultSet;
+        private final int index;
+        private final int window;
+        private long expires;
+
+        /**
+         * @param resultSet the open result set or <tt>null</tt> if the query must be executed again
+         * @param index the index of the next row in the result set
+         * @param window the number of rows fetched when the query is executed for the following pages
+         */
+        public Cursor(CMISResultSet resultSet, int index, int window)
+        {
+            this.resultSet = resultSet;
+            this.index = index;
+            this.window = window;
+        }
+
+        public CMISResultSet getResultSet()
+        {
+            return resultSet;
+        }
+
+        public int getIndex()
+        {
+            return index;
+        }
+
+        public int getWindow()
+        {
+            return window;
+        }
+
+        private void close()
+        {
+            if (resultSet != null)
+            {
+                resultSet.close();
+            }
+        }
+    }
+}
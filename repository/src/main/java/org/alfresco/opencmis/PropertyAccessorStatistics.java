@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.opencmis;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the number of evaluations and the time spent in each CMIS property accessor,
+ * keyed by CMIS property id, so that expensive properties can be identified.  The statistics
+ * are exported over JMX as <tt>Alfresco:Name=CMIS,Type=PropertyAccessorStatistics</tt>.
+ *
+ * @since 23.2
+ */
+public class PropertyAccessorStatistics implements PropertyAccessorStatisticsMBean
+{
+    private final ConcurrentMap<String, AccessorStats> stats = new ConcurrentHashMap<String, AccessorStats>();
+
+    /**
+     * Record one evaluation of a property accessor.
+     *
+     * @param propertyId the CMIS property id
+     * @param nanos      the time taken by the accessor, in nanoseconds
+     */
+    public void record(String propertyId, long nanos)
+    {
+        AccessorStats accessorStats = stats.get(propertyId);
+        if (accessorStats == null)
+        {
+            accessorStats = stats.computeIfAbsent(propertyId, id -> new AccessorStats());
+        }
+        accessorStats.count.increment();
+        accessorStats.nanos.add(nanos);
+    }
+
+    /**
+     * @return a snapshot of the statistics, sorted by property id
+     */
+    public Map<String, AccessorStats> getStatistics()
+    {
+        return Collections.unmodifiableMap(new TreeMap<String, AccessorStats>(stats));
+    }
+
+    @Override
+    public String[] getPropertyIds()
+    {
+        return getStatistics().keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public long getCount(String propertyId)
+    {
+        AccessorStats accessorStats = stats.get(propertyId);
+        return accessorStats == null ? 0 : accessorStats.getCount();
+    }
+
+    @Override
+    public long getTotalTimeNanos(String propertyId)
+    {
+        AccessorStats accessorStats = stats.get(propertyId);
+        return accessorStats == null ? 0 : accessorStats.getTotalTimeNanos();
+    }
+
+    @Override
+    public long getAverageTimeNanos(String propertyId)
+    {
+        AccessorStats accessorStats = stats.get(propertyId);
+        return accessorStats == null ? 0 : accessorStats.getAverageTimeNanos();
+    }
+
+    @Override
+    public void reset()
+    {
+        stats.clear();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PropertyAccessorStatistics" + getStatistics();
+    }
+
+    /**
+     * Evaluation count and time for a single property accessor.
+     */
+    public static class AccessorStats
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        public long getCount()
+        {
+            return count.sum();
+        }
+
+        public long getTotalTimeNanos()
+        {
+            return nanos.sum();
+        }
+
+        public long getAverageTimeNanos()
+        {
+            long c = count.sum();
+            return c == 0 ? 0 : nanos.sum() / c;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "[count=" + getCount() + ", totalNanos=" + getTotalTimeNanos() + "]";
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.opencmis;
+
+/**
+ * Management view of the CMIS property accessor statistics, by CMIS property id.
+ * <p/>
+ * The figures are held per server, reset on restart and only collected while
+ * <b>opencmis.propertyAccessorStatistics.enabled</b> is set.
+ *
+ * @since 23.2
+ */
+public interface PropertyAccessorStatisticsMBean
+{
+    /**
+     * @return String[]     the ids of the properties evaluated since startup or the last reset
+     */
+    public String[] getPropertyIds();
+
+    /**
+     * @return long         the number of evaluations of the given property
+     */
+    public long getCount(String propertyId);
+
+    /**
+     * @return long         the total time in nanoseconds spent evaluating the given property
+     */
+    public long getTotalTimeNanos(String propertyId);
+
+    /**
+     * @return long         the average time in nanoseconds of an evaluation of the given property
+     */
+    public long getAverageTimeNanos(String propertyId);
+
+    /**
+     * Discard all statistics collected so far.
+     */
+    public void reset();
+}
@@ -84,6 +84,19 @@ public abstract class AbstractAsynchronousActionFilter implements Comparator<Ong
         this.asynchronousActionExecutionQueue = asynchronousActionExecutionQueue;
     }
     
+    /**
+     * Indicates whether this filter only finds actions on the same node to be equivalent, in which case
+     * only the pending actions on the new action's node are compared.  By default all pending actions of
+     * the same action definition are compared.
+     * 
+     * @return boolean
+     * @since 23.2
+     */
+    public boolean isNodeSpecific()
+    {
+        return false;
+    }
+    
     public void init()
     {
         this.asynchronousActionExecutionQueue.registerActionFilter(this);
@@ -928,6 +928,23 @@ public class ActionServiceImpl implements ActionService, RuntimeActionService, A
         this.conditionDefinitions.put(cond.getName(), cond);
     }
 
+    /**
+     * @see org.alfresco.repo.action.RuntimeActionService#getActionConditionEvaluator(java.lang.String)
+     */
+    public ActionConditionEvaluator getActionConditionEvaluator(String actionConditionDefinitionName)
+    {
+        ActionConditionEvaluator evaluator = null;
+        if (this.applicationContext.containsBean(actionConditionDefinitionName))
+        {
+            Object bean = this.applicationContext.getBean(actionConditionDefinitionName);
+            if (bean instanceof ActionConditionEvaluator)
+            {
+                evaluator = (ActionConditionEvaluator) bean;
+            }
+        }
+        return evaluator;
+    }
+
     /**
      * @see org.alfresco.repo.action.RuntimeActionService#registerActionExecuter(org.alfresco.repo.action.executer.ActionExecuter)
      */
@@ -25,12 +25,19 @@
  */
 package org.alfresco.repo.action;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.alfresco.error.AlfrescoRuntimeException;
@@ -48,16 +55,22 @@ import org.alfresco.service.cmr.action.Action;
 import org.alfresco.service.cmr.action.ActionServiceException;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.EqualsHelper;
 import org.alfresco.util.transaction.TransactionListenerAdapter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
  * The asynchronous action execution queue implementation
+ * <p/>
+ * Queued actions are held here rather than in the thread pool's own queue, one queue per action type, so that
+ * each type can be given a priority and a limit on the number of its actions running at once.  A thread pool
+ * task is submitted for each queued action; it runs the highest priority action that is within its limit.
+ * This stops bulk jobs from taking every thread while interactive actions wait.
  * 
  * @author Roy Wetherall
  */
-public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionExecutionQueue
+public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionExecutionQueue, AsynchronousActionExecutionQueueImplMBean
 {
     private static Log logger = LogFactory.getLog(AsynchronousActionExecutionQueueImpl.class);
     
@@ -69,13 +82,19 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
     private Map<String, AbstractAsynchronousActionFilter>
             actionFilters = new ConcurrentHashMap<String, AbstractAsynchronousActionFilter>();
     private String id;
+    private Map<String, Integer> actionPriorities = Collections.emptyMap();
+    private Map<String, Integer> actionConcurrencyLimits = Collections.emptyMap();
+    private Set<String> coalescedActions = Collections.emptySet();
 
     /**
      * We keep a record of ongoing asynchronous actions (this includes those being executed and
-     * those that are in the queue).
-     * This needs to be thread-safe - hence the Vector.
+     * those that are in the queue), indexed by node and action definition name.
+     * Access to this and to the queues below is synchronized on this map.
      */
-    List<OngoingAsyncAction> ongoingActions = new Vector<OngoingAsyncAction>();
+    final Map<OngoingAsyncAction, List<QueuedAction>> ongoingActions = new HashMap<OngoingAsyncAction, List<QueuedAction>>();
+    /** The actions waiting for a thread, by action definition name */
+    private final Map<String, ActionTypeQueue> actionTypeQueues = new LinkedHashMap<String, ActionTypeQueue>();
+    private long sequence;
     
     // Policy delegates
     private ClassPolicyDelegate<OnAsyncActionExecute> onAsyncActionExecuteDelegate; 
@@ -126,6 +145,40 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
         this.threadPoolExecutor = threadPoolExecutor;
     }
 
+    /**
+     * Set the priorities of action types.  When a thread becomes free, the waiting action with the highest
+     * priority is run; actions of the same priority run in the order in which they were queued.
+     * 
+     * @param actionPriorities              priorities by action definition name; the default is 0
+     */
+    public void setActionPriorities(Map<String, Integer> actionPriorities)
+    {
+        this.actionPriorities = actionPriorities;
+    }
+
+    /**
+     * Limit the number of actions of a type that may run at once, leaving the other threads free for other actions.
+     * 
+     * @param actionConcurrencyLimits       limits by action definition name; types that are not listed,
+     *                                      or have a limit of zero or less, are only limited by the thread pool
+     */
+    public void setActionConcurrencyLimits(Map<String, Integer> actionConcurrencyLimits)
+    {
+        this.actionConcurrencyLimits = actionConcurrencyLimits;
+    }
+
+    /**
+     * Set the action types for which a new action is dropped when an identical action is still waiting
+     * to be run: on the same node, with the same parameters, run as the same user and without conditions.
+     * The waiting action will see the node as it is when it runs, so the work is done once.
+     * 
+     * @param coalescedActions              the action definition names
+     */
+    public void setCoalescedActions(Set<String> coalescedActions)
+    {
+        this.coalescedActions = coalescedActions;
+    }
+
     /**
      * Set the transaction service
      * 
@@ -224,7 +277,7 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
 
         Set<RuleServiceImpl.ExecutedRuleData> executedRules =
             (Set<RuleServiceImpl.ExecutedRuleData>) AlfrescoTransactionSupport.getResource("RuleServiceImpl.ExecutedRules");
-        Runnable runnable = new ActionExecutionWrapper(
+        ActionExecutionWrapper runnable = new ActionExecutionWrapper(
                 actionService,
                 action,
                 actionedUponNodeRef,
@@ -232,62 +285,68 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
                 actionChain,
                 executedRules);
         
-        // Consider whether this action should be filtered out by one of the registered filters.
-        boolean newActionShouldBeFilteredOut = false;
         OngoingAsyncAction nodeBeingNewlyActioned = new OngoingAsyncAction(actionedUponNodeRef, action);
+        QueuedAction queuedAction = new QueuedAction(nodeBeingNewlyActioned, runnable);
         
-        for (Entry<String, AbstractAsynchronousActionFilter> entry : actionFilters.entrySet())
+        synchronized(this.ongoingActions)
         {
-            AbstractAsynchronousActionFilter comparator = entry.getValue();
-            String actionDefinitionName = comparator.getActionDefinitionName();
-            
-            if (actionDefinitionName.equals(action.getActionDefinitionName()) == false)
+            // Consider whether this action should be filtered out by one of the registered filters.
+            if (isFilteredOut(nodeBeingNewlyActioned))
             {
-                // We're only interested in registered actions with the same name as this one.
-                continue;
+                if (logger.isDebugEnabled())
+                {
+                    StringBuilder msg = new StringBuilder();
+                    msg.append("Dropping action ").append(action).append(" as equivalent is ongoing.");
+                    logger.debug(msg.toString());
+                }
+                return;
             }
-            else
+            ActionTypeQueue typeQueue = getActionTypeQueue(action.getActionDefinitionName());
+            if (coalescedActions.contains(action.getActionDefinitionName()) && findWaitingDuplicate(queuedAction) != null)
             {
-                // Now we've found a registered action that matches the current one.
-                // So we'll go through the actions that are ongoing and consider them for matches with this one.
-                // Need to synchronize to prevent changes to ongoingActions whilst iterating. Assume that ongoingActions
-                // is not going to be too big and the loop will execute quite quickly, so that the synchronization 
-                // will not impact concurrency too much.
-                synchronized(this.ongoingActions)
+                typeQueue.coalescedCount++;
+                if (logger.isDebugEnabled())
                 {
-                    for (OngoingAsyncAction ongoingAction : this.ongoingActions)
-                    {
-                        if (comparator.compare(ongoingAction, nodeBeingNewlyActioned) == 0)
-                        {
-                            newActionShouldBeFilteredOut = true;
-                            break;
-                        }
-                    }
+                    StringBuilder msg = new StringBuilder();
+                    msg.append("Dropping action ").append(action).append(" as an identical action is waiting to be run.");
+                    logger.debug(msg.toString());
                 }
+                return;
             }
-        }
-        if (newActionShouldBeFilteredOut)
-        {
+            
             if (logger.isDebugEnabled())
             {
                 StringBuilder msg = new StringBuilder();
-                msg.append("Dropping action ").append(action).append(" as equivalent is ongoing.");
+                msg.append("Executing action ").append(action);
                 logger.debug(msg.toString());
             }
-            return;
+            
+            // Queue it and do it.
+            queuedAction.sequence = ++sequence;
+            queuedAction.queuedTime = System.currentTimeMillis();
+            typeQueue.waiting.add(queuedAction);
+            List<QueuedAction> queuedForNode = ongoingActions.get(nodeBeingNewlyActioned);
+            if (queuedForNode == null)
+            {
+                queuedForNode = new ArrayList<QueuedAction>(1);
+                ongoingActions.put(nodeBeingNewlyActioned, queuedForNode);
+            }
+            queuedForNode.add(queuedAction);
         }
-        else
+        try
         {
-            if (logger.isDebugEnabled())
+            threadPoolExecutor.execute(new QueuedActionDispatcher());
+        }
+        catch (RejectedExecutionException e)
+        {
+            synchronized(this.ongoingActions)
             {
-                StringBuilder msg = new StringBuilder();
-                msg.append("Executing action ").append(action);
-                logger.debug(msg.toString());
+                if (getActionTypeQueue(action.getActionDefinitionName()).waiting.remove(queuedAction))
+                {
+                    removeOngoingAction(queuedAction);
+                }
             }
-            
-            // Queue it and do it.
-            ongoingActions.add(nodeBeingNewlyActioned);
-            threadPoolExecutor.execute(runnable);
+            throw e;
         }
 
         // Done
@@ -308,15 +367,271 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
         }
     }
     
-    private void handleAsyncActionIsCompleted(NodeRef n, Action action) {
+    /**
+     * Checks the new action against the registered filters.  Must be called while synchronized on the ongoing actions.
+     */
+    private boolean isFilteredOut(OngoingAsyncAction nodeBeingNewlyActioned)
+    {
+        String newActionDefinitionName = nodeBeingNewlyActioned.getAction().getActionDefinitionName();
+        for (Entry<String, AbstractAsynchronousActionFilter> entry : actionFilters.entrySet())
+        {
+            AbstractAsynchronousActionFilter comparator = entry.getValue();
+            String actionDefinitionName = comparator.getActionDefinitionName();
+            
+            if (actionDefinitionName.equals(newActionDefinitionName) == false)
+            {
+                // We're only interested in registered actions with the same name as this one.
+                continue;
+            }
+            if (comparator.isNodeSpecific())
+            {
+                // Only the ongoing actions on the same node need to be considered
+                List<QueuedAction> queuedForNode = ongoingActions.get(nodeBeingNewlyActioned);
+                if (queuedForNode != null && isFilteredOut(comparator, queuedForNode, nodeBeingNewlyActioned))
+                {
+                    return true;
+                }
+            }
+            else
+            {
+                for (Entry<OngoingAsyncAction, List<QueuedAction>> ongoingEntry : ongoingActions.entrySet())
+                {
+                    if (ongoingEntry.getKey().getAction().getActionDefinitionName().equals(newActionDefinitionName) &&
+                            isFilteredOut(comparator, ongoingEntry.getValue(), nodeBeingNewlyActioned))
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isFilteredOut(AbstractAsynchronousActionFilter comparator, List<QueuedAction> queuedActions, OngoingAsyncAction nodeBeingNewlyActioned)
+    {
+        for (QueuedAction queuedAction : queuedActions)
+        {
+            if (comparator.compare(queuedAction.ongoingAction, nodeBeingNewlyActioned) == 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds an identical action that has not started yet.  Must be called while synchronized on the ongoing actions.
+     */
+    private QueuedAction findWaitingDuplicate(QueuedAction queuedAction)
+    {
+        List<QueuedAction> queuedForNode = ongoingActions.get(queuedAction.ongoingAction);
+        if (queuedForNode != null)
+        {
+            for (QueuedAction other : queuedForNode)
+            {
+                if (other.startTime == 0L && queuedAction.isDuplicateOf(other))
+                {
+                    return other;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Must be called while synchronized on the ongoing actions.
+     */
+    private ActionTypeQueue getActionTypeQueue(String actionDefinitionName)
+    {
+        ActionTypeQueue typeQueue = actionTypeQueues.get(actionDefinitionName);
+        if (typeQueue == null)
+        {
+            Integer priority = actionPriorities.get(actionDefinitionName);
+            Integer concurrencyLimit = actionConcurrencyLimits.get(actionDefinitionName);
+            typeQueue = new ActionTypeQueue(
+                    priority == null ? 0 : priority,
+                    (concurrencyLimit == null || concurrencyLimit <= 0) ? Integer.MAX_VALUE : concurrencyLimit);
+            actionTypeQueues.put(actionDefinitionName, typeQueue);
+        }
+        return typeQueue;
+    }
+
+    /**
+     * Must be called while synchronized on the ongoing actions.
+     */
+    private void removeOngoingAction(QueuedAction queuedAction)
+    {
+        List<QueuedAction> queuedForNode = ongoingActions.get(queuedAction.ongoingAction);
+        if (queuedForNode == null)
+        {
+            return;
+        }
+        for (Iterator<QueuedAction> iterator = queuedForNode.iterator(); iterator.hasNext(); )
+        {
+            if (iterator.next() == queuedAction)
+            {
+                iterator.remove();
+                break;
+            }
+        }
+        if (queuedForNode.isEmpty())
+        {
+            ongoingActions.remove(queuedAction.ongoingAction);
+        }
+    }
+
+    /**
+     * Takes the waiting action with the highest priority from the action types that are within their concurrency limit.
+     * 
+     * @return                  the action to run or <tt>null</tt> if there are none that may run now
+     */
+    private QueuedAction takeNextAction()
+    {
+        synchronized(this.ongoingActions)
+        {
+            ActionTypeQueue next = null;
+            for (ActionTypeQueue typeQueue : actionTypeQueues.values())
+            {
+                if (typeQueue.waiting.isEmpty() || typeQueue.runningCount >= typeQueue.concurrencyLimit)
+                {
+                    continue;
+                }
+                if (next == null || typeQueue.priority > next.priority ||
+                        (typeQueue.priority == next.priority && typeQueue.waiting.peek().sequence < next.waiting.peek().sequence))
+                {
+                    next = typeQueue;
+                }
+            }
+            if (next == null)
+            {
+                return null;
+            }
+            QueuedAction queuedAction = next.waiting.poll();
+            queuedAction.startTime = System.currentTimeMillis();
+            next.runningCount++;
+            next.totalWaitTime += queuedAction.startTime - queuedAction.queuedTime;
+            return queuedAction;
+        }
+    }
+
+    private void handleAsyncActionIsCompleted(QueuedAction queuedAction) {
+        Action action = queuedAction.ongoingAction.getAction();
         if (logger.isDebugEnabled())
         {
             StringBuilder msg = new StringBuilder();
             msg.append("Completed action ").append(action);
             logger.debug(msg.toString());
         }
-        OngoingAsyncAction ongoing = new OngoingAsyncAction(n, action);
-        ongoingActions.remove(ongoing);
+        boolean actionsWaiting = false;
+        synchronized(this.ongoingActions)
+        {
+            removeOngoingAction(queuedAction);
+            ActionTypeQueue typeQueue = getActionTypeQueue(action.getActionDefinitionName());
+            typeQueue.runningCount--;
+            typeQueue.executedCount++;
+            typeQueue.totalExecutionTime += System.currentTimeMillis() - queuedAction.startTime;
+            actionsWaiting = !typeQueue.waiting.isEmpty();
+        }
+        if (actionsWaiting)
+        {
+            // An action held back by the concurrency limit may run now
+            try
+            {
+                threadPoolExecutor.execute(new QueuedActionDispatcher());
+            }
+            catch (RejectedExecutionException e)
+            {
+                logger.warn("Unable to schedule the next " + action.getActionDefinitionName() + " action: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String[] getActionDefinitionNames()
+    {
+        synchronized(this.ongoingActions)
+        {
+            return actionTypeQueues.keySet().toArray(new String[actionTypeQueues.size()]);
+        }
+    }
+
+    @Override
+    public int getTotalQueueDepth()
+    {
+        synchronized(this.ongoingActions)
+        {
+            int depth = 0;
+            for (ActionTypeQueue typeQueue : actionTypeQueues.values())
+            {
+                depth += typeQueue.waiting.size();
+            }
+            return depth;
+        }
+    }
+
+    @Override
+    public int getQueueDepth(String actionDefinitionName)
+    {
+        synchronized(this.ongoingActions)
+        {
+            ActionTypeQueue typeQueue = actionTypeQueues.get(actionDefinitionName);
+            return typeQueue == null ? 0 : typeQueue.waiting.size();
+        }
+    }
+
+    @Override
+    public int getRunningCount(String actionDefinitionName)
+    {
+        synchronized(this.ongoingActions)
+        {
+            ActionTypeQueue typeQueue = actionTypeQueues.get(actionDefinitionName);
+            return typeQueue == null ? 0 : typeQueue.runningCount;
+        }
+    }
+
+    @Override
+    public long getExecutedCount(String actionDefinitionName)
+    {
+        synchronized(this.ongoingActions)
+        {
+            ActionTypeQueue typeQueue = actionTypeQueues.get(actionDefinitionName);
+            return typeQueue == null ? 0L : typeQueue.executedCount;
+        }
+    }
+
+    @Override
+    public long getCoalescedCount(String actionDefinitionName)
+    {
+        synchronized(this.ongoingActions)
+        {
+            ActionTypeQueue typeQueue = actionTypeQueues.get(actionDefinitionName);
+            return typeQueue == null ? 0L : typeQueue.coalescedCount;
+        }
+    }
+
+    @Override
+    public long getAverageWaitTimeMs(String actionDefinitionName)
+    {
+        synchronized(this.ongoingActions)
+        {
+            ActionTypeQueue typeQueue = actionTypeQueues.get(actionDefinitionName);
+            if (typeQueue == null)
+            {
+                return 0L;
+            }
+            long started = typeQueue.executedCount + typeQueue.runningCount;
+            return started == 0L ? 0L : typeQueue.totalWaitTime / started;
+        }
+    }
+
+    @Override
+    public long getAverageExecutionTimeMs(String actionDefinitionName)
+    {
+        synchronized(this.ongoingActions)
+        {
+            ActionTypeQueue typeQueue = actionTypeQueues.get(actionDefinitionName);
+            return (typeQueue == null || typeQueue.executedCount == 0L) ? 0L : typeQueue.totalExecutionTime / typeQueue.executedCount;
+        }
     }
     
     /**
@@ -350,6 +665,93 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
         }        
     }
 
+    /**
+     * The actions of one type waiting for a thread, with the figures kept for the type.
+     * Guarded by the ongoing actions.
+     */
+    private static class ActionTypeQueue
+    {
+        private final int priority;
+        private final int concurrencyLimit;
+        private final Deque<QueuedAction> waiting = new ArrayDeque<QueuedAction>();
+        private int runningCount;
+        private long executedCount;
+        private long coalescedCount;
+        private long totalWaitTime;
+        private long totalExecutionTime;
+
+        private ActionTypeQueue(int priority, int concurrencyLimit)
+        {
+            this.priority = priority;
+            this.concurrencyLimit = concurrencyLimit;
+        }
+    }
+
+    /**
+     * An action that is waiting for a thread or being executed
+     */
+    private static class QueuedAction
+    {
+        private final OngoingAsyncAction ongoingAction;
+        private final ActionExecutionWrapper wrapper;
+        private long sequence;
+        private long queuedTime;
+        /** Zero until the action starts */
+        private long startTime;
+
+        private QueuedAction(OngoingAsyncAction ongoingAction, ActionExecutionWrapper wrapper)
+        {
+            this.ongoingAction = ongoingAction;
+            this.wrapper = wrapper;
+        }
+
+        /**
+         * @return                  <tt>true</tt> if running the other action does the same work as running this one;
+         *                          actions other than {@link ActionImpl} are never duplicates
+         */
+        private boolean isDuplicateOf(QueuedAction other)
+        {
+            if (!(wrapper.action instanceof ActionImpl) || !(other.wrapper.action instanceof ActionImpl))
+            {
+                return false;
+            }
+            ActionImpl action = (ActionImpl) wrapper.action;
+            ActionImpl otherAction = (ActionImpl) other.wrapper.action;
+            boolean conditional = (wrapper.checkConditions && action.hasActionConditions()) ||
+                    (other.wrapper.checkConditions && otherAction.hasActionConditions());
+            return !conditional &&
+                    ongoingAction.equals(other.ongoingAction) &&
+                    EqualsHelper.nullSafeEquals(action.getRunAsUser(), otherAction.getRunAsUser()) &&
+                    EqualsHelper.nullSafeEquals(action.getTenantId(), otherAction.getTenantId()) &&
+                    EqualsHelper.nullSafeEquals(action.getParameterValues(), otherAction.getParameterValues());
+        }
+    }
+
+    /**
+     * Thread pool task that runs the next action.  One is submitted for each queued action and, when actions of the
+     * type are waiting, for each completed action.
+     */
+    private class QueuedActionDispatcher implements Runnable
+    {
+        public void run()
+        {
+            QueuedAction queuedAction = takeNextAction();
+            if (queuedAction == null)
+            {
+                // The waiting actions are held back by their concurrency limits and will be run as other actions complete
+                return;
+            }
+            try
+            {
+                queuedAction.wrapper.run();
+            }
+            finally
+            {
+                handleAsyncActionIsCompleted(queuedAction);
+            }
+        }
+    }
+
     /**
      * Runnable class to wrap the execution of the action.
      */
@@ -455,7 +857,6 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
                     logger.error(message, e);
                 }
             }
-            handleAsyncActionIsCompleted(actionedUponNodeRef, action);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.action;
+
+/**
+ * Management view of an asynchronous action execution queue, broken down by action definition name.
+ * <p/>
+ * The figures are held per server and reset on restart.
+ *
+ * @since 23.2
+ */
+public interface AsynchronousActionExecutionQueueImplMBean
+{
+    /**
+     * @return String[]     the names of the action definitions that have been queued since startup
+     */
+    public String[] getActionDefinitionNames();
+
+    /**
+     * @return int          the number of actions of all types waiting for a thread
+     */
+    public int getTotalQueueDepth();
+
+    /**
+     * @return int          the number of actions of the given type waiting for a thread
+     */
+    public int getQueueDepth(String actionDefinitionName);
+
+    /**
+     * @return int          the number of actions of the given type being executed
+     */
+    public int getRunningCount(String actionDefinitionName);
+
+    /**
+     * @return long         the number of actions of the given type executed since startup
+     */
+    public long getExecutedCount(String actionDefinitionName);
+
+    /**
+     * @return long         the number of actions of the given type dropped as duplicates of a queued action
+     */
+    public long getCoalescedCount(String actionDefinitionName);
+
+    /**
+     * @return long         the average time in milliseconds that actions of the given type waited for a thread
+     */
+    public long getAverageWaitTimeMs(String actionDefinitionName);
+
+    /**
+     * @return long         the average execution time in milliseconds of actions of the given type
+     */
+    public long getAverageExecutionTimeMs(String actionDefinitionName);
+}
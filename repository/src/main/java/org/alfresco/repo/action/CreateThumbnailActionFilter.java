@@ -38,6 +38,12 @@ public class CreateThumbnailActionFilter extends AbstractAsynchronousActionFilte
 {
     private static final String PARAM_THUMBNAIL_NAME = "thumbnail-name";
 
+    @Override
+    public boolean isNodeSpecific()
+    {
+        return true;
+    }
+
     public int compare(OngoingAsyncAction nodeAction1, OngoingAsyncAction nodeAction2)
     {
         NodeRef n1 = nodeAction1.getNodeRef();
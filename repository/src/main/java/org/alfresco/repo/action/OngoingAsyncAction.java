@@ -68,7 +68,7 @@ public class OngoingAsyncAction
 
     @Override
     public int hashCode() {
-        return this.node.hashCode() + 7 * this.action.getActionDefinitionName().hashCode();
+        return (this.node == null ? 0 : this.node.hashCode()) + 7 * this.action.getActionDefinitionName().hashCode();
     }
 
     @Override
@@ -55,6 +55,14 @@ public interface RuntimeActionService
      */
     void registerActionConditionEvaluator(ActionConditionEvaluator actionConditionEvaluator);
     
+    /**
+     * Get the evaluator of an action condition, whether or not the condition is public
+     * 
+     * @param actionConditionDefinitionName    the action condition definition name
+     * @return ActionConditionEvaluator         the evaluator or <tt>null</tt> if there is none
+     */
+    ActionConditionEvaluator getActionConditionEvaluator(String actionConditionDefinitionName);
+    
     /**
      * Register an action executer
      * 
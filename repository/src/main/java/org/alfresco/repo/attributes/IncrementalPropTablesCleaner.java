@@ -0,0 +1,410 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.attributes;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alfresco.repo.domain.propval.PropertyValueDAO;
+import org.alfresco.repo.domain.propval.PropertyValueDAO.CleanupTable;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.PropertyCheck;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Incremental and resumable cleaner of unused values from the alf_prop_xxx tables.
+ * <p/>
+ * Rather than cleaning all the tables in one go, the tables are scanned in ranges of IDs.  Each range
+ * is checked and its orphans are deleted in a short transaction of its own, with a pause between ranges
+ * and an optional limit on the number of rows deleted per second.  A run stops when its time budget is
+ * spent and the position reached is kept using the {@link AttributeService}, so that the next run carries
+ * on where the last one stopped.  Once every table has been scanned the position is reset and the next
+ * run starts a new pass.
+ * <p/>
+ * The same references as the <b>V3</b> algorithm are checked.  Locking is left to the caller, see
+ * {@link PropTablesCleaner}.
+ *
+ * @since 23.2
+ */
+public class IncrementalPropTablesCleaner implements IncrementalPropTablesCleanerMBean
+{
+    static final String ATTR_KEY_PROGRESS = ".propTablesCleanerProgress";
+    /** Stored for a table once it has been scanned in the current pass */
+    static final long TABLE_DONE = -1L;
+
+    private static Log logger = LogFactory.getLog(IncrementalPropTablesCleaner.class);
+
+    private PropertyValueDAO propertyValueDAO;
+    private AttributeService attributeService;
+    private TransactionService transactionService;
+    private int chunkSize = 50000;
+    private int deleteBatchSize = 1000;
+    private long pauseMs = 100L;
+    private int maxDeletesPerSecond = 0;
+    private int maxRunTimeSeconds = 3600;
+
+    private volatile boolean running;
+    private volatile CleanupTable currentTable;
+    private volatile long currentId;
+    private volatile long currentTableMaxId;
+    private volatile long remainingTablesIds;
+    private volatile long lastChunkLatencyMs;
+    private final AtomicLong rowsCleaned = new AtomicLong();
+    private final AtomicLong rowsCleanedLastRun = new AtomicLong();
+    private final AtomicLong chunksProcessed = new AtomicLong();
+    private final AtomicLong totalChunkLatencyMs = new AtomicLong();
+
+    public void setPropertyValueDAO(PropertyValueDAO propertyValueDAO)
+    {
+        this.propertyValueDAO = propertyValueDAO;
+    }
+
+    public void setAttributeService(AttributeService attributeService)
+    {
+        this.attributeService = attributeService;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * @param chunkSize         the width of the ID range examined in each transaction
+     */
+    public void setChunkSize(int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param deleteBatchSize   the maximum number of IDs deleted per statement
+     */
+    public void setDeleteBatchSize(int deleteBatchSize)
+    {
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    /**
+     * @param pauseMs           the pause between ID ranges, giving the database time for other work
+     */
+    public void setPauseMs(long pauseMs)
+    {
+        this.pauseMs = pauseMs;
+    }
+
+    /**
+     * @param maxDeletesPerSecond   the maximum rate of deletion; zero or less for no limit
+     */
+    public void setMaxDeletesPerSecond(int maxDeletesPerSecond)
+    {
+        this.maxDeletesPerSecond = maxDeletesPerSecond;
+    }
+
+    /**
+     * @param maxRunTimeSeconds the time after which a run stops, to be resumed by the next run;
+     *                          zero or less for no limit
+     */
+    public void setMaxRunTimeSeconds(int maxRunTimeSeconds)
+    {
+        this.maxRunTimeSeconds = maxRunTimeSeconds;
+    }
+
+    public void init()
+    {
+        PropertyCheck.mandatory(this, "propertyValueDAO", propertyValueDAO);
+        PropertyCheck.mandatory(this, "attributeService", attributeService);
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        if (chunkSize < 1)
+        {
+            throw new IllegalArgumentException("The chunk size must be at least 1");
+        }
+        if (deleteBatchSize < 1)
+        {
+            throw new IllegalArgumentException("The delete batch size must be at least 1");
+        }
+    }
+
+    /**
+     * Clean up the tables from the last position reached until the time budget is spent or the pass completes.
+     *
+     * @param beforeChunk       called before each ID range is processed, e.g. to refresh the caller's locks;
+     *                          may be <tt>null</tt>
+     */
+    public void execute(Runnable beforeChunk)
+    {
+        long startTime = System.currentTimeMillis();
+        long endTime = maxRunTimeSeconds > 0 ? startTime + maxRunTimeSeconds * 1000L : Long.MAX_VALUE;
+        rowsCleanedLastRun.set(0L);
+        running = true;
+        try
+        {
+            Map<CleanupTable, Long> progress = readProgress();
+            remainingTablesIds = 0L;
+            for (CleanupTable table : CleanupTable.values())
+            {
+                if (progress.get(table) != TABLE_DONE)
+                {
+                    remainingTablesIds += getMaxId(table);
+                }
+            }
+
+            for (CleanupTable table : CleanupTable.values())
+            {
+                long nextId = progress.get(table);
+                if (nextId == TABLE_DONE)
+                {
+                    continue;
+                }
+                long maxId = getMaxId(table);
+                remainingTablesIds = Math.max(0L, remainingTablesIds - maxId);
+                if (!cleanTable(table, nextId, maxId, endTime, beforeChunk))
+                {
+                    // Out of time: the position is kept for the next run
+                    return;
+                }
+            }
+
+            // The pass is complete; the next run starts from the beginning
+            transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+            {
+                @Override
+                public Void execute() throws Throwable
+                {
+                    attributeService.removeAttributes(ATTR_KEY_PROGRESS);
+                    return null;
+                }
+            }, false, true);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Completed a pass over the prop tables: " + rowsCleanedLastRun.get() + " rows deleted in this run.");
+            }
+        }
+        finally
+        {
+            running = false;
+            currentTable = null;
+        }
+    }
+
+    /**
+     * @return                  Returns <tt>true</tt> if the table was fully scanned or <tt>false</tt> if the run ran out of time
+     */
+    private boolean cleanTable(final CleanupTable table, long fromId, long maxId, long endTime, Runnable beforeChunk)
+    {
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        currentTable = table;
+        currentTableMaxId = maxId;
+        currentId = fromId;
+
+        while (true)
+        {
+            if (System.currentTimeMillis() >= endTime)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Prop tables cleanup ran out of time at " + table + " ID " + currentId);
+                }
+                return false;
+            }
+            if (beforeChunk != null)
+            {
+                beforeChunk.run();
+            }
+
+            long chunkStart = System.currentTimeMillis();
+            Long firstId = propertyValueDAO.getCleanupTableMinId(table, currentId);
+            // Rows added after the table was started are left for the next pass
+            final boolean tableDone = (firstId == null || firstId > maxId);
+            final long chunkFromId = tableDone ? currentId : firstId;
+            final long chunkToId = tableDone ? currentId : Math.min(maxId, chunkFromId + chunkSize - 1);
+
+            int deleted = txnHelper.doInTransaction(new RetryingTransactionCallback<Integer>()
+            {
+                @Override
+                public Integer execute() throws Throwable
+                {
+                    int count = 0;
+                    if (!tableDone)
+                    {
+                        count = propertyValueDAO.cleanupUnusedValues(table, chunkFromId, chunkToId, deleteBatchSize);
+                    }
+                    // Record the position along with the deletions
+                    attributeService.setAttribute(tableDone ? TABLE_DONE : chunkToId + 1, ATTR_KEY_PROGRESS, table.name());
+                    return count;
+                }
+            }, false, true);
+            if (tableDone)
+            {
+                return true;
+            }
+
+            currentId = chunkToId + 1;
+            long latency = System.currentTimeMillis() - chunkStart;
+            lastChunkLatencyMs = latency;
+            totalChunkLatencyMs.addAndGet(latency);
+            chunksProcessed.incrementAndGet();
+            rowsCleaned.addAndGet(deleted);
+            rowsCleanedLastRun.addAndGet(deleted);
+            if (logger.isTraceEnabled())
+            {
+                logger.trace("Cleaned " + table + " IDs " + chunkFromId + " to " + chunkToId + ": " + deleted + " rows deleted in " + latency + "ms");
+            }
+
+            throttle(deleted, latency);
+        }
+    }
+
+    /**
+     * Pause between chunks, for longer if needed to keep to the maximum deletion rate
+     */
+    private void throttle(int deleted, long latency)
+    {
+        long pause = pauseMs;
+        if (maxDeletesPerSecond > 0)
+        {
+            long minDuration = deleted * 1000L / maxDeletesPerSecond;
+            pause = Math.max(pause, minDuration - latency);
+        }
+        if (pause <= 0L)
+        {
+            return;
+        }
+        try
+        {
+            Thread.sleep(pause);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while cleaning the prop tables", e);
+        }
+    }
+
+    private Map<CleanupTable, Long> readProgress()
+    {
+        return transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Map<CleanupTable, Long>>()
+        {
+            @Override
+            public Map<CleanupTable, Long> execute() throws Throwable
+            {
+                Map<CleanupTable, Long> progress = new EnumMap<>(CleanupTable.class);
+                for (CleanupTable table : CleanupTable.values())
+                {
+                    Long nextId = (Long) attributeService.getAttribute(ATTR_KEY_PROGRESS, table.name());
+                    progress.put(table, nextId == null ? 0L : nextId);
+                }
+                return progress;
+            }
+        }, true, true);
+    }
+
+    private long getMaxId(final CleanupTable table)
+    {
+        return transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Long>()
+        {
+            @Override
+            public Long execute() throws Throwable
+            {
+                Long maxId = propertyValueDAO.getCleanupTableMaxId(table);
+                return maxId == null ? 0L : maxId;
+            }
+        }, true, true);
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    @Override
+    public String getCurrentTable()
+    {
+        CleanupTable table = currentTable;
+        return table == null ? null : table.name();
+    }
+
+    @Override
+    public long getCurrentId()
+    {
+        return currentId;
+    }
+
+    @Override
+    public long getRowsCleaned()
+    {
+        return rowsCleaned.get();
+    }
+
+    @Override
+    public long getRowsCleanedLastRun()
+    {
+        return rowsCleanedLastRun.get();
+    }
+
+    @Override
+    public long getChunksProcessed()
+    {
+        return chunksProcessed.get();
+    }
+
+    @Override
+    public long getLastChunkLatencyMs()
+    {
+        return lastChunkLatencyMs;
+    }
+
+    @Override
+    public long getAverageChunkLatencyMs()
+    {
+        long chunks = chunksProcessed.get();
+        return chunks == 0L ? 0L : totalChunkLatencyMs.get() / chunks;
+    }
+
+    @Override
+    public long getEstimatedRemainingIds()
+    {
+        if (!running)
+        {
+            return 0L;
+        }
+        long remainingInTable = currentTable == null ? 0L : Math.max(0L, currentTableMaxId - currentId + 1);
+        return remainingInTable + remainingTablesIds;
+    }
+
+    @Override
+    public long getEstimatedRemainingTimeMs()
+    {
+        long remainingChunks = (getEstimatedRemainingIds() + chunkSize - 1) / chunkSize;
+        return remainingChunks * (getAverageChunkLatencyMs() + pauseMs);
+    }
+}
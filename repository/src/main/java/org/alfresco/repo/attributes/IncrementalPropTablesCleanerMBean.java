@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.attributes;
+
+/**
+ * Management view of the incremental alf_prop_xxx tables cleanup.
+ * <p/>
+ * The figures are held per server and reset on restart; the cleanup position itself is persisted.
+ *
+ * @since 23.2
+ */
+public interface IncrementalPropTablesCleanerMBean
+{
+    /**
+     * @return boolean  true while a cleanup run is in progress on this server
+     */
+    public boolean isRunning();
+
+    /**
+     * @return String  the table currently being cleaned, or null if no table is in progress
+     */
+    public String getCurrentTable();
+
+    /**
+     * @return long  the next ID to be examined in the current table
+     */
+    public long getCurrentId();
+
+    /**
+     * @return long  number of rows deleted since the server started
+     */
+    public long getRowsCleaned();
+
+    /**
+     * @return long  number of rows deleted by the current or last run
+     */
+    public long getRowsCleanedLastRun();
+
+    /**
+     * @return long  number of ID ranges processed since the server started
+     */
+    public long getChunksProcessed();
+
+    /**
+     * @return long  time taken by the last ID range, in milliseconds
+     */
+    public long getLastChunkLatencyMs();
+
+    /**
+     * @return long  average time taken per ID range, in milliseconds
+     */
+    public long getAverageChunkLatencyMs();
+
+    /**
+     * Estimate the IDs still to be examined in the current pass over the tables.  Gaps in the
+     * ID sequences are included, so this is an upper bound of the rows left to scan.
+     *
+     * @return long  estimated number of IDs left to examine
+     */
+    public long getEstimatedRemainingIds();
+
+    /**
+     * @return long  estimated time left for the current pass, in milliseconds, based on the average chunk latency
+     */
+    public long getEstimatedRemainingTimeMs();
+}
@@ -47,8 +47,10 @@ public class PropTablesCleaner
     private static final String PROPERTY_PROP_TABLE_CLEANER_ALG = "system.prop_table_cleaner.algorithm";
     private static final String PROP_TABLE_CLEANER_ALG_V2 = "V2";
     private static final String PROP_TABLE_CLEANER_ALG_V3 = "V3";
+    private static final String PROP_TABLE_CLEANER_ALG_INCREMENTAL = "INCREMENTAL";
 
     private PropertyValueDAO propertyValueDAO;
+    private IncrementalPropTablesCleaner incrementalCleaner;
     private JobLockService jobLockService;
     private Properties globalProperties;
 
@@ -63,6 +65,11 @@ public class PropTablesCleaner
         this.propertyValueDAO = propertyValueDAO;
     }
 
+    public void setIncrementalCleaner(IncrementalPropTablesCleaner incrementalCleaner)
+    {
+        this.incrementalCleaner = incrementalCleaner;
+    }
+
     public void setJobLockService(JobLockService jobLockService)
     {
         this.jobLockService = jobLockService;
@@ -105,6 +112,22 @@ public class PropTablesCleaner
             {
                 propertyValueDAO.cleanupUnusedValuesV3();
             }
+            else if (PROP_TABLE_CLEANER_ALG_INCREMENTAL.equalsIgnoreCase(getAlgorithm()))
+            {
+                PropertyCheck.mandatory(this, "incrementalCleaner", incrementalCleaner);
+                final String cleanupLockToken = propCleanUplockToken;
+                final String syncLockToken = ldapSyncLockTocken;
+                // The run spans many short transactions, so keep hold of the locks between them
+                incrementalCleaner.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        jobLockService.refreshLock(cleanupLockToken, LOCK_QNAME, LOCK_TTL);
+                        jobLockService.refreshLock(syncLockToken, ChainingUserRegistrySynchronizer.LOCK_QNAME, LOCK_TTL);
+                    }
+                });
+            }
             else
             {
                 propertyValueDAO.cleanupUnusedValues();
@@ -0,0 +1,414 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.audit;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.alfresco.repo.domain.audit.AuditDAO;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.tenant.TenantUtil;
+import org.alfresco.repo.tenant.TenantUtil.TenantRunAsWork;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.transaction.TransactionListenerAdapter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Writes audit entries asynchronously, in batches, outside of the transaction that generated them.
+ * <p>
+ * Audit values are fully extracted and generated in the calling transaction; only the persistence
+ * of the resulting entries is deferred.  Entries are handed to a bounded in-memory queue that is
+ * drained by a writer running on a shared thread pool, which persists up to {@link #setBatchSize(int) batchSize}
+ * entries per transaction.
+ * <p>
+ * When <b>flushOnCommit</b> is set (the default), entries recorded within a read-write transaction are
+ * only queued once that transaction has committed, so that rolled back work leaves no audit trail, as
+ * with synchronous auditing.  When the queue is full the caller waits up to <b>offerTimeoutMs</b> for
+ * space and then writes the entry itself, which throttles producers that outpace the writer.  If the
+ * thread pool rejects the writer, because it is saturated or has been shut down, the caller writes the
+ * queued entries itself.
+ * <p>
+ * Queued entries are held in memory only: entries that have not been written when the server stops
+ * abruptly are lost.  A clean shutdown drains the queue.
+ * 
+ * @since 23.2
+ */
+public class AsynchronousAuditWriter
+{
+    private static final Log logger = LogFactory.getLog(AsynchronousAuditWriter.class);
+
+    private static final String KEY_PENDING_ENTRIES = "AsynchronousAuditWriter.pendingEntries";
+
+    private AuditDAO auditDAO;
+    private TransactionService transactionService;
+    private ThreadPoolExecutor threadPoolExecutor;
+    private boolean enabled = false;
+    private int queueCapacity = 10000;
+    private int batchSize = 200;
+    private long offerTimeoutMs = 1000L;
+    private boolean flushOnCommit = true;
+
+    private BlockingQueue<PendingAuditEntry> queue;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final TransactionListenerAdapter flushOnCommitListener = new FlushOnCommitListener();
+
+    public void setAuditDAO(AuditDAO auditDAO)
+    {
+        this.auditDAO = auditDAO;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    /**
+     * @param threadPoolExecutor    the thread pool, which may be shared, used to run the writer
+     */
+    public void setThreadPoolExecutor(ThreadPoolExecutor threadPoolExecutor)
+    {
+        this.threadPoolExecutor = threadPoolExecutor;
+    }
+
+    /**
+     * @param enabled               <tt>true</tt> to write audit entries asynchronously
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param queueCapacity         the maximum number of entries waiting to be written
+     */
+    public void setQueueCapacity(int queueCapacity)
+    {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param batchSize             the maximum number of entries written per transaction
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param offerTimeoutMs        how long a producer waits for space in a full queue before writing the entry itself
+     */
+    public void setOfferTimeoutMs(long offerTimeoutMs)
+    {
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+
+    /**
+     * @param flushOnCommit         <tt>true</tt> to only queue entries once the recording transaction has committed
+     */
+    public void setFlushOnCommit(boolean flushOnCommit)
+    {
+        this.flushOnCommit = flushOnCommit;
+    }
+
+    public void init()
+    {
+        PropertyCheck.mandatory(this, "auditDAO", auditDAO);
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        PropertyCheck.mandatory(this, "threadPoolExecutor", threadPoolExecutor);
+        if (queueCapacity <= 0 || batchSize <= 0)
+        {
+            throw new IllegalArgumentException("The audit queue capacity and batch size must be positive.");
+        }
+        queue = new ArrayBlockingQueue<PendingAuditEntry>(queueCapacity);
+    }
+
+    /**
+     * Writes the remaining queued entries before shutdown, in the calling thread, as the thread pool
+     * may already have been shut down.
+     */
+    public void destroy()
+    {
+        if (queue != null && !queue.isEmpty())
+        {
+            logger.info("Writing " + queue.size() + " queued audit entries before shutdown.");
+            drain();
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if audit entries are written asynchronously
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return the number of entries waiting to be written
+     */
+    public int getQueueSize()
+    {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Record an audit entry for asynchronous persistence.
+     * 
+     * @param applicationId     an existing audit application ID
+     * @param time              the time (ms since epoch) to log the entry against
+     * @param username          the authenticated user (<tt>null</tt> if not present)
+     * @param values            the values to record
+     */
+    public void write(Long applicationId, long time, String username, Map<String, Serializable> values)
+    {
+        PendingAuditEntry entry = new PendingAuditEntry(applicationId, time, username, values, TenantUtil.getCurrentDomain());
+        if (flushOnCommit && AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_READ_WRITE)
+        {
+            TransactionalResourceHelper.<PendingAuditEntry>getList(KEY_PENDING_ENTRIES).add(entry);
+            AlfrescoTransactionSupport.bindListener(flushOnCommitListener);
+        }
+        else
+        {
+            enqueue(entry);
+        }
+    }
+
+    private void enqueue(PendingAuditEntry entry)
+    {
+        boolean queued = false;
+        try
+        {
+            queued = queue.offer(entry, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if (queued)
+        {
+            scheduleDrain();
+        }
+        else
+        {
+            // Back-pressure: the caller pays for the write
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Audit queue is full, writing entry in the calling thread: " + entry);
+            }
+            List<PendingAuditEntry> entries = new ArrayList<PendingAuditEntry>(1);
+            entries.add(entry);
+            writeBatch(entries);
+        }
+    }
+
+    private void scheduleDrain()
+    {
+        if (draining.compareAndSet(false, true))
+        {
+            try
+            {
+                threadPoolExecutor.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            drain();
+                        }
+                        finally
+                        {
+                            draining.set(false);
+                        }
+                        // Pick up anything queued while the flag was being cleared
+                        if (!queue.isEmpty())
+                        {
+                            scheduleDrain();
+                        }
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                // The pool is saturated or shut down: the caller writes the queued entries
+                logger.warn("The audit writer was rejected by its thread pool, writing " + queue.size() + " queued audit entries in the calling thread: " + e.getMessage());
+                do
+                {
+                    try
+                    {
+                        drain();
+                    }
+                    finally
+                    {
+                        draining.set(false);
+                    }
+                }
+                while (!queue.isEmpty() && draining.compareAndSet(false, true));
+            }
+        }
+    }
+
+    private void drain()
+    {
+        List<PendingAuditEntry> batch = new ArrayList<PendingAuditEntry>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0)
+        {
+            try
+            {
+                writeBatch(batch);
+            }
+            catch (RuntimeException e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Failed to write " + batch.size() + " audit entries, writing them one at a time.", e);
+                }
+                writeEntries(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes each entry in its own transaction, so that an entry that cannot be written does not
+     * take the rest of its batch with it.
+     */
+    private void writeEntries(List<PendingAuditEntry> entries)
+    {
+        List<PendingAuditEntry> single = new ArrayList<PendingAuditEntry>(1);
+        for (PendingAuditEntry entry : entries)
+        {
+            single.add(entry);
+            try
+            {
+                writeBatch(single);
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Dropped audit entry that could not be written: " + entry + ", values=" + entry.values, e);
+            }
+            single.clear();
+        }
+    }
+
+    private void writeBatch(final List<PendingAuditEntry> entries)
+    {
+        final RetryingTransactionCallback<Void> writeCallback = new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                for (final PendingAuditEntry entry : entries)
+                {
+                    TenantUtil.runAsSystemTenant(new TenantRunAsWork<Void>()
+                    {
+                        @Override
+                        public Void doWork() throws Exception
+                        {
+                            auditDAO.createAuditEntry(entry.applicationId, entry.time, entry.username, entry.values);
+                            return null;
+                        }
+                    }, entry.tenantDomain);
+                }
+                return null;
+            }
+        };
+        AuthenticationUtil.runAsSystem(new AuthenticationUtil.RunAsWork<Void>()
+        {
+            @Override
+            public Void doWork() throws Exception
+            {
+                RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+                txnHelper.setForceWritable(true);
+                return txnHelper.doInTransaction(writeCallback, false, true);
+            }
+        });
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Wrote " + entries.size() + " audit entries.");
+        }
+    }
+
+    /**
+     * Queues the entries recorded by a transaction once it has committed.
+     */
+    private class FlushOnCommitListener extends TransactionListenerAdapter
+    {
+        @Override
+        public void afterCommit()
+        {
+            List<PendingAuditEntry> entries = TransactionalResourceHelper.getList(KEY_PENDING_ENTRIES);
+            for (PendingAuditEntry entry : entries)
+            {
+                enqueue(entry);
+            }
+        }
+    }
+
+    /**
+     * An audit entry waiting to be persisted.
+     */
+    private static class PendingAuditEntry
+    {
+        private final Long applicationId;
+        private final long time;
+        private final String username;
+        private final Map<String, Serializable> values;
+        private final String tenantDomain;
+
+        private PendingAuditEntry(Long applicationId, long time, String username, Map<String, Serializable> values, String tenantDomain)
+        {
+            this.applicationId = applicationId;
+            this.time = time;
+            this.username = username;
+            // The caller is free to reuse its map once the entry is recorded
+            this.values = values == null ? null : new HashMap<String, Serializable>(values);
+            this.tenantDomain = tenantDomain;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "PendingAuditEntry [applicationId=" + applicationId + ", time=" + time + ", username=" + username + "]";
+        }
+    }
+}
@@ -81,6 +81,7 @@ public class AuditComponentImpl implements AuditComponent
     private TransactionService transactionService;
     private AuditFilter auditFilter;
     private UserAuditFilter userAuditFilter;
+    private AsynchronousAuditWriter asynchronousAuditWriter;
     
     /**
      * Default constructor
@@ -137,6 +138,14 @@ public class AuditComponentImpl implements AuditComponent
         this.userAuditFilter = userAuditFilter;
     }
 
+    /**
+     * Set the optional writer used to persist audit entries outside of the recording transaction
+     */
+    public void setAsynchronousAuditWriter(AsynchronousAuditWriter asynchronousAuditWriter)
+    {
+        this.asynchronousAuditWriter = asynchronousAuditWriter;
+    }
+
     /**
      * {@inheritDoc}
      * @since 3.2
@@ -749,7 +758,15 @@ public class AuditComponentImpl implements AuditComponent
             boolean justGatherPreCallData = application.isApplicationJustGeneratingPreCallData();
             if (!justGatherPreCallData)
             {
-                entryId = auditDAO.createAuditEntry(applicationId, time, username, auditData);
+                if (asynchronousAuditWriter != null && asynchronousAuditWriter.isEnabled())
+                {
+                    // The entry ID is only known once the writer has persisted the entry
+                    asynchronousAuditWriter.write(applicationId, time, username, auditData);
+                }
+                else
+                {
+                    entryId = auditDAO.createAuditEntry(applicationId, time, username, auditData);
+                }
             }
             // Done
             if (logger.isDebugEnabled())
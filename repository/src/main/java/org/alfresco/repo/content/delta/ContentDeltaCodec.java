@@ -0,0 +1,523 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.delta;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.service.cmr.repository.ContentIOException;
+
+/**
+ * Block matching binary delta between two versions of some content.
+ * <p/>
+ * The base content is split into fixed size blocks, each of which is indexed by a weak rolling checksum
+ * and a strong checksum.  The target content is then scanned a byte at a time: wherever a window of the
+ * target matches a block of the base, a <b>COPY</b> of the base is written, otherwise the bytes are written
+ * as an <b>INSERT</b>.  Content that has been edited in place, or had data inserted or removed, is therefore
+ * stored using little more than the changed bytes.
+ * <p/>
+ * The delta starts with a header holding the URL and length of the base, so that it can be resolved and
+ * checked before the content is rebuilt.
+ *
+ * @since 23.2
+ */
+public class ContentDeltaCodec
+{
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private static final int MAGIC = 0x414C4644;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte OP_END = 0;
+    private static final byte OP_COPY = 1;
+    private static final byte OP_INSERT = 2;
+    private static final int MAX_INSERT = 64 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final int blockSize;
+
+    public ContentDeltaCodec()
+    {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param blockSize         the size of the base blocks that are matched; smaller blocks find more matches
+     *                          at the cost of a larger index
+     */
+    public ContentDeltaCodec(int blockSize)
+    {
+        if (blockSize < 16)
+        {
+            throw new IllegalArgumentException("The block size must be at least 16 bytes");
+        }
+        this.blockSize = blockSize;
+    }
+
+    public int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * Write the delta that turns the base content into the target content.
+     *
+     * @param base              the base content, read once to build the block index
+     * @param baseUrl           the URL of the base content, recorded in the delta
+     * @param baseLength        the length of the base content
+     * @param target            the content to encode, read once
+     * @param targetLength      the length of the target content
+     * @param out               the stream receiving the delta; not closed
+     * @return                  Returns the MD5 digest of the target content, as read
+     */
+    public byte[] encode(InputStream base, String baseUrl, long baseLength, InputStream target, long targetLength, OutputStream out) throws IOException
+    {
+        BlockIndex index = indexBlocks(base);
+
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(MAGIC);
+        dos.writeByte(FORMAT_VERSION);
+        dos.writeUTF(baseUrl);
+        dos.writeLong(baseLength);
+        dos.writeLong(targetLength);
+
+        MessageDigest targetDigest = newDigest();
+        MessageDigest blockDigest = newDigest();
+        OpWriter ops = new OpWriter(dos);
+        Window window = new Window(target, Math.max(16 * blockSize, 1024 * 1024), targetDigest);
+
+        boolean hashValid = false;
+        int weakA = 0;
+        int weakB = 0;
+        while (window.ensure(blockSize + 1) >= blockSize)
+        {
+            byte[] buf = window.buf;
+            int pos = window.pos;
+            if (!hashValid)
+            {
+                int[] sums = weakSums(buf, pos, blockSize);
+                weakA = sums[0];
+                weakB = sums[1];
+                hashValid = true;
+            }
+            int match = index.find((weakB << 16) | weakA, buf, pos, blockSize, blockDigest);
+            if (match >= 0)
+            {
+                ops.copy((long) match * blockSize, blockSize);
+                window.pos += blockSize;
+                hashValid = false;
+            }
+            else
+            {
+                ops.insert(buf[pos]);
+                if (window.available() > blockSize)
+                {
+                    // Roll the checksum on by one byte
+                    int dropped = buf[pos] & 0xFF;
+                    int added = buf[pos + blockSize] & 0xFF;
+                    weakA = (weakA - dropped + added) & 0xFFFF;
+                    weakB = (weakB - blockSize * dropped + weakA) & 0xFFFF;
+                }
+                else
+                {
+                    hashValid = false;
+                }
+                window.pos++;
+            }
+        }
+        // The tail is too short to match a block
+        while (window.ensure(1) > 0)
+        {
+            ops.insert(window.buf[window.pos++]);
+        }
+        ops.end();
+        dos.flush();
+        if (window.total != targetLength)
+        {
+            throw new ContentIOException("Target content length changed while encoding: expected " + targetLength + " but read " + window.total);
+        }
+        return targetDigest.digest();
+    }
+
+    /**
+     * Rebuild the target content from its delta and the base content.
+     *
+     * @param delta             the delta, positioned after its header
+     * @param header            the header read from the delta
+     * @param base              random access onto the base content
+     * @param out               the stream receiving the rebuilt content; not closed
+     */
+    public void decode(DataInputStream delta, Header header, FileChannel base, OutputStream out) throws IOException
+    {
+        if (base.size() != header.getBaseLength())
+        {
+            throw new ContentIOException("Base content length does not match the delta: " + header);
+        }
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long written = 0L;
+        while (true)
+        {
+            byte op = delta.readByte();
+            if (op == OP_END)
+            {
+                break;
+            }
+            else if (op == OP_COPY)
+            {
+                long offset = delta.readLong();
+                long length = delta.readLong();
+                long position = offset;
+                while (length > 0)
+                {
+                    byteBuffer.clear();
+                    byteBuffer.limit((int) Math.min(buffer.length, length));
+                    int read = base.read(byteBuffer, position);
+                    if (read < 0)
+                    {
+                        throw new EOFException("Delta copies beyond the end of the base content: " + header);
+                    }
+                    out.write(buffer, 0, read);
+                    position += read;
+                    length -= read;
+                    written += read;
+                }
+            }
+            else if (op == OP_INSERT)
+            {
+                int length = delta.readInt();
+                delta.readFully(buffer, 0, length);
+                out.write(buffer, 0, length);
+                written += length;
+            }
+            else
+            {
+                throw new ContentIOException("Unknown delta operation " + op + ": " + header);
+            }
+        }
+        if (written != header.getTargetLength())
+        {
+            throw new ContentIOException("Rebuilt content has length " + written + ": " + header);
+        }
+    }
+
+    /**
+     * Read the header at the start of a delta
+     */
+    public Header readHeader(DataInputStream delta) throws IOException
+    {
+        if (delta.readInt() != MAGIC)
+        {
+            throw new ContentIOException("Not a content delta");
+        }
+        byte version = delta.readByte();
+        if (version != FORMAT_VERSION)
+        {
+            throw new ContentIOException("Unsupported content delta format: " + version);
+        }
+        String baseUrl = delta.readUTF();
+        long baseLength = delta.readLong();
+        long targetLength = delta.readLong();
+        return new Header(baseUrl, baseLength, targetLength);
+    }
+
+    private BlockIndex indexBlocks(InputStream base) throws IOException
+    {
+        BlockIndex index = new BlockIndex();
+        MessageDigest digest = newDigest();
+        byte[] block = new byte[blockSize];
+        while (true)
+        {
+            int read = base.readNBytes(block, 0, blockSize);
+            if (read < blockSize)
+            {
+                // A partial block at the end is not indexed
+                break;
+            }
+            int[] sums = weakSums(block, 0, blockSize);
+            index.add((sums[1] << 16) | sums[0], strongHash(digest, block, 0, blockSize));
+        }
+        return index;
+    }
+
+    private static int[] weakSums(byte[] buf, int offset, int length)
+    {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++)
+        {
+            int x = buf[offset + i] & 0xFF;
+            a += x;
+            b += (length - i) * x;
+        }
+        return new int[] {a & 0xFFFF, b & 0xFFFF};
+    }
+
+    private static long strongHash(MessageDigest digest, byte[] buf, int offset, int length)
+    {
+        digest.reset();
+        digest.update(buf, offset, length);
+        byte[] hash = digest.digest();
+        long value = 0L;
+        for (int i = 0; i < 8; i++)
+        {
+            value = (value << 8) | (hash[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new ContentIOException("MD5 is not available", e);
+        }
+    }
+
+    /**
+     * The block index of the base content
+     */
+    private static class BlockIndex
+    {
+        private final Map<Integer, List<Integer>> blocksByWeakHash = new HashMap<>();
+        private long[] strongHashes = new long[1024];
+        private int count;
+
+        void add(int weakHash, long strongHash)
+        {
+            if (count == strongHashes.length)
+            {
+                long[] grown = new long[count * 2];
+                System.arraycopy(strongHashes, 0, grown, 0, count);
+                strongHashes = grown;
+            }
+            strongHashes[count] = strongHash;
+            blocksByWeakHash.computeIfAbsent(weakHash, k -> new ArrayList<>(1)).add(count);
+            count++;
+        }
+
+        /**
+         * @return              Returns the number of the matching base block or <tt>-1</tt>
+         */
+        int find(int weakHash, byte[] buf, int offset, int length, MessageDigest digest)
+        {
+            List<Integer> blocks = blocksByWeakHash.get(weakHash);
+            if (blocks == null)
+            {
+                return -1;
+            }
+            long strongHash = strongHash(digest, buf, offset, length);
+            for (int block : blocks)
+            {
+                if (strongHashes[block] == strongHash)
+                {
+                    return block;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Buffers the operations, merging adjacent copies and gathering inserted bytes
+     */
+    private static class OpWriter
+    {
+        private final DataOutputStream out;
+        private final byte[] insert = new byte[MAX_INSERT];
+        private int insertLength;
+        private long copyOffset = -1L;
+        private long copyLength;
+
+        OpWriter(DataOutputStream out)
+        {
+            this.out = out;
+        }
+
+        void copy(long offset, int length) throws IOException
+        {
+            flushInsert();
+            if (copyOffset >= 0 && copyOffset + copyLength == offset)
+            {
+                copyLength += length;
+                return;
+            }
+            flushCopy();
+            copyOffset = offset;
+            copyLength = length;
+        }
+
+        void insert(byte b) throws IOException
+        {
+            flushCopy();
+            if (insertLength == insert.length)
+            {
+                flushInsert();
+            }
+            insert[insertLength++] = b;
+        }
+
+        void end() throws IOException
+        {
+            flushCopy();
+            flushInsert();
+            out.writeByte(OP_END);
+        }
+
+        private void flushCopy() throws IOException
+        {
+            if (copyOffset >= 0)
+            {
+                out.writeByte(OP_COPY);
+                out.writeLong(copyOffset);
+                out.writeLong(copyLength);
+                copyOffset = -1L;
+                copyLength = 0L;
+            }
+        }
+
+        private void flushInsert() throws IOException
+        {
+            if (insertLength > 0)
+            {
+                out.writeByte(OP_INSERT);
+                out.writeInt(insertLength);
+                out.write(insert, 0, insertLength);
+                insertLength = 0;
+            }
+        }
+    }
+
+    /**
+     * A window onto the target content, refilled as it is consumed
+     */
+    private static class Window
+    {
+        private final InputStream in;
+        private final MessageDigest digest;
+        private final byte[] buf;
+        private int pos;
+        private int limit;
+        private long total;
+        private boolean eof;
+
+        Window(InputStream in, int size, MessageDigest digest)
+        {
+            this.in = in;
+            this.buf = new byte[size];
+            this.digest = digest;
+        }
+
+        int available()
+        {
+            return limit - pos;
+        }
+
+        /**
+         * Try to make the given number of bytes available from the current position
+         *
+         * @return              Returns the number of bytes available, which is less than asked for only at the end
+         */
+        int ensure(int wanted) throws IOException
+        {
+            if (available() >= wanted || eof)
+            {
+                return available();
+            }
+            // Move the remaining bytes to the start and refill
+            int remaining = available();
+            System.arraycopy(buf, pos, buf, 0, remaining);
+            pos = 0;
+            limit = remaining;
+            while (limit < buf.length)
+            {
+                int read = in.read(buf, limit, buf.length - limit);
+                if (read < 0)
+                {
+                    eof = true;
+                    break;
+                }
+                digest.update(buf, limit, read);
+                limit += read;
+                total += read;
+            }
+            return available();
+        }
+    }
+
+    /**
+     * The header of a content delta
+     */
+    public static class Header
+    {
+        private final String baseUrl;
+        private final long baseLength;
+        private final long targetLength;
+
+        public Header(String baseUrl, long baseLength, long targetLength)
+        {
+            this.baseUrl = baseUrl;
+            this.baseLength = baseLength;
+            this.targetLength = targetLength;
+        }
+
+        public String getBaseUrl()
+        {
+            return baseUrl;
+        }
+
+        public long getBaseLength()
+        {
+            return baseLength;
+        }
+
+        public long getTargetLength()
+        {
+            return targetLength;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Header[baseUrl=" + baseUrl + ", baseLength=" + baseLength + ", targetLength=" + targetLength + "]";
+        }
+    }
+}
@@ -0,0 +1,618 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.delta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.repo.content.ContentContext;
+import org.alfresco.repo.content.ContentStore;
+import org.alfresco.repo.content.filestore.FileContentReader;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.cmr.attributes.AttributeService.AttributeQueryCallback;
+import org.alfresco.service.cmr.repository.ContentIOException;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.DirectAccessUrl;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.TempFileProvider;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A content store that can hold content as a binary delta against other content.
+ * <p/>
+ * All content is written to, and normally read from, the backing store.  When asked to
+ * {@link #encode(String, String) encode} some content against a base, the delta is written to the backing
+ * store next to the content, at the content URL with {@link #DELTA_URL_SUFFIX} appended, and the full copy is
+ * then deleted.  A later read of the content URL finds the delta and rebuilds the content into a temporary file.
+ * This is used for older versions of large documents, which are rarely read and mostly identical to the
+ * version after them.
+ * <p/>
+ * The content encoded against each base is recorded using the {@link AttributeService}.  Before a base is
+ * deleted, the content depending on it is rebuilt in full.  A delta may itself be the base of another delta,
+ * up to a maximum chain length beyond which the content is left in full.
+ * <p/>
+ * Only content that nothing but older versions refer to should be encoded.  Should a delta URL be referenced
+ * again, for example by reverting a document to an older version, the content is read through the delta until
+ * it has been {@link #materialise(String) rebuilt in full}, each read going to a temporary file of its own.
+ * A direct access URL is never given out for a delta: the content is rebuilt in full first.
+ * <p/>
+ * Unless {@link #setEnabled(boolean) enabled}, the store passes every call straight to the backing store.
+ *
+ * @since 23.2
+ */
+public class DeltaContentStore implements ContentStore
+{
+    public static final String DELTA_URL_SUFFIX = ".delta";
+
+    static final String ATTR_KEY_DEPENDENTS = ".deltaContentStoreDependents";
+
+    private static Log logger = LogFactory.getLog(DeltaContentStore.class);
+
+    private ContentStore backingStore;
+    private TransactionService transactionService;
+    private AttributeService attributeService;
+    private ContentDeltaCodec codec = new ContentDeltaCodec();
+    private int maxChainLength = 10;
+    private int maxDeltaPercent = 50;
+    private boolean enabled = false;
+
+    public void setBackingStore(ContentStore backingStore)
+    {
+        this.backingStore = backingStore;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    public void setAttributeService(AttributeService attributeService)
+    {
+        this.attributeService = attributeService;
+    }
+
+    /**
+     * @param blockSize         the size of the blocks matched between content and its base
+     */
+    public void setBlockSize(int blockSize)
+    {
+        this.codec = new ContentDeltaCodec(blockSize);
+    }
+
+    /**
+     * @param maxChainLength    the maximum number of deltas that may have to be applied to rebuild any content
+     */
+    public void setMaxChainLength(int maxChainLength)
+    {
+        this.maxChainLength = maxChainLength;
+    }
+
+    /**
+     * @param maxDeltaPercent   the size of a delta, as a percentage of the content size, above which the
+     *                          delta is discarded and the content is left in full
+     */
+    public void setMaxDeltaPercent(int maxDeltaPercent)
+    {
+        this.maxDeltaPercent = maxDeltaPercent;
+    }
+
+    /**
+     * @param enabled           <tt>true</tt> to look for content held as deltas, otherwise the store
+     *                          is a plain pass-through to the backing store
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void init()
+    {
+        PropertyCheck.mandatory(this, "backingStore", backingStore);
+        if (!enabled)
+        {
+            return;
+        }
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        PropertyCheck.mandatory(this, "attributeService", attributeService);
+    }
+
+    @Override
+    public boolean isContentUrlSupported(String contentUrl)
+    {
+        return backingStore.isContentUrlSupported(contentUrl);
+    }
+
+    @Override
+    public boolean isWriteSupported()
+    {
+        return backingStore.isWriteSupported();
+    }
+
+    @Override
+    public long getSpaceFree()
+    {
+        return backingStore.getSpaceFree();
+    }
+
+    @Override
+    public long getSpaceTotal()
+    {
+        return backingStore.getSpaceTotal();
+    }
+
+    @Override
+    public String getRootLocation()
+    {
+        return backingStore.getRootLocation();
+    }
+
+    @Override
+    public boolean exists(String contentUrl)
+    {
+        if (!enabled)
+        {
+            return backingStore.exists(contentUrl);
+        }
+        return backingStore.exists(contentUrl) || backingStore.exists(contentUrl + DELTA_URL_SUFFIX);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Content held as a delta is rebuilt into a temporary file.
+     */
+    @Override
+    public ContentReader getReader(String contentUrl)
+    {
+        ContentReader reader = backingStore.getReader(contentUrl);
+        if (!enabled || reader.exists() || !isDelta(contentUrl))
+        {
+            return reader;
+        }
+        File file = rebuild(contentUrl, 0);
+        return new FileContentReader(file, contentUrl);
+    }
+
+    @Override
+    public ContentWriter getWriter(ContentContext context)
+    {
+        return backingStore.getWriter(context);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Any content encoded against the content being deleted is first rebuilt in full.
+     */
+    @Override
+    public boolean delete(String contentUrl)
+    {
+        if (!enabled)
+        {
+            return backingStore.delete(contentUrl);
+        }
+        List<String> dependentUrls = getDependents(contentUrl);
+        if (!dependentUrls.isEmpty())
+        {
+            for (String dependentUrl : dependentUrls)
+            {
+                materialise(dependentUrl);
+            }
+            removeDependents(contentUrl);
+        }
+        boolean deleted = backingStore.delete(contentUrl);
+        if (isDelta(contentUrl))
+        {
+            String baseUrl = readHeader(contentUrl).getBaseUrl();
+            deleted = backingStore.delete(contentUrl + DELTA_URL_SUFFIX) && deleted;
+            removeDependent(baseUrl, contentUrl);
+        }
+        return deleted;
+    }
+
+    /**
+     * @return                  Returns <tt>true</tt> if the content is only held as a delta
+     */
+    public boolean isDelta(String contentUrl)
+    {
+        return enabled && backingStore.exists(contentUrl + DELTA_URL_SUFFIX);
+    }
+
+    /**
+     * Replace the full copy of some content with a delta against a base, provided that the delta is
+     * small enough and the chain of deltas is not too long.  If the base is itself held as a delta,
+     * it is first rebuilt in full.
+     *
+     * @param contentUrl        the content to encode
+     * @param baseUrl           the content to encode against
+     * @return                  Returns <tt>true</tt> if the content is now held as a delta
+     */
+    public boolean encode(String contentUrl, String baseUrl)
+    {
+        if (!enabled || contentUrl.equals(baseUrl) || !backingStore.exists(contentUrl))
+        {
+            return false;
+        }
+        if (!backingStore.exists(baseUrl))
+        {
+            if (!isDelta(baseUrl))
+            {
+                return false;
+            }
+            materialise(baseUrl);
+        }
+        // Content encoded against this content would have to go through one more delta
+        int chainLength = 1 + getChainDepth(contentUrl, 0);
+        if (chainLength > maxChainLength)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Keeping content in full as the delta chain would be too long: " + contentUrl);
+            }
+            return false;
+        }
+
+        String deltaUrl = contentUrl + DELTA_URL_SUFFIX;
+        if (backingStore.exists(deltaUrl))
+        {
+            // Left behind by an earlier attempt
+            backingStore.delete(deltaUrl);
+        }
+        ContentReader baseReader = backingStore.getReader(baseUrl);
+        ContentReader targetReader = backingStore.getReader(contentUrl);
+        long targetLength = targetReader.getSize();
+        ContentWriter deltaWriter = backingStore.getWriter(new ContentContext(null, deltaUrl));
+        byte[] targetDigest;
+        try (InputStream base = new BufferedInputStream(baseReader.getContentInputStream());
+             InputStream target = targetReader.getContentInputStream();
+             OutputStream out = new BufferedOutputStream(deltaWriter.getContentOutputStream()))
+        {
+            targetDigest = codec.encode(base, baseUrl, baseReader.getSize(), target, targetLength, out);
+        }
+        catch (IOException e)
+        {
+            backingStore.delete(deltaUrl);
+            throw new ContentIOException("Failed to encode content " + contentUrl + " against " + baseUrl, e);
+        }
+
+        long deltaLength = backingStore.getReader(deltaUrl).getSize();
+        if (deltaLength * 100 > targetLength * maxDeltaPercent)
+        {
+            backingStore.delete(deltaUrl);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Keeping content in full as the delta is too large: " + contentUrl + " (" + deltaLength + " of " + targetLength + " bytes)");
+            }
+            return false;
+        }
+        // Check the delta before dropping the full copy
+        if (!Arrays.equals(targetDigest, digestRebuilt(contentUrl)))
+        {
+            backingStore.delete(deltaUrl);
+            throw new ContentIOException("Content rebuilt from its delta does not match: " + contentUrl);
+        }
+
+        addDependent(baseUrl, contentUrl);
+        backingStore.delete(contentUrl);
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Encoded content " + contentUrl + " against " + baseUrl + ": " + deltaLength + " of " + targetLength + " bytes");
+        }
+        return true;
+    }
+
+    /**
+     * Write the full copy of content held as a delta back to the backing store and drop the delta
+     */
+    public void materialise(String contentUrl)
+    {
+        if (!isDelta(contentUrl))
+        {
+            return;
+        }
+        String baseUrl = readHeader(contentUrl).getBaseUrl();
+        if (!backingStore.exists(contentUrl))
+        {
+            File file = rebuild(contentUrl, 0);
+            try
+            {
+                ContentWriter writer = backingStore.getWriter(new ContentContext(null, contentUrl));
+                writer.putContent(file);
+            }
+            finally
+            {
+                file.delete();
+            }
+        }
+        backingStore.delete(contentUrl + DELTA_URL_SUFFIX);
+        removeDependent(baseUrl, contentUrl);
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Rebuilt content in full: " + contentUrl);
+        }
+    }
+
+    /**
+     * Rebuild content held as a delta, rebuilding its base first if that is a delta too
+     */
+    private File rebuild(String contentUrl, int depth)
+    {
+        if (depth > maxChainLength)
+        {
+            throw new ContentIOException("Delta chain is too long at " + contentUrl);
+        }
+        ContentReader deltaReader = backingStore.getReader(contentUrl + DELTA_URL_SUFFIX);
+        File file = TempFileProvider.createTempFile("delta_", ".bin");
+        try (DataInputStream delta = new DataInputStream(new BufferedInputStream(deltaReader.getContentInputStream()));
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(file)))
+        {
+            decode(delta, out, depth);
+        }
+        catch (IOException e)
+        {
+            file.delete();
+            throw new ContentIOException("Failed to rebuild content from its delta: " + contentUrl, e);
+        }
+        return file;
+    }
+
+    private void decode(DataInputStream delta, OutputStream out, int depth) throws IOException
+    {
+        ContentDeltaCodec.Header header = codec.readHeader(delta);
+        String baseUrl = header.getBaseUrl();
+        ContentReader baseReader = backingStore.getReader(baseUrl);
+        File baseFile = null;
+        if (!baseReader.exists())
+        {
+            if (!isDelta(baseUrl))
+            {
+                throw new ContentIOException("The base of a content delta is missing: " + header);
+            }
+            baseFile = rebuild(baseUrl, depth + 1);
+            baseReader = new FileContentReader(baseFile, baseUrl);
+        }
+        try
+        {
+            FileChannel base = baseReader.getFileChannel();
+            try
+            {
+                codec.decode(delta, header, base, out);
+            }
+            finally
+            {
+                base.close();
+            }
+        }
+        finally
+        {
+            if (baseFile != null)
+            {
+                baseFile.delete();
+            }
+        }
+    }
+
+    private byte[] digestRebuilt(String contentUrl)
+    {
+        ContentReader deltaReader = backingStore.getReader(contentUrl + DELTA_URL_SUFFIX);
+        try (DataInputStream delta = new DataInputStream(new BufferedInputStream(deltaReader.getContentInputStream()));
+             DigestOutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), MessageDigest.getInstance("MD5")))
+        {
+            decode(delta, out, 0);
+            return out.getMessageDigest().digest();
+        }
+        catch (IOException | NoSuchAlgorithmException e)
+        {
+            throw new ContentIOException("Failed to check the delta of " + contentUrl, e);
+        }
+    }
+
+    private ContentDeltaCodec.Header readHeader(String contentUrl)
+    {
+        ContentReader deltaReader = backingStore.getReader(contentUrl + DELTA_URL_SUFFIX);
+        try (DataInputStream delta = new DataInputStream(new BufferedInputStream(deltaReader.getContentInputStream())))
+        {
+            return codec.readHeader(delta);
+        }
+        catch (IOException e)
+        {
+            throw new ContentIOException("Failed to read the delta of " + contentUrl, e);
+        }
+    }
+
+    /**
+     * @return                  Returns the length of the longest chain of deltas leading to the content
+     */
+    private int getChainDepth(String contentUrl, int depth)
+    {
+        if (depth > maxChainLength)
+        {
+            return depth;
+        }
+        int maxDepth = 0;
+        for (String dependentUrl : getDependents(contentUrl))
+        {
+            maxDepth = Math.max(maxDepth, 1 + getChainDepth(dependentUrl, depth + 1));
+        }
+        return maxDepth;
+    }
+
+    private List<String> getDependents(final String baseUrl)
+    {
+        return transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<List<String>>()
+        {
+            @Override
+            public List<String> execute() throws Throwable
+            {
+                final List<String> dependents = new ArrayList<>();
+                attributeService.getAttributes(new AttributeQueryCallback()
+                {
+                    @Override
+                    public boolean handleAttribute(Long id, Serializable value, Serializable[] keys)
+                    {
+                        dependents.add((String) keys[2]);
+                        return true;
+                    }
+                }, ATTR_KEY_DEPENDENTS, baseUrl);
+                return dependents;
+            }
+        }, true, true);
+    }
+
+    private void addDependent(final String baseUrl, final String contentUrl)
+    {
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                attributeService.setAttribute(Boolean.TRUE, ATTR_KEY_DEPENDENTS, baseUrl, contentUrl);
+                return null;
+            }
+        }, false, true);
+    }
+
+    private void removeDependent(final String baseUrl, final String contentUrl)
+    {
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                attributeService.removeAttribute(ATTR_KEY_DEPENDENTS, baseUrl, contentUrl);
+                return null;
+            }
+        }, false, true);
+    }
+
+    private void removeDependents(final String baseUrl)
+    {
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                attributeService.removeAttributes(ATTR_KEY_DEPENDENTS, baseUrl);
+                return null;
+            }
+        }, false, true);
+    }
+
+    @Override
+    public Map<String, String> getStorageProperties(String contentUrl)
+    {
+        return backingStore.getStorageProperties(contentUrl);
+    }
+
+    @Override
+    public boolean requestSendContentToArchive(String contentUrl, Map<String, Serializable> archiveParams)
+    {
+        return backingStore.requestSendContentToArchive(contentUrl, archiveParams);
+    }
+
+    @Override
+    public boolean requestRestoreContentFromArchive(String contentUrl, Map<String, Serializable> restoreParams)
+    {
+        return backingStore.requestRestoreContentFromArchive(contentUrl, restoreParams);
+    }
+
+    @Override
+    public boolean isContentDirectUrlEnabled()
+    {
+        return backingStore.isContentDirectUrlEnabled();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Content held as a delta is rebuilt in full before a direct access URL is requested for it.
+     */
+    @Override
+    public boolean isContentDirectUrlEnabled(String contentUrl)
+    {
+        return backingStore.isContentDirectUrlEnabled(contentUrl);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Content held as a delta is first rebuilt in full, as the URL must lead to the whole content.
+     */
+    @Override
+    public DirectAccessUrl requestContentDirectUrl(String contentUrl, boolean attachment, String fileName)
+    {
+        materialise(contentUrl);
+        return backingStore.requestContentDirectUrl(contentUrl, attachment, fileName);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Content held as a delta is first rebuilt in full, as the URL must lead to the whole content.
+     */
+    @Override
+    public DirectAccessUrl requestContentDirectUrl(String contentUrl, boolean attachment, String fileName, Long validFor)
+    {
+        materialise(contentUrl);
+        return backingStore.requestContentDirectUrl(contentUrl, attachment, fileName, validFor);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Content held as a delta is first rebuilt in full, as the URL must lead to the whole content.
+     */
+    @Override
+    public DirectAccessUrl requestContentDirectUrl(String contentUrl, boolean attachment, String fileName, String mimeType, Long validFor)
+    {
+        materialise(contentUrl);
+        return backingStore.requestContentDirectUrl(contentUrl, attachment, fileName, mimeType, validFor);
+    }
+}
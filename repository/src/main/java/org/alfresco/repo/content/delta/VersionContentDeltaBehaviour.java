@@ -0,0 +1,331 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.delta;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.content.ContentServicePolicies;
+import org.alfresco.repo.domain.contentdata.ContentDataDAO;
+import org.alfresco.repo.policy.Behaviour;
+import org.alfresco.repo.policy.JavaBehaviour;
+import org.alfresco.repo.policy.PolicyComponent;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.repo.transaction.TransactionListenerAdapter;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
+import org.alfresco.repo.version.Version2Model;
+import org.alfresco.repo.version.VersionServicePolicies;
+import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.version.Version;
+import org.alfresco.service.cmr.version.VersionHistory;
+import org.alfresco.service.cmr.version.VersionService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Encodes the content of a version as a delta against the content of the version that replaces it.
+ * <p/>
+ * Each version of a document keeps its own content URL, so documents that are edited many times leave
+ * behind many nearly identical copies of their content.  Once a new version has been committed, the
+ * content of the version before it is handed to the {@link DeltaContentStore} to be encoded against the new
+ * content, leaving the latest version in full.  The encoding is done in the background after the commit,
+ * so that creating the version writes no more than before.
+ * <p/>
+ * Versions share their content URL with the live node they were taken from, and with any copies of it.
+ * Content that is still referenced from outside the version store is always left in full, so that live
+ * reads and direct access URLs never go through a delta.  When a node outside the version store is given
+ * content that is held as a delta, for example by reverting it to an older version or by copying a version,
+ * the content is rebuilt in full in the background after the commit.  Until then, and if a revert commits
+ * while the content is being encoded, reads go through the delta.
+ *
+ * @since 23.2
+ */
+public class VersionContentDeltaBehaviour extends TransactionListenerAdapter
+        implements VersionServicePolicies.AfterCreateVersionPolicy, ContentServicePolicies.OnContentPropertyUpdatePolicy
+{
+    private static final String KEY_VERSIONS = VersionContentDeltaBehaviour.class.getName() + ".versions";
+    private static final String KEY_REFERENCED_URLS = VersionContentDeltaBehaviour.class.getName() + ".referencedUrls";
+
+    private static final StoreRef VERSION_STORE_REF = new StoreRef(StoreRef.PROTOCOL_WORKSPACE, Version2Model.STORE_ID);
+
+    private static Log logger = LogFactory.getLog(VersionContentDeltaBehaviour.class);
+
+    private PolicyComponent policyComponent;
+    private VersionService versionService;
+    private NodeService nodeService;
+    private ContentDataDAO contentDataDAO;
+    private TransactionService transactionService;
+    private DeltaContentStore deltaContentStore;
+    private ThreadPoolExecutor threadPoolExecutor;
+    private boolean enabled = false;
+    private long minContentSize = 1024L * 1024L;
+
+    public void setPolicyComponent(PolicyComponent policyComponent)
+    {
+        this.policyComponent = policyComponent;
+    }
+
+    public void setVersionService(VersionService versionService)
+    {
+        this.versionService = versionService;
+    }
+
+    public void setNodeService(NodeService nodeService)
+    {
+        this.nodeService = nodeService;
+    }
+
+    public void setContentDataDAO(ContentDataDAO contentDataDAO)
+    {
+        this.contentDataDAO = contentDataDAO;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    public void setDeltaContentStore(DeltaContentStore deltaContentStore)
+    {
+        this.deltaContentStore = deltaContentStore;
+    }
+
+    public void setThreadPoolExecutor(ThreadPoolExecutor threadPoolExecutor)
+    {
+        this.threadPoolExecutor = threadPoolExecutor;
+    }
+
+    /**
+     * @param enabled           <tt>true</tt> to encode the content of older versions as deltas
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param minContentSize    the size below which the content of a version is always kept in full
+     */
+    public void setMinContentSize(long minContentSize)
+    {
+        this.minContentSize = minContentSize;
+    }
+
+    public void init()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        PropertyCheck.mandatory(this, "policyComponent", policyComponent);
+        PropertyCheck.mandatory(this, "versionService", versionService);
+        PropertyCheck.mandatory(this, "nodeService", nodeService);
+        PropertyCheck.mandatory(this, "contentDataDAO", contentDataDAO);
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        PropertyCheck.mandatory(this, "deltaContentStore", deltaContentStore);
+        if (!deltaContentStore.isEnabled())
+        {
+            throw new IllegalStateException("The delta content store must be enabled to encode versions as deltas");
+        }
+        PropertyCheck.mandatory(this, "threadPoolExecutor", threadPoolExecutor);
+
+        policyComponent.bindClassBehaviour(
+                VersionServicePolicies.AfterCreateVersionPolicy.QNAME,
+                ContentModel.ASPECT_VERSIONABLE,
+                new JavaBehaviour(this, "afterCreateVersion", Behaviour.NotificationFrequency.EVERY_EVENT));
+        policyComponent.bindClassBehaviour(
+                ContentServicePolicies.OnContentPropertyUpdatePolicy.QNAME,
+                ContentModel.TYPE_BASE,
+                new JavaBehaviour(this, "onContentPropertyUpdate", Behaviour.NotificationFrequency.EVERY_EVENT));
+    }
+
+    @Override
+    public void afterCreateVersion(NodeRef versionableNode, Version version)
+    {
+        Set<Pair<NodeRef, String>> versions = TransactionalResourceHelper.getSet(KEY_VERSIONS);
+        versions.add(new Pair<>(versionableNode, version.getVersionLabel()));
+        AlfrescoTransactionSupport.bindListener(this);
+    }
+
+    /**
+     * Records the content given to nodes outside the version store, so that it can be rebuilt in full
+     * after the commit if it is held as a delta
+     */
+    @Override
+    public void onContentPropertyUpdate(NodeRef nodeRef, QName propertyQName, ContentData beforeValue, ContentData afterValue)
+    {
+        if (afterValue == null || VERSION_STORE_REF.equals(nodeRef.getStoreRef()))
+        {
+            return;
+        }
+        Set<String> referencedUrls = TransactionalResourceHelper.getSet(KEY_REFERENCED_URLS);
+        referencedUrls.add(afterValue.getContentUrl());
+        AlfrescoTransactionSupport.bindListener(this);
+    }
+
+    @Override
+    public void afterCommit()
+    {
+        final Set<String> referencedUrls = new HashSet<>(TransactionalResourceHelper.<String>getSet(KEY_REFERENCED_URLS));
+        if (!referencedUrls.isEmpty())
+        {
+            threadPoolExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    AuthenticationUtil.runAsSystem(new RunAsWork<Void>()
+                    {
+                        @Override
+                        public Void doWork() throws Exception
+                        {
+                            materialiseReferenced(referencedUrls);
+                            return null;
+                        }
+                    });
+                }
+            });
+        }
+        Set<Pair<NodeRef, String>> versions = new HashSet<>(TransactionalResourceHelper.<Pair<NodeRef, String>>getSet(KEY_VERSIONS));
+        for (final Pair<NodeRef, String> version : versions)
+        {
+            threadPoolExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    AuthenticationUtil.runAsSystem(new RunAsWork<Void>()
+                    {
+                        @Override
+                        public Void doWork() throws Exception
+                        {
+                            encodePreviousVersion(version.getFirst(), version.getSecond());
+                            return null;
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Rebuild in full any of the given content that is held as a delta
+     */
+    private void materialiseReferenced(Set<String> contentUrls)
+    {
+        for (String contentUrl : contentUrls)
+        {
+            try
+            {
+                if (deltaContentStore.isDelta(contentUrl))
+                {
+                    deltaContentStore.materialise(contentUrl);
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Rebuilt content in full as it is referenced outside of the version store again: " + contentUrl);
+                    }
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // Reads still go through the delta
+                logger.warn("Failed to rebuild content in full: " + contentUrl, e);
+            }
+        }
+    }
+
+    /**
+     * Encode the content of the version before the given one against the content of the given version
+     */
+    private void encodePreviousVersion(final NodeRef versionableNode, final String versionLabel)
+    {
+        Pair<String, String> contentUrls = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Pair<String, String>>()
+        {
+            @Override
+            public Pair<String, String> execute() throws Throwable
+            {
+                if (!nodeService.exists(versionableNode))
+                {
+                    return null;
+                }
+                VersionHistory versionHistory = versionService.getVersionHistory(versionableNode);
+                Version version = versionHistory == null ? null : versionHistory.getVersion(versionLabel);
+                Version previousVersion = version == null ? null : versionHistory.getPredecessor(version);
+                if (previousVersion == null)
+                {
+                    return null;
+                }
+                ContentData content = (ContentData) nodeService.getProperty(version.getFrozenStateNodeRef(), ContentModel.PROP_CONTENT);
+                ContentData previousContent = (ContentData) nodeService.getProperty(previousVersion.getFrozenStateNodeRef(), ContentModel.PROP_CONTENT);
+                if (!ContentData.hasContent(content) || !ContentData.hasContent(previousContent)
+                        || previousContent.getSize() < minContentSize
+                        || previousContent.getContentUrl().equals(content.getContentUrl()))
+                {
+                    return null;
+                }
+                if (contentDataDAO.countContentUrlReferences(previousContent.getContentUrl(), VERSION_STORE_REF) > 0)
+                {
+                    // Still live content, of the node itself or of a copy
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug("Keeping content in full as it is still referenced outside of the version store: " + previousContent.getContentUrl());
+                    }
+                    return null;
+                }
+                return new Pair<>(previousContent.getContentUrl(), content.getContentUrl());
+            }
+        }, true, true);
+        if (contentUrls == null)
+        {
+            return;
+        }
+        try
+        {
+            boolean encoded = deltaContentStore.encode(contentUrls.getFirst(), contentUrls.getSecond());
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Content of the version before " + versionLabel + " of " + versionableNode + (encoded ? " encoded as a delta" : " kept in full"));
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // The content is left in full
+            logger.warn("Failed to encode the content of the version before " + versionLabel + " of " + versionableNode, e);
+        }
+    }
+}
@@ -892,6 +892,12 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
             // Get the permission details of the source node reference
             Set<AccessPermission> permissions = permissionService.getAllSetPermissions(sourceNodeRef);
             boolean includeInherited = permissionService.getInheritParentPermissions(sourceNodeRef);
+            if (includeInherited && !hasPermissionsSetDirectly(permissions) &&
+                    permissionService.getInheritParentPermissions(destinationNodeRef))
+            {
+                // The destination already inherits its permissions, so there is nothing to copy
+                return;
+            }
 
             if((publicServiceAccessService.hasAccess("PermissionService", "setPermission", destinationNodeRef, "dummyAuth", "dummyPermission", true) == AccessStatus.ALLOWED) &&
                     (publicServiceAccessService.hasAccess("PermissionService", "setInheritParentPermissions", destinationNodeRef, includeInherited) == AccessStatus.ALLOWED))
@@ -913,6 +919,18 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
         }
     }
 
+    private boolean hasPermissionsSetDirectly(Set<AccessPermission> permissions)
+    {
+        for (AccessPermission permission : permissions)
+        {
+            if (permission.isSetDirectly())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Gets the copy details.  This calls the appropriate policies that have been registered
      * against the node and aspect types in order to pick-up any type specific copy behaviour.
@@ -1292,9 +1310,9 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
             {
                 continue;                   // Ignore non-child assocs
             }
-            // Get the child associations
+            // Get the child associations, loading the children together if they are likely to be copied
             List<ChildAssociationRef> childAssocRefs = nodeService.getChildAssocs(
-                    sourceNodeRef, childAssocTypeQName, RegexQNamePattern.MATCH_ALL);
+                    sourceNodeRef, childAssocTypeQName, RegexQNamePattern.MATCH_ALL, copyChildren);
             for (ChildAssociationRef childAssocRef : childAssocRefs)
             {
                 NodeRef childNodeRef = childAssocRef.getChildRef();
@@ -1376,6 +1394,76 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
         }
     }
 
+    /**
+     * Work out which child associations of a node that was copied on its own would have been copied had its
+     * children been copied too, according to the copy behaviours of the node's type and aspects.  This allows
+     * the {@link HierarchyCopier} to copy the children in stages.  Child associations that were already handled
+     * by the copy of the node on its own, or that would not be copied at all, are left out.
+     * 
+     * @param sourceNodeRef         the node that was copied
+     * @param copyNodeRef           the copy of the node
+     * @param childAssocRefs        the child associations of the source node to consider
+     * @return                      the copy actions for the child associations still to be copied, in the given order
+     * 
+     * @since 23.2
+     */
+    Map<ChildAssociationRef, ChildAssocCopyAction> getDeferredChildAssocCopyActions(
+            NodeRef sourceNodeRef,
+            NodeRef copyNodeRef,
+            List<ChildAssociationRef> childAssocRefs)
+    {
+        ChildAssociationRef copyParentAssocRef = internalNodeService.getPrimaryParent(copyNodeRef);
+        CopyDetails copyDetails = new CopyDetails(
+                sourceNodeRef,
+                internalNodeService.getType(sourceNodeRef),
+                internalNodeService.getAspects(sourceNodeRef),
+                internalNodeService.getProperties(sourceNodeRef),
+                copyParentAssocRef.getParentRef(),
+                copyNodeRef,
+                true,
+                copyParentAssocRef.getTypeQName(),
+                copyParentAssocRef.getQName());
+        Map<QName, CopyBehaviourCallback> callbacks = getCallbacks(copyDetails);
+        // The type comes first, as when copying
+        List<ClassDefinition> classDefs = new ArrayList<ClassDefinition>(callbacks.size());
+        classDefs.add(dictionaryService.getClass(copyDetails.getSourceNodeTypeQName()));
+        for (QName aspectQName : copyDetails.getSourceNodeAspectQNames())
+        {
+            classDefs.add(dictionaryService.getAspect(aspectQName));
+        }
+        
+        Map<ChildAssociationRef, ChildAssocCopyAction> childAssocCopyActions = new LinkedHashMap<ChildAssociationRef, ChildAssocCopyAction>(childAssocRefs.size() * 2);
+        for (ChildAssociationRef childAssocRef : childAssocRefs)
+        {
+            for (ClassDefinition classDef : classDefs)
+            {
+                if (classDef == null || !classDef.getChildAssociations().containsKey(childAssocRef.getTypeQName()))
+                {
+                    continue;
+                }
+                QName classQName = classDef.getName();
+                CopyBehaviourCallback callback = callbacks.get(classQName);
+                ChildAssocCopyAction shallowAction = callback.getChildAssociationCopyAction(
+                        classQName,
+                        copyDetails,
+                        new CopyChildAssociationDetails(childAssocRef, copyNodeRef, true, false));
+                if (shallowAction == ChildAssocCopyAction.IGNORE)
+                {
+                    ChildAssocCopyAction deepAction = callback.getChildAssociationCopyAction(
+                            classQName,
+                            copyDetails,
+                            new CopyChildAssociationDetails(childAssocRef, copyNodeRef, true, true));
+                    if (deepAction != ChildAssocCopyAction.IGNORE)
+                    {
+                        childAssocCopyActions.put(childAssocRef, deepAction);
+                    }
+                }
+                break;
+            }
+        }
+        return childAssocCopyActions;
+    }
+
     /**
      * Callback behaviour for the 'original' assoc ('copiedfrom' aspect).
      */
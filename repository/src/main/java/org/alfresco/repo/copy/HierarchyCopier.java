@@ -0,0 +1,465 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.copy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.copy.CopyBehaviourCallback.ChildAssocCopyAction;
+import org.alfresco.repo.domain.node.NodeDAO.ChildAssocRefQueryCallback;
+import org.alfresco.repo.lock.LockAcquisitionException;
+import org.alfresco.repo.node.AbstractStagedHierarchyProcessor;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.cmr.attributes.AttributeService.AttributeQueryCallback;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.CopyService;
+import org.alfresco.service.cmr.repository.CopyServiceException;
+import org.alfresco.service.cmr.repository.InvalidNodeRefException;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.security.AccessStatus;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+
+/**
+ * Copies large node hierarchies in stages, each in a transaction of its own.
+ * <p/>
+ * {@link CopyService#copy(NodeRef, NodeRef, QName, QName, boolean)} copies a whole hierarchy node by node in a
+ * single transaction, which does not scale to hierarchies of tens of thousands of nodes.  Here, sub-hierarchies of
+ * no more than <b>chunkSize</b> nodes are copied in batches using the normal copy service.  Nodes that have too
+ * many descendants are copied on their own and their children are then copied beneath the copy in later
+ * transactions.  The children are chosen by the copy behaviours of the node, as for a copy of the whole
+ * hierarchy, and children that the current user cannot read are left out.  The children of each batch are
+ * pre-loaded together before they are copied.
+ * <p/>
+ * The copy behaviours and policies are called as usual, but for one sub-hierarchy at a time: associations between
+ * nodes copied in different transactions point at the original nodes, or are not copied, according to the
+ * {@link CopyBehaviourCallback} of the source node.  As with the copy service, content is not duplicated: the
+ * copies share the content URLs of the originals.
+ * <p/>
+ * Nodes whose children have still to be copied are recorded using the {@link AttributeService}.  If a copy is
+ * interrupted, the part of the hierarchy that has been copied is left in place and the copy is completed by
+ * {@link #resumeHierarchies()}, which the node cleanup job calls periodically.
+ *
+ * @since 23.2
+ */
+public class HierarchyCopier extends AbstractStagedHierarchyProcessor
+{
+    static final String ATTR_KEY_COPIES = ".hierarchyCopier";
+
+    private CopyService copyService;
+    private CopyServiceImpl copyServiceImpl;
+    private NodeService nodeService;
+    private PermissionService permissionService;
+
+    public HierarchyCopier()
+    {
+        super(ATTR_KEY_COPIES);
+    }
+
+    public void setCopyService(CopyService copyService)
+    {
+        this.copyService = copyService;
+    }
+
+    /**
+     * @param copyServiceImpl   the unwrapped copy service, which knows how the children of a node are copied
+     */
+    public void setCopyServiceImpl(CopyServiceImpl copyServiceImpl)
+    {
+        this.copyServiceImpl = copyServiceImpl;
+    }
+
+    public void setNodeService(NodeService nodeService)
+    {
+        this.nodeService = nodeService;
+    }
+
+    public void setPermissionService(PermissionService permissionService)
+    {
+        this.permissionService = permissionService;
+    }
+
+    @Override
+    public void init()
+    {
+        super.init();
+        PropertyCheck.mandatory(this, "copyService", copyService);
+        PropertyCheck.mandatory(this, "copyServiceImpl", copyServiceImpl);
+        PropertyCheck.mandatory(this, "nodeService", nodeService);
+        PropertyCheck.mandatory(this, "permissionService", permissionService);
+    }
+
+    /**
+     * Copy a node and all of its descendants.  The top node is copied as by
+     * {@link CopyService#copy(NodeRef, NodeRef, QName, QName, boolean)}.
+     * <p/>
+     * This must not be called within a transaction as each stage of the copy is committed as it completes.
+     * In the unlikely event that the periodic job picks up the copy before this thread does, the copy is
+     * completed by the job instead.
+     *
+     * @return                  the copy of the top node
+     */
+    public NodeRef copyHierarchy(
+            final NodeRef sourceNodeRef,
+            final NodeRef targetParentRef,
+            final QName assocTypeQName,
+            final QName assocQName)
+    {
+        if (AlfrescoTransactionSupport.getTransactionReadState() != TxnReadState.TXN_NONE)
+        {
+            throw new IllegalStateException("A node hierarchy cannot be copied in stages within a transaction: " + sourceNodeRef);
+        }
+
+        final Pair<NodeRef, Boolean> copy = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Pair<NodeRef, Boolean>>()
+        {
+            @Override
+            public Pair<NodeRef, Boolean> execute() throws Throwable
+            {
+                Pair<Long, NodeRef> sourceNodePair = nodeDAO.getNodePair(sourceNodeRef);
+                if (sourceNodePair == null)
+                {
+                    throw new InvalidNodeRefException("Node does not exist: " + sourceNodeRef, sourceNodeRef);
+                }
+                if (countHierarchy(sourceNodePair.getFirst(), chunkSize + 1) <= chunkSize)
+                {
+                    NodeRef copyNodeRef = copyService.copy(sourceNodeRef, targetParentRef, assocTypeQName, assocQName, true);
+                    return new Pair<NodeRef, Boolean>(copyNodeRef, Boolean.FALSE);
+                }
+                NodeRef copyNodeRef = copyService.copy(sourceNodeRef, targetParentRef, assocTypeQName, assocQName, false);
+                attributeService.setAttribute(
+                        new Pair<String, Long>(copyNodeRef.toString(), 0L),
+                        ATTR_KEY_COPIES, copyNodeRef.toString(), sourceNodeRef.toString());
+                recordUser(copyNodeRef);
+                return new Pair<NodeRef, Boolean>(copyNodeRef, Boolean.TRUE);
+            }
+        }, false, true);
+        final NodeRef copyNodeRef = copy.getFirst();
+        if (!copy.getSecond())
+        {
+            return copyNodeRef;
+        }
+
+        try
+        {
+            long nodeCount = doWithLock(copyNodeRef, () -> copyPendingChildren(copyNodeRef));
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Copied node hierarchy " + sourceNodeRef + " to " + copyNodeRef + ": " + (nodeCount + 1) + " nodes");
+            }
+        }
+        catch (LockAcquisitionException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Node hierarchy copy " + copyNodeRef + " is being completed by another thread");
+            }
+        }
+        return copyNodeRef;
+    }
+
+    @Override
+    protected long resumeHierarchy(NodeRef copyNodeRef)
+    {
+        return copyPendingChildren(copyNodeRef);
+    }
+
+    /**
+     * Copy the children of the nodes recorded for a hierarchy copy until there are none left
+     *
+     * @param copyNodeRef       the copy of the top node of the hierarchy
+     * @return                  the number of nodes copied
+     */
+    private long copyPendingChildren(final NodeRef copyNodeRef)
+    {
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        long nodeCount = 0L;
+        while (true)
+        {
+            Integer copied = txnHelper.doInTransaction(new RetryingTransactionCallback<Integer>()
+            {
+                @Override
+                public Integer execute() throws Throwable
+                {
+                    return copyChunk(copyNodeRef);
+                }
+            }, false, true);
+            if (copied == null)
+            {
+                break;
+            }
+            nodeCount += copied;
+        }
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                removeRecords(copyNodeRef);
+                return null;
+            }
+        }, false, true);
+        return nodeCount;
+    }
+
+    /**
+     * Copy up to <b>chunkSize</b> nodes from the children of the nodes recorded for a hierarchy copy
+     *
+     * @return                  the number of nodes copied or <tt>null</tt> if there was nothing left to copy
+     */
+    private Integer copyChunk(NodeRef copyNodeRef)
+    {
+        final Map<NodeRef, Pair<String, Long>> pending = new LinkedHashMap<NodeRef, Pair<String, Long>>();
+        attributeService.getAttributes(new AttributeQueryCallback()
+        {
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean handleAttribute(Long id, Serializable value, Serializable[] keys)
+            {
+                pending.put(new NodeRef((String) keys[2]), (Pair<String, Long>) value);
+                return true;
+            }
+        }, ATTR_KEY_COPIES, copyNodeRef.toString());
+        if (pending.isEmpty())
+        {
+            return null;
+        }
+
+        int budget = chunkSize;
+        for (Map.Entry<NodeRef, Pair<String, Long>> entry : pending.entrySet())
+        {
+            NodeRef sourceParentRef = entry.getKey();
+            NodeRef targetParentRef = new NodeRef(entry.getValue().getFirst());
+            long lastChildAssocId = entry.getValue().getSecond();
+            Pair<Long, NodeRef> sourceParentPair = nodeDAO.getNodePair(sourceParentRef);
+            if (sourceParentPair == null || !nodeService.exists(targetParentRef))
+            {
+                // Deleted in the meantime
+                attributeService.removeAttribute(ATTR_KEY_COPIES, copyNodeRef.toString(), sourceParentRef.toString());
+                continue;
+            }
+
+            List<Pair<Long, ChildAssociationRef>> children = getChildren(sourceParentPair.getFirst(), lastChildAssocId);
+            boolean parentDone = true;
+            windows:
+            for (int from = 0; from < children.size(); from += chunkSize)
+            {
+                List<Pair<Long, ChildAssociationRef>> window = children.subList(from, Math.min(from + chunkSize, children.size()));
+                Map<ChildAssociationRef, ChildAssocCopyAction> childAssocCopyActions = getChildAssocCopyActions(
+                        sourceParentRef, targetParentRef, window);
+                for (Pair<Long, ChildAssociationRef> child : window)
+                {
+                    ChildAssociationRef childAssocRef = child.getSecond();
+                    ChildAssocCopyAction childAssocCopyAction = childAssocCopyActions.get(childAssocRef);
+                    if (childAssocCopyAction == null)
+                    {
+                        // Not copied
+                        lastChildAssocId = child.getFirst();
+                        continue;
+                    }
+                    int size = 1;
+                    boolean staged = false;
+                    if (childAssocCopyAction == ChildAssocCopyAction.COPY_CHILD)
+                    {
+                        size = countHierarchy(nodeDAO.getNodePair(childAssocRef.getChildRef()).getFirst(), chunkSize + 1);
+                        if (size > chunkSize)
+                        {
+                            // Only the child itself is copied now
+                            staged = true;
+                            size = 1;
+                        }
+                    }
+                    if (size > budget && budget < chunkSize)
+                    {
+                        // Leave it for the next transaction
+                        parentDone = false;
+                        break windows;
+                    }
+                    copyChild(copyNodeRef, childAssocRef, childAssocCopyAction, targetParentRef, staged);
+                    budget -= size;
+                    lastChildAssocId = child.getFirst();
+                }
+            }
+
+            if (parentDone)
+            {
+                attributeService.removeAttribute(ATTR_KEY_COPIES, copyNodeRef.toString(), sourceParentRef.toString());
+            }
+            else
+            {
+                attributeService.setAttribute(
+                        new Pair<String, Long>(targetParentRef.toString(), lastChildAssocId),
+                        ATTR_KEY_COPIES, copyNodeRef.toString(), sourceParentRef.toString());
+                break;
+            }
+            if (budget <= 0)
+            {
+                break;
+            }
+        }
+        return chunkSize - budget;
+    }
+
+    /**
+     * Work out how each of a batch of children is copied, pre-loading the children together
+     *
+     * @return                  the copy actions for the children to copy
+     */
+    private Map<ChildAssociationRef, ChildAssocCopyAction> getChildAssocCopyActions(
+            NodeRef sourceParentRef,
+            NodeRef targetParentRef,
+            List<Pair<Long, ChildAssociationRef>> children)
+    {
+        List<NodeRef> childNodeRefs = new ArrayList<NodeRef>(children.size());
+        for (Pair<Long, ChildAssociationRef> child : children)
+        {
+            childNodeRefs.add(child.getSecond().getChildRef());
+        }
+        nodeDAO.cacheNodes(childNodeRefs);
+
+        List<ChildAssociationRef> childAssocRefs = new ArrayList<ChildAssociationRef>(children.size());
+        for (Pair<Long, ChildAssociationRef> child : children)
+        {
+            ChildAssociationRef childAssocRef = child.getSecond();
+            // As for a copy of the whole hierarchy, the children that cannot be read are not copied
+            if (permissionService.hasPermission(childAssocRef.getChildRef(), PermissionService.READ) == AccessStatus.ALLOWED)
+            {
+                childAssocRefs.add(childAssocRef);
+            }
+        }
+        return copyServiceImpl.getDeferredChildAssocCopyActions(sourceParentRef, targetParentRef, childAssocRefs);
+    }
+
+    /**
+     * Copy a child of a node into the node's copy, recording it if its own children must be copied in stages
+     *
+     * @param staged            <tt>true</tt> to copy the child on its own and record it
+     */
+    private void copyChild(
+            NodeRef copyNodeRef,
+            ChildAssociationRef childAssocRef,
+            ChildAssocCopyAction childAssocCopyAction,
+            NodeRef targetParentRef,
+            boolean staged)
+    {
+        NodeRef childNodeRef = childAssocRef.getChildRef();
+        if (childAssocCopyAction == ChildAssocCopyAction.COPY_ASSOC)
+        {
+            nodeService.addChild(targetParentRef, childNodeRef, childAssocRef.getTypeQName(), childAssocRef.getQName());
+            return;
+        }
+        NodeRef childCopyNodeRef;
+        try
+        {
+            childCopyNodeRef = copyService.copy(
+                    childNodeRef, targetParentRef,
+                    childAssocRef.getTypeQName(), childAssocRef.getQName(),
+                    !staged);
+        }
+        catch (CopyServiceException e)
+        {
+            // A bound policy denied the copy, as it may do for any child
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Child not copied: " + childNodeRef + ": " + e.getMessage());
+            }
+            return;
+        }
+        // The copy service drops the name of the node it was asked to copy, but children keep theirs
+        if (nodeService.getProperty(childCopyNodeRef, ContentModel.PROP_NAME) == null)
+        {
+            nodeService.setProperty(childCopyNodeRef, ContentModel.PROP_NAME, nodeService.getProperty(childNodeRef, ContentModel.PROP_NAME));
+        }
+        if (staged)
+        {
+            attributeService.setAttribute(
+                    new Pair<String, Long>(childCopyNodeRef.toString(), 0L),
+                    ATTR_KEY_COPIES, copyNodeRef.toString(), childNodeRef.toString());
+        }
+    }
+
+    /**
+     * Get the child associations of a node that come after the given one, in order of association ID
+     */
+    private List<Pair<Long, ChildAssociationRef>> getChildren(Long parentNodeId, final long afterChildAssocId)
+    {
+        final List<Pair<Long, ChildAssociationRef>> children = new ArrayList<Pair<Long, ChildAssociationRef>>();
+        ChildAssocRefQueryCallback callback = new ChildAssocRefQueryCallback()
+        {
+            @Override
+            public boolean preLoadNodes()
+            {
+                return false;
+            }
+
+            @Override
+            public boolean orderResults()
+            {
+                return false;
+            }
+
+            @Override
+            public boolean handle(
+                    Pair<Long, ChildAssociationRef> childAssocPair,
+                    Pair<Long, NodeRef> parentNodePair,
+                    Pair<Long, NodeRef> childNodePair)
+            {
+                if (childAssocPair.getFirst() > afterChildAssocId)
+                {
+                    children.add(childAssocPair);
+                }
+                return true;
+            }
+
+            @Override
+            public void done()
+            {
+            }
+        };
+        nodeDAO.getChildAssocs(parentNodeId, null, null, null, null, null, callback);
+        Collections.sort(children, new Comparator<Pair<Long, ChildAssociationRef>>()
+        {
+            @Override
+            public int compare(Pair<Long, ChildAssociationRef> child1, Pair<Long, ChildAssociationRef> child2)
+            {
+                return child1.getFirst().compareTo(child2.getFirst());
+            }
+        });
+        return children;
+    }
+}
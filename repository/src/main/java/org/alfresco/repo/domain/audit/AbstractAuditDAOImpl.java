@@ -25,23 +25,34 @@
  */
 package org.alfresco.repo.domain.audit;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.content.MimetypeMap;
 import org.alfresco.repo.domain.contentdata.ContentDataDAO;
 import org.alfresco.repo.domain.propval.PropertyIdSearchRow;
+import org.alfresco.repo.domain.propval.PropertyUniqueConstraintViolation;
 import org.alfresco.repo.domain.propval.PropertyValueDAO;
 import org.alfresco.service.cmr.audit.AuditService.AuditQueryCallback;
 import org.alfresco.service.cmr.repository.ContentData;
@@ -61,11 +72,24 @@ import org.springframework.dao.DataIntegrityViolationException;
  */
 public abstract class AbstractAuditDAOImpl implements AuditDAO 
 {
+    /**
+     * Unique context recording, for each searchable key, the first audit entry indexed against it
+     */
+    private static final String CONTEXT_INDEXED_FROM = ".auditEntryKeyIndexedFrom";
+    /**
+     * Stands in for the key in {@link #CONTEXT_INDEXED_FROM} to record the first entry with compact values
+     */
+    private static final String INDEXED_FROM_COMPACT_VALUES = ".compactValues";
+    
     protected final Log logger = LogFactory.getLog(this.getClass());
     
     private ContentService contentService;
     private ContentDataDAO contentDataDAO;
     protected PropertyValueDAO propertyValueDAO;
+    private boolean compactValuesEnabled = false;
+    private Set<String> searchableKeys = Collections.emptySet();
+    /** The index keys seen to have their first indexed entry recorded */
+    private final Set<String> indexedFromKeys = ConcurrentHashMap.newKeySet();
     
     public void setContentService(ContentService contentService)
     {
@@ -87,6 +111,46 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
         return this.propertyValueDAO;
     }
     
+    /**
+     * Choose how new audit entries store their values.  When enabled, the values of each entry are
+     * written as a single compressed blob to <b>alf_audit_entry_values</b> instead of being spread
+     * across the <b>alf_prop_XXX</b> tables.  Entries written either way can be read back.
+     * <p>
+     * Compact entries can only be searched by their {@link #setSearchableKeys(String[]) searchable keys}:
+     * while enabled, searches on other keys are rejected.
+     * 
+     * @param compactValuesEnabled      <tt>true</tt> to store audit values in compact form
+     */
+    public void setCompactValuesEnabled(boolean compactValuesEnabled)
+    {
+        this.compactValuesEnabled = compactValuesEnabled;
+    }
+    
+    /**
+     * Set the audit value paths that are recorded in the indexed <b>alf_audit_entry_key</b> table.
+     * Searches on these keys use the index rather than joining to the property tables.  The first
+     * entry indexed against each key is recorded, and older entries are still found through the
+     * property tables.  Entries with compact values are only found through these keys, from the first
+     * entry indexed against each key.
+     * 
+     * @param searchableKeys            the full audit paths of the searchable values
+     */
+    public void setSearchableKeys(String[] searchableKeys)
+    {
+        Set<String> keys = new LinkedHashSet<String>();
+        if (searchableKeys != null)
+        {
+            for (String searchableKey : searchableKeys)
+            {
+                if (searchableKey != null && searchableKey.trim().length() > 0)
+                {
+                    keys.add(searchableKey.trim());
+                }
+            }
+        }
+        this.searchableKeys = Collections.unmodifiableSet(keys);
+    }
+    
     /*
      * alf_audit_model
      */
@@ -295,13 +359,48 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
         }
         // Now persist the data values
         Long valuesId = null;
+        byte[] valuesData = null;
         if (values != null && values.size() > 0)
         {
-            valuesId = propertyValueDAO.createProperty((Serializable)values);
+            if (compactValuesEnabled)
+            {
+                valuesData = encodeAuditValues(values);
+            }
+            else
+            {
+                valuesId = propertyValueDAO.createProperty((Serializable)values);
+            }
         }
 
         // Create the audit entry
         AuditEntryEntity entity = createAuditEntry(applicationId, time, usernameId, valuesId);
+        if (valuesData != null)
+        {
+            createAuditEntryValues(entity.getId(), valuesData);
+        }
+        // Index the searchable values only, whichever form the values are held in
+        if (valuesData != null)
+        {
+            recordIndexedFrom(INDEXED_FROM_COMPACT_VALUES, entity.getId());
+        }
+        for (String searchableKey : searchableKeys)
+        {
+            recordIndexedFrom(searchableKey, entity.getId());
+        }
+        if (values != null)
+        {
+            for (String searchableKey : searchableKeys)
+            {
+                Serializable value = values.get(searchableKey);
+                if (value == null)
+                {
+                    continue;
+                }
+                Long keyId = propertyValueDAO.getOrCreatePropertyValue(searchableKey).getFirst();
+                Long valueId = propertyValueDAO.getOrCreatePropertyValue(value).getFirst();
+                createAuditEntryKey(entity.getId(), keyId, valueId);
+            }
+        }
 
         // Done
         if (logger.isDebugEnabled())
@@ -347,7 +446,80 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
         return deleted;
     }
 
+    /**
+     * Record the given entry as the first one indexed against a key, unless an earlier one is recorded
+     */
+    private void recordIndexedFrom(String indexKey, Long auditEntryId)
+    {
+        if (indexedFromKeys.contains(indexKey))
+        {
+            return;
+        }
+        if (propertyValueDAO.getPropertyUniqueContext(CONTEXT_INDEXED_FROM, indexKey, null) != null)
+        {
+            indexedFromKeys.add(indexKey);
+            return;
+        }
+        try
+        {
+            propertyValueDAO.createPropertyUniqueContext(CONTEXT_INDEXED_FROM, indexKey, null, auditEntryId);
+        }
+        catch (PropertyUniqueConstraintViolation e)
+        {
+            // Recorded by another transaction with an earlier entry
+        }
+    }
+    
+    /**
+     * @return                  Returns the ID of the first entry indexed against the key or <tt>null</tt>
+     *                          if no entries have been indexed against it
+     */
+    private Long getIndexedFrom(String indexKey)
+    {
+        Pair<Long, Long> context = propertyValueDAO.getPropertyUniqueContext(CONTEXT_INDEXED_FROM, indexKey, null);
+        if (context == null || context.getSecond() == null)
+        {
+            return null;
+        }
+        return (Long) propertyValueDAO.getPropertyById(context.getSecond());
+    }
+    
+    /**
+     * Serialize and compress audit values for storage in <b>alf_audit_entry_values</b>
+     */
+    protected byte[] encodeAuditValues(Map<String, Serializable> values)
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new DeflaterOutputStream(bos)))
+        {
+            oos.writeObject(new HashMap<String, Serializable>(values));
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Failed to serialize audit values: " + values, e);
+        }
+        return bos.toByteArray();
+    }
+    
+    /**
+     * Reverse of {@link #encodeAuditValues(Map)}
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<String, Serializable> decodeAuditValues(byte[] valuesData)
+    {
+        try (ObjectInputStream ois = new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(valuesData))))
+        {
+            return (Map<String, Serializable>) ois.readObject();
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            throw new AlfrescoRuntimeException("Failed to deserialize audit values", e);
+        }
+    }
+
     protected abstract AuditEntryEntity createAuditEntry(Long applicationId, long time, Long usernameId, Long valuesId);
+    protected abstract void createAuditEntryValues(Long auditEntryId, byte[] valuesData);
+    protected abstract void createAuditEntryKey(Long auditEntryId, Long keyId, Long valueId);
     protected abstract int deleteAuditEntriesImpl(List<Long> auditEntryIds);
     
     /*
@@ -385,7 +557,21 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
             if (valuesRequired())
             {
                 auditValues = row.getAuditValue();
-                if (auditValues == null)
+                if (auditValues == null && row.getAuditValuesData() != null)
+                {
+                    // The values were stored in compact form
+                    try
+                    {
+                        auditValues = decodeAuditValues(row.getAuditValuesData());
+                    }
+                    catch (Throwable e)
+                    {
+                        more = callback.handleAuditEntryError(row.getAuditEntryId(),
+                                "Audit entry unable to extract audited values: " + row, e);
+                        return;
+                    }
+                }
+                else if (auditValues == null)
                 {
                     List<PropertyIdSearchRow> propMapRows = row.getAuditValueRows();
                     if (propMapRows == null)
@@ -508,6 +694,13 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
             searchKey = searchKeyValue.getFirst();
             searchValue = searchKeyValue.getSecond();
         }
+        boolean searchKeyIndexed = searchKey != null && searchableKeys.contains(searchKey);
+        if (searchKey != null && !searchKeyIndexed && compactValuesEnabled)
+        {
+            // Compact entries are not linked to the property tables, so they are only found through indexed keys
+            throw new IllegalArgumentException(
+                    "Audit entries with compact values can only be searched by the keys in audit.searchableKeys: " + searchKey);
+        }
         if (searchKey != null)
         {
             // Look up the ID of the search key
@@ -530,6 +723,16 @@ public abstract class AbstractAuditDAOImpl implements AuditDAO
             }
             dbParameters.setSearchValueId(searchValuePair.getFirst());
         }
+        if (searchKey != null || searchValue != null)
+        {
+            Long keyIndexedFrom = searchKeyIndexed ? getIndexedFrom(searchKey) : null;
+            if (keyIndexedFrom != null || (searchKey == null && getIndexedFrom(INDEXED_FROM_COMPACT_VALUES) != null))
+            {
+                // Search the indexed keys, and the property tables for entries that are not indexed against the key
+                dbParameters.setSearchKeyIndexed(true);
+                dbParameters.setSearchLinkedToId(keyIndexedFrom);
+            }
+        }
         dbParameters.setForward(restParameters.isForward());
 
         return dbParameters;
@@ -44,6 +44,8 @@ public class AuditQueryParameters
     private Long auditToTime;
     private Long searchKeyId;
     private Long searchValueId;
+    private boolean searchKeyIndexed;
+    private Long searchLinkedToId;
     
     public AuditQueryParameters()
     {
@@ -63,6 +65,8 @@ public class AuditQueryParameters
           .append(", auditToTime=").append(auditToTime == null ? null : new Date(auditToTime))
           .append(", searchKeyId=").append(searchKeyId)
           .append(", searchValueId=").append(searchValueId)
+          .append(", searchKeyIndexed=").append(searchKeyIndexed)
+          .append(", searchLinkedToId=").append(searchLinkedToId)
           .append("]");
         return sb.toString();
     }
@@ -162,6 +166,34 @@ public class AuditQueryParameters
         this.searchValueId = searchValueId;
     }
     
+    public boolean isSearchKeyIndexed()
+    {
+        return searchKeyIndexed;
+    }
+
+    /**
+     * @param searchKeyIndexed  <tt>true</tt> to search the keys recorded in <b>alf_audit_entry_key</b> as well
+     *                          as the property tables
+     */
+    public void setSearchKeyIndexed(boolean searchKeyIndexed)
+    {
+        this.searchKeyIndexed = searchKeyIndexed;
+    }
+    
+    public Long getSearchLinkedToId()
+    {
+        return searchLinkedToId;
+    }
+
+    /**
+     * @param searchLinkedToId  the entry ID (exclusive) below which an indexed search also looks through the
+     *                          property tables, or <tt>null</tt> to look through them for all entries
+     */
+    public void setSearchLinkedToId(Long searchLinkedToId)
+    {
+        this.searchLinkedToId = searchLinkedToId;
+    }
+    
     /**
      * @return              Returns <tt>true</tt> if this object includes a key- or value-based search
      */
@@ -169,4 +201,12 @@ public class AuditQueryParameters
     {
         return searchKeyId != null || searchValueId != null;
     }
+    
+    /**
+     * @return              Returns <tt>true</tt> if the key-value search must look through the indexed search keys
+     */
+    public boolean isIndexedKeySearch()
+    {
+        return searchKeyIndexed && isKeyOrValueSearch();
+    }
 }
@@ -45,6 +45,7 @@ public class AuditQueryResult
     private Long auditUserId;
     private long auditTime;
     private Long auditValuesId;
+    private byte[] auditValuesData;
     private List<PropertyIdSearchRow> auditValueRows;
     private Map<String, Serializable> auditValue;
     
@@ -62,6 +63,7 @@ public class AuditQueryResult
           .append(", auditUserId=").append(auditUserId)
           .append(", auditTime").append(new Date(auditTime))
           .append(", auditValuesId=").append(auditValuesId)
+          .append(", auditValuesData=").append(auditValuesData == null ? null : auditValuesData.length)
           .append(", auditValueRows=").append(auditValueRows == null ? null : auditValueRows.size())
           .append(", auditValue=").append(auditValue)
           .append("]");
@@ -118,6 +120,20 @@ public class AuditQueryResult
         this.auditValuesId = auditValuesId;
     }
 
+    /**
+     * @return              Returns the compact form of the audited values or <tt>null</tt> if they
+     *                      are held in the property tables
+     */
+    public byte[] getAuditValuesData()
+    {
+        return auditValuesData;
+    }
+
+    public void setAuditValuesData(byte[] auditValuesData)
+    {
+        this.auditValuesData = auditValuesData;
+    }
+
     public List<PropertyIdSearchRow> getAuditValueRows()
     {
         return auditValueRows;
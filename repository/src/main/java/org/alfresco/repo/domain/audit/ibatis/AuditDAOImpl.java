@@ -64,6 +64,8 @@ public class AuditDAOImpl extends AbstractAuditDAOImpl
     private static final String DELETE_ENTRIES = "alfresco.audit.delete_AuditEntries";
     private static final String DELETE_ENTRIES_BY_ID = "alfresco.audit.delete_AuditEntriesById";
     private static final String INSERT_ENTRY = "alfresco.audit.insert.insert_AuditEntry";
+    private static final String INSERT_ENTRY_VALUES = "alfresco.audit.insert_AuditEntryValues";
+    private static final String INSERT_ENTRY_KEY = "alfresco.audit.insert_AuditEntryKey";
     private static final String SELECT_MINMAX_ENTRY_FOR_APP = "alfresco.audit.select_MinMaxAuditEntryId";
     private static final String SELECT_COUNT_ENTRIES_FOR_APP = "alfresco.audit.select_CountAuditEntryId";
     private static final String SELECT_COUNT_ENTRIES_FOR_APP_WITH_PROPERTIES = "select_CountAuditEntryIdWithWhereClause";
@@ -214,6 +216,25 @@ public class AuditDAOImpl extends AbstractAuditDAOImpl
         return entity;
     }
 
+    @Override
+    protected void createAuditEntryValues(Long auditEntryId, byte[] valuesData)
+    {
+        Map<String, Object> params = new HashMap<String, Object>(5);
+        params.put("auditEntryId", auditEntryId);
+        params.put("valuesData", valuesData);
+        template.insert(INSERT_ENTRY_VALUES, params);
+    }
+
+    @Override
+    protected void createAuditEntryKey(Long auditEntryId, Long keyId, Long valueId)
+    {
+        Map<String, Object> params = new HashMap<String, Object>(5);
+        params.put("auditEntryId", auditEntryId);
+        params.put("keyId", keyId);
+        params.put("valueId", valueId);
+        template.insert(INSERT_ENTRY_KEY, params);
+    }
+
     public HashMap<String, Long> getAuditMinMaxByApp(long appId, List<String> extremes)
     {
         // Build parameters to be used in the query. Filter the duplicates when inserting into map
@@ -284,6 +305,11 @@ public class AuditDAOImpl extends AbstractAuditDAOImpl
             List<AuditQueryResult> rows = template.selectList(SELECT_ENTRIES_WITHOUT_VALUES, params, new RowBounds(0, maxResults));
             for (AuditQueryResult row : rows)
             {
+                if (row.getAuditValuesData() != null)
+                {
+                    // Compact values come back with the entry
+                    continue;
+                }
                 resultsByValueId.put(row.getAuditValuesId(), row);
                 if (resultsByValueId.size() >= 100)
                 {
@@ -32,6 +32,7 @@ import java.util.Set;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.util.Pair;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -220,4 +221,14 @@ public interface ContentDataDAO
      * @return
      */
     int countSymmetricKeysForMasterKeyAlias(String masterKeyAlias);
+
+    /**
+     * Count the node properties that reference a content URL, ignoring the nodes of one store
+     * 
+     * @since 23.2
+     * @param contentUrl            the content URL
+     * @param excludedStoreRef      the store whose nodes are not counted
+     * @return                      the number of references from nodes in other stores
+     */
+    int countContentUrlReferences(String contentUrl, StoreRef excludedStoreRef);
 }
@@ -43,6 +43,7 @@ import org.alfresco.repo.domain.contentdata.ContentUrlOrphanQuery;
 import org.alfresco.repo.domain.contentdata.ContentUrlUpdateEntity;
 import org.alfresco.repo.domain.contentdata.SymmetricKeyCount;
 import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.util.EqualsHelper;
 import org.alfresco.util.Pair;
 import org.alfresco.util.ParameterCheck;
@@ -81,6 +82,7 @@ public class ContentDataDAOImpl extends AbstractContentDataDAOImpl
     private static final String SELECT_SYMMETRIC_KEYS_BY_MASTER_KEY = "alfresco.content.select_SymmetricKeysByMasterKey";
     private static final String COUNT_SYMMETRIC_KEYS_BY_MASTER_KEY = "alfresco.content.select_CountSymmetricKeysByMasterKey";
     private static final String COUNT_SYMMETRIC_KEYS_FOR_MASTER_KEYS = "alfresco.content.select_CountSymmetricKeysForAllMasterKeys";
+    private static final String COUNT_CONTENT_URL_REFERENCES = "alfresco.content.select_CountContentUrlReferences";
 
     protected SqlSessionTemplate template;
     
@@ -386,4 +388,19 @@ public class ContentDataDAOImpl extends AbstractContentDataDAOImpl
     {
         return (Integer)template.selectOne(COUNT_SYMMETRIC_KEYS_BY_MASTER_KEY, masterKeyAlias);
     }
+
+    @Override
+    public int countContentUrlReferences(String contentUrl, StoreRef excludedStoreRef)
+    {
+        ContentUrlEntity contentUrlEntity = getContentUrl(contentUrl);
+        if (contentUrlEntity == null)
+        {
+            return 0;
+        }
+        Map<String, Object> params = new HashMap<String, Object>(5);
+        params.put("contentUrlId", contentUrlEntity.getId());
+        params.put("protocol", excludedStoreRef.getProtocol());
+        params.put("identifier", excludedStoreRef.getIdentifier());
+        return (Integer)template.selectOne(COUNT_CONTENT_URL_REFERENCES, params);
+    }
 }
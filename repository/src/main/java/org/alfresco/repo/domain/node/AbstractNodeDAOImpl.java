@@ -4725,30 +4725,61 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         }
     }
     
+    @Override
+    public void cacheNodeDetails(List<Node> nodes, boolean loadProperties, boolean loadAspects)
+    {
+        int batchSize = 256;
+        List<Node> batch = new ArrayList<Node>(Math.min(nodes.size(), batchSize));
+        for (Node node : nodes)
+        {
+            batch.add(node);
+            if (batch.size() >= batchSize)
+            {
+                cacheNodesNoBatch(batch, loadProperties, loadAspects);
+                batch.clear();
+            }
+        }
+        // Load any remaining nodes
+        if (batch.size() > 0)
+        {
+            cacheNodesNoBatch(batch, loadProperties, loadAspects);
+        }
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Pre-loaded details of " + nodes.size() + " nodes.");
+        }
+    }
+
     /**
      * Bulk-fetch the nodes for a given store.  All nodes passed in are fetched.
      */
     private void cacheNodesNoBatch(List<Node> nodes)
+    {
+        cacheNodesNoBatch(nodes, true, true);
+    }
+
+    /**
+     * Caches the given nodes and bulk-fetches the requested details that are not already cached.
+     */
+    private void cacheNodesNoBatch(List<Node> nodes, boolean loadProperties, boolean loadAspects)
     {
         // Get the nodes
         SortedSet<Long> aspectNodeIds = new TreeSet<Long>();
         SortedSet<Long> propertiesNodeIds = new TreeSet<Long>();
-        Map<Long, NodeVersionKey> nodeVersionKeysFromCache = new HashMap<Long, NodeVersionKey>(nodes.size()*2);    // Keep for quick lookup
         for (Node node : nodes)
         {
             Long nodeId = node.getId();
             NodeVersionKey nodeVersionKey = node.getNodeVersionKey();
             node.lock();                            // Prevent unexpected edits of values going into the cache
             nodesCache.setValue(nodeId, node);
-            if (propertiesCache.getValue(nodeVersionKey) == null)
+            if (loadProperties && propertiesCache.getValue(nodeVersionKey) == null)
             {
                 propertiesNodeIds.add(nodeId);
             }
-            if (aspectsCache.getValue(nodeVersionKey) == null)
+            if (loadAspects && aspectsCache.getValue(nodeVersionKey) == null)
             {
                 aspectNodeIds.add(nodeId);
             }
-            nodeVersionKeysFromCache.put(nodeId, nodeVersionKey);
         }
         
         if(logger.isDebugEnabled())
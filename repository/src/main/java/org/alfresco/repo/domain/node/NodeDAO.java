@@ -346,6 +346,17 @@ public interface NodeDAO extends NodeBulkLoader
      */
     public int purgeNodes(long fromTxnCommitTimeMs, long toTxnCommitTimeMs);
     
+    /**
+     * Pre-cache the properties and aspects of nodes that have already been selected, for instance
+     * by a metadata query.  The node entities are added to the cache and only the properties and
+     * aspects that are not yet cached are fetched, using batched multi-node selects.
+     * 
+     * @param nodes             the nodes whose details must be cached
+     * @param loadProperties    <tt>true</tt> to pre-cache the node properties
+     * @param loadAspects       <tt>true</tt> to pre-cache the node aspects
+     */
+    public void cacheNodeDetails(List<Node> nodes, boolean loadProperties, boolean loadAspects);
+    
     /*
      * Properties
      */
@@ -990,6 +1001,32 @@ public interface NodeDAO extends NodeBulkLoader
         throw new UnsupportedOperationException("This operation is not supported");
     }
 
+    /**
+     * Purge the nodes marked as deleted within a range of node IDs
+     * @param fromNodeId the first node ID (inclusive)
+     * @param toNodeId the last node ID (inclusive)
+     * @param maxCommitTime only nodes deleted before this commit time are purged
+     * @param deleteBatchSize
+     * @return the count of nodes deleted
+     */
+    default public int purgeDeletedNodes(long fromNodeId, long toNodeId, long maxCommitTime, int deleteBatchSize)
+    {
+        throw new UnsupportedOperationException("This operation is not supported");
+    }
+
+    /**
+     * Purge the transactions of purged nodes within a range of transaction IDs
+     * @param fromTxnId the first transaction ID (inclusive)
+     * @param toTxnId the last transaction ID (inclusive)
+     * @param maxCommitTime only transactions committed at or before this time are purged
+     * @param deleteBatchSize
+     * @return the count of transactions deleted
+     */
+    default public int purgeEmptyTransactions(long fromTxnId, long toTxnId, long maxCommitTime, int deleteBatchSize)
+    {
+        throw new UnsupportedOperationException("This operation is not supported");
+    }
+
 
 
 }
@@ -175,6 +175,8 @@ public class NodeDAOImpl extends AbstractNodeDAOImpl
     private static final String DELETE_NODE_PROPS_BY_NODE_ID = "alfresco.node.delete_NodePropsByNodeId";
     private static final String SELECT_TXNS_UNUSED_BY_TXN_COMMIT_TIME = "alfresco.node.select.select_Txns_UnusedByTxnCommitTime";
     private static final String DELETE_TXNS_UNUSED_BY_ID = "alfresco.node.delete_Txns_UnusedById";
+    private static final String SELECT_NODES_DELETED_BY_TXN_COMMIT_TIME_AND_ID_RANGE = "alfresco.node.select.select_Deleted_NodesByTxnCommitTimeAndIdRange";
+    private static final String SELECT_TXNS_UNUSED_BY_TXN_COMMIT_TIME_AND_ID_RANGE = "alfresco.node.select.select_Txns_UnusedByTxnCommitTimeAndIdRange";
 
     
     protected QNameDAO qnameDAO;
@@ -1926,6 +1928,48 @@ public class NodeDAOImpl extends AbstractNodeDAOImpl
         return deleteResult;
     }
 
+    @Override
+    public int purgeDeletedNodes(long fromNodeId, long toNodeId, long maxCommitTime, int deleteBatchSize)
+    {
+        Pair<Long, QName> deletedTypePair = qnameDAO.getQName(ContentModel.TYPE_DELETED);
+        if (deletedTypePair == null)
+        {
+            // Nothing to do
+            return 0;
+        }
+
+        TransactionQueryEntity transactionQueryEntity = new TransactionQueryEntity();
+        transactionQueryEntity.setMinId(fromNodeId);
+        transactionQueryEntity.setMaxId(toNodeId);
+        transactionQueryEntity.setMaxCommitTime(maxCommitTime);
+        transactionQueryEntity.setTypeQNameId(deletedTypePair.getFirst());
+        List<Long> nodeIds = template.selectList(SELECT_NODES_DELETED_BY_TXN_COMMIT_TIME_AND_ID_RANGE, transactionQueryEntity);
+
+        int count = 0;
+        for (int i = 0; i < nodeIds.size(); i += deleteBatchSize)
+        {
+            count += deleteSelectedNodesAndProperties(nodeIds.subList(i, Math.min(nodeIds.size(), i + deleteBatchSize)));
+        }
+        return count;
+    }
+
+    @Override
+    public int purgeEmptyTransactions(long fromTxnId, long toTxnId, long maxCommitTime, int deleteBatchSize)
+    {
+        TransactionQueryEntity transactionQueryEntity = new TransactionQueryEntity();
+        transactionQueryEntity.setMinId(fromTxnId);
+        transactionQueryEntity.setMaxId(toTxnId);
+        transactionQueryEntity.setMaxCommitTime(maxCommitTime);
+        List<Long> transactionIds = template.selectList(SELECT_TXNS_UNUSED_BY_TXN_COMMIT_TIME_AND_ID_RANGE, transactionQueryEntity);
+
+        int count = 0;
+        for (int i = 0; i < transactionIds.size(); i += deleteBatchSize)
+        {
+            count += deleteSelectedTransactions(transactionIds.subList(i, Math.min(transactionIds.size(), i + deleteBatchSize)));
+        }
+        return count;
+    }
+
     private int deleteSelectedNodesAndProperties(List<Long> nodeIdList)
     {
         int cnt = template.delete(DELETE_NODE_PROPS_BY_NODE_ID, nodeIdList);
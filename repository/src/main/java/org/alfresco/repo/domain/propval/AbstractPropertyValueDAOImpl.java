@@ -38,6 +38,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
+import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.cache.NullCache;
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.cache.lookup.EntityLookupCache;
@@ -135,6 +136,12 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
     private EntityLookupCache<Long, Serializable, Serializable> propertyCache;
     
     private SimpleCache<CachePucKey, PropertyUniqueContextEntity> propertyUniqueContextCache; // cluster-aware
+    /**
+     * Bounded cache for the IDs of frequently used string property values, kept without expiry:<br/>
+     * KEY: The value key used by the property value cache<br/>
+     * VALUE: The <b>alf_prop_value</b> ID<br/>
+     */
+    private SimpleCache<Serializable, Long> propertyValueStringIdCache; // cluster-aware
     
     /**
      * Flag to throw exception if type of the key doesn't guarantee uniqueness, @see MNT-11895
@@ -184,6 +191,7 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
         this.propertyCache = new EntityLookupCache<Long, Serializable, Serializable>(propertyCallback);
         
         this.propertyUniqueContextCache = (SimpleCache<CachePucKey, PropertyUniqueContextEntity>)new NullCache();
+        this.propertyValueStringIdCache = (SimpleCache<Serializable, Long>)new NullCache();
     }
 
     /**
@@ -280,6 +288,21 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
                 propertyValueCallback);
     }
     
+    /**
+     * Set the cache to use for the IDs of frequently used string <b>alf_prop_value</b> entries (optional).
+     * Unlike the property value cache, this only holds IDs and its entries are not expected to expire.
+     * 
+     * @param propertyValueStringIdCache     the cache of string value keys to property value IDs;
+     *                                       <tt>null</tt> for no caching
+     */
+    @SuppressWarnings("unchecked")
+    public void setPropertyValueStringIdCache(SimpleCache<Serializable, Long> propertyValueStringIdCache)
+    {
+        this.propertyValueStringIdCache = propertyValueStringIdCache == null
+                ? (SimpleCache<Serializable, Long>)new NullCache()
+                : propertyValueStringIdCache;
+    }
+    
     /**
      * Set the cache to use for <b>alf_prop_root</b> lookups (optional).
      * 
@@ -374,6 +397,7 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
     
     protected abstract PropertyClassEntity findClassById(Long id);
     protected abstract PropertyClassEntity findClassByValue(Class<?> value);
+    protected abstract List<PropertyClassEntity> findAllClasses();
     protected abstract PropertyClassEntity createClass(Class<?> value);
     
     //================================
@@ -734,16 +758,131 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
 
     public Pair<Long, Serializable> getPropertyValue(Serializable value)
     {
+        Long stringValueId = getCachedStringValueId(value);
+        if (stringValueId != null)
+        {
+            return new Pair<Long, Serializable>(stringValueId, value);
+        }
         Pair<Long, Serializable> entityPair = propertyValueCache.getByValue(value);
+        cacheStringValueId(entityPair);
         return entityPair;
     }
 
     public Pair<Long, Serializable> getOrCreatePropertyValue(Serializable value)
     {
+        Long stringValueId = getCachedStringValueId(value);
+        if (stringValueId != null)
+        {
+            return new Pair<Long, Serializable>(stringValueId, value);
+        }
         Pair<Long, Serializable> entityPair = propertyValueCache.getOrCreateByValue(value);
+        cacheStringValueId(entityPair);
         return (Pair<Long, Serializable>) entityPair;
     }
 
+    public List<Pair<Long, Serializable>> getOrCreatePropertyValues(List<? extends Serializable> values)
+    {
+        cachePropertyValues(values);
+        // Anything still missing is created
+        List<Pair<Long, Serializable>> results = new ArrayList<Pair<Long, Serializable>>(values.size());
+        for (Serializable value : values)
+        {
+            results.add(getOrCreatePropertyValue(value));
+        }
+        return results;
+    }
+
+    /**
+     * Look up all the given values that are not already cached with as few queries as possible
+     * and put the results into the caches.  Values that don't exist are left alone.
+     */
+    private void cachePropertyValues(List<? extends Serializable> values)
+    {
+        Set<Serializable> valueKeys = new HashSet<Serializable>(values.size() * 2);
+        List<Serializable> misses = new ArrayList<Serializable>(values.size());
+        for (Serializable value : values)
+        {
+            if (value == null || getCachedStringValueId(value) != null)
+            {
+                continue;
+            }
+            Serializable valueKey = propertyValueCallback.getValueKey(value);
+            if (valueKey == null || !valueKeys.add(valueKey))
+            {
+                // Not searchable by value or already listed
+                continue;
+            }
+            if (propertyValueCache.getKey(valueKey) == null)
+            {
+                misses.add(value);
+            }
+        }
+        if (misses.size() < 2)
+        {
+            // Nothing to be gained over the individual lookup
+            return;
+        }
+        for (PropertyValueEntity entity : findPropertyValuesByValues(misses))
+        {
+            Pair<Long, Serializable> entityPair = propertyValueCallback.convertEntityToPair(entity);
+            propertyValueCache.setValue(entityPair.getFirst(), entityPair.getSecond());
+            cacheStringValueId(entityPair);
+        }
+    }
+
+    private Long getCachedStringValueId(Serializable value)
+    {
+        if (!(value instanceof String))
+        {
+            return null;
+        }
+        return propertyValueStringIdCache.get(propertyValueCallback.getValueKey(value));
+    }
+
+    private void cacheStringValueId(Pair<Long, Serializable> entityPair)
+    {
+        if (entityPair != null && entityPair.getSecond() instanceof String)
+        {
+            propertyValueStringIdCache.put(propertyValueCallback.getValueKey(entityPair.getSecond()), entityPair.getFirst());
+        }
+    }
+
+    public void warmCaches(int maxStringValues)
+    {
+        int classCount = 0;
+        for (PropertyClassEntity entity : findAllClasses())
+        {
+            try
+            {
+                propertyClassCache.setValue(entity.getId(), entity.getJavaClass());
+                classCount++;
+            }
+            catch (AlfrescoRuntimeException e)
+            {
+                // The class is no longer available, which only matters if it is used
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Not caching property class: " + e.getMessage());
+                }
+            }
+        }
+        int stringCount = 0;
+        if (maxStringValues > 0)
+        {
+            for (PropertyValueEntity entity : findStringValues(maxStringValues))
+            {
+                Pair<Long, Serializable> entityPair = propertyValueCallback.convertEntityToPair(entity);
+                propertyValueCache.setValue(entityPair.getFirst(), entityPair.getSecond());
+                cacheStringValueId(entityPair);
+                stringCount++;
+            }
+        }
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Warmed property caches with " + classCount + " classes and " + stringCount + " string values.");
+        }
+    }
+
     /**
      * Callback for <b>alf_prop_value</b> DAO.
      */
@@ -833,6 +972,19 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
     
     protected abstract PropertyValueEntity findPropertyValueById(Long id);
     protected abstract PropertyValueEntity findPropertyValueByValue(Serializable value);
+    /**
+     * Find the existing property values for the given values.  Values of persisted types that
+     * can't be looked up together may be left out of the results.
+     * 
+     * @param values            the values to look for (not <tt>null</tt>)
+     * @return                  Returns the entities found, in no particular order
+     */
+    protected abstract List<PropertyValueEntity> findPropertyValuesByValues(List<Serializable> values);
+    /**
+     * @param maxResults        the maximum number of values to return
+     * @return                  Returns the oldest string property values
+     */
+    protected abstract List<PropertyValueEntity> findStringValues(int maxResults);
     protected abstract PropertyValueEntity createPropertyValue(Serializable value);
 
     //================================
@@ -888,6 +1040,7 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
     {
         public Pair<Long, Serializable> createValue(Serializable value)
         {
+            preloadPropertyValues(value);
             // We will need a new root
             Long rootPropId = createPropertyRoot();
             createPropertyImpl(rootPropId, 0L, 0L, null, value);
@@ -931,6 +1084,7 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
             }
             // Remove all links using the root
             deletePropertyLinks(key);
+            preloadPropertyValues(value);
             // Create the new properties and update the cache
             createPropertyImpl(key, 0L, 0L, null, value);
             // Update the property root to detect concurrent modification
@@ -961,6 +1115,45 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
         }
     }
 
+    /**
+     * Look up the keys and simple values of a property in one go, so that
+     * {@link #createPropertyImpl(Long, long, long, Long, Serializable) building the property}
+     * finds them in the cache
+     */
+    private void preloadPropertyValues(Serializable value)
+    {
+        List<Serializable> values = new ArrayList<Serializable>();
+        collectPropertyValues(value, values);
+        cachePropertyValues(values);
+    }
+
+    /**
+     * Collect the values that {@link #createPropertyImpl(Long, long, long, Long, Serializable)} will persist individually
+     */
+    @SuppressWarnings("unchecked")
+    private void collectPropertyValues(Serializable value, List<Serializable> values)
+    {
+        if (value instanceof Map<?, ?> && constructEmptyContainer(value.getClass()) != null)
+        {
+            for (Map.Entry<Serializable, Serializable> entry : ((Map<Serializable, Serializable>) value).entrySet())
+            {
+                values.add(entry.getKey());
+                collectPropertyValues(entry.getValue(), values);
+            }
+        }
+        else if (value instanceof Collection<?> && constructEmptyContainer(value.getClass()) != null)
+        {
+            for (Serializable collectionValue : (Collection<Serializable>) value)
+            {
+                collectPropertyValues(collectionValue, values);
+            }
+        }
+        else if (value != null)
+        {
+            values.add(value);
+        }
+    }
+
     /**
      * @param propIndex         a unique index within the context of the current property root
      */
@@ -1221,9 +1414,10 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
         checkUniquenessGuarantee(value1, value2, value3);
         
         // Translate the properties.  Null values are acceptable
-        Long id1 = getOrCreatePropertyValue(value1).getFirst();
-        Long id2 = getOrCreatePropertyValue(value2).getFirst();
-        Long id3 = getOrCreatePropertyValue(value3).getFirst();
+        List<Pair<Long, Serializable>> valuePairs = getOrCreatePropertyValues(Arrays.asList(value1, value2, value3));
+        Long id1 = valuePairs.get(0).getFirst();
+        Long id2 = valuePairs.get(1).getFirst();
+        Long id3 = valuePairs.get(2).getFirst();
         Long property1Id = null;
         if (propertyValue1 != null)
         {
@@ -1267,6 +1461,7 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
     public Pair<Long, Long> getPropertyUniqueContext(Serializable value1, Serializable value2, Serializable value3)
     {
         // Translate the properties.  Null values are quite acceptable
+        cachePropertyValues(Arrays.asList(value1, value2, value3));
         Pair<Long, Serializable> pair1 = getPropertyValue(value1);
         Pair<Long, Serializable> pair2 = getPropertyValue(value2);
         Pair<Long, Serializable> pair3 = getPropertyValue(value3);
@@ -1365,9 +1560,10 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
          */
         
         // Translate the properties.  Null values are acceptable
-        Long id1 = getOrCreatePropertyValue(value1).getFirst();
-        Long id2 = getOrCreatePropertyValue(value2).getFirst();
-        Long id3 = getOrCreatePropertyValue(value3).getFirst();
+        List<Pair<Long, Serializable>> valuePairs = getOrCreatePropertyValues(Arrays.asList(value1, value2, value3));
+        Long id1 = valuePairs.get(0).getFirst();
+        Long id2 = valuePairs.get(1).getFirst();
+        Long id3 = valuePairs.get(2).getFirst();
         
         CachePucKey pucKey = getPucKey(id1, id2, id3);
         
@@ -1419,9 +1615,10 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
     public void updatePropertyUniqueContext(Serializable value1, Serializable value2, Serializable value3, Serializable propertyValue)
     {
         // Translate the properties.  Null values are acceptable
-        Long id1 = getOrCreatePropertyValue(value1).getFirst();
-        Long id2 = getOrCreatePropertyValue(value2).getFirst();
-        Long id3 = getOrCreatePropertyValue(value3).getFirst();
+        List<Pair<Long, Serializable>> valuePairs = getOrCreatePropertyValues(Arrays.asList(value1, value2, value3));
+        Long id1 = valuePairs.get(0).getFirst();
+        Long id2 = valuePairs.get(1).getFirst();
+        Long id3 = valuePairs.get(2).getFirst();
         
         CachePucKey pucKey = getPucKey(id1, id2, id3);
         
@@ -1637,6 +1834,7 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
 
     protected void clearCaches()
     {
+        propertyValueStringIdCache.clear();
         propertyClassCache.clear();
         propertyDateValueCache.clear();
         propertyStringValueCache.clear();
@@ -1645,4 +1843,55 @@ public abstract class AbstractPropertyValueDAOImpl implements PropertyValueDAO
         propertyCache.clear();
         propertyValueCache.clear();
     }
+
+    /**
+     * Evict the entries for rows removed from a cleanup table, leaving the rest of the caches intact
+     *
+     * @param table             the table that the rows were removed from
+     * @param ids               the IDs of the removed rows
+     */
+    protected void removeFromCaches(CleanupTable table, Collection<Long> ids)
+    {
+        EntityLookupCache<Long, ?, ?> cache;
+        switch (table)
+        {
+            case ROOT:
+                cache = propertyCache;
+                break;
+            case VALUE:
+                cache = propertyValueCache;
+                break;
+            case STRING_VALUE:
+                cache = propertyStringValueCache;
+                break;
+            case SERIALIZABLE_VALUE:
+                cache = propertySerializableValueCache;
+                break;
+            case DOUBLE_VALUE:
+                cache = propertyDoubleValueCache;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown cleanup table: " + table);
+        }
+        for (Long id : ids)
+        {
+            cache.removeByKey(id);
+        }
+        if (table == CleanupTable.VALUE)
+        {
+            Set<Long> removedIds = new HashSet<Long>(ids);
+            List<Serializable> removedValueKeys = new ArrayList<Serializable>();
+            for (Serializable valueKey : propertyValueStringIdCache.getKeys())
+            {
+                if (removedIds.contains(propertyValueStringIdCache.get(valueKey)))
+                {
+                    removedValueKeys.add(valueKey);
+                }
+            }
+            for (Serializable valueKey : removedValueKeys)
+            {
+                propertyValueStringIdCache.remove(valueKey);
+            }
+        }
+    }
 }
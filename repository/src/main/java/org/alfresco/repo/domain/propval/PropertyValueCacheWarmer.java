@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.propval;
+
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.PropertyCheck;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.extensions.surf.util.AbstractLifecycleBean;
+
+/**
+ * Loads the property classes and the most commonly shared string property values into the
+ * caches when the repository starts, so that the first audit entries and attributes written
+ * don't each pay for the lookups.
+ *
+ * @see PropertyValueDAO#warmCaches(int)
+ * @since 23.2
+ */
+public class PropertyValueCacheWarmer extends AbstractLifecycleBean
+{
+    private static Log logger = LogFactory.getLog(PropertyValueCacheWarmer.class);
+
+    private PropertyValueDAO propertyValueDAO;
+    private TransactionService transactionService;
+    private boolean enabled = true;
+    private int maxStringValues = 1000;
+
+    public void setPropertyValueDAO(PropertyValueDAO propertyValueDAO)
+    {
+        this.propertyValueDAO = propertyValueDAO;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param maxStringValues   the maximum number of string property values to load
+     */
+    public void setMaxStringValues(int maxStringValues)
+    {
+        this.maxStringValues = maxStringValues;
+    }
+
+    @Override
+    protected void onBootstrap(ApplicationEvent event)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        PropertyCheck.mandatory(this, "propertyValueDAO", propertyValueDAO);
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        try
+        {
+            transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+            {
+                @Override
+                public Void execute() throws Throwable
+                {
+                    propertyValueDAO.warmCaches(maxStringValues);
+                    return null;
+                }
+            }, true, true);
+        }
+        catch (RuntimeException e)
+        {
+            // The caches fill up as they are used anyway
+            logger.warn("Failed to warm the property value caches: " + e.getMessage());
+        }
+    }
+
+    @Override
+    protected void onShutdown(ApplicationEvent event)
+    {
+        // NOOP
+    }
+}
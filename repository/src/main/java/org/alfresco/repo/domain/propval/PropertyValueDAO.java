@@ -211,6 +211,28 @@ public interface PropertyValueDAO
      */
     Pair<Long, Serializable> getOrCreatePropertyValue(Serializable value);
     
+    /**
+     * Use for accessing unique properties; see interface comments.
+     * <p/>
+     * <b>alf_prop_value</b> accessor: find or create several properties based on their values.
+     * The values that are not cached are looked up together, so that a whole set of keys
+     * costs a few statements rather than one or two per value.
+     *
+     * @param values            the values to find the IDs for (entries may be <tt>null</tt>)
+     * @return                  Returns the ID-value pairs in the order of the given values
+     *
+     * @see #getOrCreatePropertyValue(Serializable)
+     */
+    List<Pair<Long, Serializable>> getOrCreatePropertyValues(List<? extends Serializable> values);
+
+    /**
+     * Load the property classes and the oldest string property values into the caches.
+     * The oldest values are usually the keys shared by audit applications and attributes.
+     *
+     * @param maxStringValues   the maximum number of string property values to load
+     */
+    void warmCaches(int maxStringValues);
+    
     //================================
     // 'alf_prop_root' accessors
     //================================
@@ -379,4 +401,47 @@ public interface PropertyValueDAO
     void cleanupUnusedValuesV2();
 
     void cleanupUnusedValuesV3();
+
+    /**
+     * The <b>alf_prop_XXX</b> tables that can be cleaned up incrementally.  The tables must be
+     * cleaned in the declared order as each one can only be orphaned by cleaning the ones before it.
+     */
+    public enum CleanupTable
+    {
+        ROOT,
+        VALUE,
+        STRING_VALUE,
+        SERIALIZABLE_VALUE,
+        DOUBLE_VALUE
+    }
+
+    /**
+     * Find the first ID that is present in a cleanup table, starting from a given ID.  This allows
+     * incremental cleanup to step over gaps in the ID sequence.
+     *
+     * @param table             the table to examine
+     * @param fromId            the smallest ID to consider (inclusive)
+     * @return                  Returns the smallest ID greater than or equal to <tt>fromId</tt>
+     *                          or <tt>null</tt> if there are no more rows
+     */
+    Long getCleanupTableMinId(CleanupTable table, long fromId);
+
+    /**
+     * @param table             the table to examine
+     * @return                  Returns the largest ID in the cleanup table or <tt>null</tt> if it is empty
+     */
+    Long getCleanupTableMaxId(CleanupTable table);
+
+    /**
+     * Remove orphaned rows from a single table, considering only the rows with IDs in the given range.
+     * The references are checked and the orphans deleted in the current transaction, so callers
+     * should keep the range small enough for a short transaction.
+     *
+     * @param table             the table to clean
+     * @param fromId            the first ID in the range (inclusive)
+     * @param toId              the last ID in the range (inclusive)
+     * @param deleteBatchSize   the maximum number of IDs to delete per statement
+     * @return                  Returns the number of rows deleted
+     */
+    int cleanupUnusedValues(CleanupTable table, long fromId, long toId, int deleteBatchSize);
 }
@@ -26,8 +26,16 @@
 package org.alfresco.repo.domain.propval.ibatis;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.alfresco.ibatis.RollupResultHandler;
 import org.alfresco.repo.domain.propval.AbstractPropertyValueDAOImpl;
@@ -43,6 +51,7 @@ import org.alfresco.repo.domain.propval.PropertySerializableValueEntity;
 import org.alfresco.repo.domain.propval.PropertyStringQueryEntity;
 import org.alfresco.repo.domain.propval.PropertyStringValueEntity;
 import org.alfresco.repo.domain.propval.PropertyUniqueContextEntity;
+import org.alfresco.repo.domain.propval.PropertyValueDAO.CleanupTable;
 import org.alfresco.repo.domain.propval.PropertyValueEntity;
 import org.alfresco.repo.domain.propval.PropertyValueEntity.PersistedType;
 import org.alfresco.repo.domain.schema.script.ScriptBundleExecutor;
@@ -65,6 +74,7 @@ public class PropertyValueDAOImpl extends AbstractPropertyValueDAOImpl
 {
     private static final String SELECT_PROPERTY_CLASS_BY_ID = "alfresco.propval.select_PropertyClassByID";
     private static final String SELECT_PROPERTY_CLASS_BY_NAME = "alfresco.propval.select_PropertyClassByName";
+    private static final String SELECT_PROPERTY_CLASSES = "alfresco.propval.select_PropertyClasses";
     private static final String INSERT_PROPERTY_CLASS = "alfresco.propval.insert.insert_PropertyClass";
     
     private static final String SELECT_PROPERTY_DATE_VALUE_BY_ID = "alfresco.propval.select_PropertyDateValueByID";
@@ -86,6 +96,9 @@ public class PropertyValueDAOImpl extends AbstractPropertyValueDAOImpl
     private static final String SELECT_PROPERTY_VALUE_BY_LOCAL_VALUE = "alfresco.propval.select_PropertyValueByLocalValue";
     private static final String SELECT_PROPERTY_VALUE_BY_DOUBLE_VALUE = "alfresco.propval.select_PropertyValueByDoubleValue";
     private static final String SELECT_PROPERTY_VALUE_BY_STRING_VALUE = "alfresco.propval.select_PropertyValueByStringValue";
+    private static final String SELECT_PROPERTY_VALUES_BY_LOCAL_VALUES = "alfresco.propval.select_PropertyValuesByLocalValues";
+    private static final String SELECT_PROPERTY_VALUES_BY_STRING_VALUES = "alfresco.propval.select_PropertyValuesByStringValues";
+    private static final String SELECT_PROPERTY_VALUES_OF_STRING_TYPE = "alfresco.propval.select_PropertyValuesOfStringType";
     private static final String INSERT_PROPERTY_VALUE = "alfresco.propval.insert.insert_PropertyValue";
     
     private static final String SELECT_PROPERTY_BY_ID = "alfresco.propval.select_PropertyById";
@@ -105,6 +118,94 @@ public class PropertyValueDAOImpl extends AbstractPropertyValueDAOImpl
     private static final String INSERT_PROPERTY_LINK = "alfresco.propval.insert_PropertyLink";
     private static final String DELETE_PROPERTY_LINKS_BY_ROOT_ID = "alfresco.propval.delete_PropertyLinksByRootId";
     
+    private static final String SELECT_PROPERTY_CLEANUP_MIN_ID = "alfresco.propval.select_PropertyCleanupMinId";
+    private static final String SELECT_PROPERTY_CLEANUP_MAX_ID = "alfresco.propval.select_PropertyCleanupMaxId";
+    private static final String SELECT_PROPERTY_CLEANUP_IDS_IN_RANGE = "alfresco.propval.select_PropertyCleanupIdsInRange";
+    private static final String SELECT_PROPERTY_CLEANUP_REFERENCED_IDS_IN_RANGE = "alfresco.propval.select_PropertyCleanupReferencedIdsInRange";
+    private static final String DELETE_PROPERTY_CLEANUP_IDS = "alfresco.propval.delete_PropertyCleanupIds";
+
+    /**
+     * The tables cleaned by the incremental cleanup and the columns referencing their IDs.
+     * These match the table pairs used by the <b>CleanAlfPropTablesV3.sql</b> script.
+     */
+    private static final Map<CleanupTable, String> CLEANUP_TABLE_NAMES = new EnumMap<>(CleanupTable.class);
+    private static final Map<CleanupTable, List<CleanupReference>> CLEANUP_TABLE_REFERENCES = new EnumMap<>(CleanupTable.class);
+    static
+    {
+        List<CleanupReference> valueReferences = Arrays.asList(
+                new CleanupReference("alf_audit_app", "app_name_id"),
+                new CleanupReference("alf_audit_entry", "audit_user_id"),
+                new CleanupReference("alf_audit_entry_key", "key_prop_id"),
+                new CleanupReference("alf_audit_entry_key", "value_prop_id"),
+                new CleanupReference("alf_prop_link", "key_prop_id"),
+                new CleanupReference("alf_prop_link", "value_prop_id"),
+                new CleanupReference("alf_prop_unique_ctx", "value1_prop_id"),
+                new CleanupReference("alf_prop_unique_ctx", "value2_prop_id"),
+                new CleanupReference("alf_prop_unique_ctx", "value3_prop_id"));
+
+        CLEANUP_TABLE_NAMES.put(CleanupTable.ROOT, "alf_prop_root");
+        CLEANUP_TABLE_REFERENCES.put(CleanupTable.ROOT, Arrays.asList(
+                new CleanupReference("alf_audit_app", "disabled_paths_id"),
+                new CleanupReference("alf_audit_entry", "audit_values_id"),
+                new CleanupReference("alf_prop_unique_ctx", "prop1_id")));
+
+        CLEANUP_TABLE_NAMES.put(CleanupTable.VALUE, "alf_prop_value");
+        CLEANUP_TABLE_REFERENCES.put(CleanupTable.VALUE, valueReferences);
+
+        CLEANUP_TABLE_NAMES.put(CleanupTable.STRING_VALUE, "alf_prop_string_value");
+        CLEANUP_TABLE_REFERENCES.put(CleanupTable.STRING_VALUE, withPropertyValueReference(
+                valueReferences,
+                PersistedType.STRING, PersistedType.CONSTRUCTABLE, PersistedType.ENUM));
+
+        CLEANUP_TABLE_NAMES.put(CleanupTable.SERIALIZABLE_VALUE, "alf_prop_serializable_value");
+        CLEANUP_TABLE_REFERENCES.put(CleanupTable.SERIALIZABLE_VALUE, withPropertyValueReference(
+                valueReferences,
+                PersistedType.SERIALIZABLE));
+
+        CLEANUP_TABLE_NAMES.put(CleanupTable.DOUBLE_VALUE, "alf_prop_double_value");
+        CLEANUP_TABLE_REFERENCES.put(CleanupTable.DOUBLE_VALUE, withPropertyValueReference(
+                valueReferences,
+                PersistedType.DOUBLE));
+    }
+
+    private static List<CleanupReference> withPropertyValueReference(List<CleanupReference> references, PersistedType ... persistedTypes)
+    {
+        List<Short> ordinals = new ArrayList<>(persistedTypes.length);
+        for (PersistedType persistedType : persistedTypes)
+        {
+            ordinals.add(persistedType.getOrdinalNumber());
+        }
+        List<CleanupReference> result = new ArrayList<>(references.size() + 1);
+        result.add(new CleanupReference("alf_prop_value", "long_value", ordinals));
+        result.addAll(references);
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * A column referencing the IDs of a cleanup table, optionally restricted to rows of given persisted types
+     */
+    private static class CleanupReference
+    {
+        private final String tableName;
+        private final String columnName;
+        private final List<Short> persistedTypes;
+
+        private CleanupReference(String tableName, String columnName)
+        {
+            this(tableName, columnName, null);
+        }
+
+        private CleanupReference(String tableName, String columnName, List<Short> persistedTypes)
+        {
+            this.tableName = tableName;
+            this.columnName = columnName;
+            this.persistedTypes = persistedTypes;
+        }
+    }
+
+    
+    /** The number of values looked up per statement, keeping the statements to a reasonable size */
+    private static final int VALUE_QUERY_BATCH_SIZE = 100;
     
     private SqlSessionTemplate template;
     
@@ -159,6 +260,12 @@ public class PropertyValueDAOImpl extends AbstractPropertyValueDAOImpl
         return entity;
     }
 
+    @Override
+    protected List<PropertyClassEntity> findAllClasses()
+    {
+        return template.selectList(SELECT_PROPERTY_CLASSES);
+    }
+
     //================================
     // 'alf_prop_date_value' accessors
     //================================
@@ -410,6 +517,77 @@ public class PropertyValueDAOImpl extends AbstractPropertyValueDAOImpl
         return result;
     }
     
+    @Override
+    protected List<PropertyValueEntity> findPropertyValuesByValues(List<Serializable> values)
+    {
+        List<PropertyValueEntity> localQueries = new ArrayList<PropertyValueEntity>(values.size());
+        List<PropertyStringQueryEntity> stringQueries = new ArrayList<PropertyStringQueryEntity>(values.size());
+        for (Serializable value : values)
+        {
+            Class<?> clazz = (value == null ? Object.class : value.getClass());
+            Pair<Long, Class<?>> clazzPair = getPropertyClass(clazz);
+            if (clazzPair == null)
+            {
+                // Shortcut: There are no properties of this type
+                continue;
+            }
+            Long actualTypeId = clazzPair.getFirst();
+            PropertyValueEntity queryEntity = new PropertyValueEntity();
+            queryEntity.setValue(value, converter);
+            queryEntity.setActualTypeId(actualTypeId);
+            // Group the values in the same way as the individual lookups
+            switch (queryEntity.getPersistedTypeEnum())
+            {
+            case NULL:
+            case LONG:
+                localQueries.add(queryEntity);
+                break;
+            case CONSTRUCTABLE:
+            case ENUM:
+            case STRING:
+                stringQueries.add(new PropertyStringQueryEntity(
+                        queryEntity.getPersistedType(),
+                        actualTypeId,
+                        queryEntity.getStringValue()));
+                break;
+            default:
+                // Doubles and serializable values are left to the individual lookups
+                break;
+            }
+        }
+        
+        List<PropertyValueEntity> results = new ArrayList<PropertyValueEntity>(values.size());
+        selectPropertyValuesInBatches(SELECT_PROPERTY_VALUES_BY_LOCAL_VALUES, localQueries, results);
+        selectPropertyValuesInBatches(SELECT_PROPERTY_VALUES_BY_STRING_VALUES, stringQueries, results);
+        return results;
+    }
+    
+    private void selectPropertyValuesInBatches(String query, List<?> queries, List<PropertyValueEntity> results)
+    {
+        Map<String, Object> params = new HashMap<>(3);
+        for (int i = 0; i < queries.size(); i += VALUE_QUERY_BATCH_SIZE)
+        {
+            params.put("queries", queries.subList(i, Math.min(i + VALUE_QUERY_BATCH_SIZE, queries.size())));
+            List<PropertyValueEntity> batchResults = template.selectList(query, params);
+            results.addAll(batchResults);
+        }
+    }
+    
+    @Override
+    protected List<PropertyValueEntity> findStringValues(int maxResults)
+    {
+        Pair<Long, Class<?>> clazzPair = getPropertyClass(String.class);
+        if (clazzPair == null)
+        {
+            // Shortcut: There are no string properties
+            return Collections.emptyList();
+        }
+        PropertyValueEntity queryEntity = new PropertyValueEntity();
+        queryEntity.setActualTypeId(clazzPair.getFirst());
+        queryEntity.setPersistedType(PersistedType.STRING.getOrdinalNumber());
+        return template.selectList(SELECT_PROPERTY_VALUES_OF_STRING_TYPE, queryEntity, new RowBounds(0, maxResults));
+    }
+    
     @Override
     protected PropertyValueEntity createPropertyValue(Serializable value)
     {
@@ -777,4 +955,70 @@ public class PropertyValueDAOImpl extends AbstractPropertyValueDAOImpl
             clearCaches();
         }
     }
+
+    @Override
+    public Long getCleanupTableMinId(CleanupTable table, long fromId)
+    {
+        Map<String, Object> params = new HashMap<>(5);
+        params.put("tableName", CLEANUP_TABLE_NAMES.get(table));
+        params.put("fromId", fromId);
+        return template.selectOne(SELECT_PROPERTY_CLEANUP_MIN_ID, params);
+    }
+
+    @Override
+    public Long getCleanupTableMaxId(CleanupTable table)
+    {
+        Map<String, Object> params = new HashMap<>(5);
+        params.put("tableName", CLEANUP_TABLE_NAMES.get(table));
+        return template.selectOne(SELECT_PROPERTY_CLEANUP_MAX_ID, params);
+    }
+
+    @Override
+    public int cleanupUnusedValues(CleanupTable table, long fromId, long toId, int deleteBatchSize)
+    {
+        if (deleteBatchSize < 1)
+        {
+            throw new IllegalArgumentException("The delete batch size must be at least 1");
+        }
+        String tableName = CLEANUP_TABLE_NAMES.get(table);
+
+        Map<String, Object> params = new HashMap<>(11);
+        params.put("tableName", tableName);
+        params.put("fromId", fromId);
+        params.put("toId", toId);
+        List<Long> ids = template.selectList(SELECT_PROPERTY_CLEANUP_IDS_IN_RANGE, params);
+        if (ids.isEmpty())
+        {
+            return 0;
+        }
+        Set<Long> orphanIds = new TreeSet<>(ids);
+
+        // Remove everything that is still referenced within the range
+        for (CleanupReference reference : CLEANUP_TABLE_REFERENCES.get(table))
+        {
+            params.put("tableName", reference.tableName);
+            params.put("columnName", reference.columnName);
+            params.put("persistedTypes", reference.persistedTypes);
+            List<Long> referencedIds = template.selectList(SELECT_PROPERTY_CLEANUP_REFERENCED_IDS_IN_RANGE, params);
+            orphanIds.removeAll(referencedIds);
+            if (orphanIds.isEmpty())
+            {
+                return 0;
+            }
+        }
+
+        // Delete the orphans
+        int deleted = 0;
+        List<Long> orphanIdList = new ArrayList<>(orphanIds);
+        params.clear();
+        params.put("tableName", tableName);
+        for (int i = 0; i < orphanIdList.size(); i += deleteBatchSize)
+        {
+            params.put("ids", orphanIdList.subList(i, Math.min(i + deleteBatchSize, orphanIdList.size())));
+            deleted += template.delete(DELETE_PROPERTY_CLEANUP_IDS, params);
+        }
+        // The caches may hold entries for the deleted IDs
+        removeFromCaches(table, orphanIdList);
+        return deleted;
+    }
 }
@@ -198,14 +198,7 @@ public class CreateDownloadArchiveAction extends ActionExecuterAbstractBase
             public Object doWork() throws Exception
             {
         
-                ExporterCrawlerParameters crawlerParameters = new ExporterCrawlerParameters();
-                
-                Location exportFrom = new Location(downloadRequest.getRequetedNodeRefs());
-                crawlerParameters.setExportFrom(exportFrom);
-                
-                crawlerParameters.setCrawlSelf(true);
-                crawlerParameters.setExcludeChildAssocs(new QName[] {RenditionModel.ASSOC_RENDITION, ForumModel.ASSOC_DISCUSSION, RuleModel.ASSOC_RULE_FOLDER });
-                crawlerParameters.setExcludeAspects(new QName[] {ContentModel.ASPECT_WORKING_COPY});
+                ExporterCrawlerParameters crawlerParameters = createCrawlerParameters(downloadRequest.getRequetedNodeRefs());
         
                 // Get an estimate of the size for statuses
                 SizeEstimator estimator = new SizeEstimator(checkOutCheckInService, nodeService);
@@ -231,6 +224,22 @@ public class CreateDownloadArchiveAction extends ActionExecuterAbstractBase
     {
     }
 
+    /**
+     * Set up the crawler parameters for the content that goes into a download.
+     */
+    static ExporterCrawlerParameters createCrawlerParameters(NodeRef[] requestedNodeRefs)
+    {
+        ExporterCrawlerParameters crawlerParameters = new ExporterCrawlerParameters();
+        
+        Location exportFrom = new Location(requestedNodeRefs);
+        crawlerParameters.setExportFrom(exportFrom);
+        
+        crawlerParameters.setCrawlSelf(true);
+        crawlerParameters.setExcludeChildAssocs(new QName[] {RenditionModel.ASSOC_RENDITION, ForumModel.ASSOC_DISCUSSION, RuleModel.ASSOC_RULE_FOLDER });
+        crawlerParameters.setExcludeAspects(new QName[] {ContentModel.ASPECT_WORKING_COPY});
+        return crawlerParameters;
+    }
+
 
     private void maximumContentSizeExceeded(final NodeRef actionedUponNodeRef, final long size, final long fileCount)
     {
@@ -25,15 +25,22 @@
  */
 package org.alfresco.repo.download;
 
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.alfresco.repo.download.cannedquery.DownloadEntity;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.coci.CheckOutCheckInService;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
 import org.alfresco.service.cmr.download.DownloadService;
 import org.alfresco.service.cmr.download.DownloadStatus;
+import org.alfresco.service.cmr.repository.ContentService;
 import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.view.ExporterService;
 import org.alfresco.util.ParameterCheck;
 
 /**
@@ -41,6 +48,8 @@ import org.alfresco.util.ParameterCheck;
  * 
  * Persists the download reqest and then uses a local action service to execute
  * the {@link CreateDownloadArchiveAction}.
+ * 
+ * Downloads can also be streamed, using a {@link StreamingZipDownloadExporter}.
  *
  * @author Alex Miller
  */
@@ -50,6 +59,15 @@ public class DownloadServiceImpl implements DownloadService {
     private ActionServiceHelper actionServiceHelper;
     private DownloadStorage downloadStorage;
     private RetryingTransactionHelper transactionHelper;
+    private CheckOutCheckInService checkOutCheckInService;
+    private ContentService contentService;
+    private DictionaryService dictionaryService;
+    private ExporterService exporterService;
+    private NodeService nodeService;
+    private ExecutorService prefetchExecutor;
+    
+    private int prefetchCount = 4;
+    private int prefetchBufferSize = 1024 * 1024;
     
     // Dependency setters
     public void setActionServiceHelper(ActionServiceHelper actionServiceHelper)
@@ -67,6 +85,56 @@ public class DownloadServiceImpl implements DownloadService {
         this.downloadStorage = downloadStorage;
     }
     
+    public void setCheckOutCheckInService(CheckOutCheckInService checkOutCheckInService)
+    {
+        this.checkOutCheckInService = checkOutCheckInService;
+    }
+    
+    public void setContentService(ContentService contentService)
+    {
+        this.contentService = contentService;
+    }
+    
+    public void setDictionaryService(DictionaryService dictionaryService)
+    {
+        this.dictionaryService = dictionaryService;
+    }
+    
+    public void setExporterService(ExporterService exporterService)
+    {
+        this.exporterService = exporterService;
+    }
+    
+    public void setNodeService(NodeService nodeService)
+    {
+        this.nodeService = nodeService;
+    }
+    
+    /**
+     * Set the threads that read content ahead while a download is streamed.
+     * If not set, content is read as each entry is written.
+     */
+    public void setPrefetchExecutor(ExecutorService prefetchExecutor)
+    {
+        this.prefetchExecutor = prefetchExecutor;
+    }
+    
+    /**
+     * Set the number of entries whose content is read ahead while a download is streamed.
+     */
+    public void setPrefetchCount(int prefetchCount)
+    {
+        this.prefetchCount = prefetchCount;
+    }
+    
+    /**
+     * Set the maximum number of bytes of each entry held in memory when read ahead.
+     */
+    public void setPrefetchBufferSize(int prefetchBufferSize)
+    {
+        this.prefetchBufferSize = prefetchBufferSize;
+    }
+    
 	@Override
 	public NodeRef createDownload(final NodeRef[] requestedNodes, final boolean recursive) {
 	    ParameterCheck.mandatory("nodeRefs", requestedNodes);
@@ -103,6 +171,35 @@ public class DownloadServiceImpl implements DownloadService {
 	}
 
 
+    @Override
+    public int writeDownload(NodeRef[] requestedNodes, OutputStream outputStream, int firstEntry)
+    {
+        ParameterCheck.mandatory("nodeRefs", requestedNodes);
+        ParameterCheck.mandatory("outputStream", outputStream);
+        if (requestedNodes.length < 1)
+        {
+            throw new IllegalArgumentException("Need at least 1 node ref");
+        }
+        if (firstEntry < 0)
+        {
+            throw new IllegalArgumentException("The first entry may not be negative");
+        }
+        
+        // The content size limit is not applied: the archive is not stored and estimating
+        // its size would delay the first byte by a crawl of the whole tree.
+        StreamingZipDownloadExporter handler = new StreamingZipDownloadExporter(outputStream, checkOutCheckInService, nodeService,
+                dictionaryService, contentService, prefetchExecutor, prefetchCount, prefetchBufferSize, firstEntry);
+        try
+        {
+            exporterService.exportView(handler, CreateDownloadArchiveAction.createCrawlerParameters(requestedNodes), null);
+        }
+        finally
+        {
+            handler.abort();
+        }
+        return handler.getEntryCount();
+    }
+
 	@Override
 	public DownloadStatus getDownloadStatus(NodeRef downloadNode) {
 		ParameterCheck.mandatory("downloadNode", downloadNode);
@@ -0,0 +1,458 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.download;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.attribute.FileTime;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.tenant.TenantUtil;
+import org.alfresco.repo.tenant.TenantUtil.TenantRunAsWork;
+import org.alfresco.service.cmr.coci.CheckOutCheckInService;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.view.ExporterContext;
+import org.alfresco.service.cmr.view.ExporterException;
+import org.alfresco.service.namespace.QName;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream.UnicodeExtraFieldPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handler for exporting node content as a ZIP archive written directly to an output stream, such as an HTTP
+ * response, rather than to a file that is then stored in the repository.
+ * <p/>
+ * The entries are numbered in the order in which the nodes are crawled and the archive may start at any entry,
+ * so that an interrupted download can be resumed.  The content of the next few entries is read ahead in parallel,
+ * using the content URLs, while the current entry is written.  The crawler only opens the content it hands over
+ * when it is read, so content read ahead is not fetched twice.
+ * 
+ * @since 23.2
+ */
+public class StreamingZipDownloadExporter extends BaseExporter
+{
+    private static Logger log = LoggerFactory.getLogger(StreamingZipDownloadExporter.class);
+
+    private static final String PATH_SEPARATOR = "/";
+    private static final int BUFFER_SIZE = 2048 * 10;
+
+    private final OutputStream outputStream;
+    private final DictionaryService dictionaryService;
+    private final ContentService contentService;
+    private final ExecutorService prefetchExecutor;
+    private final int prefetchCount;
+    private final int prefetchBufferSize;
+    private final int firstEntry;
+    private final String tenantDomain;
+
+    private ZipArchiveOutputStream zipStream;
+    private Deque<String> path = new LinkedList<String>();
+    private Date timestampCreated;
+    private Date timestampModified;
+    private int entryCount;
+    private long done;
+    /** Entries waiting to be written, oldest first */
+    private Deque<PendingEntry> pendingEntries = new LinkedList<PendingEntry>();
+
+    /**
+     * Construct
+     *
+     * @param outputStream          the stream to write the archive to; it is finished but not closed
+     * @param checkOutCheckInService CheckOutCheckInService
+     * @param nodeService           NodeService
+     * @param dictionaryService     DictionaryService
+     * @param contentService        used to read the content by URL ahead of the entry being written
+     * @param prefetchExecutor      the threads that read ahead
+     * @param prefetchCount         the number of content entries to read ahead; zero to read each entry as it is written
+     * @param prefetchBufferSize    the maximum number of bytes of each entry held in memory while reading ahead
+     * @param firstEntry            the index of the first entry to write; earlier entries are skipped
+     */
+    public StreamingZipDownloadExporter(OutputStream outputStream, CheckOutCheckInService checkOutCheckInService, NodeService nodeService,
+            DictionaryService dictionaryService, ContentService contentService, ExecutorService prefetchExecutor,
+            int prefetchCount, int prefetchBufferSize, int firstEntry)
+    {
+        super(checkOutCheckInService, nodeService);
+        this.outputStream = outputStream;
+        this.dictionaryService = dictionaryService;
+        this.contentService = contentService;
+        this.prefetchExecutor = prefetchExecutor;
+        this.prefetchCount = prefetchExecutor == null ? 0 : Math.max(0, prefetchCount);
+        this.prefetchBufferSize = prefetchBufferSize;
+        this.firstEntry = firstEntry;
+        this.tenantDomain = TenantUtil.getCurrentDomain();
+    }
+
+    @Override
+    public void start(final ExporterContext context)
+    {
+        zipStream = new ZipArchiveOutputStream(outputStream);
+        // NOTE: This encoding allows us to workaround bug...
+        //       http://bugs.sun.com/bugdatabase/view_bug.do;:WuuT?bug_id=4820807
+        zipStream.setEncoding("UTF-8");
+        zipStream.setCreateUnicodeExtraFields(UnicodeExtraFieldPolicy.ALWAYS);
+        zipStream.setUseLanguageEncodingFlag(true);
+        zipStream.setFallbackToUTF8(true);
+    }
+
+    @Override
+    public void startNode(NodeRef nodeRef)
+    {
+        String name = (String)nodeService.getProperty(nodeRef, ContentModel.PROP_NAME);
+        this.timestampCreated = (Date)nodeService.getProperty(nodeRef, ContentModel.PROP_CREATED);
+        this.timestampModified = (Date)nodeService.getProperty(nodeRef, ContentModel.PROP_MODIFIED);
+        path.push(name);
+        if (dictionaryService.isSubClass(nodeService.getType(nodeRef), ContentModel.TYPE_FOLDER))
+        {
+            if (entryCount++ >= firstEntry)
+            {
+                addEntry(new PendingEntry(getPath() + PATH_SEPARATOR, timestampCreated, timestampModified));
+            }
+        }
+    }
+
+    @Override
+    protected void contentImpl(NodeRef nodeRef, QName property, InputStream content, ContentData contentData, int index)
+    {
+        // if the content stream to output is empty, then just return content descriptor as is
+        if (content == null)
+        {
+            return;
+        }
+        if (entryCount++ < firstEntry)
+        {
+            return;
+        }
+
+        PendingEntry entry = new PendingEntry(getPath(), timestampCreated, timestampModified);
+        if (prefetchCount == 0)
+        {
+            // Nothing is read ahead, so the crawler's stream can be used as it is
+            writeEntry(entry, content);
+            return;
+        }
+        entry.prefetch = new ContentPrefetch(contentData.getContentUrl());
+        entry.content = prefetchExecutor.submit(entry.prefetch);
+        addEntry(entry);
+    }
+
+    @Override
+    public void endNode(NodeRef nodeRef)
+    {
+        path.pop();
+    }
+
+    @Override
+    public void end()
+    {
+        try
+        {
+            while (!pendingEntries.isEmpty())
+            {
+                writeNextEntry();
+            }
+            zipStream.finish();
+            outputStream.flush();
+        }
+        catch (IOException error)
+        {
+            throw new ExporterException("Unexpected error finishing zip stream!", error);
+        }
+    }
+
+    /**
+     * Releases the content read ahead for entries that were not written, e.g. if the export failed.
+     */
+    public void abort()
+    {
+        for (PendingEntry entry : pendingEntries)
+        {
+            if (entry.content != null)
+            {
+                entry.content.cancel(false);
+                entry.prefetch.release();
+            }
+        }
+        pendingEntries.clear();
+    }
+
+    /**
+     * @return                  the number of entries crawled, including those skipped; a later archive may
+     *                          be started at this index if there are new entries
+     */
+    public int getEntryCount()
+    {
+        return entryCount;
+    }
+
+    /**
+     * @return                  the number of content bytes written
+     */
+    public long getDone()
+    {
+        return done;
+    }
+
+    private void addEntry(PendingEntry entry)
+    {
+        pendingEntries.add(entry);
+        // Folder entries don't count against the read ahead, so write until the window has room
+        while (!pendingEntries.isEmpty() && (pendingEntries.peek().content == null || countPrefetches() > prefetchCount))
+        {
+            writeNextEntry();
+        }
+    }
+
+    private int countPrefetches()
+    {
+        int count = 0;
+        for (PendingEntry entry : pendingEntries)
+        {
+            if (entry.content != null)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void writeNextEntry()
+    {
+        PendingEntry entry = pendingEntries.poll();
+        if (entry.content == null)
+        {
+            writeEntry(entry, null);
+            return;
+        }
+        InputStream content;
+        try
+        {
+            content = entry.content.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ExporterException("Interrupted while reading content for " + entry.path, e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new ExporterException("Failed to read content for " + entry.path, e.getCause());
+        }
+        try
+        {
+            writeEntry(entry, content);
+        }
+        finally
+        {
+            try
+            {
+                content.close();
+            }
+            catch (IOException e)
+            {
+                log.debug("Failed to close content stream for {}", entry.path, e);
+            }
+        }
+    }
+
+    private void writeEntry(PendingEntry entry, InputStream content)
+    {
+        try
+        {
+            ZipArchiveEntry zipEntry = new ZipArchiveEntry(entry.path);
+            zipEntry.setTime(entry.created.getTime());
+            zipEntry.setCreationTime(FileTime.fromMillis(entry.created.getTime()));
+            zipEntry.setLastModifiedTime(FileTime.fromMillis(entry.modified.getTime()));
+            zipStream.putArchiveEntry(zipEntry);
+            if (content != null)
+            {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read = content.read(buffer, 0, BUFFER_SIZE);
+                while (read != -1)
+                {
+                    zipStream.write(buffer, 0, read);
+                    done = done + read;
+                    read = content.read(buffer, 0, BUFFER_SIZE);
+                }
+            }
+            zipStream.closeArchiveEntry();
+        }
+        catch (IOException e)
+        {
+            throw new ExporterException("Failed to zip export stream", e);
+        }
+    }
+
+    private String getPath()
+    {
+        if (path.size() < 1)
+        {
+            throw new IllegalStateException("No elements in path!");
+        }
+
+        Iterator<String> iter = path.descendingIterator();
+        StringBuilder pathBuilder = new StringBuilder();
+        while (iter.hasNext())
+        {
+            pathBuilder.append(iter.next());
+            if (iter.hasNext())
+            {
+                pathBuilder.append(PATH_SEPARATOR);
+            }
+        }
+        return pathBuilder.toString();
+    }
+
+    /**
+     * An archive entry waiting to be written
+     */
+    private static class PendingEntry
+    {
+        private final String path;
+        private final Date created;
+        private final Date modified;
+        /** The content read ahead, or <tt>null</tt> for a folder */
+        private Future<InputStream> content;
+        private ContentPrefetch prefetch;
+
+        private PendingEntry(String path, Date created, Date modified)
+        {
+            this.path = path;
+            this.created = created;
+            this.modified = modified;
+        }
+    }
+
+    /**
+     * Opens the content and reads up to the buffer size into memory.  The stream returned gives the buffered
+     * bytes followed by the remainder of the content.
+     * <p/>
+     * The content is read by URL: the crawler has already checked that the user can read the node.
+     */
+    private class ContentPrefetch implements Callable<InputStream>
+    {
+        private final String contentUrl;
+        /** The stream opened, until it is released */
+        private InputStream opened;
+        private boolean released;
+
+        private ContentPrefetch(String contentUrl)
+        {
+            this.contentUrl = contentUrl;
+        }
+
+        /**
+         * @return                  <tt>false</tt> if the content has already been released and the stream must be closed
+         */
+        private synchronized boolean track(InputStream in)
+        {
+            if (released)
+            {
+                return false;
+            }
+            opened = in;
+            return true;
+        }
+
+        /**
+         * Closes the content stream, now or as soon as it is opened, whether or not the read has completed
+         */
+        private synchronized void release()
+        {
+            released = true;
+            if (opened != null)
+            {
+                try
+                {
+                    opened.close();
+                }
+                catch (IOException e)
+                {
+                    log.debug("Failed to release read ahead content {}", contentUrl, e);
+                }
+                opened = null;
+            }
+        }
+
+        @Override
+        public InputStream call() throws Exception
+        {
+            return TenantUtil.runAsTenant(new TenantRunAsWork<InputStream>()
+            {
+                @Override
+                public InputStream doWork() throws Exception
+                {
+                    InputStream in = contentService.getRawReader(contentUrl).getContentInputStream();
+                    boolean keepOpen = false;
+                    try
+                    {
+                        if (!track(in))
+                        {
+                            return new ByteArrayInputStream(new byte[0]);
+                        }
+                        byte[] buffer = new byte[prefetchBufferSize];
+                        int length = 0;
+                        int read = 0;
+                        while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) != -1)
+                        {
+                            length += read;
+                        }
+                        InputStream head = new ByteArrayInputStream(buffer, 0, length);
+                        if (read == -1)
+                        {
+                            return head;
+                        }
+                        keepOpen = true;
+                        return new SequenceInputStream(head, in);
+                    }
+                    finally
+                    {
+                        if (!keepOpen)
+                        {
+                            in.close();
+                        }
+                    }
+                }
+            }, tenantDomain);
+        }
+    }
+}
@@ -678,7 +678,8 @@ public class ExporterComponent
                 }
                 else
                 {
-                    InputStream inputStream = reader.getContentInputStream();
+                    // Opened on the first read, as exporters such as the streaming ZIP download read the content themselves
+                    InputStream inputStream = new LazyContentInputStream(reader);
                     try
                     {
                         exporter.content(nodeRef, property, inputStream, reader.getContentData(), index);
@@ -1366,4 +1367,59 @@ public class ExporterComponent
 
     }
     
+    /**
+     * Content stream that is only opened when it is first read
+     */
+    private static class LazyContentInputStream extends InputStream
+    {
+        private final ContentReader reader;
+        private InputStream in;
+        
+        private LazyContentInputStream(ContentReader reader)
+        {
+            this.reader = reader;
+        }
+        
+        private InputStream getStream()
+        {
+            if (in == null)
+            {
+                in = reader.getContentInputStream();
+            }
+            return in;
+        }
+        
+        @Override
+        public int read() throws IOException
+        {
+            return getStream().read();
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            return getStream().read(b, off, len);
+        }
+        
+        @Override
+        public long skip(long n) throws IOException
+        {
+            return getStream().skip(n);
+        }
+        
+        @Override
+        public int available() throws IOException
+        {
+            return in == null ? 0 : in.available();
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            if (in != null)
+            {
+                in.close();
+            }
+        }
+    }
 }
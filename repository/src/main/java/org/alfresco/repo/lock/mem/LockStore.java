@@ -39,6 +39,20 @@ import org.alfresco.service.cmr.repository.NodeRef;
 public interface LockStore
 {
     LockState get(NodeRef nodeRef);
+    
+    /**
+     * A cheap check of whether the store may hold a lock for the node. False means that
+     * there is no in-memory lock for the node, so callers that only care about locked
+     * nodes can skip {@link #get(NodeRef)}.
+     * <p>
+     * Only stores that know of every lock, such as a map local to this JVM, can answer
+     * false; by default the node may always be locked.
+     */
+    default boolean mayBeLocked(NodeRef nodeRef)
+    {
+        return true;
+    }
+    
     void set(NodeRef nodeRef, LockState lockState);
     public Set<NodeRef> getNodes();
     
@@ -25,28 +25,47 @@
  */
 package org.alfresco.repo.lock.mem;
 
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.alfresco.repo.lock.LockServiceImpl;
 import org.alfresco.service.cmr.repository.NodeRef;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 
 /**
  * {@link LockStore} implementation backed by a Google {@link ConcurrentMap}.
+ * <p>
+ * As the map is local to this JVM, the store also keeps an index of the nodes that may hold a lock, for
+ * {@link #mayBeLocked(NodeRef)}.  The index may contain nodes that are no longer locked, but never misses
+ * a locked node: a node is indexed before its lock is put into the map, and is only removed from the index,
+ * under a lock for the node, once the map holds no lock for it.
  * 
  * @author Matt Ward
  */
 public class LockStoreImpl extends AbstractLockStore<ConcurrentMap<NodeRef, LockState>>
 {
+    private static final int INDEX_LOCK_COUNT = 64;
+    
+    private final Set<NodeRef> lockedNodes = ConcurrentHashMap.newKeySet();
+    /** Nodes whose lock has expired from the map, still to be pruned from the index */
+    private final Queue<NodeRef> expiredNodes;
+    private final ReentrantLock[] indexLocks = new ReentrantLock[INDEX_LOCK_COUNT];
+    
     /**
      * Default constructor.
      */
     public LockStoreImpl()
     {
-        super(createMap(LockServiceImpl.MAX_EPHEMERAL_LOCK_SECONDS, TimeUnit.SECONDS));
+        this(LockServiceImpl.MAX_EPHEMERAL_LOCK_SECONDS);
     }
     
     /**
@@ -56,15 +75,147 @@ public class LockStoreImpl extends AbstractLockStore<ConcurrentMap<NodeRef, Lock
      */
     public LockStoreImpl(int ephemeralTTLSeconds)
     {
-        super(createMap(ephemeralTTLSeconds, TimeUnit.SECONDS));
+        this(new ConcurrentLinkedQueue<NodeRef>(), ephemeralTTLSeconds, TimeUnit.SECONDS);
+    }
+    
+    private LockStoreImpl(Queue<NodeRef> expiredNodes, long expiry, TimeUnit timeUnit)
+    {
+        super(createMap(expiredNodes, expiry, timeUnit));
+        this.expiredNodes = expiredNodes;
+        for (int i = 0; i < INDEX_LOCK_COUNT; i++)
+        {
+            indexLocks[i] = new ReentrantLock();
+        }
     }
     
-    private static ConcurrentMap<NodeRef, LockState> createMap(long expiry, TimeUnit timeUnit)
+    private static ConcurrentMap<NodeRef, LockState> createMap(final Queue<NodeRef> expiredNodes, long expiry, TimeUnit timeUnit)
     {
         Cache<NodeRef, LockState> cache = CacheBuilder.newBuilder()
                     .concurrencyLevel(32)
                     .expireAfterWrite(expiry, timeUnit)
+                    .removalListener(new RemovalListener<NodeRef, LockState>()
+                    {
+                        @Override
+                        public void onRemoval(RemovalNotification<NodeRef, LockState> notification)
+                        {
+                            // Only queued, as the map may be in use under an index lock
+                            if (notification.wasEvicted())
+                            {
+                                expiredNodes.add(notification.getKey());
+                            }
+                        }
+                    })
                     .build();
         return cache.asMap();
     }
+    
+    @Override
+    public boolean mayBeLocked(NodeRef nodeRef)
+    {
+        return lockedNodes.contains(nodeRef);
+    }
+    
+    @Override
+    public LockState get(NodeRef nodeRef)
+    {
+        LockState lockState = super.get(nodeRef);
+        if (lockState == null || !lockState.isLockInfo())
+        {
+            prune(nodeRef);
+        }
+        return lockState;
+    }
+    
+    @Override
+    public void set(NodeRef nodeRef, LockState lockState)
+    {
+        pruneExpired();
+        ReentrantLock indexLock = getIndexLock(nodeRef);
+        indexLock.lock();
+        try
+        {
+            if (lockState != null && lockState.isLockInfo())
+            {
+                // Indexed before the lock can be seen in the map
+                lockedNodes.add(nodeRef);
+            }
+            try
+            {
+                super.set(nodeRef, lockState);
+            }
+            finally
+            {
+                // Drops the entry added above if the update failed
+                reindex(nodeRef);
+            }
+        }
+        finally
+        {
+            indexLock.unlock();
+        }
+    }
+    
+    @Override
+    public void clear()
+    {
+        super.clear();
+        lockedNodes.clear();
+        expiredNodes.clear();
+    }
+    
+    private ReentrantLock getIndexLock(NodeRef nodeRef)
+    {
+        return indexLocks[(nodeRef.hashCode() & Integer.MAX_VALUE) % INDEX_LOCK_COUNT];
+    }
+    
+    /**
+     * Removes the node from the index if the map holds no lock for it.
+     */
+    private void prune(NodeRef nodeRef)
+    {
+        if (!lockedNodes.contains(nodeRef))
+        {
+            return;
+        }
+        ReentrantLock indexLock = getIndexLock(nodeRef);
+        if (indexLock.isHeldByCurrentThread())
+        {
+            // Within set(), which brings the index up to date once the map has been updated
+            return;
+        }
+        indexLock.lock();
+        try
+        {
+            reindex(nodeRef);
+        }
+        finally
+        {
+            indexLock.unlock();
+        }
+    }
+    
+    private void pruneExpired()
+    {
+        NodeRef nodeRef;
+        while ((nodeRef = expiredNodes.poll()) != null)
+        {
+            prune(nodeRef);
+        }
+    }
+    
+    /**
+     * Makes the index agree with the map, the caller holding the index lock of the node.
+     */
+    private void reindex(NodeRef nodeRef)
+    {
+        LockState current = map.get(nodeRef);
+        if (current != null && current.isLockInfo())
+        {
+            lockedNodes.add(nodeRef);
+        }
+        else
+        {
+            lockedNodes.remove(nodeRef);
+        }
+    }
 }
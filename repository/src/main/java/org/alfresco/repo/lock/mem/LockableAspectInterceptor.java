@@ -336,6 +336,11 @@ public class LockableAspectInterceptor implements MethodInterceptor, Extensible
     @Extend(traitAPI=LockableAspectInterceptorTrait.class,extensionAPI=LockableAspectInterceptorExtension.class)
     private LockState getLockState(NodeRef nodeRef)
     {
+        if (!lockStore.mayBeLocked(nodeRef))
+        {
+            // Most nodes have no in-memory lock, no need to look it up
+            return null;
+        }
         LockState lockState = lockStore.get(nodeRef);
         // Disregard in-memory lock if expired
         if (lockState != null)
@@ -0,0 +1,345 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.node;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.alfresco.repo.domain.node.NodeDAO;
+import org.alfresco.repo.domain.node.NodeDAO.ChildAssocRefQueryCallback;
+import org.alfresco.repo.lock.JobLockService;
+import org.alfresco.repo.lock.JobLockService.JobLockRefreshCallback;
+import org.alfresco.repo.lock.LockAcquisitionException;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.cmr.attributes.AttributeService.AttributeQueryCallback;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Base class for processing large node hierarchies in stages, each in a transaction of its own.
+ * <p/>
+ * Hierarchies being processed are recorded using the {@link AttributeService}, keyed by the node that
+ * identifies the work, along with the user doing the work.  Any other state that is needed to complete the
+ * work is recorded by the subclass beneath the same key.  If the work is interrupted, it can be completed by
+ * calling {@link #resumeHierarchies()}, which is done periodically by the
+ * {@link org.alfresco.repo.node.cleanup.StagedHierarchyCleanupWorker}.  A cluster-wide job lock ensures that
+ * the work for each hierarchy is done by one thread at a time.
+ *
+ * @since 23.2
+ */
+public abstract class AbstractStagedHierarchyProcessor
+{
+    /** Lock time to live: 1 minute, refreshed while the hierarchy is being processed */
+    private static final long LOCK_TTL = 60*1000L;
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final String attrKey;
+    private final String attrKeyUsers;
+
+    protected NodeDAO nodeDAO;
+    protected TransactionService transactionService;
+    protected AttributeService attributeService;
+    private JobLockService jobLockService;
+    protected int chunkSize = 1000;
+
+    /**
+     * @param attrKey           the top-level {@link AttributeService} key for recording the work
+     */
+    protected AbstractStagedHierarchyProcessor(String attrKey)
+    {
+        this.attrKey = attrKey;
+        this.attrKeyUsers = attrKey + "Users";
+    }
+
+    public void setNodeDAO(NodeDAO nodeDAO)
+    {
+        this.nodeDAO = nodeDAO;
+    }
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    public void setAttributeService(AttributeService attributeService)
+    {
+        this.attributeService = attributeService;
+    }
+
+    public void setJobLockService(JobLockService jobLockService)
+    {
+        this.jobLockService = jobLockService;
+    }
+
+    /**
+     * @param chunkSize         the maximum number of nodes processed in each transaction
+     */
+    public void setChunkSize(int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    public void init()
+    {
+        PropertyCheck.mandatory(this, "nodeDAO", nodeDAO);
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        PropertyCheck.mandatory(this, "attributeService", attributeService);
+        PropertyCheck.mandatory(this, "jobLockService", jobLockService);
+        if (chunkSize < 1)
+        {
+            throw new IllegalArgumentException("The chunk size must be at least 1");
+        }
+    }
+
+    /**
+     * @return                  the top-level {@link AttributeService} key for recording the work
+     */
+    protected String getAttributeKey()
+    {
+        return attrKey;
+    }
+
+    /**
+     * Record the current user as doing the work for a hierarchy.  This must be called in a transaction.
+     */
+    protected void recordUser(NodeRef nodeRef)
+    {
+        attributeService.setAttribute(AuthenticationUtil.getFullyAuthenticatedUser(), attrKeyUsers, nodeRef.toString());
+    }
+
+    /**
+     * Remove everything recorded for a hierarchy.  This must be called in a transaction.
+     */
+    protected void removeRecords(NodeRef nodeRef)
+    {
+        attributeService.removeAttributes(attrKey, nodeRef.toString());
+        attributeService.removeAttribute(attrKeyUsers, nodeRef.toString());
+    }
+
+    /**
+     * Do the work for a hierarchy while holding its job lock
+     *
+     * @param nodeRef           the node that identifies the work
+     * @param work              the work to do, outside of any transaction
+     * @throws LockAcquisitionException if the hierarchy is already being processed by another thread
+     */
+    protected <R> R doWithLock(NodeRef nodeRef, Supplier<R> work)
+    {
+        final QName lockQName = QName.createQName(
+                NamespaceService.SYSTEM_MODEL_1_0_URI,
+                attrKey.substring(1) + "." + nodeRef.getStoreRef().getProtocol() + "." + nodeRef.getStoreRef().getIdentifier() + "." + nodeRef.getId());
+        final AtomicBoolean running = new AtomicBoolean(true);
+        String lockToken = jobLockService.getLock(lockQName, LOCK_TTL, new JobLockRefreshCallback()
+        {
+            @Override
+            public boolean isActive()
+            {
+                return running.get();
+            }
+
+            @Override
+            public void lockReleased()
+            {
+                running.set(false);
+            }
+        });
+        try
+        {
+            return work.get();
+        }
+        finally
+        {
+            running.set(false);
+            jobLockService.releaseLock(lockToken, lockQName);
+        }
+    }
+
+    /**
+     * Complete the work for any hierarchies that was interrupted.  The work is completed as the user who
+     * started it; hierarchies that are still being processed by another thread are skipped.
+     * <p/>
+     * This must not be called within a transaction.
+     *
+     * @return                  the number of hierarchies whose work was completed
+     */
+    public int resumeHierarchies()
+    {
+        final Set<NodeRef> nodeRefs = new LinkedHashSet<NodeRef>();
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                nodeRefs.clear();
+                attributeService.getAttributes(new AttributeQueryCallback()
+                {
+                    @Override
+                    public boolean handleAttribute(Long id, Serializable value, Serializable[] keys)
+                    {
+                        nodeRefs.add(new NodeRef((String) keys[1]));
+                        return true;
+                    }
+                }, attrKey);
+                return null;
+            }
+        }, true, true);
+
+        int resumed = 0;
+        for (final NodeRef nodeRef : nodeRefs)
+        {
+            String username = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<String>()
+            {
+                @Override
+                public String execute() throws Throwable
+                {
+                    if (nodeDAO.exists(nodeRef))
+                    {
+                        String username = (String) attributeService.getAttribute(attrKeyUsers, nodeRef.toString());
+                        return username == null ? AuthenticationUtil.getSystemUserName() : username;
+                    }
+                    // Deleted since, by other means
+                    removeRecords(nodeRef);
+                    return null;
+                }
+            }, false, true);
+            if (username == null)
+            {
+                continue;
+            }
+            // The work is attributed to the fully authenticated user
+            AuthenticationUtil.pushAuthentication();
+            try
+            {
+                AuthenticationUtil.setFullyAuthenticatedUser(username);
+                doWithLock(nodeRef, () -> resumeHierarchy(nodeRef));
+                resumed++;
+            }
+            catch (LockAcquisitionException e)
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Node hierarchy is still being processed: " + nodeRef);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Failed to resume the processing of node hierarchy " + nodeRef, e);
+            }
+            finally
+            {
+                AuthenticationUtil.popAuthentication();
+            }
+        }
+        return resumed;
+    }
+
+    /**
+     * Complete the interrupted work for a hierarchy.  This is called outside of any transaction, as the user
+     * who started the work and while holding the job lock for the hierarchy.
+     *
+     * @param nodeRef           the node that identifies the work
+     * @return                  the number of nodes processed
+     */
+    protected abstract long resumeHierarchy(NodeRef nodeRef);
+
+    /**
+     * Count the nodes in a hierarchy, stopping once the given limit has been reached
+     */
+    protected int countHierarchy(Long nodeId, int limit)
+    {
+        List<Long> toVisit = new ArrayList<Long>();
+        toVisit.add(nodeId);
+        int count = 0;
+        while (!toVisit.isEmpty() && count < limit)
+        {
+            Long visitNodeId = toVisit.remove(toVisit.size() - 1);
+            count++;
+            for (Pair<Long, NodeRef> childNodePair : getPrimaryChildren(visitNodeId, limit - count))
+            {
+                toVisit.add(childNodePair.getFirst());
+            }
+        }
+        return Math.min(count, limit);
+    }
+
+    /**
+     * Get up to the given number of primary children of a node
+     */
+    protected List<Pair<Long, NodeRef>> getPrimaryChildren(Long nodeId, final int maxResults)
+    {
+        final List<Pair<Long, NodeRef>> children = new ArrayList<Pair<Long, NodeRef>>();
+        if (maxResults < 1)
+        {
+            return children;
+        }
+        ChildAssocRefQueryCallback callback = new ChildAssocRefQueryCallback()
+        {
+            @Override
+            public boolean preLoadNodes()
+            {
+                return false;
+            }
+
+            @Override
+            public boolean orderResults()
+            {
+                return false;
+            }
+
+            @Override
+            public boolean handle(
+                    Pair<Long, ChildAssociationRef> childAssocPair,
+                    Pair<Long, NodeRef> parentNodePair,
+                    Pair<Long, NodeRef> childNodePair)
+            {
+                children.add(childNodePair);
+                return children.size() < maxResults;
+            }
+
+            @Override
+            public void done()
+            {
+            }
+        };
+        nodeDAO.getChildAssocs(nodeId, null, null, null, Boolean.TRUE, null, callback);
+        return children;
+    }
+}
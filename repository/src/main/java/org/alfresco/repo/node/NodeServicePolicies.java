@@ -216,6 +216,36 @@ public interface NodeServicePolicies
         public void onDeleteNode(ChildAssociationRef childAssocRef, boolean isNodeArchived);
     }
     
+    public interface BeforeDeleteHierarchyPolicy extends ClassPolicy
+    {
+        public static final QName QNAME = QName.createQName(NamespaceService.ALFRESCO_URI, "beforeDeleteHierarchy");
+        /**
+         * Called once before a node hierarchy is deleted in stages by the
+         * {@link org.alfresco.repo.node.db.HierarchyDeleter}.  The node policies are still called
+         * as each part of the hierarchy is deleted.
+         * 
+         * @param nodeRef           the top node of the hierarchy
+         * @param isNodeArchived    indicates whether the hierarchy will be archived rather than purged
+         */
+        public void beforeDeleteHierarchy(NodeRef nodeRef, boolean isNodeArchived);
+    }
+    
+    public interface OnDeleteHierarchyPolicy extends ClassPolicy
+    {
+        public static final QName QNAME = QName.createQName(NamespaceService.ALFRESCO_URI, "onDeleteHierarchy");
+        /**
+         * Called once after a node hierarchy has been deleted in stages by the
+         * {@link org.alfresco.repo.node.db.HierarchyDeleter}.  The reference given is for an
+         * association which has been deleted.
+         * 
+         * @param childAssocRef     the primary parent-child association of the top node of the hierarchy
+         * @param isNodeArchived    indicates whether the hierarchy has been archived rather than purged
+         * @param nodeCount         the number of nodes deleted, not counting any deleted before the
+         *                          deletion was interrupted and resumed
+         */
+        public void onDeleteHierarchy(ChildAssociationRef childAssocRef, boolean isNodeArchived, long nodeCount);
+    }
+    
     @AlfrescoPublicApi     
     public interface BeforeAddAspectPolicy extends ClassPolicy
     {
@@ -92,6 +92,11 @@ public class StoreArchiveMap
         storeArchiveMap.put(workStoreRef, archiveStoreRef);
     }
     
+    public void remove(StoreRef workStoreRef)
+    {
+        storeArchiveMap.remove(workStoreRef);
+    }
+    
     public void clear()
     {
         storeArchiveMap.clear();
@@ -41,6 +41,8 @@ public class ArchivedNodeEntity extends NodeBackedEntity
     private Long assocTypeQNameId;
     private Boolean sortOrderAscending;
     private Boolean filterIgnoreCase;
+    private Long excludedQNameNamespaceId;
+    private String excludedQNameLocalName;
 
     public ArchivedNodeEntity()
     {
@@ -96,6 +98,30 @@ public class ArchivedNodeEntity extends NodeBackedEntity
         this.assocTypeQNameId = assocTypeQNameId;
     }
 
+    public Long getExcludedQNameNamespaceId()
+    {
+        return this.excludedQNameNamespaceId;
+    }
+
+    public String getExcludedQNameLocalName()
+    {
+        return this.excludedQNameLocalName;
+    }
+
+    /**
+     * Leave out the children whose association has the given name
+     * 
+     * @param namespaceId   the ID of the association name's namespace
+     * @param localName     the local name of the association name
+     * 
+     * @since 23.2
+     */
+    public void setExcludedQName(Long namespaceId, String localName)
+    {
+        this.excludedQNameNamespaceId = namespaceId;
+        this.excludedQNameLocalName = localName;
+    }
+
     public Boolean getFilterIgnoreCase()
     {
         return this.filterIgnoreCase;
@@ -34,6 +34,7 @@ import org.alfresco.query.PagingRequest;
 import org.alfresco.repo.query.AbstractQNameAwareCannedQueryFactory;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
 import org.alfresco.util.ParameterCheck;
 
 /**
@@ -73,6 +74,12 @@ public class GetArchivedNodesCannedQueryFactory extends AbstractQNameAwareCanned
         GetArchivedNodesCannedQueryParams paramBean = new GetArchivedNodesCannedQueryParams(nodeId,
                     qnameId, filter, filterIgnoreCase, getQNameId(ContentModel.PROP_NAME),
                     sortOrderAscending);
+        // leave out the hierarchies that are still being archived
+        Pair<Long, String> stagedNamespacePair = qnameDAO.getNamespace(NodeArchiveService.QNAME_STAGED_ARCHIVED_ITEM.getNamespaceURI());
+        if (stagedNamespacePair != null)
+        {
+            paramBean.setExcludedQName(stagedNamespacePair.getFirst(), NodeArchiveService.QNAME_STAGED_ARCHIVED_ITEM.getLocalName());
+        }
 
         // page details
         CannedQueryPageDetails cqpd = new CannedQueryPageDetails(pagingRequest.getSkipCount(),
@@ -55,6 +55,8 @@ public interface NodeArchiveService
 {
     /** Static 'sys:archivedItem' path for all archived nodes. */
     public static final QName QNAME_ARCHIVED_ITEM = QName.createQName(NamespaceService.SYSTEM_MODEL_1_0_URI, "archivedItem");
+    /** Static 'sys:stagedArchivedItem' path for archived nodes whose hierarchy is still being archived. */
+    public static final QName QNAME_STAGED_ARCHIVED_ITEM = QName.createQName(NamespaceService.SYSTEM_MODEL_1_0_URI, "stagedArchivedItem");
     
     /**
      * Get the parent node that holds all nodes archived from the given store.
@@ -100,6 +100,8 @@ public class NodeArchiveServiceImpl implements NodeArchiveService
     private NamedObjectRegistry<CannedQueryFactory<ArchivedNodeEntity>> cannedQueryRegistry;
     private TenantService tenantService;
     private boolean userNamesAreCaseSensitive = false;
+    private int bulkThreadCount = 2;
+    private int bulkBatchSize = 20;
 
     /** controls policy delegates */
     private PolicyComponent policyComponent;
@@ -165,6 +167,22 @@ public class NodeArchiveServiceImpl implements NodeArchiveService
         this.userNamesAreCaseSensitive = userNamesAreCaseSensitive;
     }
 
+    /**
+     * @param bulkThreadCount   the number of threads used to purge or restore all archived nodes
+     */
+    public void setBulkThreadCount(int bulkThreadCount)
+    {
+        this.bulkThreadCount = bulkThreadCount;
+    }
+
+    /**
+     * @param bulkBatchSize     the number of archived nodes purged or restored in each transaction
+     */
+    public void setBulkBatchSize(int bulkBatchSize)
+    {
+        this.bulkBatchSize = bulkBatchSize;
+    }
+
     public NodeRef getArchivedNode(NodeRef originalNodeRef)
     {
         StoreRef orginalStoreRef = originalNodeRef.getStoreRef();
@@ -537,7 +555,7 @@ public class NodeArchiveServiceImpl implements NodeArchiveService
                     "ArchiveBulkPurgeOrRestore",
                     transactionService.getRetryingTransactionHelper(),
                     getArchivedNodesWorkProvider(originalStoreRef, lockToken),
-                    2, 20,
+                    bulkThreadCount, bulkBatchSize,
                     null, null, 1000);
             batchProcessor.process(worker, true);
         }
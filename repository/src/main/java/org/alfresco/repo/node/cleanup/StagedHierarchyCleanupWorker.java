@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.node.cleanup;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.alfresco.repo.node.AbstractStagedHierarchyProcessor;
+import org.alfresco.util.PropertyCheck;
+
+/**
+ * Completes the work on node hierarchies that was started by an {@link AbstractStagedHierarchyProcessor}
+ * but interrupted, e.g. by a server restart.
+ * 
+ * @since 23.2
+ */
+public class StagedHierarchyCleanupWorker extends AbstractNodeCleanupWorker
+{
+    private AbstractStagedHierarchyProcessor processor;
+
+    public void setProcessor(AbstractStagedHierarchyProcessor processor)
+    {
+        this.processor = processor;
+    }
+
+    @Override
+    public void register()
+    {
+        PropertyCheck.mandatory(this, "processor", processor);
+        super.register();
+    }
+
+    @Override
+    protected List<String> doCleanInternal() throws Throwable
+    {
+        int resumed = processor.resumeHierarchies();
+        return Collections.singletonList(processor.getClass().getSimpleName() + " completed the interrupted work on " + resumed + " node hierarchies");
+    }
+}
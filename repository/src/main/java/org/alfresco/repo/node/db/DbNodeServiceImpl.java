@@ -1069,6 +1069,23 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
      *                          <tt>false</tt> if the node must be forcibly deleted
      */
     private void deleteNode(NodeRef nodeRef, boolean allowArchival)
+    {
+        deleteNode(nodeRef, allowArchival ? null : Boolean.FALSE, null, null);
+    }
+    
+    /**
+     * Delete a node hierarchy
+     * 
+     * @param nodeRef               the node to delete
+     * @param archive               <tt>true</tt> to archive the hierarchy, <tt>false</tt> to delete it outright
+     *                              or <tt>null</tt> to archive it if the store and model require it
+     * @param archiveParentNodeRef  the archived node to archive the hierarchy beneath or <tt>null</tt> to
+     *                              archive it as a top-level archived item
+     * @param archivedNodeRef       the archived copy of the node if it was archived on its own earlier,
+     *                              in which case only the descendants are copied; otherwise <tt>null</tt>
+     * @return                      the number of nodes deleted
+     */
+    private int deleteNode(NodeRef nodeRef, Boolean archive, NodeRef archiveParentNodeRef, NodeRef archivedNodeRef)
     {
         // The node(s) involved may not be pending deletion
         checkPendingDelete(nodeRef);
@@ -1077,8 +1094,6 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         Pair<Long, NodeRef> nodePair = getNodePairNotNull(nodeRef);
         Long nodeId = nodePair.getFirst();
 
-        Boolean requiresDelete = null;
-
         // get type and aspect QNames as they will be unavailable after the delete
         QName nodeTypeQName = nodeDAO.getNodeType(nodeId);
         Set<QName> nodeAspectQNames = nodeDAO.getNodeAspects(nodeId);
@@ -1111,52 +1126,18 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         nodesPendingDeleteTxn.addAll(nodesPendingDelete);           // We need to remove these later, again
         
         // Work out whether we need to archive or delete the node.
-        if (!allowArchival)
+        if (archive == null)
         {
-            // No archival allowed
-            requiresDelete = true;
+            archive = isArchiveRequired(archiveStoreRef, nodeTypeQName, nodeAspectQNames);
         }
-        else if (archiveStoreRef == null)
+        else if (archive && archiveStoreRef == null)
         {
-            // The store does not specify archiving
-            requiresDelete = true;
-        }
-        else
-        {
-            // get the type and check if we need archiving.
-            TypeDefinition typeDef = dictionaryService.getType(nodeTypeQName);
-            if (typeDef != null)
-            {
-                Boolean requiresArchive = typeDef.getArchive();
-                if (requiresArchive != null)
-                {
-                    requiresDelete = !requiresArchive;
-                }
-            }
-
-            // If the type hasn't asked for deletion, check whether any applied aspects have
-            Iterator<QName> i = nodeAspectQNames.iterator();
-            while ((requiresDelete == null || !requiresDelete) && i.hasNext())
-            {
-                QName nodeAspectQName = i.next();
-                AspectDefinition aspectDef = dictionaryService.getAspect(nodeAspectQName);
-                if (aspectDef != null)
-                {
-                    Boolean requiresArchive = aspectDef.getArchive();
-                    if (requiresArchive != null)
-                    {
-                        requiresDelete = !requiresArchive;
-                    }
-                }
-            }
+            throw new IllegalArgumentException("The store does not specify archiving: " + nodeRef);
         }
         
         // Propagate timestamps
         propagateTimeStamps(childAssocRef);
 
-        // Archive, if necessary
-        boolean archive = requiresDelete != null && !requiresDelete.booleanValue();
-
         // Fire pre-delete events
         Set<Long> childAssocIds = new HashSet<Long>(23);            // Prevents duplicate firing
         Set<Long> peerAssocIds = new HashSet<Long>(23);            // Prevents duplicate firing
@@ -1212,7 +1193,9 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         if (archive)
         {
             // Archive node
-            archiveHierarchy(walker, archiveStoreRef);
+            Pair<Long, NodeRef> archiveParentNodePair = archiveParentNodeRef == null ? null : getNodePairNotNull(archiveParentNodeRef);
+            Pair<Long, NodeRef> archivedNodePair = archivedNodeRef == null ? null : getNodePairNotNull(archivedNodeRef);
+            archiveHierarchy(walker, archiveStoreRef, archiveParentNodePair, archivedNodePair, false);
         }
 
         // Delete/Archive and fire post-delete events incl. updating indexes
@@ -1273,6 +1256,179 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         // Clear out the list of nodes pending delete
         nodesPendingDeleteTxn = TransactionalResourceHelper.getSet(KEY_PENDING_DELETE_NODES);
         nodesPendingDeleteTxn.removeAll(nodesPendingDelete);
+        
+        return nodesToDelete.size();
+    }
+    
+    /**
+     * Work out whether deleting a node archives it, according to the store and to the
+     * archive settings of the node's type and aspects
+     */
+    private boolean isArchiveRequired(StoreRef archiveStoreRef, QName nodeTypeQName, Set<QName> nodeAspectQNames)
+    {
+        if (archiveStoreRef == null)
+        {
+            // The store does not specify archiving
+            return false;
+        }
+        
+        Boolean requiresDelete = null;
+        
+        // get the type and check if we need archiving.
+        TypeDefinition typeDef = dictionaryService.getType(nodeTypeQName);
+        if (typeDef != null)
+        {
+            Boolean requiresArchive = typeDef.getArchive();
+            if (requiresArchive != null)
+            {
+                requiresDelete = !requiresArchive;
+            }
+        }
+
+        // If the type hasn't asked for deletion, check whether any applied aspects have
+        Iterator<QName> i = nodeAspectQNames.iterator();
+        while ((requiresDelete == null || !requiresDelete) && i.hasNext())
+        {
+            QName nodeAspectQName = i.next();
+            AspectDefinition aspectDef = dictionaryService.getAspect(nodeAspectQName);
+            if (aspectDef != null)
+            {
+                Boolean requiresArchive = aspectDef.getArchive();
+                if (requiresArchive != null)
+                {
+                    requiresDelete = !requiresArchive;
+                }
+            }
+        }
+        
+        return requiresDelete != null && !requiresDelete.booleanValue();
+    }
+    
+    /**
+     * Work out whether deleting a node would archive it rather than delete it outright
+     * 
+     * @param nodeRef               the node that would be deleted
+     * @return                      <tt>true</tt> if the node would be archived
+     * 
+     * @since 23.2
+     */
+    public boolean isArchiveRequired(NodeRef nodeRef)
+    {
+        Pair<Long, NodeRef> nodePair = getNodePairNotNull(nodeRef);
+        Long nodeId = nodePair.getFirst();
+        StoreRef archiveStoreRef = storeArchiveMap.get(nodeRef.getStoreRef());
+        return isArchiveRequired(archiveStoreRef, nodeDAO.getNodeType(nodeId), nodeDAO.getNodeAspects(nodeId));
+    }
+    
+    /**
+     * Find the copy of a node made by {@link #archiveStagedNode(NodeRef, NodeRef)}, whose original
+     * has still to be deleted.
+     * 
+     * @param nodeRef               the original node
+     * @param archiveParentNodeRef  the archived parent that was given when the node was archived
+     * @return                      the archived copy of the node or <tt>null</tt> if it has not been archived
+     * 
+     * @since 23.2
+     */
+    public NodeRef getStagedArchiveNode(NodeRef nodeRef, NodeRef archiveParentNodeRef)
+    {
+        StoreRef archiveStoreRef = storeArchiveMap.get(nodeRef.getStoreRef());
+        if (archiveStoreRef == null)
+        {
+            return null;
+        }
+        Pair<Long, NodeRef> archivedNodePair = nodeDAO.getNodePair(new NodeRef(archiveStoreRef, nodeRef.getId()));
+        if (archivedNodePair == null)
+        {
+            return null;
+        }
+        if (archiveParentNodeRef != null)
+        {
+            // The copy must be beneath the archived parent
+            Pair<Long, ChildAssociationRef> archivedParentAssocPair = nodeDAO.getPrimaryParentAssoc(archivedNodePair.getFirst());
+            if (archivedParentAssocPair == null || !archiveParentNodeRef.equals(archivedParentAssocPair.getSecond().getParentRef()))
+            {
+                return null;
+            }
+        }
+        else
+        {
+            // The copy must record the current location of the original
+            Pair<Long, NodeRef> nodePair = getNodePairNotNull(nodeRef);
+            ChildAssociationRef primaryParentAssocRef = nodeDAO.getPrimaryParentAssoc(nodePair.getFirst()).getSecond();
+            ChildAssociationRef originalParentAssocRef = DefaultTypeConverter.INSTANCE.convert(
+                    ChildAssociationRef.class,
+                    nodeDAO.getNodeProperty(archivedNodePair.getFirst(), ContentModel.PROP_ARCHIVED_ORIGINAL_PARENT_ASSOC));
+            if (!primaryParentAssocRef.equals(originalParentAssocRef))
+            {
+                return null;
+            }
+        }
+        return archivedNodePair.getSecond();
+    }
+    
+    /**
+     * Archive a node on its own, leaving the original and its children in place.  This allows a large
+     * hierarchy to be archived from the top down over several transactions: the children are archived
+     * beneath the copy using {@link #deleteStagedNode(NodeRef, boolean, NodeRef, NodeRef)} and the
+     * original is deleted once it has no children left.
+     * <p/>
+     * The copy of the top of the hierarchy is held under {@link NodeArchiveService#QNAME_STAGED_ARCHIVED_ITEM}
+     * and is not linked to the archiving user, so it does not appear in the trashcan alongside the original.
+     * It becomes a normal archived item when the original is deleted.
+     * 
+     * @param nodeRef               the node to archive
+     * @param archiveParentNodeRef  the archived copy of the node's parent or <tt>null</tt> if the node
+     *                              is the top of the hierarchy being archived
+     * @return                      the archived copy of the node
+     * 
+     * @since 23.2
+     */
+    public NodeRef archiveStagedNode(NodeRef nodeRef, NodeRef archiveParentNodeRef)
+    {
+        // The node(s) involved may not be pending deletion
+        checkPendingDelete(nodeRef);
+        
+        NodeRef archivedNodeRef = getStagedArchiveNode(nodeRef, archiveParentNodeRef);
+        if (archivedNodeRef != null)
+        {
+            // Archived by an earlier attempt that did not complete
+            return archivedNodeRef;
+        }
+        StoreRef archiveStoreRef = storeArchiveMap.get(nodeRef.getStoreRef());
+        if (archiveStoreRef == null)
+        {
+            throw new IllegalArgumentException("The store does not specify archiving: " + nodeRef);
+        }
+        
+        Pair<Long, NodeRef> nodePair = getNodePairNotNull(nodeRef);
+        NodeHierarchyWalker walker = new NodeHierarchyWalker(nodeDAO);
+        walker.visitNode(nodePair, nodeDAO.getPrimaryParentAssoc(nodePair.getFirst()));
+        Pair<Long, NodeRef> archiveParentNodePair = archiveParentNodeRef == null ? null : getNodePairNotNull(archiveParentNodeRef);
+        archiveHierarchy(walker, archiveStoreRef, archiveParentNodePair, null, archiveParentNodePair == null);
+        
+        return new NodeRef(archiveStoreRef, nodeRef.getId());
+    }
+    
+    /**
+     * Delete a node hierarchy that is part of a larger hierarchy being deleted over several transactions.
+     * When archiving, the hierarchy is copied beneath the given archived parent rather than becoming
+     * a top-level archived item.
+     * 
+     * @param nodeRef               the node to delete
+     * @param archive               <tt>true</tt> to archive the hierarchy or <tt>false</tt> to delete it outright,
+     *                              as decided for the larger hierarchy
+     * @param archiveParentNodeRef  the archived copy of the node's parent or <tt>null</tt> if the node
+     *                              is the top of the hierarchy being archived
+     * @param archivedNodeRef       the copy made by {@link #archiveStagedNode(NodeRef, NodeRef)} if the node was
+     *                              archived on its own earlier, otherwise <tt>null</tt>
+     * @return                      the number of nodes deleted
+     * 
+     * @since 23.2
+     */
+    public int deleteStagedNode(NodeRef nodeRef, boolean archive, NodeRef archiveParentNodeRef, NodeRef archivedNodeRef)
+    {
+        return deleteNode(nodeRef, archive, archiveParentNodeRef, archivedNodeRef);
     }
     
     @Extend(traitAPI=NodeServiceTrait.class,extensionAPI=NodeServiceExtension.class)
@@ -2365,12 +2521,17 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
     /**
      * Archives the node without the <b>cm:auditable</b> aspect behaviour
      */
-    private void archiveHierarchy(NodeHierarchyWalker walker, StoreRef archiveStoreRef)
+    private void archiveHierarchy(
+            NodeHierarchyWalker walker,
+            StoreRef archiveStoreRef,
+            Pair<Long, NodeRef> stagedArchiveParentNodePair,
+            Pair<Long, NodeRef> stagedArchiveNodePair,
+            boolean stageTopNode)
     {
         policyBehaviourFilter.disableBehaviour(ContentModel.ASPECT_AUDITABLE);
         try
         {
-            archiveHierarchyImpl(walker, archiveStoreRef);
+            archiveHierarchyImpl(walker, archiveStoreRef, stagedArchiveParentNodePair, stagedArchiveNodePair, stageTopNode);
         }
         finally
         {
@@ -2383,8 +2544,19 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
      * 
      * @param walker                the node hierarchy to archive
      * @param archiveStoreRef StoreRef
+     * @param stagedArchiveParentNodePair   the archived node to copy the hierarchy beneath or <tt>null</tt>
+     *                                      to make it a top-level archived item
+     * @param stagedArchiveNodePair         the existing copy of the top node, if it was archived on its own
+     *                                      earlier; otherwise <tt>null</tt>
+     * @param stageTopNode                  <tt>true</tt> to keep a top-level archived item out of the trashcan
+     *                                      until the rest of its hierarchy has been archived
      */
-    private void archiveHierarchyImpl(NodeHierarchyWalker walker, StoreRef archiveStoreRef)
+    private void archiveHierarchyImpl(
+            NodeHierarchyWalker walker,
+            StoreRef archiveStoreRef,
+            Pair<Long, NodeRef> stagedArchiveParentNodePair,
+            Pair<Long, NodeRef> stagedArchiveNodePair,
+            boolean stageTopNode)
     {
         // Start with the node we are archiving to
         Pair<Long, NodeRef> archiveStoreRootNodePair = nodeDAO.getRootNode(archiveStoreRef);
@@ -2394,14 +2566,28 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         Map<Long, Pair<Long, NodeRef>> archiveRecord = new HashMap<Long, Pair<Long, NodeRef>>(walker.getNodes(false).size() * 2);
         for (VisitedNode node : walker.getNodes(false))
         {
+            if (firstNode && stagedArchiveNodePair != null)
+            {
+                // The top node has already been copied; only its descendants are archived
+                archiveRecord.put(node.id, stagedArchiveNodePair);
+                if (stagedArchiveParentNodePair == null)
+                {
+                    // The hierarchy is complete, so the copy becomes a normal archived item
+                    publishStagedArchiveNode(archiveStoreRootNodePair, stagedArchiveNodePair);
+                }
+                firstNode = false;
+                continue;
+            }
+            
             // Get node metadata
             Map<QName, Serializable> archiveProperties = nodeDAO.getNodeProperties(node.id);
             Set<QName> archiveAspects = nodeDAO.getNodeAspects(node.id);
 
-            // The first node gets special treatment as it contains the archival details
+            // The top-level archived node gets special treatment as it contains the archival details
+            boolean topNode = firstNode && stagedArchiveParentNodePair == null;
             ChildAssociationRef archivePrimaryParentAssocRef = null;
             final Pair<Long, NodeRef> archiveParentNodePair;
-            if (firstNode)
+            if (topNode)
             {
                 // Attach top-level archival details
                 ChildAssociationRef primaryParentAssocRef = node.primaryParentAssocPair.getSecond();
@@ -2419,12 +2605,25 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
                 archivePrimaryParentAssocRef = new ChildAssociationRef(
                         ContentModel.ASSOC_CHILDREN,
                         archiveStoreRootNodePair.getSecond(),
-                        NodeArchiveService.QNAME_ARCHIVED_ITEM,
+                        stageTopNode ? NodeArchiveService.QNAME_STAGED_ARCHIVED_ITEM : NodeArchiveService.QNAME_ARCHIVED_ITEM,
                         new NodeRef(archiveStoreRef, node.nodeRef.getId()),
                         true,
                         -1);
                 archiveParentNodePair = archiveStoreRootNodePair;
             }
+            else if (firstNode)
+            {
+                // The parent was archived earlier, while archiving a larger hierarchy in stages
+                ChildAssociationRef primaryParentAssocRef = node.primaryParentAssocPair.getSecond();
+                archiveParentNodePair = stagedArchiveParentNodePair;
+                archivePrimaryParentAssocRef = new ChildAssociationRef(
+                        primaryParentAssocRef.getTypeQName(),
+                        archiveParentNodePair.getSecond(),
+                        primaryParentAssocRef.getQName(),
+                        new NodeRef(archiveStoreRef, node.nodeRef.getId()),
+                        true,
+                        primaryParentAssocRef.getNthSibling());
+            }
             else
             {
                 ChildAssociationRef primaryParentAssocRef = node.primaryParentAssocPair.getSecond();
@@ -2529,55 +2728,9 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
             
             // If we are have just handled the top-level node in the hierarchy, then ensure that the
             // username is linked to the document
-            if (firstNode)
+            if (topNode && !stageTopNode)
             {
-                // Attach archiveRoot aspect to root
-                // TODO: In time, this can be moved into a patch
-                Long archiveStoreRootNodeId = archiveStoreRootNodePair.getFirst();
-                NodeRef archiveStoreRootNodeRef = archiveStoreRootNodePair.getSecond();
-                if (!nodeDAO.hasNodeAspect(archiveStoreRootNodeId, ContentModel.ASPECT_ARCHIVE_ROOT))
-                {
-                    addAspect(archiveStoreRootNodeRef, ContentModel.ASPECT_ARCHIVE_ROOT, null);
-                }
-                // Ensure that the user has a folder for archival
-                String username = AuthenticationUtil.getFullyAuthenticatedUser();
-                if (username == null)
-                {
-                    username = AuthenticationUtil.getAdminUserName();
-                }
-                Pair<Long, ChildAssociationRef> userArchiveAssocPair = nodeDAO.getChildAssoc(
-                        archiveStoreRootNodeId,
-                        ContentModel.ASSOC_ARCHIVE_USER_LINK,
-                        username);
-                NodeRef userArchiveNodeRef = null;
-                if (userArchiveAssocPair == null)
-                {
-                    // User has no node entry.  Create a new one.
-                    QName archiveUserAssocQName = QName.createQName(
-                                NamespaceService.CONTENT_MODEL_1_0_URI,
-                                QName.createValidLocalName(username));
-                    Map<QName, Serializable> userArchiveNodeProps = Collections.singletonMap(
-                            ContentModel.PROP_NAME, (Serializable) username);
-                    userArchiveNodeRef = createNode(
-                            archiveStoreRootNodeRef,
-                            ContentModel.ASSOC_ARCHIVE_USER_LINK,
-                            archiveUserAssocQName,
-                            ContentModel.TYPE_ARCHIVE_USER,
-                            userArchiveNodeProps).getChildRef();
-                }
-                else
-                {
-                    userArchiveNodeRef = userArchiveAssocPair.getSecond().getChildRef();
-                }
-                // Link user node to archived item via secondary child association
-                String archiveNodeName = (String) archiveProperties.get(ContentModel.PROP_NAME);
-                if (archiveNodeName == null)
-                {
-                    archiveNodeName = archiveNodeRef.getId();
-                }
-                QName archiveAssocQName = QName.createQNameWithValidLocalName(
-                        NamespaceService.SYSTEM_MODEL_1_0_URI, archiveNodeName);
-                addChild(userArchiveNodeRef, archiveNodeRef, ContentModel.ASSOC_ARCHIVED_LINK, archiveAssocQName);
+                linkArchiveNodeToUser(archiveStoreRootNodePair, archiveNodeRef, (String) archiveProperties.get(ContentModel.PROP_NAME));
             }
             
             // Invoke behaviours
@@ -2587,6 +2740,77 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         }
     }
     
+    /**
+     * Turn the staged copy of the top of a hierarchy into a normal archived item, once the
+     * rest of the hierarchy has been archived beneath it
+     */
+    private void publishStagedArchiveNode(Pair<Long, NodeRef> archiveStoreRootNodePair, Pair<Long, NodeRef> stagedArchiveNodePair)
+    {
+        Long stagedArchiveNodeId = stagedArchiveNodePair.getFirst();
+        nodeDAO.moveNode(
+                stagedArchiveNodeId,
+                archiveStoreRootNodePair.getFirst(),
+                ContentModel.ASSOC_CHILDREN,
+                NodeArchiveService.QNAME_ARCHIVED_ITEM);
+        linkArchiveNodeToUser(
+                archiveStoreRootNodePair,
+                stagedArchiveNodePair.getSecond(),
+                (String) nodeDAO.getNodeProperty(stagedArchiveNodeId, ContentModel.PROP_NAME));
+    }
+    
+    /**
+     * Link a top-level archived item to the archive folder of the current user
+     */
+    private void linkArchiveNodeToUser(Pair<Long, NodeRef> archiveStoreRootNodePair, NodeRef archiveNodeRef, String archiveNodeName)
+    {
+        // Attach archiveRoot aspect to root
+        // TODO: In time, this can be moved into a patch
+        Long archiveStoreRootNodeId = archiveStoreRootNodePair.getFirst();
+        NodeRef archiveStoreRootNodeRef = archiveStoreRootNodePair.getSecond();
+        if (!nodeDAO.hasNodeAspect(archiveStoreRootNodeId, ContentModel.ASPECT_ARCHIVE_ROOT))
+        {
+            addAspect(archiveStoreRootNodeRef, ContentModel.ASPECT_ARCHIVE_ROOT, null);
+        }
+        // Ensure that the user has a folder for archival
+        String username = AuthenticationUtil.getFullyAuthenticatedUser();
+        if (username == null)
+        {
+            username = AuthenticationUtil.getAdminUserName();
+        }
+        Pair<Long, ChildAssociationRef> userArchiveAssocPair = nodeDAO.getChildAssoc(
+                archiveStoreRootNodeId,
+                ContentModel.ASSOC_ARCHIVE_USER_LINK,
+                username);
+        NodeRef userArchiveNodeRef = null;
+        if (userArchiveAssocPair == null)
+        {
+            // User has no node entry.  Create a new one.
+            QName archiveUserAssocQName = QName.createQName(
+                        NamespaceService.CONTENT_MODEL_1_0_URI,
+                        QName.createValidLocalName(username));
+            Map<QName, Serializable> userArchiveNodeProps = Collections.singletonMap(
+                    ContentModel.PROP_NAME, (Serializable) username);
+            userArchiveNodeRef = createNode(
+                    archiveStoreRootNodeRef,
+                    ContentModel.ASSOC_ARCHIVE_USER_LINK,
+                    archiveUserAssocQName,
+                    ContentModel.TYPE_ARCHIVE_USER,
+                    userArchiveNodeProps).getChildRef();
+        }
+        else
+        {
+            userArchiveNodeRef = userArchiveAssocPair.getSecond().getChildRef();
+        }
+        // Link user node to archived item via secondary child association
+        if (archiveNodeName == null)
+        {
+            archiveNodeName = archiveNodeRef.getId();
+        }
+        QName archiveAssocQName = QName.createQNameWithValidLocalName(
+                NamespaceService.SYSTEM_MODEL_1_0_URI, archiveNodeName);
+        addChild(userArchiveNodeRef, archiveNodeRef, ContentModel.ASSOC_ARCHIVED_LINK, archiveAssocQName);
+    }
+    
     /**
      * {@inheritDoc}
      * 
@@ -2620,6 +2844,13 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         {
             throw new AlfrescoRuntimeException("The node to restore is not an archive node");
         }
+        // ... and the rest of its hierarchy must have been archived
+        Pair<Long, ChildAssociationRef> archivedPrimaryParentAssocPair = nodeDAO.getPrimaryParentAssoc(archivedNodeId);
+        if (archivedPrimaryParentAssocPair != null &&
+                NodeArchiveService.QNAME_STAGED_ARCHIVED_ITEM.equals(archivedPrimaryParentAssocPair.getSecond().getQName()))
+        {
+            throw new AlfrescoRuntimeException("The node to restore is still being archived");
+        }
         
         // Remove the secondary link to the user that deleted the node
         List<ChildAssociationRef> parentAssocsToRemove = getParentAssocs(
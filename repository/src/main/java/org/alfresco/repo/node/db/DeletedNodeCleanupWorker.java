@@ -33,6 +33,8 @@ import org.alfresco.repo.domain.node.NodeDAO;
 import org.alfresco.repo.node.cleanup.AbstractNodeCleanupWorker;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.util.PropertyCheck;
 
 /**
  * Cleans up deleted nodes and dangling transactions that are old enough.
@@ -55,7 +57,16 @@ public class DeletedNodeCleanupWorker extends AbstractNodeCleanupWorker
 
     private int deleteBatchSize;
 
+    // used by the parallel algorithm
+    private AttributeService attributeService;
+    private int parallelThreadCount = 4;
+    private int parallelRangeSize = 10000;
+    private int parallelMinRangeSize = 1000;
+    private int parallelMaxRangeSize = 1000000;
+    private long parallelTargetRangeTimeMs = 2000L;
+
     private static final String NODE_TABLE_CLEANER_ALG_V2 = "V2";
+    private static final String NODE_TABLE_CLEANER_ALG_PARALLEL = "PARALLEL";
 
     /**
      * Default constructor
@@ -76,7 +87,21 @@ public class DeletedNodeCleanupWorker extends AbstractNodeCleanupWorker
         }
         List<String> purgedNodes, purgedTxns;
 
-        if (NODE_TABLE_CLEANER_ALG_V2.equals(algorithm))
+        if (NODE_TABLE_CLEANER_ALG_PARALLEL.equals(algorithm))
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("DeletedNodeCleanupWorker using parallel deletion: About to execute the clean up nodes ");
+            }
+            purgedNodes = purgeOldDeletedNodesParallel(minPurgeAgeMs);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(purgedNodes);
+                logger.debug("DeletedNodeCleanupWorker: About to execute the clean up txns ");
+            }
+            purgedTxns = purgeOldEmptyTransactionsParallel(minPurgeAgeMs);
+        }
+        else if (NODE_TABLE_CLEANER_ALG_V2.equals(algorithm))
         {
             refreshLock();
             if (logger.isDebugEnabled())
@@ -169,6 +194,54 @@ public class DeletedNodeCleanupWorker extends AbstractNodeCleanupWorker
         this.deleteBatchSize = deleteBatchSize;
     }
 
+    /**
+     * Set the service used to record the progress of the <b>PARALLEL</b> algorithm, so that it survives restarts
+     */
+    public void setAttributeService(AttributeService attributeService)
+    {
+        this.attributeService = attributeService;
+    }
+
+    /**
+     * Set the number of ID ranges purged at the same time by the <b>PARALLEL</b> algorithm
+     */
+    public void setParallelThreadCount(int parallelThreadCount)
+    {
+        this.parallelThreadCount = parallelThreadCount;
+    }
+
+    /**
+     * Set the width of the first ID ranges purged by the <b>PARALLEL</b> algorithm
+     */
+    public void setParallelRangeSize(int parallelRangeSize)
+    {
+        this.parallelRangeSize = parallelRangeSize;
+    }
+
+    /**
+     * Set the narrowest ID range that the <b>PARALLEL</b> algorithm will shrink to
+     */
+    public void setParallelMinRangeSize(int parallelMinRangeSize)
+    {
+        this.parallelMinRangeSize = parallelMinRangeSize;
+    }
+
+    /**
+     * Set the widest ID range that the <b>PARALLEL</b> algorithm will grow to
+     */
+    public void setParallelMaxRangeSize(int parallelMaxRangeSize)
+    {
+        this.parallelMaxRangeSize = parallelMaxRangeSize;
+    }
+
+    /**
+     * Set the time (ms) that the <b>PARALLEL</b> algorithm aims to spend on each ID range
+     */
+    public void setParallelTargetRangeTimeMs(long parallelTargetRangeTimeMs)
+    {
+        this.parallelTargetRangeTimeMs = parallelTargetRangeTimeMs;
+    }
+
     /**
      * Cleans up deleted nodes that are older than the given minimum age.
      * 
@@ -408,6 +481,60 @@ public class DeletedNodeCleanupWorker extends AbstractNodeCleanupWorker
         return returnList;
     }
     
+    /**
+     * Purges deleted nodes that are older than the given minimum age, in ranges of node IDs purged by several threads.
+     * 
+     * @param minAge        the minimum age of a transaction or deleted node
+     * @return              Returns log message results
+     */
+    private List<String> purgeOldDeletedNodesParallel(long minAge)
+    {
+        refreshLock();
+        Long minNodeId = nodeDAO.getMinNodeId();
+        Long maxNodeId = nodeDAO.getMaxNodeId();
+        if (minNodeId == null || maxNodeId == null)
+        {
+            return Collections.singletonList("There are no old nodes to purge.");
+        }
+        ParallelIdRangePurger purger = createParallelPurger("deletedNodes");
+        return purger.purge(minNodeId, maxNodeId, System.currentTimeMillis() - minAge,
+                (fromId, toId, maxCommitTime) -> nodeDAO.purgeDeletedNodes(fromId, toId, maxCommitTime, deleteBatchSize),
+                this::refreshLock);
+    }
+
+    /**
+     * Purges unused transactions that are older than the given minimum age, in ranges of transaction IDs purged by several threads.
+     * 
+     * @param minAge        the minimum age of a transaction or deleted node
+     * @return              Returns log message results
+     */
+    private List<String> purgeOldEmptyTransactionsParallel(long minAge)
+    {
+        refreshLock();
+        Long minTxnId = nodeDAO.getMinTxnId();
+        Long maxTxnId = nodeDAO.getMaxTxnId();
+        if (minTxnId == null || maxTxnId == null)
+        {
+            return Collections.emptyList();
+        }
+        ParallelIdRangePurger purger = createParallelPurger("emptyTransactions");
+        return purger.purge(minTxnId, maxTxnId, System.currentTimeMillis() - minAge,
+                (fromId, toId, maxCommitTime) -> nodeDAO.purgeEmptyTransactions(fromId, toId, maxCommitTime, deleteBatchSize),
+                this::refreshLock);
+    }
+
+    private ParallelIdRangePurger createParallelPurger(String name)
+    {
+        PropertyCheck.mandatory(this, "attributeService", attributeService);
+        ParallelIdRangePurger purger = new ParallelIdRangePurger(name, transactionService, attributeService);
+        purger.setThreadCount(parallelThreadCount);
+        purger.setRangeSize(parallelRangeSize);
+        purger.setMinRangeSize(parallelMinRangeSize);
+        purger.setMaxRangeSize(parallelMaxRangeSize);
+        purger.setTargetRangeTimeMs(parallelTargetRangeTimeMs);
+        return purger;
+    }
+
     private static abstract class DeleteByTransactionsCallback implements RetryingTransactionCallback<Long>
     {
         protected NodeDAO nodeDAO;
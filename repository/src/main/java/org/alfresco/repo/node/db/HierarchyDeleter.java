@@ -0,0 +1,387 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.node.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.repo.lock.LockAcquisitionException;
+import org.alfresco.repo.node.AbstractStagedHierarchyProcessor;
+import org.alfresco.repo.node.NodeServicePolicies;
+import org.alfresco.repo.policy.ClassPolicyDelegate;
+import org.alfresco.repo.policy.PolicyComponent;
+import org.alfresco.repo.security.permissions.AccessDeniedException;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.InvalidNodeRefException;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.security.AccessStatus;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+
+/**
+ * Deletes or archives large node hierarchies in stages, each in a transaction of its own.
+ * <p/>
+ * {@link DbNodeServiceImpl#deleteNode(NodeRef)} walks, archives and deletes a whole hierarchy in a single
+ * transaction, which does not scale to hierarchies of hundreds of thousands of nodes.  Here, the hierarchy is
+ * split into sub-hierarchies of no more than <b>chunkSize</b> nodes, which are deleted in batches using the normal
+ * node service algorithm.  Nodes that have too many descendants are handled from the top down: when archiving,
+ * the node is first copied to the archive store on its own so that its children can be archived beneath it;
+ * the original node is deleted once it has no children left.  The result is the same as deleting the top node
+ * directly, including a single entry in the user's trashcan.
+ * <p/>
+ * The node policies are called for each node as usual.  In addition, the
+ * {@link NodeServicePolicies.BeforeDeleteHierarchyPolicy} and {@link NodeServicePolicies.OnDeleteHierarchyPolicy}
+ * are called once for the whole hierarchy.
+ * <p/>
+ * Hierarchies being deleted are recorded using the {@link AttributeService}.  If a deletion is interrupted, the
+ * part of the hierarchy that has not been deleted is left in place and the deletion can be completed by calling
+ * {@link #deleteHierarchy(NodeRef)} again or by calling {@link #resumeHierarchies()}, which the node cleanup job
+ * does periodically.
+ *
+ * @since 23.2
+ */
+public class HierarchyDeleter extends AbstractStagedHierarchyProcessor
+{
+    static final String ATTR_KEY_HIERARCHIES = ".hierarchyDeleter";
+
+    private DbNodeServiceImpl dbNodeService;
+    private PermissionService permissionService;
+    private PolicyComponent policyComponent;
+
+    private ClassPolicyDelegate<NodeServicePolicies.BeforeDeleteHierarchyPolicy> beforeDeleteHierarchyDelegate;
+    private ClassPolicyDelegate<NodeServicePolicies.OnDeleteHierarchyPolicy> onDeleteHierarchyDelegate;
+
+    public HierarchyDeleter()
+    {
+        super(ATTR_KEY_HIERARCHIES);
+    }
+
+    public void setDbNodeService(DbNodeServiceImpl dbNodeService)
+    {
+        this.dbNodeService = dbNodeService;
+    }
+
+    public void setPermissionService(PermissionService permissionService)
+    {
+        this.permissionService = permissionService;
+    }
+
+    public void setPolicyComponent(PolicyComponent policyComponent)
+    {
+        this.policyComponent = policyComponent;
+    }
+
+    @Override
+    public void init()
+    {
+        super.init();
+        PropertyCheck.mandatory(this, "dbNodeService", dbNodeService);
+        PropertyCheck.mandatory(this, "permissionService", permissionService);
+        PropertyCheck.mandatory(this, "policyComponent", policyComponent);
+
+        beforeDeleteHierarchyDelegate = policyComponent.registerClassPolicy(NodeServicePolicies.BeforeDeleteHierarchyPolicy.class);
+        onDeleteHierarchyDelegate = policyComponent.registerClassPolicy(NodeServicePolicies.OnDeleteHierarchyPolicy.class);
+    }
+
+    /**
+     * Delete or archive a node and all of its descendants.  The node is archived if deleting it using the
+     * node service would archive it.
+     * <p/>
+     * This must not be called within a transaction as each stage of the deletion is committed as it completes.
+     * The current user must have permission to delete the node.
+     *
+     * @param nodeRef           the top node of the hierarchy to delete
+     * @return                  the number of nodes deleted
+     * @throws LockAcquisitionException if the hierarchy is already being deleted by another thread
+     */
+    public long deleteHierarchy(final NodeRef nodeRef)
+    {
+        if (AlfrescoTransactionSupport.getTransactionReadState() != TxnReadState.TXN_NONE)
+        {
+            throw new IllegalStateException("A node hierarchy cannot be deleted in stages within a transaction: " + nodeRef);
+        }
+        return doWithLock(nodeRef, () -> deleteHierarchyLocked(nodeRef));
+    }
+
+    @Override
+    protected long resumeHierarchy(NodeRef nodeRef)
+    {
+        return deleteHierarchyLocked(nodeRef);
+    }
+
+    /**
+     * Delete a hierarchy once the lock for it is held
+     */
+    private long deleteHierarchyLocked(final NodeRef nodeRef)
+    {
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+
+        // Record the deletion so that it can be resumed
+        final Pair<Boolean, Set<QName>> start = txnHelper.doInTransaction(new RetryingTransactionCallback<Pair<Boolean, Set<QName>>>()
+        {
+            @Override
+            public Pair<Boolean, Set<QName>> execute() throws Throwable
+            {
+                Pair<Long, NodeRef> nodePair = nodeDAO.getNodePair(nodeRef);
+                if (nodePair == null)
+                {
+                    throw new InvalidNodeRefException("Node does not exist: " + nodeRef, nodeRef);
+                }
+                if (permissionService.hasPermission(nodeRef, PermissionService.DELETE) != AccessStatus.ALLOWED)
+                {
+                    throw new AccessDeniedException("Not allowed to delete the node hierarchy: " + nodeRef);
+                }
+                Set<QName> qnames = new HashSet<QName>(nodeDAO.getNodeAspects(nodePair.getFirst()));
+                qnames.add(nodeDAO.getNodeType(nodePair.getFirst()));
+
+                Boolean archive = (Boolean) attributeService.getAttribute(ATTR_KEY_HIERARCHIES, nodeRef.toString());
+                if (archive == null)
+                {
+                    archive = dbNodeService.isArchiveRequired(nodeRef);
+                    attributeService.setAttribute(archive, ATTR_KEY_HIERARCHIES, nodeRef.toString());
+                    recordUser(nodeRef);
+                    NodeServicePolicies.BeforeDeleteHierarchyPolicy policy = beforeDeleteHierarchyDelegate.get(nodeRef, qnames);
+                    policy.beforeDeleteHierarchy(nodeRef, archive);
+                }
+                return new Pair<Boolean, Set<QName>>(archive, qnames);
+            }
+        }, false, true);
+        final boolean archive = start.getFirst();
+        final ChildAssociationRef childAssocRef = txnHelper.doInTransaction(new RetryingTransactionCallback<ChildAssociationRef>()
+        {
+            @Override
+            public ChildAssociationRef execute() throws Throwable
+            {
+                return dbNodeService.getPrimaryParent(nodeRef);
+            }
+        }, true, true);
+
+        final long nodeCount = deleteHierarchy(nodeRef, archive, null, false);
+
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                removeRecords(nodeRef);
+                NodeServicePolicies.OnDeleteHierarchyPolicy policy = onDeleteHierarchyDelegate.get(nodeRef, start.getSecond());
+                policy.onDeleteHierarchy(childAssocRef, archive, nodeCount);
+                return null;
+            }
+        }, false, true);
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Deleted node hierarchy " + nodeRef + (archive ? " (archived)" : "") + ": " + nodeCount + " nodes");
+        }
+        return nodeCount;
+    }
+
+    /**
+     * Delete a hierarchy, splitting it up if it is too large
+     *
+     * @param archiveParentNodeRef  the archived copy of the node's parent or <tt>null</tt> for the top node
+     * @param large                 <tt>true</tt> if the hierarchy is already known to be too large for one transaction
+     * @return                      the number of nodes deleted
+     */
+    private long deleteHierarchy(final NodeRef nodeRef, final boolean archive, final NodeRef archiveParentNodeRef, final boolean large)
+    {
+        RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+
+        // A node that was archived on its own by an earlier attempt must continue to be handled in stages
+        NodeRef existingArchivedNodeRef = null;
+        if (archive)
+        {
+            existingArchivedNodeRef = txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef>()
+            {
+                @Override
+                public NodeRef execute() throws Throwable
+                {
+                    return dbNodeService.getStagedArchiveNode(nodeRef, archiveParentNodeRef);
+                }
+            }, true, true);
+        }
+        if (existingArchivedNodeRef == null && !large)
+        {
+            int size = txnHelper.doInTransaction(new RetryingTransactionCallback<Integer>()
+            {
+                @Override
+                public Integer execute() throws Throwable
+                {
+                    Pair<Long, NodeRef> nodePair = nodeDAO.getNodePair(nodeRef);
+                    return nodePair == null ? 0 : countHierarchy(nodePair.getFirst(), chunkSize + 1);
+                }
+            }, true, true);
+            if (size <= chunkSize)
+            {
+                return deleteHierarchies(Collections.singletonMap(nodeRef, (NodeRef) null), archive, archiveParentNodeRef);
+            }
+        }
+
+        // Archive the node on its own so that its children can be archived beneath it
+        final NodeRef archivedNodeRef;
+        if (archive && existingArchivedNodeRef == null)
+        {
+            archivedNodeRef = txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef>()
+            {
+                @Override
+                public NodeRef execute() throws Throwable
+                {
+                    return dbNodeService.archiveStagedNode(nodeRef, archiveParentNodeRef);
+                }
+            }, false, true);
+        }
+        else
+        {
+            archivedNodeRef = existingArchivedNodeRef;
+        }
+
+        // Work through the children until there are none left.  Each listing returns either a single hierarchy
+        // that is too large or a batch of hierarchies that fits into one transaction, so that no more than
+        // chunkSize + 1 nodes are counted for each stage.
+        long nodeCount = 0L;
+        while (true)
+        {
+            List<Pair<NodeRef, Integer>> children = txnHelper.doInTransaction(new RetryingTransactionCallback<List<Pair<NodeRef, Integer>>>()
+            {
+                @Override
+                public List<Pair<NodeRef, Integer>> execute() throws Throwable
+                {
+                    List<Pair<NodeRef, Integer>> children = new ArrayList<Pair<NodeRef, Integer>>();
+                    Pair<Long, NodeRef> nodePair = nodeDAO.getNodePair(nodeRef);
+                    if (nodePair == null)
+                    {
+                        return children;
+                    }
+                    int budget = chunkSize;
+                    for (Pair<Long, NodeRef> childNodePair : getPrimaryChildren(nodePair.getFirst(), chunkSize))
+                    {
+                        int size = countHierarchy(childNodePair.getFirst(), budget + 1);
+                        if (size <= budget)
+                        {
+                            children.add(new Pair<NodeRef, Integer>(childNodePair.getSecond(), size));
+                            budget -= size;
+                        }
+                        else if (budget == chunkSize)
+                        {
+                            // Too large for a transaction of its own
+                            children.add(new Pair<NodeRef, Integer>(childNodePair.getSecond(), size));
+                            break;
+                        }
+                        else
+                        {
+                            // Leave it for the next listing
+                            break;
+                        }
+                        if (budget == 0)
+                        {
+                            break;
+                        }
+                    }
+                    return children;
+                }
+            }, true, true);
+            if (children.isEmpty())
+            {
+                break;
+            }
+
+            // Batch up the smaller hierarchies and split up the larger ones
+            Map<NodeRef, NodeRef> batch = new LinkedHashMap<NodeRef, NodeRef>();
+            int batchSize = 0;
+            for (Pair<NodeRef, Integer> child : children)
+            {
+                int size = child.getSecond();
+                if (size > chunkSize)
+                {
+                    nodeCount += deleteHierarchy(child.getFirst(), archive, archivedNodeRef, true);
+                    continue;
+                }
+                if (batchSize + size > chunkSize)
+                {
+                    nodeCount += deleteHierarchies(batch, archive, archivedNodeRef);
+                    batch = new LinkedHashMap<NodeRef, NodeRef>();
+                    batchSize = 0;
+                }
+                batch.put(child.getFirst(), null);
+                batchSize += size;
+            }
+            nodeCount += deleteHierarchies(batch, archive, archivedNodeRef);
+        }
+
+        // The node has no children left, so it can now be removed
+        nodeCount += deleteHierarchies(Collections.singletonMap(nodeRef, archivedNodeRef), archive, archiveParentNodeRef);
+        if (logger.isTraceEnabled())
+        {
+            logger.trace("Deleted node hierarchy in stages: " + nodeRef + " (" + nodeCount + " nodes)");
+        }
+        return nodeCount;
+    }
+
+    /**
+     * Delete a batch of hierarchies in one transaction
+     *
+     * @param nodeRefs              the top nodes of the hierarchies, mapped to their archived copies where
+     *                              they have already been archived on their own
+     * @return                      the number of nodes deleted
+     */
+    private long deleteHierarchies(final Map<NodeRef, NodeRef> nodeRefs, final boolean archive, final NodeRef archiveParentNodeRef)
+    {
+        if (nodeRefs.isEmpty())
+        {
+            return 0L;
+        }
+        return transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Long>()
+        {
+            @Override
+            public Long execute() throws Throwable
+            {
+                long nodeCount = 0L;
+                for (Map.Entry<NodeRef, NodeRef> entry : nodeRefs.entrySet())
+                {
+                    if (!nodeDAO.exists(entry.getKey()))
+                    {
+                        // Deleted in the meantime
+                        continue;
+                    }
+                    nodeCount += dbNodeService.deleteStagedNode(entry.getKey(), archive, archiveParentNodeRef, entry.getValue());
+                }
+                return nodeCount;
+            }
+        }, false, true);
+    }
+}
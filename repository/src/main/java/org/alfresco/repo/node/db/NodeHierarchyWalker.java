@@ -119,6 +119,25 @@ public class NodeHierarchyWalker
         walkNode(nodeId);
     }
     
+    /**
+     * Record a single node without walking down to its children or gathering its associations.
+     * This is enough for the node to be archived on its own.
+     * 
+     * @since 23.2
+     */
+    public void visitNode(Pair<Long, NodeRef> nodePair, Pair<Long, ChildAssociationRef> parentAssocPair)
+    {
+        Long nodeId = nodePair.getFirst();
+        NodeRef nodeRef = nodePair.getSecond();
+        QName nodeType = nodeDAO.getNodeType(nodeId);
+        Long nodeAclId = nodeDAO.getNodeAclId(nodeId);
+        VisitedNode visitedNode = new VisitedNode(nodeId, nodeRef, nodeType, nodeAclId, parentAssocPair);
+        nodesVisitedById.put(nodeId, visitedNode);
+        nodesVisitedByNodeRef.put(nodeRef, visitedNode);
+        nodesParentToLeaf.add(visitedNode);
+        nodesLeafToParent.add(visitedNode);
+    }
+    
     /**
      * Recursive method to gather data about nodes from the leafs upwards
      */
@@ -0,0 +1,518 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.node.db;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.TraceableThreadFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Purges rows by ID using several worker threads.  Each worker purges a disjoint range of IDs in a transaction
+ * of its own.
+ * <p/>
+ * The width of the ranges adapts to the database: it grows while ranges are purged quicker than the target time
+ * and shrinks when they are slower or when they fail.  A range that fails is split in two and retried.  Ranges
+ * that still fail at the minimum width are reported and left for the next pass.
+ * <p/>
+ * A pass covers the IDs that exist when it starts, with a fixed cut-off commit time.  The ID below which every
+ * range has been purged is checkpointed using the {@link AttributeService}.  An interrupted pass is carried on
+ * from the checkpoint, with the same cut-off time, the next time {@link #purge} is called.
+ *
+ * @since 23.2
+ */
+public class ParallelIdRangePurger
+{
+    static final String ATTR_KEY_CHECKPOINT = ".parallelIdRangePurger";
+    static final String ATTR_NEXT_ID = "nextId";
+    static final String ATTR_MAX_ID = "maxId";
+    static final String ATTR_MAX_COMMIT_TIME = "maxCommitTime";
+
+    private static Log logger = LogFactory.getLog(ParallelIdRangePurger.class);
+
+    /**
+     * Purges one range of IDs in the current transaction
+     */
+    public interface RangePurgeCallback
+    {
+        /**
+         * @param fromId            the first ID of the range (inclusive)
+         * @param toId              the last ID of the range (inclusive)
+         * @param maxCommitTime     the cut-off commit time of the pass
+         * @return                  the number of rows purged
+         */
+        int purge(long fromId, long toId, long maxCommitTime);
+    }
+
+    private final String name;
+    private final TransactionService transactionService;
+    private final AttributeService attributeService;
+    private int threadCount = 4;
+    private int rangeSize = 10000;
+    private int minRangeSize = 1000;
+    private int maxRangeSize = 1000000;
+    private long targetRangeTimeMs = 2000L;
+    private long lockRefreshIntervalMs = 10000L;
+
+    /**
+     * @param name              the name of the purge, used to keep its checkpoint apart from others
+     */
+    public ParallelIdRangePurger(String name, TransactionService transactionService, AttributeService attributeService)
+    {
+        this.name = name;
+        this.transactionService = transactionService;
+        this.attributeService = attributeService;
+    }
+
+    /**
+     * @param threadCount       the number of ranges purged at the same time
+     */
+    public void setThreadCount(int threadCount)
+    {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * @param rangeSize         the width of the first ranges
+     */
+    public void setRangeSize(int rangeSize)
+    {
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * @param minRangeSize      the narrowest range; ranges that fail at this width are not split further
+     */
+    public void setMinRangeSize(int minRangeSize)
+    {
+        this.minRangeSize = minRangeSize;
+    }
+
+    /**
+     * @param maxRangeSize      the widest range
+     */
+    public void setMaxRangeSize(int maxRangeSize)
+    {
+        this.maxRangeSize = maxRangeSize;
+    }
+
+    /**
+     * @param targetRangeTimeMs the time that purging a range should take
+     */
+    public void setTargetRangeTimeMs(long targetRangeTimeMs)
+    {
+        this.targetRangeTimeMs = targetRangeTimeMs;
+    }
+
+    /**
+     * @param lockRefreshIntervalMs the time between calls to refresh the caller's lock
+     */
+    public void setLockRefreshIntervalMs(long lockRefreshIntervalMs)
+    {
+        this.lockRefreshIntervalMs = lockRefreshIntervalMs;
+    }
+
+    /**
+     * Purge the given IDs or carry on with the pass that was interrupted, if there is one.
+     * This must not be called within a transaction.
+     *
+     * @param minId             the first ID of a new pass
+     * @param maxId             the last ID of a new pass
+     * @param maxCommitTime     the cut-off commit time of a new pass
+     * @param callback          purges each range
+     * @param refreshLock       called regularly while the workers run, to keep the caller's lock; it stops
+     *                          the purge by throwing an exception.  May be <tt>null</tt>.
+     * @return                  messages describing the purge
+     */
+    public List<String> purge(long minId, long maxId, long maxCommitTime, final RangePurgeCallback callback, Runnable refreshLock)
+    {
+        if (threadCount < 1 || minRangeSize < 1 || rangeSize < minRangeSize || maxRangeSize < rangeSize)
+        {
+            throw new IllegalArgumentException(
+                    "Invalid purge settings: threadCount=" + threadCount + ", rangeSize=" + rangeSize +
+                    ", minRangeSize=" + minRangeSize + ", maxRangeSize=" + maxRangeSize);
+        }
+        final List<String> results = new ArrayList<String>();
+
+        // Carry on from an interrupted pass, if there is one
+        long[] checkpoint = readCheckpoint();
+        long fromId = minId;
+        if (checkpoint != null)
+        {
+            fromId = checkpoint[0];
+            maxId = checkpoint[1];
+            maxCommitTime = checkpoint[2];
+            results.add("Resuming the purge of " + name + " from ID " + fromId);
+        }
+        else
+        {
+            writeCheckpoint(fromId, maxId, maxCommitTime);
+        }
+
+        final RangeAllocator allocator = new RangeAllocator(fromId, maxId, maxCommitTime);
+        TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+        threadFactory.setNamePrefix("ParallelIdRangePurger-" + name);
+        threadFactory.setThreadDaemon(true);
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount, threadFactory);
+        long startTime = System.currentTimeMillis();
+        try
+        {
+            String runAsUser = AuthenticationUtil.getRunAsUser();
+            for (int i = 0; i < threadCount; i++)
+            {
+                executorService.execute(new RangeWorker(allocator, callback, runAsUser));
+            }
+            executorService.shutdown();
+            while (!executorService.awaitTermination(lockRefreshIntervalMs, TimeUnit.MILLISECONDS))
+            {
+                if (refreshLock != null)
+                {
+                    refreshLock.run();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            allocator.stop();
+            results.add("Interrupted the purge of " + name + "; it will be resumed by the next run.");
+        }
+        catch (RuntimeException e)
+        {
+            // The lock was lost: let the workers finish their current ranges and leave the rest for the next run
+            allocator.stop();
+            awaitTermination(executorService);
+            throw e;
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+
+        if (allocator.isComplete())
+        {
+            transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+            {
+                @Override
+                public Void execute() throws Throwable
+                {
+                    attributeService.removeAttributes(ATTR_KEY_CHECKPOINT, name);
+                    return null;
+                }
+            }, false, true);
+        }
+        results.addAll(allocator.getErrors());
+        results.add(
+                "Purged " + name + " in parallel: \n" +
+                "   IDs:             " + fromId + " to " + maxId + "\n" +
+                "   Commit time before (ms): " + maxCommitTime + "\n" +
+                "   Purge count:     " + allocator.getPurgeCount() + "\n" +
+                "   Ranges:          " + allocator.getRangeCount() + "\n" +
+                "   Time (ms):       " + (System.currentTimeMillis() - startTime) + "\n" +
+                "   Complete:        " + allocator.isComplete());
+        return results;
+    }
+
+    private void awaitTermination(ExecutorService executorService)
+    {
+        try
+        {
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return                  the next ID, last ID and cut-off time of the interrupted pass or <tt>null</tt>
+     */
+    private long[] readCheckpoint()
+    {
+        return transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<long[]>()
+        {
+            @Override
+            public long[] execute() throws Throwable
+            {
+                Long nextId = (Long) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, name, ATTR_NEXT_ID);
+                Long maxId = (Long) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, name, ATTR_MAX_ID);
+                Long maxCommitTime = (Long) attributeService.getAttribute(ATTR_KEY_CHECKPOINT, name, ATTR_MAX_COMMIT_TIME);
+                if (nextId == null || maxId == null || maxCommitTime == null)
+                {
+                    return null;
+                }
+                return new long[] {nextId, maxId, maxCommitTime};
+            }
+        }, true, true);
+    }
+
+    private void writeCheckpoint(final long nextId, final long maxId, final long maxCommitTime)
+    {
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                attributeService.setAttribute(nextId, ATTR_KEY_CHECKPOINT, name, ATTR_NEXT_ID);
+                attributeService.setAttribute(maxId, ATTR_KEY_CHECKPOINT, name, ATTR_MAX_ID);
+                attributeService.setAttribute(maxCommitTime, ATTR_KEY_CHECKPOINT, name, ATTR_MAX_COMMIT_TIME);
+                return null;
+            }
+        }, false, true);
+    }
+
+    private void writeCheckpoint(final long nextId)
+    {
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                attributeService.setAttribute(nextId, ATTR_KEY_CHECKPOINT, name, ATTR_NEXT_ID);
+                return null;
+            }
+        }, false, true);
+    }
+
+    /**
+     * Hands out the ranges, sizes them and keeps track of the checkpoint
+     */
+    private class RangeAllocator
+    {
+        private final long maxId;
+        private final long maxCommitTime;
+        private long nextId;
+        private long width;
+        private long checkpointId;
+        private boolean stopped;
+        private long purgeCount;
+        private int rangeCount;
+        private final TreeSet<Long> rangesInProgress = new TreeSet<Long>();
+        private final Deque<long[]> rangesToRetry = new ArrayDeque<long[]>();
+        private final List<String> errors = new ArrayList<String>();
+
+        private RangeAllocator(long fromId, long maxId, long maxCommitTime)
+        {
+            this.nextId = fromId;
+            this.maxId = maxId;
+            this.maxCommitTime = maxCommitTime;
+            this.width = rangeSize;
+            this.checkpointId = fromId;
+        }
+
+        /**
+         * @return                  the next range to purge or <tt>null</tt> if there are no more
+         */
+        private synchronized long[] next()
+        {
+            if (stopped)
+            {
+                return null;
+            }
+            long[] range = rangesToRetry.poll();
+            if (range == null)
+            {
+                if (nextId > maxId)
+                {
+                    return null;
+                }
+                range = new long[] {nextId, Math.min(maxId, nextId + width - 1)};
+                nextId = range[1] + 1;
+            }
+            rangesInProgress.add(range[0]);
+            return range;
+        }
+
+        private synchronized void done(long[] range, int purged, long timeMs)
+        {
+            rangesInProgress.remove(range[0]);
+            purgeCount += purged;
+            rangeCount++;
+            // Aim for the target time, changing the width by no more than a factor of two at a time
+            double factor = (double) targetRangeTimeMs / Math.max(1L, timeMs);
+            factor = Math.max(0.5, Math.min(2.0, factor));
+            width = Math.max(minRangeSize, Math.min(maxRangeSize, (long) (width * factor)));
+            updateCheckpoint();
+        }
+
+        private synchronized void failed(long[] range, Throwable e)
+        {
+            rangesInProgress.remove(range[0]);
+            width = Math.max(minRangeSize, width / 2);
+            long size = range[1] - range[0] + 1;
+            if (size > minRangeSize)
+            {
+                // Retry the range in two halves
+                long middle = range[0] + size / 2;
+                rangesToRetry.add(new long[] {range[0], middle - 1});
+                rangesToRetry.add(new long[] {middle, range[1]});
+            }
+            else
+            {
+                String msg =
+                    "Failed to purge " + name + ": \n" +
+                    "   IDs:             " + range[0] + " to " + range[1] + "\n" +
+                    "   Error:           " + e.getMessage();
+                logger.warn(msg, e);
+                errors.add(msg);
+            }
+            updateCheckpoint();
+        }
+
+        /**
+         * Record the ID below which all the ranges have been handled, if it has moved on
+         */
+        private void updateCheckpoint()
+        {
+            long lowestId = nextId;
+            if (!rangesInProgress.isEmpty())
+            {
+                lowestId = Math.min(lowestId, rangesInProgress.first());
+            }
+            for (long[] range : rangesToRetry)
+            {
+                lowestId = Math.min(lowestId, range[0]);
+            }
+            if (lowestId > checkpointId)
+            {
+                writeCheckpoint(lowestId);
+                checkpointId = lowestId;
+            }
+        }
+
+        private synchronized void stop()
+        {
+            stopped = true;
+        }
+
+        private synchronized boolean isComplete()
+        {
+            return !stopped && nextId > maxId && rangesInProgress.isEmpty() && rangesToRetry.isEmpty();
+        }
+
+        private synchronized long getPurgeCount()
+        {
+            return purgeCount;
+        }
+
+        private synchronized int getRangeCount()
+        {
+            return rangeCount;
+        }
+
+        private synchronized List<String> getErrors()
+        {
+            return Collections.unmodifiableList(new ArrayList<String>(errors));
+        }
+    }
+
+    /**
+     * Purges ranges until there are none left
+     */
+    private class RangeWorker implements Runnable
+    {
+        private final RangeAllocator allocator;
+        private final RangePurgeCallback callback;
+        private final String runAsUser;
+
+        private RangeWorker(RangeAllocator allocator, RangePurgeCallback callback, String runAsUser)
+        {
+            this.allocator = allocator;
+            this.callback = callback;
+            this.runAsUser = runAsUser;
+        }
+
+        @Override
+        public void run()
+        {
+            if (runAsUser == null)
+            {
+                purgeRanges();
+                return;
+            }
+            AuthenticationUtil.runAs(new RunAsWork<Void>()
+            {
+                @Override
+                public Void doWork() throws Exception
+                {
+                    purgeRanges();
+                    return null;
+                }
+            }, runAsUser);
+        }
+
+        private void purgeRanges()
+        {
+            RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+            txnHelper.setMaxRetries(5);                             // Limit number of retries
+            txnHelper.setRetryWaitIncrementMs(1000);                // 1 second to allow other cleanups time to get through
+            long[] range;
+            while ((range = allocator.next()) != null)
+            {
+                final long fromId = range[0];
+                final long toId = range[1];
+                long startTime = System.currentTimeMillis();
+                try
+                {
+                    int purged = txnHelper.doInTransaction(new RetryingTransactionCallback<Integer>()
+                    {
+                        @Override
+                        public Integer execute() throws Throwable
+                        {
+                            return callback.purge(fromId, toId, allocator.maxCommitTime);
+                        }
+                    }, false, true);
+                    long timeMs = System.currentTimeMillis() - startTime;
+                    if (logger.isTraceEnabled())
+                    {
+                        logger.trace("Purged " + name + " IDs " + fromId + " to " + toId + ": " + purged + " rows in " + timeMs + "ms");
+                    }
+                    allocator.done(range, purged, timeMs);
+                }
+                catch (Throwable e)
+                {
+                    allocator.failed(range, e);
+                }
+            }
+        }
+    }
+}
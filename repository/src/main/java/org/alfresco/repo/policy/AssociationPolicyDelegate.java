@@ -59,7 +59,7 @@ public class AssociationPolicyDelegate<P extends AssociationPolicy>
      * @param index  the behaviour index to query against
      */
     @SuppressWarnings("unchecked") 
-    /*package*/ AssociationPolicyDelegate(DictionaryService dictionary, Class<P> policyClass, BehaviourIndex<ClassFeatureBehaviourBinding> index, long tryLockTimeout)
+    /*package*/ AssociationPolicyDelegate(DictionaryService dictionary, Class<P> policyClass, BehaviourIndex<ClassFeatureBehaviourBinding> index)
     {
         // Get list of all pre-registered behaviours for the policy and
         // ensure they are valid.
@@ -72,7 +72,6 @@ public class AssociationPolicyDelegate<P extends AssociationPolicy>
         // Rely on cached implementation of policy factory
         // Note: Could also use PolicyFactory (without caching)
         this.factory = new CachedPolicyFactory<ClassFeatureBehaviourBinding, P>(policyClass, index);
-        this.factory.setTryLockTimeout(tryLockTimeout);
         this.dictionary = dictionary;
     }
     
@@ -25,20 +25,23 @@
  */
 package org.alfresco.repo.policy;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.alfresco.api.AlfrescoPublicApi;
-import org.alfresco.util.LockHelper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 
 /**
  * Policy Factory with caching support.
+ * <p>
+ * The behaviours of each binding are resolved once, with the class behaviours both enabled and
+ * disabled by the behaviour filter, and kept until the bound behaviours or the dictionary change.
+ * Looking up a policy then takes no lock, and an active behaviour filter only has to decide which
+ * of the two resolutions applies.
  *
  * @author David Caruana
  *
@@ -54,26 +57,25 @@ public class CachedPolicyFactory<B extends BehaviourBinding, P extends Policy> e
     // Behaviour Filter
     private BehaviourFilter behaviourFilter = null;
     
-    // Cache Lock
-    private ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); 
+    // Class Behaviour Index, if the index can resolve behaviours regardless of the filter
+    private ClassBehaviourIndex<?> classIndex = null;
 
     /**
-     * Cache for a single Policy interface (keyed by Binding)
+     * Cache of resolved Policy interfaces (keyed by Binding)
      */
-    private Map<B, P> singleCache = new HashMap<B, P>();
+    private final ConcurrentMap<B, ResolvedPolicies<P>> cache = new ConcurrentHashMap<B, ResolvedPolicies<P>>();
     
-    /**
-     * Cache for a collection of Policy interfaces (keyed by Binding)
-     */
-    private Map<B, Collection<P>> listCache = new HashMap<B, Collection<P>>();
-
-    // Try lock timeout (MNT-11371)
-    private long tryLockTimeout;
+    // Incremented whenever the cache is cleared, so that policies resolved meanwhile are not kept
+    private final AtomicLong generation = new AtomicLong();
 
 
+    /**
+     * @param tryLockTimeout  ignored
+     * @deprecated the cache takes no lock, so there is no timeout to set
+     */
+    @Deprecated
     public void setTryLockTimeout(long tryLockTimeout)
     {
-        this.tryLockTimeout = tryLockTimeout;
     }
 
 
@@ -87,6 +89,10 @@ public class CachedPolicyFactory<B extends BehaviourBinding, P extends Policy> e
     {
         super(policyClass, index);
         behaviourFilter = index.getFilter();
+        if (index instanceof ClassBehaviourIndex)
+        {
+            classIndex = (ClassBehaviourIndex<?>) index;
+        }
 
         // Register this cached policy factory as a change observer of the behaviour index
         // to allow for cache to be cleared appropriately.
@@ -94,14 +100,12 @@ public class CachedPolicyFactory<B extends BehaviourBinding, P extends Policy> e
         {
             public void addition(B binding, Behaviour behaviour)
             {
-                clearCache("aggregate delegate", singleCache, binding);
-                clearCache("delegate collection", listCache, binding);
+                clearCache(binding);
             }
 
             public void removal(B binding, Behaviour behaviour)
             {
-                clearCache("aggregate delegate", singleCache, binding);
-                clearCache("delegate collection", listCache, binding);
+                clearCache(binding);
             }
         });
     }
@@ -110,161 +114,157 @@ public class CachedPolicyFactory<B extends BehaviourBinding, P extends Policy> e
     @Override
     public P create(B binding)
     {
-        // When behaviour filters are activated bypass the cache 
-        if (behaviourFilter != null && behaviourFilter.isActivated())
+        boolean filtered = behaviourFilter != null && behaviourFilter.isActivated();
+        if (filtered && classIndex == null)
         {
+            // Only the index knows how to apply the filter, so bypass the cache 
             return super.create(binding);
         }
         
-        LockHelper.tryLock(lock.readLock(), tryLockTimeout, "getting policy from cache in 'CachedPolicyFactory.create()'");
-        try
-        {
-            P policyInterface = singleCache.get(binding);
-            if (policyInterface != null)
-            {
-                return policyInterface;
-            }
-        }
-        finally
-        {
-            lock.readLock().unlock();
-        }
-        
-        // There wasn't one
-        LockHelper.tryLock(lock.writeLock(), tryLockTimeout, "putting new policy to cache in 'CachedPolicyFactory.create()'");
-        try
-        {
-            P policyInterface = singleCache.get(binding);
-            if (policyInterface != null)
-            {
-                return policyInterface;
-            }
-            policyInterface = super.create(binding);
-            singleCache.put(binding, policyInterface);
-            
-            if (logger.isDebugEnabled())
-                logger.debug("Cached delegate interface " + policyInterface + " for " + binding + " and policy " + getPolicyClass());
-            
-            return policyInterface;
-        }
-        finally
-        {
-            lock.writeLock().unlock();
-        }
+        ResolvedPolicies<P> policies = getResolvedPolicies(binding);
+        return (!filtered || isEnabled(binding)) ? policies.policy : policies.disabledPolicy;
     }
     
 
     @Override
     public Collection<P> createList(B binding)
     {
-        // When behaviour filters are activated bypass the cache 
-        if (behaviourFilter != null && behaviourFilter.isActivated())
+        boolean filtered = behaviourFilter != null && behaviourFilter.isActivated();
+        if (filtered && classIndex == null)
         {
+            // Only the index knows how to apply the filter, so bypass the cache 
             return super.createList(binding);
         }
         
-        LockHelper.tryLock(lock.readLock(), tryLockTimeout, "getting policy list from cache in 'CachedPolicyFactory.createList()'");
-        try
+        ResolvedPolicies<P> policies = getResolvedPolicies(binding);
+        return (!filtered || isEnabled(binding)) ? policies.policyList : policies.disabledPolicyList;
+    }
+    
+    /**
+     * Gets the resolved policies of a binding, resolving them if they are not cached.
+     * 
+     * @param binding  the binding
+     * @return  the resolved policies
+     */
+    private ResolvedPolicies<P> getResolvedPolicies(B binding)
+    {
+        ResolvedPolicies<P> policies = cache.get(binding);
+        if (policies != null)
         {
-            Collection<P> policyInterfaces = listCache.get(binding);
-            if (policyInterfaces != null)
-            {
-                return policyInterfaces;
-            }
+            return policies;
         }
-        finally
+        
+        // There wasn't one.  Resolve it outside of the cache, as the index may be changing.
+        long resolvedGeneration = generation.get();
+        policies = resolve(binding);
+        ResolvedPolicies<P> existing = cache.putIfAbsent(binding, policies);
+        if (existing != null)
         {
-            lock.readLock().unlock();
+            return existing;
         }
-        
-        // There wasn't one
-        LockHelper.tryLock(lock.writeLock(), tryLockTimeout, "putting policy list to cache in 'CachedPolicyFactory.createList()'");
-        try
+        if (generation.get() != resolvedGeneration)
         {
-            Collection<P> policyInterfaces = listCache.get(binding);
-            if (policyInterfaces != null)
-            {
-                return policyInterfaces;
-            }
-            policyInterfaces = super.createList(binding);
-            listCache.put(binding, policyInterfaces);
-    
-            if (logger.isDebugEnabled())
-                logger.debug("Cached delegate interface collection " + policyInterfaces + " for " + binding + " and policy " + getPolicyClass());
-            
-            return policyInterfaces;
+            // The cache was cleared while resolving, so the policies may be out of date
+            cache.remove(binding, policies);
         }
-        finally
+        else if (logger.isDebugEnabled())
         {
-            lock.writeLock().unlock();
+            logger.debug("Cached delegate interfaces " + policies.policyList + " for " + binding + " and policy " + getPolicyClass());
         }
+        return policies;
     }
     
     /**
-     * Clear entries in the cache based on binding changes.
+     * Resolves the policies of a binding, with the class behaviours enabled and disabled.
      * 
-     * @param cacheDescription  description of cache to clear
-     * @param cache  the cache to clear
      * @param binding  the binding
+     * @return  the resolved policies
      */
-    private void clearCache(String cacheDescription, Map<B, ?> cache, B binding)
+    private ResolvedPolicies<P> resolve(B binding)
     {
+        if (classIndex == null)
+        {
+            Collection<P> policyList = super.createList(binding);
+            return new ResolvedPolicies<P>(policyList, toPolicy(policyList), null, null);
+        }
+        Collection<P> policyList = toPolicyList(find(binding, true));
+        Collection<P> disabledPolicyList = toPolicyList(find(binding, false));
+        return new ResolvedPolicies<P>(policyList, toPolicy(policyList), disabledPolicyList, toPolicy(disabledPolicyList));
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Collection<BehaviourDefinition> find(B binding, boolean enabled)
+    {
+        return ((ClassBehaviourIndex) classIndex).find((ClassBehaviourBinding) binding, enabled);
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private boolean isEnabled(B binding)
+    {
+        return ((ClassBehaviourIndex) classIndex).isEnabled((ClassBehaviourBinding) binding);
+    }
+    
+    /**
+     * Clear entries in the cache based on binding changes.
+     * 
+     * @param binding  the changed binding or <tt>null</tt> to clear all entries
+     */
+    private void clearCache(B binding)
+    {
+        generation.incrementAndGet();
+        if (cache.isEmpty())
+        {
+            return;
+        }
         if (binding == null)
         {
-            LockHelper.tryLock(lock.writeLock(), tryLockTimeout, "clearing policy cache in 'CachedPolicyFactory.clearCache()'");
-            try
-            {
-                // A specific binding has not been provided, so clear all entries
-                cache.clear();
-                
-                if (logger.isDebugEnabled() && cache.isEmpty() == false)
-                    logger.debug("Cleared " + cacheDescription + " cache (all class bindings) for policy " + getPolicyClass());
-            }
-            finally
-            {
-                lock.writeLock().unlock();
-            }
+            // A specific binding has not been provided, so clear all entries
+            cache.clear();
+            
+            if (logger.isDebugEnabled())
+                logger.debug("Cleared delegate cache (all class bindings) for policy " + getPolicyClass());
+            
+            return;
         }
-        else
+        
+        // A specific binding has been provided.  An entry is removed if the binding
+        // in the cache is equal or derived from the changed binding. 
+        for (B cachedBinding : cache.keySet())
         {
-            // A specific binding has been provided.  Build a list of entries
-            // that require removal.  An entry is removed if the binding in the
-            // list is equal or derived from the changed binding. 
-            Collection<B> invalidBindings = new ArrayList<B>();
-            for (B cachedBinding : cache.keySet())
-            {
-                // Determine if binding is equal or derived from changed binding
-                BehaviourBinding generalisedBinding = cachedBinding;
-                while(generalisedBinding != null)
-                {
-                    if (generalisedBinding.equals(binding))
-                    {
-                        invalidBindings.add(cachedBinding);
-                        break;
-                    }
-                    generalisedBinding = generalisedBinding.generaliseBinding();
-                }
-            }
-
-            // Remove all invalid bindings
-            if (invalidBindings.size() > 0)
+            // Determine if binding is equal or derived from changed binding
+            BehaviourBinding generalisedBinding = cachedBinding;
+            while(generalisedBinding != null)
             {
-                LockHelper.tryLock(lock.writeLock(), tryLockTimeout, "removing invalid policy bindings from cache in 'CachedPolicyFactory.clearCache()'");
-                try
+                if (generalisedBinding.equals(binding))
                 {
-                    for (B invalidBinding : invalidBindings)
-                    {
-                        cache.remove(invalidBinding);
-                        
-                        if (logger.isDebugEnabled())
-                            logger.debug("Cleared " + cacheDescription + " cache for " + invalidBinding + " and policy " + getPolicyClass());
-                    }
-                }
-                finally
-                {
-                    lock.writeLock().unlock();
+                    cache.remove(cachedBinding);
+                    
+                    if (logger.isDebugEnabled())
+                        logger.debug("Cleared delegate cache for " + cachedBinding + " and policy " + getPolicyClass());
+                    
+                    break;
                 }
+                generalisedBinding = generalisedBinding.generaliseBinding();
             }
         }
     }
+    
+    /**
+     * The policies of a binding, with the class behaviours enabled and disabled by the behaviour filter.
+     */
+    private static class ResolvedPolicies<P>
+    {
+        private final Collection<P> policyList;
+        private final P policy;
+        private final Collection<P> disabledPolicyList;
+        private final P disabledPolicy;
+        
+        private ResolvedPolicies(Collection<P> policyList, P policy, Collection<P> disabledPolicyList, P disabledPolicy)
+        {
+            this.policyList = policyList;
+            this.policy = policy;
+            this.disabledPolicyList = disabledPolicyList;
+            this.disabledPolicy = disabledPolicy;
+        }
+    }
 }
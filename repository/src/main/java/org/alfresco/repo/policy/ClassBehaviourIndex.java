@@ -159,8 +159,21 @@ import org.alfresco.util.LockHelper;
     
 
     @Override
-    @SuppressWarnings("unchecked")
     public Collection<BehaviourDefinition> find(B binding)
+    {
+        return find(binding, isEnabled(binding));
+    }
+    
+    /**
+     * Gets the behaviours bound to the binding, as {@link #find(ClassBehaviourBinding)} does when the class
+     * behaviours are enabled, or disabled, by the behaviour filter
+     * 
+     * @param binding  the binding
+     * @param enabled  <tt>true</tt> to include the class behaviours, <tt>false</tt> for the service behaviours only
+     * @return  the associated behaviours
+     */
+    @SuppressWarnings("unchecked")
+    /*package*/ Collection<BehaviourDefinition> find(B binding, boolean enabled)
     {
         LockHelper.tryLock(lock.readLock(), tryLockTimeout, "searching behavior definitions list in 'ClassBehaviourIndex.find()'");
         
@@ -171,7 +184,7 @@ import org.alfresco.util.LockHelper;
             // Find class behaviour by scanning up the class hierarchy
             List<BehaviourDefinition<B>> behaviour = null;
 
-            if (isEnabled(binding))
+            if (enabled)
             {
                 while (binding != null)
                 {
@@ -263,7 +276,25 @@ import org.alfresco.util.LockHelper;
         }
     }
 
-    private boolean isEnabled(B binding)
+    /**
+     * Invalidates everything derived from the class hierarchy, such as cached policy dispatch
+     * tables, following a change to the dictionary
+     */
+    public void dictionaryChanged()
+    {
+        for (BehaviourChangeObserver<B> listener : observers)
+        {
+            listener.removal(null, null);
+        }
+    }
+
+    /**
+     * Determines whether the behaviour filter enables the class behaviours of the binding
+     * 
+     * @param binding  the binding
+     * @return  <tt>true</tt> if the class behaviours are enabled
+     */
+    /*package*/ boolean isEnabled(B binding)
     {
         // Determine if behaviour has been disabled
         boolean isEnabled = true;
@@ -58,7 +58,7 @@ public class ClassPolicyDelegate<P extends ClassPolicy>
      * @param index  the behaviour index to query against
      */
     @SuppressWarnings("unchecked")
-    /*package*/ ClassPolicyDelegate(DictionaryService dictionary, Class<P> policyClass, BehaviourIndex<ClassBehaviourBinding> index, long tryLockTimeout)
+    /*package*/ ClassPolicyDelegate(DictionaryService dictionary, Class<P> policyClass, BehaviourIndex<ClassBehaviourBinding> index)
     {
         // Get list of all pre-registered behaviours for the policy and
         // ensure they are valid.
@@ -71,7 +71,6 @@ public class ClassPolicyDelegate<P extends ClassPolicy>
         // Rely on cached implementation of policy factory
         // Note: Could also use PolicyFactory (without caching)
         this.factory = new CachedPolicyFactory<ClassBehaviourBinding, P>(policyClass, index);
-        this.factory.setTryLockTimeout(tryLockTimeout);
         this.dictionary = dictionary;
     }
     
@@ -27,11 +27,14 @@ package org.alfresco.repo.policy;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.alfresco.repo.dictionary.DictionaryDAO;
+import org.alfresco.repo.dictionary.DictionaryListener;
 import org.alfresco.repo.policy.Policy.Arg;
 import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.service.cmr.dictionary.AssociationDefinition;
@@ -51,7 +54,7 @@ import org.apache.commons.logging.LogFactory;
  * @author David Caruana
  *
  */
-public class PolicyComponentImpl implements PolicyComponent
+public class PolicyComponentImpl implements PolicyComponent, DictionaryListener
 {
     // Logger
     private static final Log logger = LogFactory.getLog(PolicyComponentImpl.class);
@@ -81,7 +84,7 @@ public class PolicyComponentImpl implements PolicyComponent
     // Wild Card Feature
     private static final QName FEATURE_WILDCARD = QName.createQName(NamespaceService.DEFAULT_URI, "*"); 
 
-    // Try lock timeout (MNT-11371)
+    // Try lock timeout of the behaviour indexes (MNT-11371)
     private long tryLockTimeout;
 
 
@@ -112,6 +115,16 @@ public class PolicyComponentImpl implements PolicyComponent
         this.behaviourFilter = filter;
     }
     
+    /**
+     * Sets the dictionary DAO, so that cached policy dispatch tables are rebuilt when the models change
+     * 
+     * @param dictionaryDAO DictionaryDAO
+     */
+    public void setDictionaryDAO(DictionaryDAO dictionaryDAO)
+    {
+        dictionaryDAO.registerListener(this);
+    }
+    
     /**
      * Sets the tenant service
      * 
@@ -143,7 +156,7 @@ public class PolicyComponentImpl implements PolicyComponent
         ParameterCheck.mandatory("Policy interface class", policy);
         PolicyDefinition definition = createPolicyDefinition(policy);
         registeredPolicies.put(new PolicyKey(definition.getType(), definition.getName()), definition);
-        ClassPolicyDelegate<P> delegate = new ClassPolicyDelegate<P>(dictionary, policy, getClassBehaviourIndex(definition.getName()), tryLockTimeout);
+        ClassPolicyDelegate<P> delegate = new ClassPolicyDelegate<P>(dictionary, policy, getClassBehaviourIndex(definition.getName()));
         
         
         if (logger.isInfoEnabled())
@@ -167,7 +180,7 @@ public class PolicyComponentImpl implements PolicyComponent
         ParameterCheck.mandatory("Policy interface class", policy);
         PolicyDefinition definition = createPolicyDefinition(policy);
         registeredPolicies.put(new PolicyKey(definition.getType(), definition.getName()), definition);
-        PropertyPolicyDelegate<P> delegate = new PropertyPolicyDelegate<P>(dictionary, policy, getPropertyBehaviourIndex(definition.getName()), tryLockTimeout);
+        PropertyPolicyDelegate<P> delegate = new PropertyPolicyDelegate<P>(dictionary, policy, getPropertyBehaviourIndex(definition.getName()));
         
         if (logger.isInfoEnabled())
             logger.info("Registered property policy " + definition.getName() + " (" + definition.getPolicyInterface() + ")");
@@ -185,7 +198,7 @@ public class PolicyComponentImpl implements PolicyComponent
         ParameterCheck.mandatory("Policy interface class", policy);
         PolicyDefinition definition = createPolicyDefinition(policy);
         registeredPolicies.put(new PolicyKey(definition.getType(), definition.getName()), definition);
-        AssociationPolicyDelegate<P> delegate = new AssociationPolicyDelegate<P>(dictionary, policy, getAssociationBehaviourIndex(definition.getName()), tryLockTimeout);
+        AssociationPolicyDelegate<P> delegate = new AssociationPolicyDelegate<P>(dictionary, policy, getAssociationBehaviourIndex(definition.getName()));
         
         if (logger.isInfoEnabled())
             logger.info("Registered association policy " + definition.getName() + " (" + definition.getPolicyInterface() + ")");
@@ -434,6 +447,36 @@ public class PolicyComponentImpl implements PolicyComponent
     }
     
     
+    @Override
+    public void onDictionaryInit()
+    {
+    }
+
+    @Override
+    public void afterDictionaryInit()
+    {
+        // The class hierarchy may have changed, so discard all the cached policy dispatch tables
+        for (ClassBehaviourIndex<?> index : getBehaviourIndexes())
+        {
+            index.dictionaryChanged();
+        }
+    }
+
+    @Override
+    public void afterDictionaryDestroy()
+    {
+    }
+
+    private synchronized Collection<ClassBehaviourIndex<?>> getBehaviourIndexes()
+    {
+        Collection<ClassBehaviourIndex<?>> indexes = new ArrayList<ClassBehaviourIndex<?>>(
+                classBehaviours.size() + propertyBehaviours.size() + associationBehaviours.size());
+        indexes.addAll(classBehaviours.values());
+        indexes.addAll(propertyBehaviours.values());
+        indexes.addAll(associationBehaviours.values());
+        return indexes;
+    }
+
     /**
      * Gets the Class behaviour index for the specified Policy
      * 
@@ -132,10 +132,21 @@ import org.alfresco.service.cmr.repository.StoreRef;
      * @param binding  the binding
      * @return  the collection of policy implementations
      */
-    @SuppressWarnings("unchecked")
     public Collection<P> createList(B binding)
     {
-        Collection<BehaviourDefinition> behaviourDefs = index.find(binding);
+        return toPolicyList(index.find(binding));
+    }
+    
+    
+    /**
+     * Construct a collection of Policy implementations for the specified behaviours
+     * 
+     * @param behaviourDefs  the behaviours
+     * @return  the collection of policy implementations
+     */
+    @SuppressWarnings("unchecked")
+    protected Collection<P> toPolicyList(Collection<BehaviourDefinition> behaviourDefs)
+    {
         List<P> policyInterfaces = new ArrayList<P>(behaviourDefs.size());
         for (BehaviourDefinition behaviourDef : behaviourDefs)
         {
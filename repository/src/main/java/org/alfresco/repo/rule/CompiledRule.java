@@ -0,0 +1,223 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.rule;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.alfresco.repo.action.ActionConditionImpl;
+import org.alfresco.repo.action.RuntimeActionService;
+import org.alfresco.repo.action.evaluator.ActionConditionEvaluator;
+import org.alfresco.service.cmr.action.Action;
+import org.alfresco.service.cmr.action.ActionCondition;
+import org.alfresco.service.cmr.action.CompositeActionCondition;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.rule.Rule;
+
+/**
+ * Immutable, compiled form of the conditions of a {@link Rule}.
+ * <p>
+ * The evaluators of the conditions are resolved and the conditions are copied when the rule is compiled,
+ * so that evaluating the rule against each node it is applied to no longer looks anything up.  The result
+ * is the same as {@link org.alfresco.service.cmr.action.ActionService#evaluateAction(Action, NodeRef)}
+ * for the rule's action as it was when the rule was compiled.
+ *
+ * @since 23.2
+ */
+public final class CompiledRule
+{
+    private final Rule rule;
+    private final List<ConditionEvaluator> conditions;
+
+    private CompiledRule(Rule rule, List<ConditionEvaluator> conditions)
+    {
+        this.rule = rule;
+        this.conditions = conditions;
+    }
+
+    /**
+     * Compile a rule
+     *
+     * @param rule                  the rule to compile
+     * @param runtimeActionService  used to resolve the condition evaluators
+     * @return                      the compiled rule or <tt>null</tt> if the rule has no action or one of
+     *                              its conditions has no evaluator, leaving it to the action service
+     */
+    public static CompiledRule compile(Rule rule, RuntimeActionService runtimeActionService)
+    {
+        Action action = rule.getAction();
+        if (action == null)
+        {
+            return null;
+        }
+        List<ConditionEvaluator> conditions = new ArrayList<ConditionEvaluator>();
+        if (action.hasActionConditions())
+        {
+            for (ActionCondition condition : action.getActionConditions())
+            {
+                ConditionEvaluator evaluator;
+                if (condition instanceof CompositeActionCondition)
+                {
+                    evaluator = compileComposite((CompositeActionCondition) condition, runtimeActionService);
+                }
+                else
+                {
+                    evaluator = compileSimple(condition, runtimeActionService);
+                }
+                if (evaluator == null)
+                {
+                    return null;
+                }
+                conditions.add(evaluator);
+            }
+        }
+        return new CompiledRule(rule, Collections.unmodifiableList(conditions));
+    }
+
+    private static ConditionEvaluator compileComposite(CompositeActionCondition condition, RuntimeActionService runtimeActionService)
+    {
+        List<ConditionEvaluator> subconditions = new ArrayList<ConditionEvaluator>();
+        if (condition.hasActionConditions())
+        {
+            for (ActionCondition subcondition : condition.getActionConditions())
+            {
+                // Composite conditions only hold simple conditions
+                ConditionEvaluator evaluator = compileSimple(subcondition, runtimeActionService);
+                if (evaluator == null)
+                {
+                    return null;
+                }
+                subconditions.add(evaluator);
+            }
+        }
+        return new CompositeConditionEvaluator(
+                Collections.unmodifiableList(subconditions),
+                condition.isORCondition(),
+                condition.getInvertCondition());
+    }
+
+    private static ConditionEvaluator compileSimple(ActionCondition condition, RuntimeActionService runtimeActionService)
+    {
+        ActionConditionEvaluator evaluator = runtimeActionService.getActionConditionEvaluator(condition.getActionConditionDefinitionName());
+        if (evaluator == null)
+        {
+            return null;
+        }
+        // Take a private copy so that later changes to the rule's condition are not seen
+        ActionConditionImpl conditionCopy = new ActionConditionImpl(
+                condition.getId(),
+                condition.getActionConditionDefinitionName(),
+                new HashMap<String, Serializable>(condition.getParameterValues()));
+        conditionCopy.setInvertCondition(condition.getInvertCondition());
+        return new SimpleConditionEvaluator(evaluator, conditionCopy);
+    }
+
+    /**
+     * @return              the rule that was compiled
+     */
+    public Rule getRule()
+    {
+        return rule;
+    }
+
+    /**
+     * Evaluate the conditions of the rule
+     *
+     * @param actionedUponNodeRef   the node the rule is applied to
+     * @return                      <tt>true</tt> if all the conditions are met
+     */
+    public boolean evaluate(NodeRef actionedUponNodeRef)
+    {
+        for (ConditionEvaluator condition : conditions)
+        {
+            if (!condition.evaluate(actionedUponNodeRef))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private interface ConditionEvaluator
+    {
+        boolean evaluate(NodeRef actionedUponNodeRef);
+    }
+
+    private static final class SimpleConditionEvaluator implements ConditionEvaluator
+    {
+        private final ActionConditionEvaluator evaluator;
+        private final ActionCondition condition;
+
+        private SimpleConditionEvaluator(ActionConditionEvaluator evaluator, ActionCondition condition)
+        {
+            this.evaluator = evaluator;
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean evaluate(NodeRef actionedUponNodeRef)
+        {
+            return evaluator.evaluate(condition, actionedUponNodeRef);
+        }
+    }
+
+    private static final class CompositeConditionEvaluator implements ConditionEvaluator
+    {
+        private final List<ConditionEvaluator> subconditions;
+        private final boolean orCondition;
+        private final boolean invertCondition;
+
+        private CompositeConditionEvaluator(List<ConditionEvaluator> subconditions, boolean orCondition, boolean invertCondition)
+        {
+            this.subconditions = subconditions;
+            this.orCondition = orCondition;
+            this.invertCondition = invertCondition;
+        }
+
+        @Override
+        public boolean evaluate(NodeRef actionedUponNodeRef)
+        {
+            if (subconditions.isEmpty())
+            {
+                throw new IllegalStateException("CompositeActionCondition has no subconditions.");
+            }
+            // Short circuit on the first result that decides the outcome
+            boolean result = !orCondition;
+            for (ConditionEvaluator subcondition : subconditions)
+            {
+                if (subcondition.evaluate(actionedUponNodeRef) == orCondition)
+                {
+                    result = orCondition;
+                    break;
+                }
+            }
+            return invertCondition ? !result : result;
+        }
+    }
+}
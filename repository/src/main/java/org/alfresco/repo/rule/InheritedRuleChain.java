@@ -0,0 +1,99 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.rule;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+
+/**
+ * Immutable, flattened chain of the nodes a node inherits rules from, as kept in the shared inherited
+ * rules cache of the {@link RuleServiceImpl}.
+ * <p>
+ * The chain only holds the nodes that supply the rules, in inheritance order; the rules themselves are
+ * read through the node rules cache, so that changes to a rule folder are seen straight away.  Each node
+ * looked at to build the chain is recorded with the transaction that last changed it.  Moving, linking,
+ * unlinking or deleting any of them, or changing its aspects, brings it into a new transaction and so
+ * invalidates the chain of the node and of all its descendants without any behaviour having to be bound.
+ *
+ * @since 23.2
+ */
+final class InheritedRuleChain implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final List<NodeRef> supplyingNodeRefs;
+    private final Map<NodeRef, String> changeTxnIds;
+
+    /**
+     * @param supplyingNodeRefs  the nodes supplying the inherited rules, in inheritance order
+     * @param changeTxnIds       the transaction that last changed each node looked at to build the chain
+     */
+    InheritedRuleChain(List<NodeRef> supplyingNodeRefs, Map<NodeRef, String> changeTxnIds)
+    {
+        this.supplyingNodeRefs = Collections.unmodifiableList(new ArrayList<NodeRef>(supplyingNodeRefs));
+        this.changeTxnIds = Collections.unmodifiableMap(new HashMap<NodeRef, String>(changeTxnIds));
+    }
+
+    /**
+     * @return                  the nodes supplying the inherited rules, in inheritance order
+     */
+    List<NodeRef> getSupplyingNodeRefs()
+    {
+        return supplyingNodeRefs;
+    }
+
+    /**
+     * @return                  <tt>true</tt> if one of the nodes looked at was changed by the given transaction
+     */
+    boolean isChangedIn(String changeTxnId)
+    {
+        return changeTxnIds.containsValue(changeTxnId);
+    }
+
+    /**
+     * @param nodeService       the service to check the nodes with
+     * @return                  <tt>true</tt> if none of the nodes looked at has changed since the chain was built
+     */
+    boolean isCurrent(NodeService nodeService)
+    {
+        for (Map.Entry<NodeRef, String> entry : changeTxnIds.entrySet())
+        {
+            NodeRef.Status nodeStatus = nodeService.getNodeStatus(entry.getKey());
+            if (nodeStatus == null || !entry.getValue().equals(nodeStatus.getChangeTxnId()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.rule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+
+/**
+ * Transaction-scoped index of the compiled rules executed by the {@link RuleServiceImpl}.
+ * <p>
+ * The compiled form of a rule is kept by rule node until the rule or its rule folder changes.  It refers
+ * to the {@link org.alfresco.service.cmr.rule.Rule} instance read in the transaction, which may be changed
+ * by callers, so the index is not shared.  The inherited rule chains are shared across transactions
+ * through {@link InheritedRuleChain}.
+ *
+ * @since 23.2
+ */
+class RuleIndex
+{
+    /** Compiled rules, by rule node */
+    private final Map<NodeRef, CompiledRule> compiledRules = new HashMap<NodeRef, CompiledRule>();
+
+    /**
+     * @return              the compiled form of the rule as stored or <tt>null</tt> if it is not indexed
+     */
+    CompiledRule getCompiledRule(NodeRef ruleNodeRef)
+    {
+        return compiledRules.get(ruleNodeRef);
+    }
+
+    void putCompiledRule(CompiledRule compiledRule)
+    {
+        compiledRules.put(compiledRule.getRule().getNodeRef(), compiledRule);
+    }
+
+    void removeCompiledRule(NodeRef ruleNodeRef)
+    {
+        compiledRules.remove(ruleNodeRef);
+    }
+}
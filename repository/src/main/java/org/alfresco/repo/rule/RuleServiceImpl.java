@@ -58,6 +58,7 @@ import org.alfresco.repo.policy.JavaBehaviour;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
 import org.alfresco.repo.transaction.TransactionListener;
 import org.alfresco.repo.transaction.TransactionalResourceHelper;
 import org.alfresco.service.Experimental;
@@ -112,6 +113,9 @@ public class RuleServiceImpl
     /** key against which to store executed rules on the current transaction */
     private static final String KEY_RULES_EXECUTED = "RuleServiceImpl.ExecutedRules";
     
+    /** key against which to store the rule index on the current transaction */
+    private static final String KEY_RULE_INDEX = "RuleServiceImpl.RuleIndex";
+    
     /** qname of assoc to rules */
     private String ASSOC_NAME_RULES_PREFIX = "rules";
     private RegexQNamePattern ASSOC_NAME_RULES_REGEX = new RegexQNamePattern(RuleModel.RULE_MODEL_URI, "^" + ASSOC_NAME_RULES_PREFIX + ".*");
@@ -142,6 +146,11 @@ public class RuleServiceImpl
      * Cache of raw rules (not inherited or interpreted) for a given node
      */
     private SimpleCache<NodeRef, List<Rule>> nodeRulesCache;
+    
+    /**
+     * Cache of the nodes each node inherits rules from
+     */
+    private SimpleCache<NodeRef, InheritedRuleChain> inheritedRulesCache;
        
     /**
      * List of disabled rules.  Any rules that appear in this list will not be added to the pending list and therefore
@@ -246,6 +255,19 @@ public class RuleServiceImpl
         this.nodeRulesCache = nodeRulesCache;
     }
 
+    /**
+     * Set the cache to hold the flattened chain of nodes that each node inherits rules from.  The
+     * chains hold node references only and check themselves against the nodes they were built from,
+     * so this cache can be shared across transactions.  It must be mutable, so that a chain found to be
+     * out of date is replaced, and it is local to each cluster member.
+     * 
+     * @param inheritedRulesCache   a cache of inherited rule chains
+     */
+    public void setInheritedRulesCache(SimpleCache<NodeRef, InheritedRuleChain> inheritedRulesCache)
+    {
+        this.inheritedRulesCache = inheritedRulesCache;
+    }
+
     /**
      * Set the global rules disabled flag
      * 
@@ -271,6 +293,10 @@ public class RuleServiceImpl
                 NodeServicePolicies.OnAddAspectPolicy.QNAME,
                 RuleModel.ASPECT_RULES,
                 new JavaBehaviour(this, "onAddAspect"));
+        policyComponent.bindClassBehaviour(
+                NodeServicePolicies.OnRemoveAspectPolicy.QNAME,
+                RuleModel.ASPECT_RULES,
+                new JavaBehaviour(this, "onRemoveAspect"));
         policyComponent.bindClassBehaviour(
                 NodeServicePolicies.OnUpdateNodePolicy.QNAME,
                 RuleModel.ASPECT_RULES,
@@ -302,28 +328,28 @@ public class RuleServiceImpl
     }
 
     /**
-     * Cache invalidation
+     * Cache invalidation: a rule folder has been added to or linked from the node
      */
     @Override
     public void onCreateChildAssociation(ChildAssociationRef childAssocRef, boolean isNewNode)
     {
-        nodeRulesCache.clear();
+        invalidateRules(childAssocRef.getParentRef());
     }
 
     /**
-     * Cache invalidation
+     * Cache invalidation: a node with rules or a part of a rule has changed
      */
     public void onUpdateNode(NodeRef nodeRef)
     {
-        nodeRulesCache.clear();
+        invalidateRulesContaining(nodeRef);
     }
 
     /**
-     * Cache invalidation
+     * Cache invalidation: a part of a rule has been created
      */
     public void onCreateNode(ChildAssociationRef childAssocRef)
     {
-        nodeRulesCache.clear();
+        invalidateRulesContaining(childAssocRef.getChildRef());
     }
 
     /**
@@ -331,7 +357,102 @@ public class RuleServiceImpl
      */
     public void onAddAspect(NodeRef nodeRef, QName aspectTypeQName)
     {
-        nodeRulesCache.clear();
+        invalidateRules(nodeRef);
+    }
+
+    /**
+     * Cache invalidation
+     */
+    public void onRemoveAspect(NodeRef nodeRef, QName aspectTypeQName)
+    {
+        invalidateRules(nodeRef);
+    }
+
+    /**
+     * Get the rule index of the current transaction
+     * 
+     * @param create    true to create the index if there is none yet
+     * @return          the rule index or <tt>null</tt> if there is no index or no transaction
+     */
+    private RuleIndex getRuleIndex(boolean create)
+    {
+        if (AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_NONE)
+        {
+            return null;
+        }
+        RuleIndex ruleIndex = (RuleIndex) AlfrescoTransactionSupport.getResource(KEY_RULE_INDEX);
+        if (ruleIndex == null && create)
+        {
+            ruleIndex = new RuleIndex();
+            AlfrescoTransactionSupport.bindResource(KEY_RULE_INDEX, ruleIndex);
+        }
+        return ruleIndex;
+    }
+
+    /**
+     * Drop the rules of a node.  The node and its descendants read the rules they inherit from it
+     * through the node rules cache, so their inherited rule chains remain valid.
+     * 
+     * @param nodeRef   the node whose rules have changed
+     */
+    private void invalidateRules(NodeRef nodeRef)
+    {
+        RuleIndex ruleIndex = getRuleIndex(false);
+        if (ruleIndex != null)
+        {
+            List<Rule> nodeRules = nodeRulesCache.get(nodeRef);
+            if (nodeRules != null)
+            {
+                for (Rule rule : nodeRules)
+                {
+                    ruleIndex.removeCompiledRule(rule.getNodeRef());
+                }
+            }
+        }
+        nodeRulesCache.remove(nodeRef);
+    }
+
+    /**
+     * Drop the rules that a node belongs to.  The node either has rules itself or is a part of a rule, in
+     * which case the rules of every node sharing the rule folder are dropped.  Nodes that are not part of
+     * a rule, such as actions saved elsewhere, do not affect the rules.
+     * 
+     * @param nodeRef   the node that has changed
+     */
+    private void invalidateRulesContaining(NodeRef nodeRef)
+    {
+        if (runtimeNodeService.hasAspect(nodeRef, RuleModel.ASPECT_RULES))
+        {
+            invalidateRules(nodeRef);
+            return;
+        }
+        RuleIndex ruleIndex = getRuleIndex(false);
+        NodeRef childNodeRef = nodeRef;
+        while (true)
+        {
+            ChildAssociationRef parentAssoc = runtimeNodeService.getPrimaryParent(childNodeRef);
+            NodeRef parentNodeRef = parentAssoc.getParentRef();
+            if (parentNodeRef == null)
+            {
+                // Reached the root without finding a rule folder
+                return;
+            }
+            if (ASSOC_RULE_FOLDER.equals(parentAssoc.getTypeQName()))
+            {
+                // The child is a rule folder, possibly linked to from other nodes
+                List<ChildAssociationRef> ruleFolderAssocs = runtimeNodeService.getParentAssocs(childNodeRef, ASSOC_RULE_FOLDER, ASSOC_RULE_FOLDER);
+                for (ChildAssociationRef ruleFolderAssoc : ruleFolderAssocs)
+                {
+                    invalidateRules(ruleFolderAssoc.getParentRef());
+                }
+                return;
+            }
+            if (ruleIndex != null && RuleModel.TYPE_RULE.equals(runtimeNodeService.getType(childNodeRef)))
+            {
+                ruleIndex.removeCompiledRule(childNodeRef);
+            }
+            childNodeRef = parentNodeRef;
+        }
     }
     
     protected NodeRef getSavedRuleFolderRef(NodeRef nodeRef)
@@ -498,7 +619,7 @@ public class RuleServiceImpl
                 if (includeInherited && !runtimeNodeService.hasAspect(nodeRef, ASPECT_IGNORE_INHERITED_RULES))
                 {
                     // Get any inherited rules
-                    for (Rule rule : getInheritedRules(nodeRef, ruleTypeName, null))
+                    for (Rule rule : getIndexedInheritedRules(nodeRef, ruleTypeName))
                     {
                         // Ensure rules are not duplicated in the list
                         if (rules.contains(rule) == false)
@@ -711,81 +832,87 @@ public class RuleServiceImpl
     }
 
     /**
-     * Gets the inherited rules for a given node reference
+     * Gets the inherited rules for a given node reference through the flattened chain of nodes that the node
+     * inherits rules from.  The chain is shared across transactions until the node or one of the ancestors
+     * it went through changes, while the rules of each node in the chain come from the node rules cache.
      *
-     * @param nodeRef            the nodeRef
-     * @param ruleTypeName        the rule type (null if all applicable)
-     * @return                    a list of inherited rules (empty if none)
+     * @param nodeRef           the nodeRef
+     * @param ruleTypeName      the rule type (null if all applicable)
+     * @return                  a list of inherited rules (empty if none)
      */
-    private List<Rule> getInheritedRules(NodeRef nodeRef, String ruleTypeName, Set<NodeRef> visitedNodeRefs)
+    private List<Rule> getIndexedInheritedRules(NodeRef nodeRef, String ruleTypeName)
     {
-        List<Rule> inheritedRules = new ArrayList<Rule>();
-
-        if (this.runtimeNodeService.hasAspect(nodeRef, RuleModel.ASPECT_IGNORE_INHERITED_RULES) == false)
+        InheritedRuleChain inheritedRuleChain = inheritedRulesCache.get(nodeRef);
+        if (inheritedRuleChain == null || !inheritedRuleChain.isCurrent(runtimeNodeService))
         {
-            // Create the visited nodes set if it has not already been created
-            if (visitedNodeRefs == null)
+            List<NodeRef> supplyingNodeRefs = new ArrayList<NodeRef>();
+            Map<NodeRef, String> changeTxnIds = new HashMap<NodeRef, String>();
+            getNodesSupplyingInheritedRules(nodeRef, supplyingNodeRefs, changeTxnIds);
+            inheritedRuleChain = new InheritedRuleChain(supplyingNodeRefs, changeTxnIds);
+            if (inheritedRuleChain.isChangedIn(AlfrescoTransactionSupport.getTransactionId()))
             {
-                visitedNodeRefs = new HashSet<NodeRef>();
+                // The nodes may change again in this transaction without moving to a new one
+                inheritedRulesCache.remove(nodeRef);
             }
-
-            // This check prevents stack over flow when we have a cyclic node graph
-            if (visitedNodeRefs.contains(nodeRef) == false)
+            else
             {
-                visitedNodeRefs.add(nodeRef);
-
-                List<Rule> allInheritedRules = new ArrayList<Rule>();
-                List<ChildAssociationRef> parents = this.runtimeNodeService.getParentAssocs(nodeRef);
-                for (ChildAssociationRef parent : parents)
-                {
-                    // We are not interested in following potentially massive person group membership trees!
-                    if (IGNORE_PARENT_ASSOC_TYPES.contains(parent.getTypeQName()))
-                    {
-                        continue;
-                    }
-
-                    // Add the inherited rule first
-                    for (Rule rule : getInheritedRules(parent.getParentRef(), ruleTypeName, visitedNodeRefs))
-                    {
-                        // Ensure that we don't get any rule duplication (don't use a set cos we want to preserve order)
-                        if (allInheritedRules.contains(rule) == false)
-                        {
-                            allInheritedRules.add(rule);
-                        }
-                    }
-
-                    List<Rule> rules = getRules(parent.getParentRef(), false);
-                    for (Rule rule : rules)
-                    {
-                        // Add is we hanvn't already added and it should be applied to the children
-                        if (rule.isAppliedToChildren() == true && allInheritedRules.contains(rule) == false)
-                        {
-                            allInheritedRules.add(rule);
-                        }
-                    }
-                }
-
-                if (ruleTypeName == null)
-                {
-                    inheritedRules = allInheritedRules;
-                }
-                else
+                inheritedRulesCache.put(nodeRef, inheritedRuleChain);
+            }
+        }
+        List<Rule> inheritedRules = new ArrayList<Rule>();
+        for (NodeRef supplyingNodeRef : inheritedRuleChain.getSupplyingNodeRefs())
+        {
+            for (Rule rule : getRules(supplyingNodeRef, false))
+            {
+                // Ensure that we don't get any rule duplication (don't use a set cos we want to preserve order)
+                if (rule.isAppliedToChildren() == true && inheritedRules.contains(rule) == false &&
+                    (ruleTypeName == null || rule.getRuleTypes().contains(ruleTypeName) == true))
                 {
-                    // Filter the rule list by rule type
-                    for (Rule rule : allInheritedRules)
-                    {
-                        if (rule.getRuleTypes().contains(ruleTypeName) == true)
-                        {
-                            inheritedRules.add(rule);
-                        }
-                    }
+                    inheritedRules.add(rule);
                 }
             }
         }
-
         return inheritedRules;
     }
 
+    /**
+     * Gets the nodes whose rules are inherited by a given node.  The rules of the ancestors of each parent
+     * come before the rules of the parent itself, and the parents are taken in order.
+     *
+     * @param nodeRef               the nodeRef
+     * @param supplyingNodeRefs     the list to add the nodes with rules to
+     * @param changeTxnIds          the transaction that last changed each node looked at, by node
+     */
+    private void getNodesSupplyingInheritedRules(NodeRef nodeRef, List<NodeRef> supplyingNodeRefs, Map<NodeRef, String> changeTxnIds)
+    {
+        // This check prevents stack over flow when we have a cyclic node graph
+        if (changeTxnIds.containsKey(nodeRef))
+        {
+            return;
+        }
+        changeTxnIds.put(nodeRef, runtimeNodeService.getNodeStatus(nodeRef).getChangeTxnId());
+        if (runtimeNodeService.hasAspect(nodeRef, ASPECT_IGNORE_INHERITED_RULES))
+        {
+            return;
+        }
+        List<ChildAssociationRef> parents = runtimeNodeService.getParentAssocs(nodeRef);
+        for (ChildAssociationRef parent : parents)
+        {
+            // We are not interested in following potentially massive person group membership trees!
+            if (IGNORE_PARENT_ASSOC_TYPES.contains(parent.getTypeQName()))
+            {
+                continue;
+            }
+            NodeRef parentRef = parent.getParentRef();
+            // The ancestors' rules come first
+            getNodesSupplyingInheritedRules(parentRef, supplyingNodeRefs, changeTxnIds);
+            if (!supplyingNodeRefs.contains(parentRef) && runtimeNodeService.hasAspect(parentRef, RuleModel.ASPECT_RULES))
+            {
+                supplyingNodeRefs.add(parentRef);
+            }
+        }
+    }
+
     /**
      * Create the rule object from the rule node reference
      * 
@@ -911,7 +1038,12 @@ public class RuleServiceImpl
         {
             enableRules();
             // Drop the rules from the cache
-            nodeRulesCache.remove(nodeRef);
+            invalidateRules(nodeRef);
+            RuleIndex ruleIndex = getRuleIndex(false);
+            if (ruleIndex != null && rule.getNodeRef() != null)
+            {
+                ruleIndex.removeCompiledRule(rule.getNodeRef());
+            }
         }
         return rule;
     }
@@ -1048,7 +1180,7 @@ public class RuleServiceImpl
                 }
             }
             // Drop the rules from the cache
-            nodeRulesCache.remove(nodeRef);
+            invalidateRules(nodeRef);
         }
         else
         {
@@ -1095,7 +1227,7 @@ public class RuleServiceImpl
                 this.nodeService.removeAspect(nodeRef, RuleModel.ASPECT_RULES);
             }
             // Drop the rules from the cache
-            nodeRulesCache.remove(nodeRef);
+            invalidateRules(nodeRef);
         }
         else
         {
@@ -1319,20 +1451,29 @@ public class RuleServiceImpl
                 {
                     public Void doWork() throws Exception
                     {
-                        executeRule(fRule, fActionedUponNodeRef, fExecutedRules);
+                        executeRule(fRule, fActionedUponNodeRef, fExecutedRules, true);
                         return null;
                     }
                 }, AuthenticationUtil.getSystemUserName());
             }
             else
             {
-                executeRule(rule, actionedUponNodeRef, executedRules);
+                executeRule(rule, actionedUponNodeRef, executedRules, true);
             }
         }
     }
     
     @Override
     public void executeRule(Rule rule, NodeRef actionedUponNodeRef, Set<ExecutedRuleData> executedRules)
+    {
+        executeRule(rule, actionedUponNodeRef, executedRules, false);
+    }
+
+    /**
+     * @param storedRule    true if the rule has just been read from the repository, allowing its
+     *                      compiled form to be used
+     */
+    private void executeRule(Rule rule, NodeRef actionedUponNodeRef, Set<ExecutedRuleData> executedRules, boolean storedRule)
     {
         // Get the action associated with the rule
         Action action = rule.getAction();
@@ -1342,7 +1483,7 @@ public class RuleServiceImpl
         }
         
         // Evaluate the condition
-        if (this.actionService.evaluateAction(action, actionedUponNodeRef) == true)
+        if (evaluateRule(rule, actionedUponNodeRef, storedRule) == true)
         {
             if (executedRules != null)
             {
@@ -1384,6 +1525,31 @@ public class RuleServiceImpl
         }
     }
 
+    /**
+     * Evaluate the conditions of a rule.  The conditions of rules read from the repository are compiled
+     * once per transaction and kept in the rule index until the rule changes.
+     */
+    private boolean evaluateRule(Rule rule, NodeRef actionedUponNodeRef, boolean storedRule)
+    {
+        RuleIndex ruleIndex = storedRule ? getRuleIndex(true) : null;
+        if (ruleIndex == null || rule.getNodeRef() == null)
+        {
+            return this.actionService.evaluateAction(rule.getAction(), actionedUponNodeRef);
+        }
+        CompiledRule compiledRule = ruleIndex.getCompiledRule(rule.getNodeRef());
+        if (compiledRule == null)
+        {
+            compiledRule = CompiledRule.compile(rule, runtimeActionService);
+            if (compiledRule == null)
+            {
+                // Leave it to the action service to deal with
+                return this.actionService.evaluateAction(rule.getAction(), actionedUponNodeRef);
+            }
+            ruleIndex.putCompiledRule(compiledRule);
+        }
+        return compiledRule.evaluate(actionedUponNodeRef);
+    }
+
     private void executeAction(Action action, NodeRef actionedUponNodeRef, boolean executeAsynchronously)
     {
         this.actionService.executeAction(action, actionedUponNodeRef, true, executeAsynchronously);
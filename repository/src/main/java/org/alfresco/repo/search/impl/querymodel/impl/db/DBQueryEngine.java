@@ -53,6 +53,7 @@ import org.alfresco.repo.domain.permissions.Authority;
 import org.alfresco.repo.domain.qname.QNameDAO;
 import org.alfresco.repo.search.SimpleResultSetMetaData;
 import org.alfresco.repo.search.impl.lucene.PagingLuceneResultSet;
+import org.alfresco.repo.search.impl.querymodel.Column;
 import org.alfresco.repo.search.impl.querymodel.FunctionEvaluationContext;
 import org.alfresco.repo.search.impl.querymodel.Query;
 import org.alfresco.repo.search.impl.querymodel.QueryEngine;
@@ -60,6 +61,7 @@ import org.alfresco.repo.search.impl.querymodel.QueryEngineResults;
 import org.alfresco.repo.search.impl.querymodel.QueryModelException;
 import org.alfresco.repo.search.impl.querymodel.QueryModelFactory;
 import org.alfresco.repo.search.impl.querymodel.QueryOptions;
+import org.alfresco.repo.search.impl.querymodel.impl.functions.PropertyAccessor;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.permissions.impl.acegi.FilteringResultSet;
 import org.alfresco.repo.tenant.TenantService;
@@ -427,6 +429,11 @@ public class DBQueryEngine implements QueryEngine
         int numberFound = nodes.size();
         nodes.removeAll(Collections.singleton(null));
         
+        if (options.isBulkFetchEnabled())
+        {
+            hydrateNodes(dbQuery, options, nodes);
+        }
+        
         DBResultSet rs =  createResultSet(options, nodes, numberFound);
         FilteringResultSet frs = new FilteringResultSet(rs, formInclusionMask(nodes));
         frs.setResultSetMetaData(new SimpleResultSetMetaData(LimitBy.UNLIMITED, PermissionEvaluationMode.EAGER, rs.getResultSetMetaData().getSearchParameters()));
@@ -435,6 +442,45 @@ public class DBQueryEngine implements QueryEngine
         return frs;
     }
 
+    /**
+     * Pre-loads the properties and aspects of the nodes making up the requested page, using batched
+     * multi-node selects rather than one lookup per node when the result set rows are read.
+     * Properties are only loaded when the query selects property columns or does not restrict the
+     * columns at all.
+     */
+    private void hydrateNodes(DBQuery dbQuery, QueryOptions options, List<Node> nodes)
+    {
+        int pageSize = nodes.size();
+        if (options.getMaxItems() >= 0 && options.getMaxItems() < pageSize)
+        {
+            pageSize = options.getMaxItems();
+        }
+        if (pageSize == 0)
+        {
+            return;
+        }
+        boolean loadProperties = isPropertySelected(dbQuery);
+        logger.debug("- hydrating " + pageSize + " nodes, properties: " + loadProperties);
+        nodeDAO.cacheNodeDetails(nodes.subList(0, pageSize), loadProperties, true);
+    }
+
+    private boolean isPropertySelected(DBQuery dbQuery)
+    {
+        List<Column> columns = dbQuery.getColumns();
+        if (columns == null || columns.isEmpty())
+        {
+            return true;
+        }
+        for (Column column : columns)
+        {
+            if (PropertyAccessor.NAME.equals(column.getFunction().getName()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void performTmdqSelect(String statement, DBQuery dbQuery, int requiredNodes, ResultHandler<Node> handler)
     {
         if (usePagingQuery)
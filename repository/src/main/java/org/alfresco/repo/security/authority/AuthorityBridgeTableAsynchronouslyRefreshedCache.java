@@ -31,6 +31,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.cache.AbstractMTAsynchronouslyRefreshedCache;
@@ -55,6 +57,8 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
     private RetryingTransactionHelper retryingTransactionHelper;
     private TenantAdminService tenantAdminService;
     private AuthorityDAO authorityDAO;
+    /** the {@link System#nanoTime()} at which the current bridge table of each tenant started to be built */
+    private final ConcurrentMap<String, Long> buildStartTimes = new ConcurrentHashMap<String, Long>();
 
     private Log logger = LogFactory.getLog(getClass());
 
@@ -90,6 +94,19 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
         this.tenantAdminService = tenantAdminService;
     }
 
+    /**
+     * Get the time at which the most recently built bridge table of a tenant started to be built.
+     * Any membership change committed before this time is reflected by the bridge table.
+     * 
+     * @param tenantId
+     *            the tenant
+     * @return the {@link System#nanoTime()} at the start of the build or <tt>null</tt> if the bridge table has not been built
+     */
+    public Long getBuildStartTime(String tenantId)
+    {
+        return buildStartTimes.get(tenantId);
+    }
+
     @Override
     protected BridgeTable<String> buildCache(final String tenantId)
     {
@@ -112,6 +129,7 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
 
     private BridgeTable<String> doBuildCache(String tenantId)
     {
+        long buildStartTime = System.nanoTime();
         List<AuthorityBridgeLink> links = authorityBridgeDAO.getAuthorityBridgeLinks();
         BridgeTable<String> bridgeTable = new BridgeTable<String>();
         try
@@ -128,6 +146,7 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
             // If cyclic groups is not the cause then rethrow
             throw e;
         }
+        buildStartTimes.put(tenantId, buildStartTime);
         return bridgeTable;
     }
 
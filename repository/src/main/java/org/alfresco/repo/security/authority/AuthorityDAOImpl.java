@@ -38,6 +38,7 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 import org.alfresco.error.AlfrescoRuntimeException;
@@ -62,7 +63,10 @@ import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
 import org.alfresco.repo.security.person.PersonServiceImpl;
 import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.repo.tenant.TenantUtil;
+import org.alfresco.repo.tenant.TenantUtil.TenantRunAsWork;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.TransactionListenerAdapter;
 import org.alfresco.repo.transaction.TransactionalResourceHelper;
 import org.alfresco.service.cmr.dictionary.DictionaryService;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
@@ -102,6 +106,8 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
     private static Log logger = LogFactory.getLog(AuthorityDAOImpl.class);
     
     private static String PARENTS_OF_DELETING_CHILDREN_SET_RESOURCE = "ParentsOfDeletingChildrenSetResource";
+    private static final String KEY_INVALIDATED_USERS = "AuthorityDAOImpl.invalidatedUsers";
+    private static final String KEY_USER_AUTHORITY_CACHE_CLEARED = "AuthorityDAOImpl.userAuthorityCacheCleared";
     private static final char[] ILLEGAL_CHARACTERS = {'/', '\\', '\r', '\n', '\"'};
     
     private static final NodeRef NULL_NODEREF = new NodeRef("null", "null", "null");
@@ -140,6 +146,11 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
     private boolean useBridgeTable = true;
     /** limits the findAuthorities search query */
     private int findAuthoritiesLimit = 100;
+    /** the number of users above which a group change clears the userAuthorityCache rather than removing the users */
+    private int maxTargetedInvalidations = 5000;
+    /** users invalidated by committed group changes, per tenant, that the bridge table might not reflect yet */
+    private final ConcurrentMap<String, PendingInvalidations> pendingInvalidations = new ConcurrentHashMap<String, PendingInvalidations>();
+    private final InvalidationTransactionListener invalidationTransactionListener = new InvalidationTransactionListener();
     
     private QNameDAO qnameDAO;
     private CannedQueryDAO cannedQueryDAO;
@@ -228,6 +239,17 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         this.useBridgeTable = useBridgeTable;
     }
 
+    /**
+     * Set the number of users above which a change to a group's membership clears the whole
+     * userAuthorityCache instead of removing only the users contained by the group.
+     * 
+     * @param maxTargetedInvalidations the maximum number of users to remove individually; 0 always clears the cache
+     */
+    public void setMaxTargetedInvalidations(int maxTargetedInvalidations)
+    {
+        this.maxTargetedInvalidations = maxTargetedInvalidations;
+    }
+
 
     public void setPersonService(PersonService personService)
     {
@@ -374,7 +396,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
         else
         {
-            userAuthorityCache.clear();
+            invalidateUserAuthorities(childRef);
             authorityBridgeTableCache.refresh();
         }
     }
@@ -443,10 +465,19 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         zoneAuthorityCache.remove(new Pair<String, String>(currentUserDomain, null));
         removeParentsFromChildAuthorityCache(nodeRef, false);
         
+        // Only the users contained by the authority are affected; find them before the node goes
+        if (AuthorityType.getAuthorityType(name) == AuthorityType.USER)
+        {
+            userAuthorityCache.remove(name);
+        }
+        else
+        {
+            invalidateUserAuthorities(nodeRef);
+        }
+        
         nodeService.deleteNode(nodeRef);
         
         authorityLookupCache.remove(cacheKey(name));
-        userAuthorityCache.clear();
         authorityBridgeTableCache.refresh();
     }
     
@@ -823,7 +854,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
         else
         {
-            userAuthorityCache.clear();
+            invalidateUserAuthorities(childRef);
             if (cacheRefresh)
             {
                 authorityBridgeTableCache.refresh();
@@ -1676,8 +1707,8 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
                     authorityLookupCache.clear();
                     authorityBridgeTableCache.refresh();
                     
-                    // Cache is out of date
-                    userAuthorityCache.clear();
+                    // Cache is out of date for the users in the group
+                    invalidateUserAuthorities(nodeRef);
                 }
                 else
                 {
@@ -1828,14 +1859,210 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
     }
 
+    /**
+     * Remove the cached authorities of the users contained, directly or indirectly, by a group
+     * whose membership of other groups has changed. The authorities of all other users are not
+     * affected by the change, so they stay cached.
+     * <p>
+     * If more than {@link #setMaxTargetedInvalidations(int) maxTargetedInvalidations} users are
+     * affected by the transaction then the cache is cleared instead.
+     * 
+     * @param groupRef          the group (or other container authority) that has changed
+     */
+    private void invalidateUserAuthorities(NodeRef groupRef)
+    {
+        AlfrescoTransactionSupport.bindListener(invalidationTransactionListener);
+        if (AlfrescoTransactionSupport.getResource(KEY_USER_AUTHORITY_CACHE_CLEARED) != null)
+        {
+            // Already cleared in this transaction
+            return;
+        }
+        Set<String> invalidatedUsers = TransactionalResourceHelper.getSet(KEY_INVALIDATED_USERS);
+        Set<String> userNames = new TreeSet<String>();
+        if (maxTargetedInvalidations <= 0
+                || !listContainedUsers(groupRef, userNames, new HashSet<NodeRef>(), maxTargetedInvalidations - invalidatedUsers.size()))
+        {
+            userAuthorityCache.clear();
+            AlfrescoTransactionSupport.bindResource(KEY_USER_AUTHORITY_CACHE_CLEARED, Boolean.TRUE);
+            invalidatedUsers.clear();
+        }
+        else
+        {
+            for (String userName : userNames)
+            {
+                userAuthorityCache.remove(userName);
+            }
+            invalidatedUsers.addAll(userNames);
+        }
+    }
+
+    /**
+     * List the users contained, directly or indirectly, by a group, giving up as soon as there are
+     * more than a given number of them so that large groups are not walked in full.
+     * 
+     * @param groupRef          the group to start from
+     * @param userNames         the set to add the user names to
+     * @param visitedGroupRefs  the groups already walked
+     * @param limit             the maximum number of users to list
+     * @return                  <tt>false</tt> if there are more users than the limit, leaving the list incomplete
+     */
+    private boolean listContainedUsers(NodeRef groupRef, Set<String> userNames, Set<NodeRef> visitedGroupRefs, int limit)
+    {
+        if (!visitedGroupRefs.add(groupRef))
+        {
+            return true;
+        }
+        Pair<Map<NodeRef, String>, List<NodeRef>> childAuthorities = getChildAuthorities(groupRef);
+        for (String childAuthorityName : childAuthorities.getFirst().values())
+        {
+            if (AuthorityType.getAuthorityType(childAuthorityName) == AuthorityType.USER
+                    && userNames.add(childAuthorityName)
+                    && userNames.size() > limit)
+            {
+                return false;
+            }
+        }
+        for (NodeRef childRef : childAuthorities.getSecond())
+        {
+            if (!listContainedUsers(childRef, userNames, visitedGroupRefs, limit))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remember the users invalidated by the committed transaction until the bridge table has been
+     * rebuilt from it, as they may have cached authorities from the previous bridge table meanwhile.
+     */
+    private class InvalidationTransactionListener extends TransactionListenerAdapter
+    {
+        @Override
+        public void afterCommit()
+        {
+            if (!useBridgeTable)
+            {
+                // The cached authorities do not come from the bridge table
+                return;
+            }
+            long commitTime = System.nanoTime();
+            String tenantDomain = tenantService.getCurrentUserDomain();
+            PendingInvalidations pending = pendingInvalidations.get(tenantDomain);
+            if (pending == null)
+            {
+                pendingInvalidations.putIfAbsent(tenantDomain, new PendingInvalidations());
+                pending = pendingInvalidations.get(tenantDomain);
+            }
+            if (AlfrescoTransactionSupport.getResource(KEY_USER_AUTHORITY_CACHE_CLEARED) != null)
+            {
+                pending.clearTime.set(commitTime);
+            }
+            else
+            {
+                for (String userName : TransactionalResourceHelper.<String>getSet(KEY_INVALIDATED_USERS))
+                {
+                    pending.users.put(userName, commitTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * The users awaiting a bridge table rebuild for a tenant, with the time of the commit that invalidated them.
+     */
+    private static class PendingInvalidations
+    {
+        private final ConcurrentMap<String, Long> users = new ConcurrentHashMap<String, Long>();
+        private final AtomicReference<Long> clearTime = new AtomicReference<Long>();
+    }
+
     @Override
     public void onRefreshableCacheEvent(RefreshableCacheEvent refreshableCacheEvent)
     {
-        if(logger.isDebugEnabled())
+        if (maxTargetedInvalidations <= 0)
         {
-            logger.debug("Bridge Table cache triggering userAuthorityCache.clear()");
+            if(logger.isDebugEnabled())
+            {
+                logger.debug("Bridge Table cache triggering userAuthorityCache.clear()");
+            }
+            userAuthorityCache.clear();
+            return;
+        }
+        
+        // Changes made by the current transaction when it forces in its changes
+        boolean localChanges = false;
+        if (AlfrescoTransactionSupport.getTransactionId() != null)
+        {
+            if (AlfrescoTransactionSupport.getResource(KEY_USER_AUTHORITY_CACHE_CLEARED) != null)
+            {
+                userAuthorityCache.clear();
+                localChanges = true;
+            }
+            else
+            {
+                for (String userName : TransactionalResourceHelper.<String>getSet(KEY_INVALIDATED_USERS))
+                {
+                    userAuthorityCache.remove(userName);
+                    localChanges = true;
+                }
+            }
         }
-        userAuthorityCache.clear();
+        
+        // Committed changes: the new bridge table includes those committed before it started building
+        final String tenantDomain = refreshableCacheEvent.getKey();
+        final PendingInvalidations pending = pendingInvalidations.get(tenantDomain);
+        final Long buildStartTime = authorityBridgeTableCache.getBuildStartTime(tenantDomain);
+        if (pending == null || buildStartTime == null || (pending.users.isEmpty() && pending.clearTime.get() == null))
+        {
+            if (!localChanges)
+            {
+                // Not triggered by a change made here, for example a refresh triggered by another cluster member:
+                // the affected users are not known
+                if(logger.isDebugEnabled())
+                {
+                    logger.debug("Bridge Table cache triggering userAuthorityCache.clear() for a refresh with no pending invalidations");
+                }
+                userAuthorityCache.clear();
+            }
+            return;
+        }
+        final Long clearTime = pending.clearTime.get();
+        if (clearTime != null)
+        {
+            if(logger.isDebugEnabled())
+            {
+                logger.debug("Bridge Table cache triggering userAuthorityCache.clear()");
+            }
+            userAuthorityCache.clear();
+            if (clearTime - buildStartTime < 0)
+            {
+                pending.clearTime.compareAndSet(clearTime, null);
+            }
+        }
+        else if (!pending.users.isEmpty() && logger.isDebugEnabled())
+        {
+            logger.debug("Bridge Table cache triggering userAuthorityCache removal of " + pending.users.size() + " users");
+        }
+        TenantUtil.runAsTenant(new TenantRunAsWork<Void>()
+        {
+            @Override
+            public Void doWork() throws Exception
+            {
+                for (Map.Entry<String, Long> entry : pending.users.entrySet())
+                {
+                    if (clearTime == null)
+                    {
+                        userAuthorityCache.remove(entry.getKey());
+                    }
+                    if (entry.getValue() - buildStartTime < 0)
+                    {
+                        pending.users.remove(entry.getKey(), entry.getValue());
+                    }
+                }
+                return null;
+            }
+        }, tenantDomain);
     }
 
     @Override
@@ -0,0 +1,219 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.sync;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.TransactionListenerAdapter;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
+import org.alfresco.service.namespace.QName;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Tracks a content hash of each person and group synchronized from a user registry zone, so that a subsequent
+ * synchronization can recognise the authorities that have not changed in the user registry since they were last
+ * applied and skip them without reading or writing any nodes.
+ * <p>
+ * The hashes of the previous synchronization are loaded up front. A new hash is only recorded once the transaction
+ * that applied the corresponding changes has committed, or, for groups, once all of the association phases have
+ * completed without errors. The recorded hashes are then persisted by the synchronizer at the end of the zone's
+ * synchronization.
+ *
+ * @since 23.2
+ */
+public class AuthorityContentHashes
+{
+    /** The attribute path under which the hashes are persisted, keyed further by zone ID and authority name. */
+    public static final String HASH_ATTRIBUTE_PATH = ChainingUserRegistrySynchronizer.ROOT_ATTRIBUTE_PATH + ".HASH";
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final Map<String, String> previousHashes;
+    private final Set<String> zoneAuthorities;
+    private final Map<String, String> changedHashes = new ConcurrentHashMap<String, String>();
+    private final Map<String, String> pendingHashes = new ConcurrentHashMap<String, String>();
+    private final HashCommitListener commitListener = new HashCommitListener();
+
+    /**
+     * @param previousHashes
+     *            the hashes persisted by the previous synchronization of the zone, keyed by authority name
+     * @param zoneAuthorities
+     *            the authorities in the zone when the synchronization started, which are the only ones that may be
+     *            skipped
+     */
+    public AuthorityContentHashes(Map<String, String> previousHashes, Set<String> zoneAuthorities)
+    {
+        this.previousHashes = previousHashes;
+        this.zoneAuthorities = zoneAuthorities;
+    }
+
+    /**
+     * Computes the content hash of an authority's synchronized properties and child associations. The result does not
+     * depend on the iteration order of either argument.
+     * 
+     * @param properties
+     *            the properties to be applied to the authority
+     * @param childAssociations
+     *            the names of the authority's children, or <tt>null</tt> for a person
+     * @return the hex encoded hash
+     */
+    public static String getHash(Map<QName, Serializable> properties, Collection<String> childAssociations)
+    {
+        StringBuilder builder = new StringBuilder(256);
+        Map<String, Serializable> sortedProperties = new TreeMap<String, Serializable>();
+        for (Map.Entry<QName, Serializable> entry : properties.entrySet())
+        {
+            sortedProperties.put(entry.getKey().toString(), entry.getValue());
+        }
+        for (Map.Entry<String, Serializable> entry : sortedProperties.entrySet())
+        {
+            builder.append(entry.getKey()).append('=').append(entry.getValue()).append(SEPARATOR);
+        }
+        if (childAssociations != null)
+        {
+            for (String child : new TreeSet<String>(childAssociations))
+            {
+                builder.append(SEPARATOR).append(child);
+            }
+        }
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            return new String(Hex.encodeHex(digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8))));
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new AlfrescoRuntimeException("MD5 digest is not available", e);
+        }
+    }
+
+    /**
+     * Determines whether an authority has the same hash as when it was last synchronized.
+     * 
+     * @param authorityName
+     *            the authority name
+     * @param hash
+     *            the authority's current hash
+     * @return <tt>true</tt> if the authority is unchanged
+     */
+    public boolean isUnchanged(String authorityName, String hash)
+    {
+        return hash.equals(this.previousHashes.get(authorityName));
+    }
+
+    /**
+     * Determines whether an authority can be skipped without reading its node: it was in the zone when the
+     * synchronization started and has the same hash as when it was last synchronized.
+     * 
+     * @param authorityName
+     *            the authority name
+     * @param hash
+     *            the authority's current hash
+     * @return <tt>true</tt> if the authority is in the zone and unchanged
+     */
+    public boolean isUnchangedInZone(String authorityName, String hash)
+    {
+        return this.zoneAuthorities.contains(authorityName) && isUnchanged(authorityName, hash);
+    }
+
+    /**
+     * Records an authority's hash once the current transaction commits.
+     * 
+     * @param authorityName
+     *            the authority name
+     * @param hash
+     *            the authority's current hash
+     */
+    public void recordOnCommit(String authorityName, String hash)
+    {
+        if (isUnchanged(authorityName, hash))
+        {
+            return;
+        }
+        Map<String, String> txnHashes = TransactionalResourceHelper.getMap(this);
+        txnHashes.put(authorityName, hash);
+        AlfrescoTransactionSupport.bindListener(this.commitListener);
+    }
+
+    /**
+     * Records an authority's hash, to be retained only if {@link #retainPending()} is called.
+     * 
+     * @param authorityName
+     *            the authority name
+     * @param hash
+     *            the authority's current hash
+     */
+    public void recordPending(String authorityName, String hash)
+    {
+        if (!isUnchanged(authorityName, hash))
+        {
+            this.pendingHashes.put(authorityName, hash);
+        }
+    }
+
+    /**
+     * Retains the hashes recorded with {@link #recordPending(String, String)}, once all of the changes they describe
+     * have been applied.
+     */
+    public void retainPending()
+    {
+        this.changedHashes.putAll(this.pendingHashes);
+        this.pendingHashes.clear();
+    }
+
+    /**
+     * @return the recorded hashes that differ from those of the previous synchronization, keyed by authority name
+     */
+    public Map<String, String> getChangedHashes()
+    {
+        return Collections.unmodifiableMap(this.changedHashes);
+    }
+
+    /**
+     * Moves the hashes recorded in a transaction into the changed hashes once it has committed.
+     */
+    private class HashCommitListener extends TransactionListenerAdapter
+    {
+        @Override
+        public void afterCommit()
+        {
+            Map<String, String> txnHashes = TransactionalResourceHelper.getMap(AuthorityContentHashes.this);
+            AuthorityContentHashes.this.changedHashes.putAll(txnHashes);
+        }
+    }
+}
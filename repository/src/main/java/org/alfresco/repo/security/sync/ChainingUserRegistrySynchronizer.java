@@ -45,6 +45,7 @@ import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.cmr.attributes.AttributeService.AttributeQueryCallback;
 import org.alfresco.service.cmr.repository.InvalidNodeRefException;
 import org.alfresco.service.cmr.security.AuthorityService;
 import org.alfresco.service.cmr.security.AuthorityType;
@@ -193,6 +194,12 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
     /** Controls whether to query for users and groups that have been deleted in LDAP */
     private boolean syncDelete = true;
 
+    /** Skip users and groups that are unchanged since they were last synchronized? */
+    private boolean skipUnchanged = true;
+
+    /** The number of content hashes to persist per transaction. */
+    private int hashBatchSize = 100;
+
     /** Validates person names over cm:filename constraint **/
     private NameChecker nameChecker;
 
@@ -400,6 +407,31 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
     {
         this.syncDelete = syncDelete;
     }
+
+    /**
+     * Controls whether users and groups whose content hash matches the one recorded when they were last synchronized
+     * are skipped, rather than having their properties and memberships re-applied. A forced update never skips
+     * anything, but still records the hashes. By default is set to true.
+     * 
+     * @param skipUnchanged
+     *            If <b>false</b> then every user and group returned by the user registry is re-applied, which also
+     *            reverts local changes made to synchronized authorities.
+     */
+    public void setSkipUnchanged(boolean skipUnchanged)
+    {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    /**
+     * Sets the number of content hashes to persist per transaction.
+     * 
+     * @param hashBatchSize
+     *            the batch size
+     */
+    public void setHashBatchSize(int hashBatchSize)
+    {
+        this.hashBatchSize = hashBatchSize;
+    }
     
     @Override
     public SynchronizeDiagnostic testSynchronize(String authenticatorName)
@@ -886,7 +918,8 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
         GROUP_ASSOCIATION_CREATION("4 Group Association Creation"),
         PERSON_ASSOCIATION("5 User Association"),
         USER_CREATION("6 User Creation and Association"),
-        AUTHORITY_DELETION("7 Authority Deletion");
+        AUTHORITY_DELETION("7 Authority Deletion"),
+        CONTENT_HASH_PERSISTENCE("8 Content Hash Persistence");
 
         SyncProcess(String title) 
         {
@@ -949,7 +982,8 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
              SyncProcess.GROUP_CREATION_AND_ASSOCIATION_DELETION.getTitle(zone),
              SyncProcess.GROUP_ASSOCIATION_CREATION.getTitle(zone),
              SyncProcess.PERSON_ASSOCIATION.getTitle(zone),
-             SyncProcess.AUTHORITY_DELETION.getTitle(zone)          
+             SyncProcess.AUTHORITY_DELETION.getTitle(zone),
+             SyncProcess.CONTENT_HASH_PERSISTENCE.getTitle(zone)
         };
         
         notifySyncDirectoryStart(zone, reservedBatchProcessNames);
@@ -968,6 +1002,9 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
         // The set of zones we associate with new objects (default plus registry specific)
         final Set<String> zoneSet = getZones(zoneId);
 
+        // The content hashes of the authorities applied by the previous synchronization, if unchanged ones are skipped
+        final AuthorityContentHashes contentHashes = this.skipUnchanged ? getContentHashes(zoneId, forceUpdate, splitTxns) : null;
+
         long lastModifiedMillis = forceUpdate ? -1 : getMostRecentUpdateTime(
                 ChainingUserRegistrySynchronizer.GROUP_LAST_MODIFIED_ATTRIBUTE, zoneId, splitTxns);
         Date lastModified = lastModifiedMillis == -1 ? null : new Date(lastModifiedMillis);
@@ -1008,7 +1045,10 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
             private final Map<String, Set<String>> finalGroupChildAssocs = new TreeMap<String, Set<String>>();
             private List<String> personsProcessed = new LinkedList<String>();
             private Set<String> allZonePersons = Collections.emptySet();
+            private final Map<String, Set<String>> skippedPersonParentAssocs = newPersonMap();
+            private final Map<String, Set<String>> skippedGroupParentAssocs = new TreeMap<String, Set<String>>();
             private Set<String> deletionCandidates;
+            private long associationErrors;
 
             private long latestTime;
 
@@ -1027,6 +1067,17 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                 return this.deletionCandidates;
             }
 
+            public long getAssociationErrors()
+            {
+                return this.associationErrors;
+            }
+
+            public Set<String> getSkippedParentAssocs(String personName)
+            {
+                Set<String> parents = this.skippedPersonParentAssocs.get(personName);
+                return parents == null ? Collections.<String> emptySet() : parents;
+            }
+
             public String getIdentifier(NodeDescription entry)
             {
                 return entry.getSourceId();
@@ -1037,10 +1088,24 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                 PropertyMap groupProperties = group.getProperties();
                 String groupName = (String) groupProperties.get(ContentModel.PROP_AUTHORITY_NAME);
                 String groupShortName = ChainingUserRegistrySynchronizer.this.authorityService.getShortName(groupName);
-                Set<String> groupZones = ChainingUserRegistrySynchronizer.this.authorityService
+                String groupHash = contentHashes == null ? null : AuthorityContentHashes.getHash(groupProperties,
+                        group.getChildAssociations());
+                // A group already in this zone whose properties and members have not changed since it was last
+                // synchronized is left alone, without reading its node
+                boolean unchanged = groupHash != null && contentHashes.isUnchangedInZone(groupName, groupHash);
+                Set<String> groupZones = unchanged ? null : ChainingUserRegistrySynchronizer.this.authorityService
                         .getAuthorityZones(groupName);
 
-                if (groupZones == null)
+                if (unchanged)
+                {
+                    if (ChainingUserRegistrySynchronizer.logger.isDebugEnabled())
+                    {
+                        ChainingUserRegistrySynchronizer.logger.debug("Skipping unchanged group '"
+                                + groupShortName + "'");
+                    }
+                    recordSkippedGroup(group);
+                }
+                else if (groupZones == null)
                 {
                     // The group did not exist at all
                     updateGroup(group, false);
@@ -1096,6 +1161,12 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                     }
                 }
 
+                if (groupHash != null)
+                {
+                    // Only retained once the group's associations have all been applied
+                    contentHashes.recordPending(groupName, groupHash);
+                }
+
                 synchronized (this)
                 {
                     // Maintain the last modified date
@@ -1227,6 +1298,40 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                 }
             }
 
+            // Remembers the members of a group that was skipped, so that any of them (re)created by this
+            // synchronization can still be added to it
+            private synchronized void recordSkippedGroup(NodeDescription group)
+            {
+                String groupName = (String) group.getProperties().get(ContentModel.PROP_AUTHORITY_NAME);
+                for (String child : group.getChildAssociations())
+                {
+                    Map<String, Set<String>> parentAssocs = AuthorityType.getAuthorityType(child) == AuthorityType.USER ? this.skippedPersonParentAssocs : this.skippedGroupParentAssocs;
+                    Set<String> parents = parentAssocs.get(child);
+                    if (parents == null)
+                    {
+                        parents = new TreeSet<String>();
+                        parentAssocs.put(child, parents);
+                    }
+                    parents.add(groupName);
+                }
+            }
+
+            // Schedules the associations of groups about to be (re)created to the skipped groups that contain them
+            private void restoreSkippedGroupAssociations()
+            {
+                for (String child : this.groupsToCreate.keySet())
+                {
+                    Set<String> parents = this.skippedGroupParentAssocs.get(child);
+                    if (parents != null)
+                    {
+                        for (String parent : parents)
+                        {
+                            recordParentAssociationCreation(child, parent);
+                        }
+                    }
+                }
+            }
+
             private void recordParentAssociationDeletion(String child, String parent)
             {
                 Map<String, Set<String>> parentAssocs;
@@ -1496,6 +1601,8 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
 
             private void processGroups(UserRegistry userRegistry, boolean isFullSync, boolean splitTxns)
             {
+               restoreSkippedGroupAssociations();
+
                // MNT-12454 fix. If syncDelete is false, there is no need to pull all users and all groups from LDAP during the full synchronization.
                if ((syncDelete || !groupsToCreate.isEmpty()) && (isFullSync || !this.groupParentAssocsToDelete.isEmpty()))
                {
@@ -1576,6 +1683,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                                           Collections.singleton(AuthorityService.ZONE_AUTH_ALFRESCO));
                                 }
                             }, splitTxns);
+                            this.associationErrors += groupScanner.getTotalErrorsLong();
                         }
 
                     }
@@ -1635,6 +1743,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                                 }
                             }
                         }, splitTxns);
+                        this.associationErrors += groupCreator.getTotalErrorsLong();
                     }
                 }
             }
@@ -1669,6 +1778,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                             maintainAssociationCreationsToRezone(entry.getKey());
                         }
                     }, splitTxns);
+                    this.associationErrors += groupCreator.getTotalErrorsLong();
                 }
 
                 // Remove all the associations we have already dealt with
@@ -1703,6 +1813,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                             maintainAssociationCreationsToRezone(entry.getKey());
                         }
                     }, splitTxns);
+                    this.associationErrors += groupCreator.getTotalErrorsLong();
                 }
             }
 
@@ -1891,9 +2002,20 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
 
                 // for invalid names will throw ConstraintException that will be catched by BatchProcessor$TxnCallback
                 nameChecker.evaluate(personName);
-                Set<String> zones = ChainingUserRegistrySynchronizer.this.authorityService
+                String personHash = contentHashes == null ? null : AuthorityContentHashes.getHash(personProperties, null);
+                // A person already in this zone that has not changed since it was last synchronized is left alone,
+                // without reading its node
+                boolean unchanged = personHash != null && contentHashes.isUnchangedInZone(personName, personHash);
+                Set<String> zones = unchanged ? null : ChainingUserRegistrySynchronizer.this.authorityService
                         .getAuthorityZones(personName);
-                if (zones == null)
+                if (unchanged)
+                {
+                    if (ChainingUserRegistrySynchronizer.logger.isDebugEnabled())
+                    {
+                        ChainingUserRegistrySynchronizer.logger.debug("Skipping unchanged user '" + personName + "'");
+                    }
+                }
+                else if (zones == null)
                 {
                     // The person did not exist at all
                     if (ChainingUserRegistrySynchronizer.logger.isDebugEnabled())
@@ -1901,6 +2023,7 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                         ChainingUserRegistrySynchronizer.logger.debug("Creating user '" + personName + "'");
                     }
                     ChainingUserRegistrySynchronizer.this.personService.createPerson(personProperties, zoneSet);
+                    restoreSkippedParentAssocs(personName);
                 }
                 else if (zones.contains(zoneId))
                 {
@@ -1952,9 +2075,15 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                         }
                         ChainingUserRegistrySynchronizer.this.personService.deletePerson(personName);
                         ChainingUserRegistrySynchronizer.this.personService.createPerson(personProperties, zoneSet);
+                        restoreSkippedParentAssocs(personName);
                     }
                 }
 
+                if (personHash != null)
+                {
+                    contentHashes.recordOnCommit(personName, personHash);
+                }
+
                 // Maintain association deletions and creations in one shot (safe to do this with persons as we can't
                 // create cycles)
                 groupAnalyzer.maintainAssociationDeletions(personName);
@@ -1971,6 +2100,16 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                     }
                 }
             }
+
+            // A person created by this synchronization must also join the unchanged groups that were skipped
+            private void restoreSkippedParentAssocs(String personName)
+            {
+                Set<String> parents = groupAnalyzer.getSkippedParentAssocs(personName);
+                if (!parents.isEmpty())
+                {
+                    ChainingUserRegistrySynchronizer.this.authorityService.addAuthority(parents, personName);
+                }
+            }
         }
 
         PersonWorker persons = new PersonWorker(lastModifiedMillis);
@@ -1993,6 +2132,17 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                     latestTime, splitTxns);
         }
 
+        if (contentHashes != null)
+        {
+            // A group's hash covers its members, so it can only be trusted if all of its associations were applied
+            if (groupProcessor.getTotalErrorsLong() == 0 && groupAnalyzer.getAssociationErrors() == 0
+                    && personProcessor.getTotalErrorsLong() == 0)
+            {
+                contentHashes.retainPending();
+            }
+            setContentHashes(zone, zoneId, contentHashes.getChangedHashes(), splitTxns);
+        }
+
         // Delete authorities if we have complete information for the zone
         Set<String> deletionCandidates = groupAnalyzer.getDeletionCandidates();
         if (isFullSync && allowDeletions && !deletionCandidates.isEmpty())
@@ -2036,6 +2186,8 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                             ChainingUserRegistrySynchronizer.logger.debug("Deleting user '" + authority + "'");
                         }
                         ChainingUserRegistrySynchronizer.this.personService.deletePerson(authority);
+                        ChainingUserRegistrySynchronizer.this.attributeService.removeAttribute(
+                                AuthorityContentHashes.HASH_ATTRIBUTE_PATH, zoneId, authority);
                         synchronized (this)
                         {
                             this.personProcessedCount++;
@@ -2050,6 +2202,8 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                                     + "'");
                         }
                         ChainingUserRegistrySynchronizer.this.authorityService.deleteAuthority(authority);
+                        ChainingUserRegistrySynchronizer.this.attributeService.removeAttribute(
+                                AuthorityContentHashes.HASH_ATTRIBUTE_PATH, zoneId, authority);
                         synchronized (this)
                         {
                             this.groupProcessedCount++;
@@ -2106,6 +2260,93 @@ public class ChainingUserRegistrySynchronizer extends AbstractLifecycleBean
                 }, true, splitTxns);
     }
 
+    /**
+     * Gets the content hashes persisted by the previous synchronization of a zone, along with the authorities
+     * currently in the zone, which are the only ones that may be skipped.
+     * 
+     * @param zoneId
+     *            the zone id
+     * @param forceUpdate
+     *            if true no authority may be skipped, so the zone's authorities are not loaded
+     * @param splitTxns
+     *            split transactions, if true run this in a separate transaction
+     * @return the content hashes
+     */
+    private AuthorityContentHashes getContentHashes(final String zoneId, final boolean forceUpdate, boolean splitTxns)
+    {
+        final Map<String, String> hashes = new HashMap<String, String>(1024);
+        final Set<String> zoneAuthorities = new HashSet<String>(1024);
+        this.transactionService.getRetryingTransactionHelper().doInTransaction(
+                new RetryingTransactionCallback<Void>()
+                {
+                    public Void execute() throws Throwable
+                    {
+                        hashes.clear();
+                        zoneAuthorities.clear();
+                        if (!forceUpdate)
+                        {
+                            zoneAuthorities.addAll(ChainingUserRegistrySynchronizer.this.authorityService
+                                    .getAllAuthoritiesInZone(zoneId, AuthorityType.USER));
+                            zoneAuthorities.addAll(ChainingUserRegistrySynchronizer.this.authorityService
+                                    .getAllAuthoritiesInZone(zoneId, AuthorityType.GROUP));
+                        }
+                        ChainingUserRegistrySynchronizer.this.attributeService.getAttributes(
+                                new AttributeQueryCallback()
+                                {
+                                    public boolean handleAttribute(Long id, Serializable value, Serializable[] keys)
+                                    {
+                                        hashes.put((String) keys[2], (String) value);
+                                        return true;
+                                    }
+                                }, AuthorityContentHashes.HASH_ATTRIBUTE_PATH, zoneId);
+                        return null;
+                    }
+                }, true, splitTxns);
+        return new AuthorityContentHashes(hashes, zoneAuthorities);
+    }
+
+    /**
+     * Persists the content hashes of the authorities applied by a synchronization of a zone, in batches.
+     * 
+     * @param zone
+     *            the zone
+     * @param zoneId
+     *            the zone id
+     * @param hashes
+     *            the changed content hashes, keyed by authority name
+     * @param splitTxns
+     *            Can the modifications to Alfresco be split across multiple transactions for maximum performance?
+     */
+    private void setContentHashes(String zone, final String zoneId, Map<String, String> hashes, boolean splitTxns)
+    {
+        if (hashes.isEmpty())
+        {
+            return;
+        }
+        BatchProcessor<Map.Entry<String, String>> hashWriter = new BatchProcessor<Map.Entry<String, String>>(
+                SyncProcess.CONTENT_HASH_PERSISTENCE.getTitle(zone),
+                this.transactionService.getRetryingTransactionHelper(),
+                hashes.entrySet(),
+                this.workerThreads,
+                this.hashBatchSize,
+                this.applicationEventPublisher,
+                ChainingUserRegistrySynchronizer.logger,
+                this.loggingInterval);
+        hashWriter.process(new BaseBatchProcessWorker<Map.Entry<String, String>>()
+        {
+            public String getIdentifier(Map.Entry<String, String> entry)
+            {
+                return entry.getKey();
+            }
+
+            public void process(Map.Entry<String, String> entry) throws Throwable
+            {
+                ChainingUserRegistrySynchronizer.this.attributeService.setAttribute(entry.getValue(),
+                        AuthorityContentHashes.HASH_ATTRIBUTE_PATH, zoneId, entry.getKey());
+            }
+        }, splitTxns);
+    }
+
     /**
      * Persists the most recent update time for a label and zone.
      * 
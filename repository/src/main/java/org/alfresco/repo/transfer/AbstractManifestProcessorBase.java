@@ -55,7 +55,7 @@ import org.apache.commons.logging.LogFactory;
  * some utility methods for sub-classes.
  * @author Brian
  */
-public abstract class AbstractManifestProcessorBase implements TransferManifestProcessor,TransferSummaryAware
+public abstract class AbstractManifestProcessorBase implements TransferManifestProcessor,TransferSummaryAware,ChunkStateAware
 {
     private static final Log log = LogFactory.getLog(AbstractManifestProcessorBase.class);
     private static final String MSG_ERROR_WHILE_COMMITTING_TRANSFER = "transfer_service.receiver.error_committing_transfer";
@@ -331,6 +331,19 @@ public abstract class AbstractManifestProcessorBase implements TransferManifestP
         return transferSummaryReport;
     }
 
+    // chunked commit support
+    public Object getChunkState()
+    {
+        return new int[] { targetEndProgress, currProgress };
+    }
+
+    public void restoreChunkState(Object chunkState)
+    {
+        int[] progress = (int[]) chunkState;
+        targetEndProgress = progress[0];
+        currProgress = progress[1];
+    }
+
     protected void logSummaryComment(String message)
     {
         TransferSummaryReport transferSummaryReport = getTransferSummaryReport();
@@ -0,0 +1,49 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.transfer;
+
+/**
+ * Implemented by manifest processors that keep state from one manifest node to the next, so that the
+ * {@link ChunkedManifestProcessor} can put the state back when the transaction of a chunk is rolled back
+ * and the chunk is applied again.
+ *
+ * @since 23.2
+ */
+public interface ChunkStateAware
+{
+    /**
+     * @return a copy of the state kept between manifest nodes, unaffected by later changes to the processor
+     */
+    Object getChunkState();
+
+    /**
+     * Put back the state kept between manifest nodes, discarding the changes made since it was taken.
+     * The same state may be restored more than once.
+     *
+     * @param chunkState a state returned by {@link #getChunkState()}
+     */
+    void restoreChunkState(Object chunkState);
+}
@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.transfer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alfresco.repo.policy.BehaviourFilter;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.repo.transfer.manifest.TransferManifestDeletedNode;
+import org.alfresco.repo.transfer.manifest.TransferManifestHeader;
+import org.alfresco.repo.transfer.manifest.TransferManifestNode;
+import org.alfresco.repo.transfer.manifest.TransferManifestNormalNode;
+import org.alfresco.repo.transfer.manifest.TransferManifestProcessor;
+import org.alfresco.service.Experimental;
+import org.alfresco.service.cmr.transfer.TransferProgress;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Applies a transfer manifest to a commit processor in chunks, each in its own transaction, rather than in the single
+ * transaction that spans the whole commit.
+ * <p>
+ * The nodes read from the manifest are buffered until a chunk is full and are then handed to the wrapped processor in
+ * a new transaction with behaviours disabled. The start, header and end of the manifest are applied with the first and
+ * last chunks. Any state the processor keeps between nodes, such as the orphans of the primary processor, carries
+ * over from one chunk to the next. Processors that are {@link ChunkStateAware} have that state, along with the
+ * progress of the transfer, put back before each attempt at a chunk, so that a chunk retried after a rolled back
+ * attempt starts from the state left by the last committed chunk.
+ * <p>
+ * This mode is experimental and does not make the commit resumable. Once a chunk has committed it stays committed.
+ * If a chunk fails, the error has already been recorded against the transfer by the processor, so the chunk is rolled
+ * back, the number of nodes committed so far is logged and the rest of the manifest is abandoned. The transfer then
+ * leaves partial state behind: the nodes of the earlier chunks remain in place, orphans remain in the temporary folder
+ * of the transfer and the summary report may list nodes of the rolled back attempts. The whole transfer has to be
+ * sent again to complete it.
+ *
+ * @since 23.2
+ */
+@Experimental
+public class ChunkedManifestProcessor implements TransferManifestProcessor
+{
+    private static final Log log = LogFactory.getLog(ChunkedManifestProcessor.class);
+    private static final String MSG_ERROR_WHILE_COMMITTING_TRANSFER = "transfer_service.receiver.error_committing_transfer";
+
+    private final TransferManifestProcessor processor;
+    private final String transferId;
+    private final TransferProgressMonitor progressMonitor;
+    private final RetryingTransactionHelper transactionHelper;
+    private final BehaviourFilter behaviourFilter;
+    private final int chunkSize;
+
+    private final List<TransferManifestNode> chunk;
+    private boolean startPending;
+    private TransferManifestHeader pendingHeader;
+    private int committedNodes;
+
+    /**
+     * @param processor the commit processor to apply the manifest to
+     * @param transferId the transfer being committed
+     * @param progressMonitor the monitor that the processor records its errors with
+     * @param transactionHelper the helper used to run each chunk in a new transaction
+     * @param behaviourFilter the filter used to disable behaviours for each chunk
+     * @param chunkSize the maximum number of manifest nodes applied per transaction
+     */
+    public ChunkedManifestProcessor(TransferManifestProcessor processor, String transferId,
+            TransferProgressMonitor progressMonitor, RetryingTransactionHelper transactionHelper,
+            BehaviourFilter behaviourFilter, int chunkSize)
+    {
+        if (chunkSize < 1)
+        {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.processor = processor;
+        this.transferId = transferId;
+        this.progressMonitor = progressMonitor;
+        this.transactionHelper = transactionHelper;
+        this.behaviourFilter = behaviourFilter;
+        this.chunkSize = chunkSize;
+        this.chunk = new ArrayList<TransferManifestNode>(chunkSize);
+    }
+
+    public void startTransferManifest()
+    {
+        startPending = true;
+    }
+
+    public void processTransferManifiestHeader(TransferManifestHeader header)
+    {
+        pendingHeader = header;
+    }
+
+    public void processTransferManifestNode(TransferManifestNormalNode node)
+    {
+        addToChunk(node);
+    }
+
+    public void processTransferManifestNode(TransferManifestDeletedNode node)
+    {
+        addToChunk(node);
+    }
+
+    public void endTransferManifest()
+    {
+        applyChunk(true);
+    }
+
+    /**
+     * @return the number of manifest nodes committed so far
+     */
+    public int getCommittedNodes()
+    {
+        return committedNodes;
+    }
+
+    private void addToChunk(TransferManifestNode node)
+    {
+        chunk.add(node);
+        if (chunk.size() >= chunkSize)
+        {
+            applyChunk(false);
+        }
+    }
+
+    private void applyChunk(final boolean endOfManifest)
+    {
+        // Take the state left by the last committed chunk, to start each attempt at this chunk from
+        final Object chunkState = processor instanceof ChunkStateAware ? ((ChunkStateAware) processor).getChunkState() : null;
+        TransferProgress progress = progressMonitor.getProgress(transferId);
+        final int currentPosition = progress.getCurrentPosition();
+        final int endPosition = progress.getEndPosition();
+        RetryingTransactionCallback<Void> chunkWork = new RetryingTransactionCallback<Void>()
+        {
+            public Void execute() throws Throwable
+            {
+                if (chunkState != null)
+                {
+                    ((ChunkStateAware) processor).restoreChunkState(chunkState);
+                }
+                // The progress is kept in its own transactions, so a rolled back attempt does not undo it
+                progressMonitor.updateProgress(transferId, currentPosition, endPosition);
+                behaviourFilter.disableBehaviour();
+                try
+                {
+                    if (startPending)
+                    {
+                        processor.startTransferManifest();
+                    }
+                    if (pendingHeader != null)
+                    {
+                        processor.processTransferManifiestHeader(pendingHeader);
+                    }
+                    for (TransferManifestNode node : chunk)
+                    {
+                        if (node instanceof TransferManifestDeletedNode)
+                        {
+                            processor.processTransferManifestNode((TransferManifestDeletedNode) node);
+                        }
+                        else
+                        {
+                            processor.processTransferManifestNode((TransferManifestNormalNode) node);
+                        }
+                    }
+                    if (endOfManifest)
+                    {
+                        processor.endTransferManifest();
+                    }
+                }
+                finally
+                {
+                    behaviourFilter.enableBehaviour();
+                }
+                return null;
+            }
+        };
+        transactionHelper.doInTransaction(chunkWork, false, true);
+
+        // Non-fatal errors are recorded against the transfer and roll the chunk back rather than being thrown
+        Throwable error = progressMonitor.getProgress(transferId).getError();
+        if (error != null)
+        {
+            progressMonitor.logComment(transferId, "Chunked commit stopped after " + committedNodes
+                    + " committed nodes");
+            throw new TransferFatalException(MSG_ERROR_WHILE_COMMITTING_TRANSFER, new Object[] { transferId }, error);
+        }
+
+        committedNodes += chunk.size();
+        startPending = false;
+        pendingHeader = null;
+        chunk.clear();
+        if (log.isDebugEnabled())
+        {
+            log.debug("Committed " + committedNodes + " manifest nodes for transfer " + transferId);
+        }
+    }
+}
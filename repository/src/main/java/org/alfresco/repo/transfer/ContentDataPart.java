@@ -29,6 +29,7 @@ package org.alfresco.repo.transfer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.alfresco.service.cmr.repository.ContentData;
 import org.alfresco.service.cmr.repository.ContentService;
@@ -51,6 +52,7 @@ public class ContentDataPart extends PartBase
     private ContentService contentService;
     private ContentData data;
     private String filename;
+    private boolean compress;
 
     /**
      * ContentDataPart 
@@ -59,10 +61,22 @@ public class ContentDataPart extends PartBase
      * @param data data
      */
     public ContentDataPart(ContentService contentService, String partName, ContentData data) {
+        this(contentService, partName, data, false);
+    }
+
+    /**
+     * ContentDataPart 
+     * @param contentService content service
+     * @param partName String
+     * @param data data
+     * @param compress true to send the content gzip compressed, the length of the part is then unknown
+     */
+    public ContentDataPart(ContentService contentService, String partName, ContentData data, boolean compress) {
         super(partName, data.getMimetype(), data.getEncoding(), null);
         this.contentService = contentService;
         this.data = data;
         this.filename = partName;
+        this.compress = compress;
     }
 
     /**
@@ -88,6 +102,11 @@ public class ContentDataPart extends PartBase
     @Override
     protected long lengthOfData() throws IOException
     {
+        if (compress)
+        {
+            // The compressed length is not known until the content has been sent
+            return -1;
+        }
         return contentService.getRawReader(data.getContentUrl()).getSize();
     }
 
@@ -100,6 +119,12 @@ public class ContentDataPart extends PartBase
 
         // Get the content from the content URL and write it to out
         InputStream is = contentService.getRawReader(data.getContentUrl()).getContentInputStream();
+        GZIPOutputStream gzip = null;
+        if (compress)
+        {
+            gzip = new GZIPOutputStream(out);
+            out = gzip;
+        }
         
         try 
         {
@@ -109,6 +134,11 @@ public class ContentDataPart extends PartBase
             {
                 out.write(tmp, 0, len);
             }
+            if (gzip != null)
+            {
+                // finish rather than close, the request stream is still in use
+                gzip.finish();
+            }
         } 
         finally 
         {
@@ -43,6 +43,11 @@ public class DeltaList
     
     private TreeSet<String> requiredParts = new TreeSet<String>();
     
+    /**
+     * The content encoding accepted by the receiver, null if content must be sent as is
+     */
+    private String contentEncoding;
+    
     /**
      * get the list of URLs reqired by the manifest.
      * @return the list of required URLs
@@ -51,5 +56,19 @@ public class DeltaList
     {
         return requiredParts;
     }
+    
+    public void setContentEncoding(String contentEncoding)
+    {
+        this.contentEncoding = contentEncoding;
+    }
+    
+    /**
+     * get the content encoding accepted by the receiver.
+     * @return the content encoding or null if content must be sent as is
+     */
+    public String getContentEncoding()
+    {
+        return contentEncoding;
+    }
      
 }
@@ -42,6 +42,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
+import org.alfresco.repo.transfer.requisite.RequsiteModel;
 import org.alfresco.service.cmr.repository.AssociationRef;
 import org.alfresco.service.cmr.repository.ContentData;
 import org.alfresco.service.cmr.repository.ContentService;
@@ -108,6 +109,7 @@ public class HttpClientTransmitterImpl implements TransferTransmitter
 
     private NodeService nodeService;
     private boolean isAuthenticationPreemptive = false;
+    private boolean compressContent = true;
 
     private ProxyHost httpProxyHost;
     private ProxyHost httpsProxyHost;
@@ -173,6 +175,15 @@ public class HttpClientTransmitterImpl implements TransferTransmitter
     {
         this.isAuthenticationPreemptive = isAuthenticationPreemptive;
     }
+
+    /**
+     * Whether content is sent gzip compressed to targets that accept it.
+     * @param compressContent boolean
+     */
+    public void setCompressContent(boolean compressContent)
+    {
+        this.compressContent = compressContent;
+    }
     
     /* (non-Javadoc)
      * @see org.alfresco.repo.transfer.Transmitter#verifyTarget(org.alfresco.service.cmr.transfer.TransferTarget)
@@ -643,13 +654,22 @@ public class HttpClientTransmitterImpl implements TransferTransmitter
             try
             {
                 postContentRequest.setPath(target.getEndpointPath() + "/post-content");
-                //Put the transferId on the query string
-                postContentRequest.setQueryString(
-                        new NameValuePair[] {new NameValuePair("transferId", transfer.getTransferId())});
 
-                //Put the transferId on the query string
-                postContentRequest.setQueryString(
+                // Only compress if the target has told us it can decompress
+                boolean compress = compressContent && RequsiteModel.CONTENT_ENCODING_GZIP.equals(transfer.getContentEncoding());
+
+                //Put the transferId and content encoding on the query string
+                if (compress)
+                {
+                    postContentRequest.setQueryString(
+                            new NameValuePair[] {new NameValuePair("transferId", transfer.getTransferId()),
+                                    new NameValuePair(RequsiteModel.ATTRIBUTE_CONTENT_ENCODING, RequsiteModel.CONTENT_ENCODING_GZIP)});
+                }
+                else
+                {
+                    postContentRequest.setQueryString(
                             new NameValuePair[] {new NameValuePair("transferId", transfer.getTransferId())});
+                }
 
                 Part[] parts = new Part[data.size()];
 
@@ -660,7 +680,7 @@ public class HttpClientTransmitterImpl implements TransferTransmitter
                     String fileName = TransferCommons.URLToPartName(contentUrl);
                     log.debug("content partName: " + fileName);
 
-                    parts[index++] = new ContentDataPart(getContentService(), fileName, content);
+                    parts[index++] = new ContentDataPart(getContentService(), fileName, content, compress);
                 }
 
                 MultipartRequestEntity requestEntity = new MultipartRequestEntity(parts, postContentRequest.getParams());
@@ -151,6 +151,36 @@ public class RepoPrimaryManifestProcessorImpl extends AbstractManifestProcessorB
         }
     }
 
+    /**
+     * The orphans and category mappings are kept along with the progress, as a rolled back chunk may have
+     * claimed orphans or mapped categories that no longer exist.
+     */
+    @Override
+    public Object getChunkState()
+    {
+        return new Object[] { super.getChunkState(), copyOrphans(orphans), new HashMap<NodeRef, NodeRef>(categoryMap) };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void restoreChunkState(Object chunkState)
+    {
+        Object[] state = (Object[]) chunkState;
+        super.restoreChunkState(state[0]);
+        orphans = copyOrphans((Map<NodeRef, List<ChildAssociationRef>>) state[1]);
+        categoryMap = new HashMap<NodeRef, NodeRef>((Map<NodeRef, NodeRef>) state[2]);
+    }
+
+    private static Map<NodeRef, List<ChildAssociationRef>> copyOrphans(Map<NodeRef, List<ChildAssociationRef>> orphans)
+    {
+        Map<NodeRef, List<ChildAssociationRef>> copy = new HashMap<NodeRef, List<ChildAssociationRef>>(89);
+        for (Map.Entry<NodeRef, List<ChildAssociationRef>> entry : orphans.entrySet())
+        {
+            copy.put(entry.getKey(), new ArrayList<ChildAssociationRef>(entry.getValue()));
+        }
+        return copy;
+    }
+
     /**
      * 
      */
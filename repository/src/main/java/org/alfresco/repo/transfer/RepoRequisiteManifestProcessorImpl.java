@@ -30,12 +30,15 @@ import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.transfer.manifest.TransferManifestDeletedNode;
 import org.alfresco.repo.transfer.manifest.TransferManifestHeader;
 import org.alfresco.repo.transfer.manifest.TransferManifestNormalNode;
+import org.alfresco.repo.transfer.requisite.RequsiteModel;
 import org.alfresco.repo.transfer.requisite.TransferRequsiteWriter;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.ContentData;
@@ -58,6 +61,7 @@ public class RepoRequisiteManifestProcessorImpl extends AbstractManifestProcesso
     private NodeService nodeService;
     private CorrespondingNodeResolver nodeResolver;
     private TransferRequsiteWriter out;
+    private Set<String> requestedParts = new HashSet<String>();
     
     
     private static final Log log = LogFactory.getLog(RepoRequisiteManifestProcessorImpl.class);
@@ -166,7 +170,7 @@ public class RepoRequisiteManifestProcessorImpl extends AbstractManifestProcesso
                                     {
                                         log.debug("part name not transferred, requesting new content item partName:" + partName + ", nodeRef:" + node.getNodeRef());
                                     }
-                                    out.missingContent(node.getNodeRef(), propEntry.getKey(), TransferCommons.URLToPartName(srcContent.getContentUrl()));
+                                    requestContent(node.getNodeRef(), propEntry.getKey(), TransferCommons.URLToPartName(srcContent.getContentUrl()));
                                 }
                             }
                             else
@@ -176,7 +180,7 @@ public class RepoRequisiteManifestProcessorImpl extends AbstractManifestProcesso
                                 {
                                     log.debug("from contents is null, requesting new content item partName:" + partName + ", nodeRef:" + node.getNodeRef());
                                 }
-                                out.missingContent(node.getNodeRef(), propEntry.getKey(), TransferCommons.URLToPartName(srcContent.getContentUrl()));
+                                requestContent(node.getNodeRef(), propEntry.getKey(), TransferCommons.URLToPartName(srcContent.getContentUrl()));
                             }
                         }
                         else
@@ -189,7 +193,7 @@ public class RepoRequisiteManifestProcessorImpl extends AbstractManifestProcesso
                                 log.debug("no content on destination, all content is required" + propEntry.getKey() + srcContent.getContentUrl());
                             }
                             //  We don't have the property on the destination node 
-                            out.missingContent(node.getNodeRef(), propEntry.getKey(), TransferCommons.URLToPartName(srcContent.getContentUrl()));
+                            requestContent(node.getNodeRef(), propEntry.getKey(), TransferCommons.URLToPartName(srcContent.getContentUrl()));
                         }
                     }
                 } // src content url not null
@@ -221,13 +225,29 @@ public class RepoRequisiteManifestProcessorImpl extends AbstractManifestProcesso
                         {
                             log.debug("no node on destination, content is required" + propEntry.getKey() + srcContent.getContentUrl());
                         }
-                        out.missingContent(node.getNodeRef(), propEntry.getKey(), TransferCommons.URLToPartName(srcContent.getContentUrl()));
+                        requestContent(node.getNodeRef(), propEntry.getKey(), TransferCommons.URLToPartName(srcContent.getContentUrl()));
                     }
                 }
             }
         }        
     }
     
+    /**
+     * Request a content part from the sender.   The same part may be referenced by many
+     * nodes in the manifest but it only needs to be transferred once.
+     */
+    private void requestContent(NodeRef nodeRef, QName propName, String partName)
+    {
+        if(requestedParts.add(partName))
+        {
+            out.missingContent(nodeRef, propName, partName);
+        }
+        else if(log.isDebugEnabled())
+        {
+            log.debug("part already requested, partName:" + partName + ", nodeRef:" + nodeRef);
+        }
+    }
+    
     protected void processHeader(TransferManifestHeader header)
     {
         // T.B.D
@@ -241,7 +261,7 @@ public class RepoRequisiteManifestProcessorImpl extends AbstractManifestProcesso
     protected void startManifest()
     {
         log.debug("Start Requsite");
-        out.startTransferRequsite();
+        out.startTransferRequsite(RequsiteModel.CONTENT_ENCODING_GZIP);
     }
 
     /**
@@ -71,6 +71,7 @@ import org.alfresco.repo.transfer.ChangeCapturingProgressMonitor.TransferChanges
 import org.alfresco.repo.transfer.manifest.TransferManifestProcessor;
 import org.alfresco.repo.transfer.manifest.XMLTransferManifestReader;
 import org.alfresco.repo.transfer.requisite.XMLTransferRequsiteWriter;
+import org.alfresco.service.Experimental;
 import org.alfresco.service.cmr.action.Action;
 import org.alfresco.service.cmr.action.ActionService;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
@@ -237,6 +238,11 @@ public class RepoTransferReceiverImpl implements TransferReceiver,
      */
     private long lockTimeOut = 3600000;
 
+    /**
+     * How many manifest nodes to commit per transaction, or zero to commit the whole manifest in one transaction
+     */
+    private int commitChunkSize = 0;
+
     public void init()
     {
         PropertyCheck.mandatory(this, "nodeService", nodeService);
@@ -902,7 +908,12 @@ public class RepoTransferReceiverImpl implements TransferReceiver,
                         // We parse the file as many times as we have processors
                         for (TransferManifestProcessor processor : commitProcessors)
                         {
-                            XMLTransferManifestReader reader = new XMLTransferManifestReader(processor);
+                            // In chunked mode each processor commits its own bounded transactions, so that a failure
+                            // only rolls back the chunk in progress
+                            XMLTransferManifestReader reader = new XMLTransferManifestReader(commitChunkSize > 0 ?
+                                    new ChunkedManifestProcessor(processor, transferId, progressMonitor,
+                                            transactionService.getRetryingTransactionHelper(), behaviourFilter,
+                                            commitChunkSize) : processor);
 
                             //behaviourFilter.disableBehaviour(ContentModel.ASPECT_AUDITABLE);
                             behaviourFilter.disableBehaviour();
@@ -1462,6 +1473,22 @@ public class RepoTransferReceiverImpl implements TransferReceiver,
         return lockRefreshTime;
     }
 
+    /**
+     * Experimental, see {@link ChunkedManifestProcessor}
+     *
+     * @param commitChunkSize how many manifest nodes to commit per transaction, or zero to commit the whole manifest in one transaction
+     */
+    @Experimental
+    public void setCommitChunkSize(int commitChunkSize)
+    {
+        this.commitChunkSize = commitChunkSize;
+    }
+
+    public int getCommitChunkSize()
+    {
+        return commitChunkSize;
+    }
+
     /**
      * A Transfer Lock
      */
@@ -38,6 +38,7 @@ public class Transfer
     private String transferId;
     private TransferTarget transferTarget;
     private TransferVersion toVersion;
+    private String contentEncoding;
     
 
     public void setTransferId(String transferId)
@@ -106,4 +107,20 @@ public class Transfer
     {
         return toVersion;
     }
+
+    /**
+     * @param contentEncoding the content encoding accepted by the remote system, e.g. gzip
+     */
+    public void setContentEncoding(String contentEncoding)
+    {
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @return the content encoding accepted by the remote system, or null if content is sent as is
+     */
+    public String getContentEncoding()
+    {
+        return contentEncoding;
+    }
 }
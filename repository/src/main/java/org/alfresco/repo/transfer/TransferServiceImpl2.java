@@ -42,11 +42,18 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import jakarta.transaction.UserTransaction;
 import javax.xml.parsers.ParserConfigurationException;
@@ -56,6 +63,8 @@ import javax.xml.parsers.SAXParserFactory;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.repo.transfer.manifest.TransferManifestDeletedNode;
 import org.alfresco.repo.transfer.manifest.TransferManifestHeader;
@@ -101,6 +110,7 @@ import org.alfresco.service.namespace.RegexQNamePattern;
 import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.util.PropertyCheck;
 import org.alfresco.util.TempFileProvider;
+import org.alfresco.util.TraceableThreadFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.xml.sax.SAXException;
@@ -176,6 +186,11 @@ public class TransferServiceImpl2 implements TransferService2
      */
     private long commitPollDelay = 2000;
     
+    /**
+     * How many content chunks may be in flight to the target at once.
+     */
+    private int contentThreads = 2;
+    
     /**
      * Create a new in memory transfer target
      */
@@ -1031,6 +1046,28 @@ public class TransferServiceImpl2 implements TransferService2
         parser.parse(requisite, reqReader);
         
         final DeltaList deltaList = reqProcessor.getDeltaList();
+        if(deltaList != null)
+        {
+            // the target tells us whether it will accept compressed content
+            transfer.setContentEncoding(deltaList.getContentEncoding());
+        }
+        
+        /**
+         * Content chunks are sent on a bounded pool, so at most contentThreads chunks are in flight 
+         * and the manifest parse sends the chunk itself when the pool is busy.
+         */
+        ExecutorService executorService = null;
+        if(contentThreads > 1)
+        {
+            TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+            threadFactory.setNamePrefix("TransferContent");
+            threadFactory.setThreadDaemon(true);
+            executorService = new ThreadPoolExecutor(contentThreads, contentThreads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(contentThreads), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        final ExecutorService contentSender = executorService;
+        final List<Future<?>> contentSends = new LinkedList<Future<?>>();
+        final String runAsUser = AuthenticationUtil.getRunAsUser();
     
         /**
          * Parse the manifest file and transfer chunks over
@@ -1056,7 +1093,31 @@ public class TransferServiceImpl2 implements TransferService2
                         counter++;
                         eventProcessor.sendContent(file, fRange, counter);
                     }
-                    transmitter.sendContent(transfer, data);
+                    if(contentSender == null)
+                    {
+                        transmitter.sendContent(transfer, data);
+                        return;
+                    }
+                    
+                    // Fail fast if an earlier chunk could not be sent
+                    checkContentSends(contentSends, false);
+                    
+                    // the chunker clears its buffer once we return
+                    final Set<ContentData> chunk = new HashSet<ContentData>(data);
+                    contentSends.add(contentSender.submit(new Runnable()
+                    {
+                        public void run()
+                        {
+                            AuthenticationUtil.runAs(new RunAsWork<Void>()
+                            {
+                                public Void doWork() throws Exception
+                                {
+                                    transmitter.sendContent(transfer, chunk);
+                                    return null;
+                                }
+                            }, runAsUser);
+                        }
+                    }));
                 }
             }
         );
@@ -1080,7 +1141,9 @@ public class TransferServiceImpl2 implements TransferService2
                     if(deltaList != null)
                     {
                         String partName = TransferCommons.URLToPartName(d.getContentUrl());
-                        if(deltaList.getRequiredParts().contains(partName))
+                        
+                        // remove the part once queued, content shared by several nodes is only sent once
+                        if(deltaList.getRequiredParts().remove(partName))
                         {
                             logger.debug("content is required :" + d.getContentUrl());
                             chunker.addContent(d);
@@ -1111,8 +1174,56 @@ public class TransferServiceImpl2 implements TransferService2
         /**
          * Step 4: start the magic - Give the manifest file to the manifest reader
          */
-        parser.parse(manifest, reader);
-        chunker.flush();
+        try
+        {
+            parser.parse(manifest, reader);
+            chunker.flush();
+            checkContentSends(contentSends, true);
+        }
+        finally
+        {
+            if(contentSender != null)
+            {
+                contentSender.shutdownNow();
+            }
+        }
+    }
+    
+    /**
+     * Check the content chunks sent so far, rethrowing the first failure.
+     * @param contentSends the outstanding content sends, completed sends are removed
+     * @param wait true to wait for all the sends to complete
+     */
+    private void checkContentSends(List<Future<?>> contentSends, boolean wait)
+    {
+        Iterator<Future<?>> iter = contentSends.iterator();
+        while(iter.hasNext())
+        {
+            Future<?> send = iter.next();
+            if(!wait && !send.isDone())
+            {
+                continue;
+            }
+            try
+            {
+                send.get();
+                iter.remove();
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if(cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException)cause;
+                }
+                throw new AlfrescoRuntimeException("Failed to send content", cause);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new AlfrescoRuntimeException("Interrupted while sending content", e);
+            }
+        }
     }
 
     /**
@@ -1427,6 +1538,14 @@ public class TransferServiceImpl2 implements TransferService2
         this.commitPollDelay = commitPollDelay;
     }
 
+    /**
+     * @param contentThreads how many content chunks may be sent to the target at once, 1 to send them in sequence
+     */
+    public void setContentThreads(int contentThreads)
+    {
+        this.contentThreads = contentThreads;
+    }
+
     public void setDescriptorService(DescriptorService descriptorService)
     {
         this.descriptorService = descriptorService;
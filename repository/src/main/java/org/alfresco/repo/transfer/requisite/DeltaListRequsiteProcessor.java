@@ -48,6 +48,11 @@ public class DeltaListRequsiteProcessor implements TransferRequsiteProcessor
         deltaList.getRequiredParts().add(name);
     }
     
+    public void contentEncoding(String contentEncoding)
+    {
+        deltaList.setContentEncoding(contentEncoding);
+    }
+    
     public void startTransferRequsite()
     {
         deltaList = new DeltaList();
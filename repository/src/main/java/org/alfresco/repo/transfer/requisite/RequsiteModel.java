@@ -44,6 +44,10 @@ public interface RequsiteModel extends TransferModel
     static final String LOCALNAME_ELEMENT_USERS = "users";
     static final String LOCALNAME_ELEMENT_USER = "user";
 
+    // Content encodings the receiver will accept for the missing content
+    static final String ATTRIBUTE_CONTENT_ENCODING = "contentEncoding";
+    static final String CONTENT_ENCODING_GZIP = "gzip";
+
     
     // Manifest file prefix
     static final String REQUSITE_PREFIX = "xferr";
@@ -52,6 +52,12 @@ public interface TransferRequsiteProcessor
      * @param name
      */
     public void missingContent(NodeRef node, QName qname, String name);
+
+    /**
+     * Called when the receiver accepts content in the given encoding, e.g. gzip
+     * @param contentEncoding
+     */
+    public void contentEncoding(String contentEncoding);
  
 
 }
@@ -46,6 +46,11 @@ public interface TransferRequsiteWriter
      * 
      */
     void startTransferRequsite() ;
+
+    /**
+     * Start the transfer requsite, advertising the content encoding accepted by the receiver
+     */
+    void startTransferRequsite(String contentEncoding) ;
        
     /**
      * 
@@ -207,6 +207,11 @@ public class XMLTransferRequsiteReader extends DefaultHandler implements Content
             if(elementName.equals(RequsiteModel.LOCALNAME_TRANSFER_REQUSITE))
             {
                 // Good we got this
+                String contentEncoding = atts.getValue("", RequsiteModel.ATTRIBUTE_CONTENT_ENCODING);
+                if(contentEncoding != null)
+                {
+                    processor.contentEncoding(contentEncoding);
+                }
             }
             else if(elementName.equals(RequsiteModel.LOCALNAME_ELEMENT_CONTENT))
             {
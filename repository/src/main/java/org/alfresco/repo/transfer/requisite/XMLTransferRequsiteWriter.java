@@ -70,6 +70,14 @@ public class XMLTransferRequsiteWriter implements TransferRequsiteWriter
      * Start the transfer manifest
      */
     public void startTransferRequsite()
+    {
+        startTransferRequsite(null);
+    }
+
+    /**
+     * Start the transfer manifest, advertising the content encoding accepted for missing content
+     */
+    public void startTransferRequsite(String contentEncoding)
     {
         try
         {
@@ -78,10 +86,17 @@ public class XMLTransferRequsiteWriter implements TransferRequsiteWriter
             this.writer.startPrefixMapping(PREFIX, RequsiteModel.TRANSFER_MODEL_1_0_URI);
             this.writer.startPrefixMapping("cm", NamespaceService.CONTENT_MODEL_1_0_URI);
 
+            AttributesImpl attributes = EMPTY_ATTRIBUTES;
+            if (contentEncoding != null)
+            {
+                attributes = new AttributesImpl();
+                attributes.addAttribute("uri", RequsiteModel.ATTRIBUTE_CONTENT_ENCODING, RequsiteModel.ATTRIBUTE_CONTENT_ENCODING, "String", contentEncoding);
+            }
+
             // Start Transfer Manifest // uri, name, prefix
             this.writer.startElement(TransferModel.TRANSFER_MODEL_1_0_URI,
                     RequsiteModel.LOCALNAME_TRANSFER_REQUSITE, PREFIX + ":"
-                                + RequsiteModel.LOCALNAME_TRANSFER_REQUSITE, EMPTY_ATTRIBUTES);
+                                + RequsiteModel.LOCALNAME_TRANSFER_REQUSITE, attributes);
         } 
         catch (SAXException se)
         {
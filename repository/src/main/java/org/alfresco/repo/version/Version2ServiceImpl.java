@@ -39,10 +39,17 @@ import java.util.Set;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.model.ContentModel;
 import org.alfresco.model.ForumModel;
+import org.alfresco.query.CannedQueryFactory;
+import org.alfresco.query.EmptyPagingResults;
+import org.alfresco.query.ListBackedPagingResults;
+import org.alfresco.query.PagingRequest;
+import org.alfresco.query.PagingResults;
 import org.alfresco.repo.policy.PolicyScope;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.version.VersionRevertCallback.RevertAspectAction;
 import org.alfresco.repo.version.VersionRevertCallback.RevertAssocAction;
+import org.alfresco.repo.version.cannedqueries.GetVersionsCannedQueryFactory;
+import org.alfresco.repo.version.common.LazyVersionImpl;
 import org.alfresco.repo.version.common.VersionHistoryImpl;
 import org.alfresco.repo.version.common.VersionImpl;
 import org.alfresco.repo.version.common.VersionUtil;
@@ -71,6 +78,7 @@ import org.alfresco.traitextender.ExtendedTrait;
 import org.alfresco.traitextender.Extensible;
 import org.alfresco.traitextender.Trait;
 import org.alfresco.util.Pair;
+import org.alfresco.util.registry.NamedObjectRegistry;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.dao.ConcurrencyFailureException;
@@ -83,8 +91,11 @@ public class Version2ServiceImpl extends VersionServiceImpl implements VersionSe
 {
     private static Log logger = LogFactory.getLog(Version2ServiceImpl.class);
     
+    private static final String CANNED_QUERY_VERSIONS_LIST = "getVersionsCannedQueryFactory";
+    
     private PermissionService permissionService;
     private boolean useVersionAssocIndex = false;
+    private NamedObjectRegistry<CannedQueryFactory<NodeRef>> cannedQueryRegistry;
 
     private ExtendedTrait<VersionServiceTrait> versionServiceTrait;
     
@@ -114,6 +125,15 @@ public class Version2ServiceImpl extends VersionServiceImpl implements VersionSe
         return useVersionAssocIndex;
     }
 
+    /**
+     * Set the registry of canned queries used to page through version histories.  Without it,
+     * whole version histories are loaded for each page.
+     */
+    public void setCannedQueryRegistry(NamedObjectRegistry<CannedQueryFactory<NodeRef>> cannedQueryRegistry)
+    {
+        this.cannedQueryRegistry = cannedQueryRegistry;
+    }
+
     /**
      * Initialise method
      */
@@ -428,6 +448,71 @@ public class Version2ServiceImpl extends VersionServiceImpl implements VersionSe
         return versionHistory;
     }
 
+    @Override
+    @Extend(extensionAPI=VersionServiceExtension.class,traitAPI=VersionServiceTrait.class)
+    public PagingResults<Version> getVersionHistory(NodeRef nodeRef, PagingRequest pagingRequest)
+    {
+        ParameterCheck.mandatory("pagingRequest", pagingRequest);
+        
+        // Get the version history regardless of whether the node is still 'live' or not
+        NodeRef versionHistoryRef = getVersionHistoryNodeRef(nodeRef);
+        if (versionHistoryRef == null)
+        {
+            return new EmptyPagingResults<Version>();
+        }
+        if (cannedQueryRegistry == null || versionComparatorDesc != null)
+        {
+            // The order of the versions is only known once they have all been loaded
+            VersionHistory versionHistory = buildVersionHistory(versionHistoryRef, nodeRef);
+            return new ListBackedPagingResults<Version>(new ArrayList<Version>(versionHistory.getAllVersions()), pagingRequest);
+        }
+        
+        GetVersionsCannedQueryFactory queryFactory = (GetVersionsCannedQueryFactory) cannedQueryRegistry.getNamedObject(CANNED_QUERY_VERSIONS_LIST);
+        final PagingResults<NodeRef> versionRefs = queryFactory.getCannedQuery(versionHistoryRef, pagingRequest).execute();
+        
+        LazyVersionImpl.VersionLoader loader = new LazyVersionImpl.VersionLoader()
+        {
+            @Override
+            public Version loadVersion(NodeRef versionRef)
+            {
+                return getVersion(versionRef);
+            }
+        };
+        final List<Version> versions = new ArrayList<Version>(versionRefs.getPage().size());
+        for (NodeRef versionRef : versionRefs.getPage())
+        {
+            NodeRef frozenStateNodeRef = new NodeRef(new StoreRef(Version2Model.STORE_PROTOCOL, Version2Model.STORE_ID), versionRef.getId());
+            versions.add(new LazyVersionImpl(versionRef, frozenStateNodeRef, loader));
+        }
+        
+        return new PagingResults<Version>()
+        {
+            @Override
+            public List<Version> getPage()
+            {
+                return versions;
+            }
+            
+            @Override
+            public boolean hasMoreItems()
+            {
+                return versionRefs.hasMoreItems();
+            }
+            
+            @Override
+            public Pair<Integer, Integer> getTotalResultCount()
+            {
+                return versionRefs.getTotalResultCount();
+            }
+            
+            @Override
+            public String getQueryExecutionId()
+            {
+                return versionRefs.getQueryExecutionId();
+            }
+        };
+    }
+
     @Override
     @Extend(extensionAPI=VersionServiceExtension.class,traitAPI=VersionServiceTrait.class)
     public Version getCurrentVersion(NodeRef nodeRef)
@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.version.cannedqueries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alfresco.query.AbstractCannedQuery;
+import org.alfresco.query.CannedQueryPageDetails;
+import org.alfresco.query.CannedQueryParameters;
+import org.alfresco.repo.domain.node.NodeDAO;
+import org.alfresco.repo.domain.node.NodeEntity;
+import org.alfresco.repo.domain.query.CannedQueryDAO;
+import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.util.Pair;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Canned query for one page of the versions in a version history, most recent first.
+ * <p/>
+ * Only the version node references are selected; the nodes of the page are then pre-loaded in one batch
+ * so that the version properties can be read cheaply when they are needed.
+ *
+ * @since 23.2
+ */
+public class GetVersionsCannedQuery extends AbstractCannedQuery<NodeRef>
+{
+    private Log logger = LogFactory.getLog(GetVersionsCannedQuery.class);
+
+    private static final String QUERY_NAMESPACE = "alfresco.query.versions";
+    private static final String QUERY_SELECT_GET_VERSIONS = "select_GetVersions";
+    private static final String QUERY_SELECT_COUNT_VERSIONS = "select_CountVersions";
+
+    private final CannedQueryDAO cannedQueryDAO;
+    private final NodeDAO nodeDAO;
+    private final TenantService tenantService;
+
+    public GetVersionsCannedQuery(CannedQueryDAO cannedQueryDAO, NodeDAO nodeDAO, TenantService tenantService, CannedQueryParameters params)
+    {
+        super(params);
+        this.cannedQueryDAO = cannedQueryDAO;
+        this.nodeDAO = nodeDAO;
+        this.tenantService = tenantService;
+    }
+
+    @Override
+    protected List<NodeRef> queryAndFilter(CannedQueryParameters parameters)
+    {
+        Long start = (logger.isDebugEnabled() ? System.currentTimeMillis() : null);
+
+        GetVersionsCannedQueryParams paramBean = (GetVersionsCannedQueryParams) parameters.getParameterBean();
+        CannedQueryPageDetails pageDetails = parameters.getPageDetails();
+        int offset = pageDetails.getSkipResults();
+        int limit = pageDetails.getPageSize();
+
+        // note: refer to SQL for the ordering, which matches the order in which the versions were created
+        List<NodeEntity> results = cannedQueryDAO.executeQuery(QUERY_NAMESPACE,
+                    QUERY_SELECT_GET_VERSIONS, paramBean, offset, limit);
+
+        List<NodeRef> versionRefs = new ArrayList<NodeRef>(results.size());
+        for (NodeEntity entity : results)
+        {
+            versionRefs.add(entity.getNodeRef());
+        }
+
+        // preload the version nodes, for when the version properties are read
+        nodeDAO.cacheNodes(versionRefs);
+
+        List<NodeRef> baseVersionRefs = new ArrayList<NodeRef>(versionRefs.size());
+        for (NodeRef versionRef : versionRefs)
+        {
+            baseVersionRefs.add(tenantService.getBaseName(versionRef));
+        }
+
+        if (start != null)
+        {
+            logger.debug("Versions query: " + baseVersionRefs.size() + " in "
+                        + (System.currentTimeMillis() - start) + " msecs");
+        }
+        return baseVersionRefs;
+    }
+
+    @Override
+    protected Pair<Integer, Integer> getTotalResultCount(List<NodeRef> results)
+    {
+        // The count is also what tells whether there are more versions after the page
+        GetVersionsCannedQueryParams paramBean = (GetVersionsCannedQueryParams) getParameters().getParameterBean();
+        Long totalResultCount = cannedQueryDAO.executeCountQuery(QUERY_NAMESPACE, QUERY_SELECT_COUNT_VERSIONS, paramBean);
+        int count = totalResultCount.intValue();
+        return new Pair<Integer, Integer>(count, count);
+    }
+
+    @Override
+    protected boolean isApplyPostQueryPaging()
+    {
+        return false;
+    }
+}
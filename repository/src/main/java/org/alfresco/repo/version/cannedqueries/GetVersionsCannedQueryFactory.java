@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.version.cannedqueries;
+
+import org.alfresco.query.AbstractCannedQueryFactory;
+import org.alfresco.query.CannedQuery;
+import org.alfresco.query.CannedQueryPageDetails;
+import org.alfresco.query.CannedQueryParameters;
+import org.alfresco.query.PagingRequest;
+import org.alfresco.repo.domain.node.NodeDAO;
+import org.alfresco.repo.domain.qname.QNameDAO;
+import org.alfresco.repo.domain.query.CannedQueryDAO;
+import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.repo.version.Version2Model;
+import org.alfresco.service.cmr.repository.InvalidNodeRefException;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
+import org.alfresco.util.ParameterCheck;
+import org.alfresco.util.PropertyCheck;
+
+/**
+ * Canned query factory for getting a page of the versions in a version history.
+ *
+ * @since 23.2
+ */
+public class GetVersionsCannedQueryFactory extends AbstractCannedQueryFactory<NodeRef>
+{
+    private NodeDAO nodeDAO;
+    private QNameDAO qnameDAO;
+    private CannedQueryDAO cannedQueryDAO;
+    private TenantService tenantService;
+
+    public void setNodeDAO(NodeDAO nodeDAO)
+    {
+        this.nodeDAO = nodeDAO;
+    }
+
+    public void setQnameDAO(QNameDAO qnameDAO)
+    {
+        this.qnameDAO = qnameDAO;
+    }
+
+    public void setCannedQueryDAO(CannedQueryDAO cannedQueryDAO)
+    {
+        this.cannedQueryDAO = cannedQueryDAO;
+    }
+
+    public void setTenantService(TenantService tenantService)
+    {
+        this.tenantService = tenantService;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception
+    {
+        super.afterPropertiesSet();
+
+        PropertyCheck.mandatory(this, "nodeDAO", nodeDAO);
+        PropertyCheck.mandatory(this, "qnameDAO", qnameDAO);
+        PropertyCheck.mandatory(this, "cannedQueryDAO", cannedQueryDAO);
+        PropertyCheck.mandatory(this, "tenantService", tenantService);
+    }
+
+    @Override
+    public CannedQuery<NodeRef> getCannedQuery(CannedQueryParameters parameters)
+    {
+        return new GetVersionsCannedQuery(cannedQueryDAO, nodeDAO, tenantService, parameters);
+    }
+
+    /**
+     * The total count is always requested, whatever the paging request asks for, as it is no more than
+     * the number of versions and matches what the list-backed results of older version stores return.
+     * 
+     * @param versionHistoryRef     the version history node, in the version store
+     * @param pagingRequest         skip count and page size
+     * @return                      an implementation that will execute the query
+     */
+    public CannedQuery<NodeRef> getCannedQuery(NodeRef versionHistoryRef, PagingRequest pagingRequest)
+    {
+        ParameterCheck.mandatory("versionHistoryRef", versionHistoryRef);
+        ParameterCheck.mandatory("pagingRequest", pagingRequest);
+
+        Pair<Long, NodeRef> versionHistoryPair = nodeDAO.getNodePair(tenantService.getName(versionHistoryRef));
+        if (versionHistoryPair == null)
+        {
+            throw new InvalidNodeRefException("Node ref does not exist: " + versionHistoryRef, versionHistoryRef);
+        }
+        Pair<Long, QName> assocTypeQNamePair = qnameDAO.getQName(Version2Model.CHILD_QNAME_VERSIONS);
+        Long assocTypeQNameId = (assocTypeQNamePair == null) ? -1L : assocTypeQNamePair.getFirst();
+
+        GetVersionsCannedQueryParams paramBean = new GetVersionsCannedQueryParams(versionHistoryPair.getFirst(), assocTypeQNameId);
+
+        int skipCount = pagingRequest.getSkipCount();
+        int maxItems = pagingRequest.getMaxItems();
+        CannedQueryPageDetails cqpd = new CannedQueryPageDetails(
+                    skipCount < 0 ? CannedQueryPageDetails.DEFAULT_SKIP_RESULTS : skipCount,
+                    maxItems < 0 ? CannedQueryPageDetails.DEFAULT_PAGE_SIZE : maxItems,
+                    CannedQueryPageDetails.DEFAULT_PAGE_NUMBER,
+                    CannedQueryPageDetails.DEFAULT_PAGE_COUNT);
+
+        CannedQueryParameters params = new CannedQueryParameters(paramBean, cqpd, null,
+                    Integer.MAX_VALUE, pagingRequest.getQueryExecutionId());
+
+        return getCannedQuery(params);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.version.common;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Map;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.version.Version;
+import org.alfresco.service.cmr.version.VersionType;
+
+/**
+ * A version whose properties are only read from the version store when first needed.
+ * <p/>
+ * Used for pages of a version history, where the caller may only need some of the versions
+ * or only the frozen state node references.  When serialized, the version is fully loaded.
+ *
+ * @since 23.2
+ */
+public class LazyVersionImpl implements Version
+{
+    private static final long serialVersionUID = -2878447617066213545L;
+
+    /**
+     * Loads a version from its node in the version store
+     */
+    public interface VersionLoader
+    {
+        Version loadVersion(NodeRef versionRef);
+    }
+
+    private final NodeRef versionRef;
+    private final NodeRef frozenStateNodeRef;
+    private transient VersionLoader loader;
+    private Version version;
+
+    /**
+     * @param versionRef            the version node, as held in the version store
+     * @param frozenStateNodeRef    the frozen state node reference, as returned to clients
+     * @param loader                loads the version when its properties are needed
+     */
+    public LazyVersionImpl(NodeRef versionRef, NodeRef frozenStateNodeRef, VersionLoader loader)
+    {
+        this.versionRef = versionRef;
+        this.frozenStateNodeRef = frozenStateNodeRef;
+        this.loader = loader;
+    }
+
+    /**
+     * @return                      Returns <tt>true</tt> if the version properties have been read
+     */
+    public synchronized boolean isLoaded()
+    {
+        return version != null;
+    }
+
+    private synchronized Version getVersion()
+    {
+        if (version == null)
+        {
+            version = loader.loadVersion(versionRef);
+        }
+        return version;
+    }
+
+    private Object writeReplace() throws ObjectStreamException
+    {
+        return getVersion();
+    }
+
+    @Override
+    public String toString()
+    {
+        return isLoaded() ? getVersion().toString() : "LazyVersionImpl[" + frozenStateNodeRef + "]";
+    }
+
+    public NodeRef getFrozenStateNodeRef()
+    {
+        return frozenStateNodeRef;
+    }
+
+    public Date getFrozenModifiedDate()
+    {
+        return getVersion().getFrozenModifiedDate();
+    }
+
+    public String getFrozenModifier()
+    {
+        return getVersion().getFrozenModifier();
+    }
+
+    public Date getCreatedDate()
+    {
+        return getVersion().getCreatedDate();
+    }
+
+    public String getCreator()
+    {
+        return getVersion().getCreator();
+    }
+
+    public String getVersionLabel()
+    {
+        return getVersion().getVersionLabel();
+    }
+
+    public VersionType getVersionType()
+    {
+        return getVersion().getVersionType();
+    }
+
+    public String getDescription()
+    {
+        return getVersion().getDescription();
+    }
+
+    public Map<String, Serializable> getVersionProperties()
+    {
+        return getVersion().getVersionProperties();
+    }
+
+    public Serializable getVersionProperty(String name)
+    {
+        return getVersion().getVersionProperty(name);
+    }
+
+    public NodeRef getVersionedNodeRef()
+    {
+        return getVersion().getVersionedNodeRef();
+    }
+}
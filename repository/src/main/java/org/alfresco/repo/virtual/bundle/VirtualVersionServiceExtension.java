@@ -29,9 +29,13 @@ package org.alfresco.repo.virtual.bundle;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
+import org.alfresco.query.PagingRequest;
+import org.alfresco.query.PagingResults;
 import org.alfresco.repo.version.Version2Model;
 import org.alfresco.repo.version.VersionModel;
 import org.alfresco.repo.version.VersionServicePolicies.CalculateVersionLabelPolicy;
@@ -50,6 +54,7 @@ import org.alfresco.service.cmr.version.Version;
 import org.alfresco.service.cmr.version.VersionHistory;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.traitextender.SpringBeanExtension;
+import org.alfresco.util.Pair;
 
 public class VirtualVersionServiceExtension extends SpringBeanExtension<VersionServiceExtension, VersionServiceTrait>
             implements VersionServiceExtension
@@ -428,6 +433,50 @@ public class VirtualVersionServiceExtension extends SpringBeanExtension<VersionS
         }
     }
 
+    @Override
+    public PagingResults<Version> getVersionHistory(NodeRef nodeRef, PagingRequest pagingRequest)
+    {
+        VersionServiceTrait theTrait = getTrait();
+        Reference reference = Reference.fromNodeRef(nodeRef);
+        if (reference == null)
+        {
+            return theTrait.getVersionHistory(nodeRef, pagingRequest);
+        }
+        else
+        {
+            NodeRef materialNode = smartStore.materialize(reference);
+            final PagingResults<Version> actualVersions = theTrait.getVersionHistory(materialNode, pagingRequest);
+            final List<Version> virtualizedVersions = new ArrayList<>(virtualizeVersions(reference,
+                                                                                         actualVersions.getPage()));
+            return new PagingResults<Version>()
+            {
+                @Override
+                public List<Version> getPage()
+                {
+                    return virtualizedVersions;
+                }
+
+                @Override
+                public boolean hasMoreItems()
+                {
+                    return actualVersions.hasMoreItems();
+                }
+
+                @Override
+                public Pair<Integer, Integer> getTotalResultCount()
+                {
+                    return actualVersions.getTotalResultCount();
+                }
+
+                @Override
+                public String getQueryExecutionId()
+                {
+                    return actualVersions.getQueryExecutionId();
+                }
+            };
+        }
+    }
+
     @Override
     public Version getCurrentVersion(NodeRef nodeRef)
     {
@@ -25,6 +25,7 @@
  */
 package org.alfresco.service.cmr.download;
 
+import java.io.OutputStream;
 import java.util.Date;
 
 import org.alfresco.service.cmr.repository.NodeRef;
@@ -54,6 +55,23 @@ public interface DownloadService
      * @return Reference to node which will eventually contain the archive file
      */
     public NodeRef createDownload(NodeRef[] nodeRefs, boolean recusirsive);
+
+    /**
+     * Write a zip archive containing the content from the given nodeRefs
+     * directly to the output stream, as the nodes are read, without storing
+     * the archive in the repository first.
+     * 
+     * The entries are numbered from 0 in the order in which they are read, so
+     * a client that was interrupted can ask for an archive of the remaining
+     * entries only. The output stream is not closed.
+     * 
+     * @param nodeRefs NodeRefs of content to be added to the archive
+     * @param outputStream Stream to write the archive to
+     * @param firstEntry Index of the first entry to write, 0 for all entries
+     * @return The total number of entries, including those skipped
+     * @since 23.2
+     */
+    public int writeDownload(NodeRef[] nodeRefs, OutputStream outputStream, int firstEntry);
     
     /**
      * Get the status of the of the download identified by downloadNode.
@@ -30,6 +30,8 @@ import java.util.Collection;
 import java.util.Map;
 
 import org.alfresco.api.AlfrescoPublicApi;
+import org.alfresco.query.PagingRequest;
+import org.alfresco.query.PagingResults;
 import org.alfresco.repo.version.VersionServicePolicies.CalculateVersionLabelPolicy;
 import org.alfresco.service.Auditable;
 import org.alfresco.service.cmr.repository.AspectMissingException;
@@ -168,6 +170,24 @@ public interface VersionService
     public VersionHistory getVersionHistory(NodeRef nodeRef)
         throws AspectMissingException;
 
+    /**
+     * Gets a page of the versions of a node, most recent first.
+     * <p>
+     * Only the versions in the requested page are loaded, and the properties of each version are only
+     * read when they are first accessed.  The frozen state node reference is available without reading
+     * the version properties.
+     * <p>
+     * If the node has not been versioned then an empty page is returned.
+     * 
+     * @param  nodeRef          a node reference
+     * @param  pagingRequest    skip count and page size; the total count is always provided
+     * @return                  the page of versions
+     * 
+     * @since 23.2
+     */
+    @Auditable(parameters = {"nodeRef", "pagingRequest"})
+    public PagingResults<Version> getVersionHistory(NodeRef nodeRef, PagingRequest pagingRequest);
+
     /**
      * Gets the version object for the current version of the node reference passed.
      * <p>
@@ -0,0 +1,26 @@
+--
+-- Title:      Compact audit value tables
+-- Database:   MySQL InnoDB
+-- Since:      V23.2 Schema 19101
+--
+-- Please contact support@alfresco.com if you need assistance with the upgrade.
+--
+
+CREATE TABLE alf_audit_entry_values
+(
+   audit_entry_id BIGINT NOT NULL,
+   values_data MEDIUMBLOB NOT NULL,
+   CONSTRAINT fk_alf_aud_val_ent FOREIGN KEY (audit_entry_id) REFERENCES alf_audit_entry (id) ON DELETE CASCADE,
+   PRIMARY KEY (audit_entry_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE alf_audit_entry_key
+(
+   audit_entry_id BIGINT NOT NULL,
+   key_prop_id BIGINT NOT NULL,
+   value_prop_id BIGINT NOT NULL,
+   INDEX idx_alf_aud_key_kv (key_prop_id, value_prop_id, audit_entry_id),
+   INDEX idx_alf_aud_key_val (value_prop_id, audit_entry_id),
+   CONSTRAINT fk_alf_aud_key_ent FOREIGN KEY (audit_entry_id) REFERENCES alf_audit_entry (id) ON DELETE CASCADE,
+   PRIMARY KEY (audit_entry_id, key_prop_id)
+) ENGINE=InnoDB;
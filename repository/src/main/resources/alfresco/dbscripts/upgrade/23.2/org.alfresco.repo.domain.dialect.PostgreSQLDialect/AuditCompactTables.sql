@@ -0,0 +1,38 @@
+--
+-- Title:      Compact audit value tables
+-- Database:   PostgreSQL
+-- Since:      V23.2 Schema 19101
+--
+-- Please contact support@alfresco.com if you need assistance with the upgrade.
+--
+
+CREATE TABLE alf_audit_entry_values
+(
+   audit_entry_id INT8 NOT NULL,
+   values_data BYTEA NOT NULL,
+   CONSTRAINT fk_alf_aud_val_ent FOREIGN KEY (audit_entry_id) REFERENCES alf_audit_entry (id) ON DELETE CASCADE,
+   PRIMARY KEY (audit_entry_id)
+);
+
+CREATE TABLE alf_audit_entry_key
+(
+   audit_entry_id INT8 NOT NULL,
+   key_prop_id INT8 NOT NULL,
+   value_prop_id INT8 NOT NULL,
+   CONSTRAINT fk_alf_aud_key_ent FOREIGN KEY (audit_entry_id) REFERENCES alf_audit_entry (id) ON DELETE CASCADE,
+   PRIMARY KEY (audit_entry_id, key_prop_id)
+);
+CREATE INDEX idx_alf_aud_key_kv ON alf_audit_entry_key (key_prop_id, value_prop_id, audit_entry_id);
+CREATE INDEX idx_alf_aud_key_val ON alf_audit_entry_key (value_prop_id, audit_entry_id);
+
+--
+-- Record script finish
+--
+DELETE FROM alf_applied_patch WHERE id = 'patch.db-V23.2-AuditCompactTables';
+INSERT INTO alf_applied_patch
+  (id, description, fixes_from_schema, fixes_to_schema, applied_to_schema, target_schema, applied_on_date, applied_to_server, was_executed, succeeded, report)
+  VALUES
+  (
+    'patch.db-V23.2-AuditCompactTables', 'Manually executed script upgrade V23.2: Compact audit value tables',
+    0, 19100, -1, 19101, null, 'UNKNOWN', ${TRUE}, ${TRUE}, 'Script completed'
+  );
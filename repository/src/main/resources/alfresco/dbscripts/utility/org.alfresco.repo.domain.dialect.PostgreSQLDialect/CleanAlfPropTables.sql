@@ -6,7 +6,8 @@
 -- Then the obsolete ones are put to temp_prop_root_obs and deleted.
 --
 -- Afterwards, all the usefull properties in alf_prop_value are gathered in temp_prop_val_ref.
--- These can be found in alf_audit_app.app_name_id, alf_audit_entry.audit_user_id, alf_prop_link.key_prop_id, alf_prop_link.key_prop_id,
+-- These can be found in alf_audit_app.app_name_id, alf_audit_entry.audit_user_id, alf_audit_entry_key.key_prop_id, alf_audit_entry_key.value_prop_id,
+-- alf_prop_link.key_prop_id, alf_prop_link.key_prop_id,
 -- alf_prop_unique_ctx.value1_prop_id, alf_prop_unique_ctx.value2_prop_id, alf_prop_unique_ctx.value3_prop_id.
 -- All of these tables are participating in recording audit. Afterwards the obsolete values in alf_prop_value are deleted.
 -- Knowing all the ID's gathered in temp_prop_val_obs.long_value with a combination of the properties type in temp_prop_val_obs.persisted_type,
@@ -101,6 +102,10 @@ delete from alf_prop_root apr using temp_prop_root_obs tpra where apr.id = tpra.
 insert into temp_prop_val_ref select id from alf_prop_value where id in (select app_name_id from alf_audit_app) and id >= ${LOWERBOUND} and id <= ${UPPERBOUND};
 --FOREACH alf_audit_entry.audit_user_id system.upgrade.clean_alf_prop_tables.batchsize
 insert into temp_prop_val_ref select audit_user_id from alf_audit_entry where audit_user_id >= ${LOWERBOUND} and audit_user_id <= ${UPPERBOUND};
+--FOREACH alf_audit_entry_key.key_prop_id system.upgrade.clean_alf_prop_tables.batchsize
+insert into temp_prop_val_ref select key_prop_id from alf_audit_entry_key where key_prop_id >= ${LOWERBOUND} and key_prop_id <= ${UPPERBOUND};
+--FOREACH alf_audit_entry_key.value_prop_id system.upgrade.clean_alf_prop_tables.batchsize
+insert into temp_prop_val_ref select value_prop_id from alf_audit_entry_key where value_prop_id >= ${LOWERBOUND} and value_prop_id <= ${UPPERBOUND};
 --FOREACH alf_prop_link.key_prop_id system.upgrade.clean_alf_prop_tables.batchsize
 insert into temp_prop_val_ref select key_prop_id from alf_prop_link where key_prop_id >= ${LOWERBOUND} and key_prop_id <= ${UPPERBOUND};
 --FOREACH alf_prop_link.value_prop_id system.upgrade.clean_alf_prop_tables.batchsize
@@ -51,6 +51,7 @@ import org.junit.runners.Suite;
     org.alfresco.filesys.config.ServerConfigurationBeanTest.class,
     org.alfresco.filesys.repo.rules.ShuffleTest.class,
     org.alfresco.opencmis.AlfrescoCmisExceptionInterceptorTest.class,
+    org.alfresco.opencmis.CMISQueryCursorCacheTest.class,
     org.alfresco.repo.admin.Log4JHierarchyInitTest.class,
     org.alfresco.repo.attributes.PropTablesCleanupJobTest.class,
     org.alfresco.repo.cache.AbstractCacheFactoryTest.class,
@@ -76,6 +77,7 @@ import org.junit.runners.Suite;
     org.alfresco.repo.module.ModuleVersionNumberTest.class,
     org.alfresco.repo.module.DeprecatedModulesValidatorTest.class,
     org.alfresco.repo.node.integrity.IntegrityEventTest.class,
+    org.alfresco.repo.node.db.ParallelIdRangePurgerUnitTest.class,
     org.alfresco.repo.policy.MTPolicyComponentTest.class,
     org.alfresco.repo.policy.PolicyComponentTest.class,
     org.alfresco.repo.rendition.RenditionNodeManagerTest.class,
@@ -192,6 +194,7 @@ import org.junit.runners.Suite;
     org.alfresco.repo.action.ActionConditionImplTest.class,
     org.alfresco.repo.action.CompositeActionImplTest.class,
     org.alfresco.repo.action.CompositeActionConditionImplTest.class,
+    org.alfresco.repo.action.AsynchronousActionExecutionQueueImplUnitTest.class,
     org.alfresco.repo.action.executer.TransformActionExecuterTest.class,
     org.alfresco.repo.action.executer.ImporterActionExecutorUnitTest.class,
     org.alfresco.repo.audit.AuditableAnnotationTest.class,
@@ -205,6 +208,7 @@ import org.junit.runners.Suite;
     org.alfresco.repo.content.filestore.SpoofedTextContentReaderTest.class,
     org.alfresco.repo.content.ContentDataTest.class,
     org.alfresco.repo.content.replication.AggregatingContentStoreUnitTest.class,
+    org.alfresco.repo.content.delta.DeltaContentStoreTest.class,
     org.alfresco.service.cmr.repository.TransformationOptionLimitsTest.class,
     org.alfresco.service.cmr.repository.TransformationOptionPairTest.class,
     org.alfresco.repo.content.transform.TransformerConfigTestSuite.class,
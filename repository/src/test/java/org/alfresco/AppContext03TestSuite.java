@@ -58,6 +58,7 @@ import org.junit.runners.Suite;
     org.alfresco.repo.lock.LockBehaviourImplTest.class,
     org.alfresco.repo.node.archive.LargeArchiveAndRestoreTest.class,
     org.alfresco.repo.copy.CopyServiceImplTest.class,
+    org.alfresco.repo.copy.HierarchyCopierTest.class,
     org.alfresco.repo.descriptor.DescriptorServiceTest.class,
     org.alfresco.repo.dictionary.DictionaryModelTypeTest.class,
     org.alfresco.repo.dictionary.DictionaryRepositoryBootstrapTest.class,
@@ -83,6 +84,7 @@ import org.junit.runners.Suite;
     org.alfresco.repo.node.PerformanceNodeServiceTest.class,
     org.alfresco.repo.node.archive.ArchiveAndRestoreTest.class,
     org.alfresco.repo.node.db.DbNodeServiceImplTest.class,
+    org.alfresco.repo.node.db.HierarchyDeleterTest.class,
     org.alfresco.repo.node.cleanup.TransactionCleanupTest.class,
     org.alfresco.repo.node.cleanup.DeletedNodeBatchCleanupTest.class,
     org.alfresco.repo.node.db.DbNodeServiceImplPropagationTest.class,
@@ -2785,6 +2785,98 @@ public class ContentDiskDriverTest extends TestCase
         tran.doInTransaction(deleteNodeCB, false, true);
     } //testDirListing
 
+    /**
+     * Files returned by a directory listing are answered from the FileInfo cache, and a change
+     * made outside of the file server invalidates the cached entries.
+     */
+    public void testDirListingFillsFileInfoCache() throws Exception
+    {
+        logger.debug("testDirListingFillsFileInfoCache");
+        ServerConfiguration scfg = new ServerConfiguration("testServer");
+        TestServer testServer = new TestServer("testServer", scfg);
+        SrvSession testSession = new TestSrvSession(666, testServer, "test", "remoteName");
+        DiskSharedDevice share = getDiskSharedDevice();
+        TreeConnection testConnection = testServer.getTreeConnection(share);
+        final RetryingTransactionHelper tran = transactionService.getRetryingTransactionHelper();
+
+        final String FOLDER_NAME = "listingFolder" + System.currentTimeMillis();
+        final String FILE_NAME = "listedFile.txt";
+        final String RENAMED_FILE_NAME = "renamedFile.txt";
+        RetryingTransactionCallback<NodeRef> createNodesCB = new RetryingTransactionCallback<NodeRef>() {
+
+            @Override
+            public NodeRef execute() throws Throwable
+            {
+                NodeRef companyHome = repositoryHelper.getCompanyHome();
+                NodeRef parentNode = fileFolderService.create(companyHome, FOLDER_NAME, ContentModel.TYPE_FOLDER).getNodeRef();
+                return fileFolderService.create(parentNode, FILE_NAME, ContentModel.TYPE_CONTENT).getNodeRef();
+            }
+        };
+        final NodeRef fileNode = tran.doInTransaction(createNodesCB);
+
+        String filePath = "\\" + FOLDER_NAME + "\\" + FILE_NAME;
+        SearchContext result = driver.startSearch(testSession, testConnection, "\\" + FOLDER_NAME + "\\*", 0);
+        FileInfo listed = new FileInfo();
+        assertTrue("file not listed", result.nextFileInfo(listed));
+        assertEquals("wrong file listed", FILE_NAME, listed.getFileName());
+
+        FileInfo info = driver.getFileInformation(testSession, testConnection, filePath);
+        assertEquals("listed and looked up file differ", listed.getFileId(), info.getFileId());
+        assertEquals("listed and looked up file differ", listed.getSize(), info.getSize());
+
+        // rename outside of the file server
+        RetryingTransactionCallback<Void> renameCB = new RetryingTransactionCallback<Void>() {
+
+            @Override
+            public Void execute() throws Throwable
+            {
+                fileFolderService.rename(fileNode, RENAMED_FILE_NAME);
+                return null;
+            }
+        };
+        tran.doInTransaction(renameCB, false, true);
+
+        try
+        {
+            driver.getFileInformation(testSession, testConnection, filePath);
+            fail("stale file information returned for a renamed file");
+        }
+        catch (FileNotFoundException fnfe)
+        {
+            // expected
+        }
+        info = driver.getFileInformation(testSession, testConnection, "\\" + FOLDER_NAME + "\\" + RENAMED_FILE_NAME);
+        assertEquals("wrong file name", RENAMED_FILE_NAME, info.getFileName());
+
+        // rename the folder outside of the file server, the paths of the cached file change too
+        final String RENAMED_FOLDER_NAME = "renamed" + FOLDER_NAME;
+        RetryingTransactionCallback<Void> renameFolderCB = new RetryingTransactionCallback<Void>() {
+
+            @Override
+            public Void execute() throws Throwable
+            {
+                fileFolderService.rename(nodeService.getPrimaryParent(fileNode).getParentRef(), RENAMED_FOLDER_NAME);
+                return null;
+            }
+        };
+        tran.doInTransaction(renameFolderCB, false, true);
+
+        try
+        {
+            driver.getFileInformation(testSession, testConnection, "\\" + FOLDER_NAME + "\\" + RENAMED_FILE_NAME);
+            fail("stale file information returned for a file in a renamed folder");
+        }
+        catch (FileNotFoundException fnfe)
+        {
+            // expected
+        }
+        info = driver.getFileInformation(testSession, testConnection, "\\" + RENAMED_FOLDER_NAME + "\\" + RENAMED_FILE_NAME);
+        assertEquals("wrong file name", RENAMED_FILE_NAME, info.getFileName());
+
+        driver.deleteFile(testSession, testConnection, "\\" + RENAMED_FOLDER_NAME + "\\" + RENAMED_FILE_NAME);
+        driver.deleteDirectory(testSession, testConnection, "\\" + RENAMED_FOLDER_NAME);
+    } //testDirListingFillsFileInfoCache
+
 
     public void testFileInformationUpdatingByEditorUserForAlf8808() throws Exception
     {
@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.opencmis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.alfresco.opencmis.CMISQueryCursorCache.Cursor;
+import org.alfresco.opencmis.search.CMISResultSet;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @see CMISQueryCursorCache
+ * @since 23.2
+ */
+public class CMISQueryCursorCacheTest
+{
+    private static final String QUERY = "SELECT * FROM cmis:document";
+
+    private CMISQueryCursorCache cache;
+
+    @Before
+    public void setUp()
+    {
+        cache = new CMISQueryCursorCache();
+        cache.setTtlMillis(60000L);
+        cache.setMaxCursors(2);
+    }
+
+    @Test
+    public void testDisabledWithoutTtl()
+    {
+        assertTrue(cache.isEnabled());
+        cache.setTtlMillis(0);
+        assertTrue(!cache.isEnabled());
+    }
+
+    @Test
+    public void testResumeAtNextPageOnly()
+    {
+        CMISResultSet rs = mock(CMISResultSet.class);
+        cache.put("user1", QUERY, 10, new Cursor(rs, 10, 20));
+
+        assertNull("Different skip count", cache.take("user1", QUERY, 20));
+        assertNull("Different user", cache.take("user2", QUERY, 10));
+        assertNull("Different query", cache.take("user1", QUERY + " WHERE cmis:name = 'a'", 10));
+
+        Cursor cursor = cache.take("user1", QUERY, 10);
+        assertSame(rs, cursor.getResultSet());
+        assertEquals(10, cursor.getIndex());
+
+        // a cursor is only resumed once
+        assertNull(cache.take("user1", QUERY, 10));
+        verify(rs, never()).close();
+    }
+
+    @Test
+    public void testExpiredCursorsAreClosed() throws Exception
+    {
+        cache.setTtlMillis(1L);
+        CMISResultSet rs = mock(CMISResultSet.class);
+        cache.put("user1", QUERY, 10, new Cursor(rs, 10, 20));
+        Thread.sleep(10L);
+
+        assertNull(cache.take("user1", QUERY, 10));
+        assertEquals(0, cache.size());
+        verify(rs).close();
+    }
+
+    @Test
+    public void testOldestCursorClosedWhenFull()
+    {
+        CMISResultSet rs1 = mock(CMISResultSet.class);
+        CMISResultSet rs2 = mock(CMISResultSet.class);
+        CMISResultSet rs3 = mock(CMISResultSet.class);
+        cache.put("user1", QUERY, 10, new Cursor(rs1, 10, 20));
+        cache.put("user2", QUERY, 10, new Cursor(rs2, 10, 20));
+        cache.put("user3", QUERY, 10, new Cursor(rs3, 10, 20));
+
+        assertEquals(2, cache.size());
+        verify(rs1).close();
+        assertNull(cache.take("user1", QUERY, 10));
+        assertSame(rs3, cache.take("user3", QUERY, 10).getResultSet());
+    }
+
+    @Test
+    public void testClear()
+    {
+        CMISResultSet rs = mock(CMISResultSet.class);
+        cache.put("user1", QUERY, 10, new Cursor(rs, 10, 20));
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        verify(rs).close();
+    }
+
+    @Test
+    public void testCursorWithoutResultSet()
+    {
+        cache.put("user1", QUERY, 10, new Cursor(null, 0, 20));
+
+        Cursor cursor = cache.take("user1", QUERY, 10);
+        assertNull(cursor.getResultSet());
+        assertEquals(20, cursor.getWindow());
+
+        // closing a cursor without a result set is a no-op
+        cache.put("user1", QUERY, 20, new Cursor(null, 0, 40));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
@@ -233,12 +233,19 @@ public class CMISTest
     {
     	private final Map<String, Object> contextMap = new HashMap<String, Object>();
     	private CmisVersion cmisVersion;
+    	private boolean objectInfoRequired;
 
     	public SimpleCallContext(String user, String password, CmisVersion cmisVersion)
+    	{
+    		this(user, password, cmisVersion, false);
+    	}
+
+    	public SimpleCallContext(String user, String password, CmisVersion cmisVersion, boolean objectInfoRequired)
     	{
     		contextMap.put(USERNAME, user);
     		contextMap.put(PASSWORD, password);
     		this.cmisVersion = cmisVersion;
+    		this.objectInfoRequired = objectInfoRequired;
     	}
 
     	public String getBinding()
@@ -283,7 +290,7 @@ public class CMISTest
 
     	public boolean isObjectInfoRequired()
     	{
-    		return false;
+    		return objectInfoRequired;
     	}
 
     	public File getTempDirectory()
@@ -4220,6 +4227,136 @@ public class CMISTest
         assertTrue("Document metadata not updated", updated);
     }
 
+    /**
+     * Only the properties requested by the filter are evaluated through their accessors.
+     */
+    @Test
+    public void testPropertyAccessorsFollowFilter() throws Exception
+    {
+        cmisConnector.getPropertyAccessorStatistics().reset();
+        cmisConnector.setPropertyAccessorStatisticsEnabled(true);
+        try
+        {
+            ObjectData rootFolder = withCmisService(new CmisServiceCallback<ObjectData>()
+            {
+                @Override
+                public ObjectData execute(CmisService cmisService)
+                {
+                    List<RepositoryInfo> repositories = cmisService.getRepositoryInfos(null);
+                    assertTrue(repositories.size() > 0);
+                    String repositoryId = repositories.get(0).getId();
+
+                    return cmisService.getObjectByPath(repositoryId, "/", PropertyIds.NAME, false, IncludeRelationships.NONE, null, false, false, null);
+                }
+            });
+            assertNotNull(rootFolder.getProperties().getProperties().get(PropertyIds.NAME));
+            assertNull(rootFolder.getProperties().getProperties().get(PropertyIds.PATH));
+
+            Map<String, PropertyAccessorStatistics.AccessorStats> stats = cmisConnector.getPropertyAccessorStatistics().getStatistics();
+            assertTrue("Name accessor not recorded: " + stats, stats.containsKey(PropertyIds.NAME));
+            assertFalse("Path accessor evaluated although not requested: " + stats, stats.containsKey(PropertyIds.PATH));
+
+            // The same figures through the management interface
+            PropertyAccessorStatisticsMBean mbean = (PropertyAccessorStatisticsMBean) ctx.getBean("CMISPropertyAccessorStatistics");
+            assertTrue(Arrays.asList(mbean.getPropertyIds()).contains(PropertyIds.NAME));
+            assertEquals(stats.get(PropertyIds.NAME).getCount(), mbean.getCount(PropertyIds.NAME));
+            assertEquals(0L, mbean.getCount(PropertyIds.PATH));
+        }
+        finally
+        {
+            cmisConnector.setPropertyAccessorStatisticsEnabled(false);
+            cmisConnector.getPropertyAccessorStatistics().reset();
+        }
+    }
+
+    /**
+     * The object info collected from the objects of an unfiltered listing (AtomPub) matches the one
+     * built on its own, although the listing was built with another rendition filter.
+     */
+    @Test
+    public void testChildrenObjectInfoReusesListedObjects()
+    {
+        AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
+
+        final String folderName = "testfolder" + GUID.generate();
+        final NodeRef folderNodeRef = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<NodeRef>()
+        {
+            @Override
+            public NodeRef execute() throws Throwable
+            {
+                NodeRef companyHomeNodeRef = repositoryHelper.getCompanyHome();
+                NodeRef folderNodeRef = fileFolderService.create(companyHomeNodeRef, folderName, ContentModel.TYPE_FOLDER).getNodeRef();
+
+                FileInfo fileInfo = fileFolderService.create(folderNodeRef, "testdoc.txt", ContentModel.TYPE_CONTENT);
+                ContentWriter writer = contentService.getWriter(fileInfo.getNodeRef(), ContentModel.PROP_CONTENT, true);
+                writer.setMimetype(MimetypeMap.MIMETYPE_TEXT_PLAIN);
+                writer.putContent("Listed document");
+                fileFolderService.create(folderNodeRef, "testsubfolder", ContentModel.TYPE_FOLDER);
+
+                return folderNodeRef;
+            }
+        });
+
+        // List the children as AtomPub does
+        Map<String, ObjectInfo> listedInfos = new HashMap<String, ObjectInfo>();
+        String repositoryId = null;
+        CmisService cmisService = factory.getService(new SimpleCallContext("admin", "admin", CmisVersion.CMIS_1_1, true));
+        try
+        {
+            repositoryId = cmisService.getRepositoryInfos(null).get(0).getId();
+            ObjectInFolderList children = cmisService.getChildren(repositoryId, folderNodeRef.getId(), "*", null, false, IncludeRelationships.NONE,
+                    "*", false, null, null, null);
+            assertEquals(2, children.getObjects().size());
+            for (ObjectInFolderData child : children.getObjects())
+            {
+                String objectId = child.getObject().getId();
+                listedInfos.put(objectId, cmisService.getObjectInfo(repositoryId, objectId));
+            }
+        }
+        finally
+        {
+            cmisService.close();
+        }
+
+        // Build the same object infos on their own
+        cmisService = factory.getService(new SimpleCallContext("admin", "admin", CmisVersion.CMIS_1_1));
+        try
+        {
+            for (Map.Entry<String, ObjectInfo> entry : listedInfos.entrySet())
+            {
+                ObjectInfo expected = cmisService.getObjectInfo(repositoryId, entry.getKey());
+                ObjectInfo actual = entry.getValue();
+                assertNotNull(actual);
+                assertEquals(expected.getId(), actual.getId());
+                assertEquals(expected.getName(), actual.getName());
+                assertEquals(expected.getTypeId(), actual.getTypeId());
+                assertEquals(expected.getBaseType(), actual.getBaseType());
+                assertEquals(expected.getCreatedBy(), actual.getCreatedBy());
+                assertEquals(expected.getCreationDate(), actual.getCreationDate());
+                assertEquals(expected.getLastModificationDate(), actual.getLastModificationDate());
+                assertEquals(expected.isCurrentVersion(), actual.isCurrentVersion());
+                assertEquals(expected.getVersionSeriesId(), actual.getVersionSeriesId());
+                assertEquals(expected.getWorkingCopyId(), actual.getWorkingCopyId());
+                assertEquals(expected.hasContent(), actual.hasContent());
+                assertEquals(expected.getContentType(), actual.getContentType());
+                assertEquals(expected.getFileName(), actual.getFileName());
+                assertEquals(expected.hasAcl(), actual.hasAcl());
+                assertEquals(expected.hasParent(), actual.hasParent());
+                assertEquals(expected.supportsDescendants(), actual.supportsDescendants());
+                assertEquals(expected.supportsFolderTree(), actual.supportsFolderTree());
+                assertEquals(expected.getRenditionInfos() == null, actual.getRenditionInfos() == null);
+                if (expected.getRenditionInfos() != null)
+                {
+                    assertEquals(expected.getRenditionInfos().size(), actual.getRenditionInfos().size());
+                }
+            }
+        }
+        finally
+        {
+            cmisService.close();
+        }
+    }
+
     private NodeRef createFolder(NodeRef parentNodeRef, String folderName, QName folderType) throws IOException
     {
         Map<QName, Serializable> properties = new HashMap<QName, Serializable>();
@@ -0,0 +1,255 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.action;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.repo.policy.PolicyComponent;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.action.Action;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.GUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the ordering, limits and coalescing of {@link AsynchronousActionExecutionQueueImpl}.
+ * <p/>
+ * The actions are not executed: the transaction helper records the user that each action is run as.
+ * Users starting with "blocking" are held until the test releases them.
+ */
+public class AsynchronousActionExecutionQueueImplUnitTest
+{
+    private static final String BULK_ACTION = "bulk-action";
+    private static final String INTERACTIVE_ACTION = "interactive-action";
+
+    private final List<String> executedUsers = new CopyOnWriteArrayList<>();
+    private final CountDownLatch blockingLatch = new CountDownLatch(1);
+    private RuntimeActionService actionService;
+    private TransactionService transactionService;
+    private ThreadPoolExecutor threadPoolExecutor;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        actionService = mock(RuntimeActionService.class);
+        RetryingTransactionHelper txnHelper = mock(RetryingTransactionHelper.class);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class))).thenAnswer(invocation -> {
+            String user = AuthenticationUtil.getRunAsUser();
+            if (user.startsWith("blocking"))
+            {
+                blockingLatch.await(10, TimeUnit.SECONDS);
+            }
+            executedUsers.add(user);
+            return null;
+        });
+        transactionService = mock(TransactionService.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+    }
+
+    @After
+    public void tearDown()
+    {
+        blockingLatch.countDown();
+        threadPoolExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testPrioritiesAndCoalescing() throws Exception
+    {
+        AsynchronousActionExecutionQueueImpl queue = createQueue(1,
+                Collections.singletonMap(INTERACTIVE_ACTION, 10), Collections.<String, Integer>emptyMap(), BULK_ACTION);
+
+        holdThread();
+
+        NodeRef node1 = createNodeRef();
+        NodeRef node2 = createNodeRef();
+        queueAction(queue, BULK_ACTION, node1, "bulk1");
+        queueAction(queue, BULK_ACTION, node2, "bulk2");
+        queueAction(queue, INTERACTIVE_ACTION, node1, "interactive1");
+        // Identical to a waiting action
+        queueAction(queue, BULK_ACTION, node1, "bulk1");
+        // The same action as another user is not coalesced
+        queueAction(queue, BULK_ACTION, node1, "bulk3");
+
+        assertEquals(3, queue.getQueueDepth(BULK_ACTION));
+        assertEquals(1, queue.getQueueDepth(INTERACTIVE_ACTION));
+        assertEquals(4, queue.getTotalQueueDepth());
+        assertEquals(1L, queue.getCoalescedCount(BULK_ACTION));
+        assertEquals(0L, queue.getCoalescedCount(INTERACTIVE_ACTION));
+        assertEquals(3, queue.ongoingActions.size());
+
+        blockingLatch.countDown();
+        waitForExecutions(4);
+        waitForIdle(queue);
+
+        // The interactive action goes first, then the bulk actions in the order they were queued
+        assertEquals(Arrays.asList("interactive1", "bulk1", "bulk2", "bulk3"), executedUsers);
+        assertEquals(3L, queue.getExecutedCount(BULK_ACTION));
+        assertEquals(1L, queue.getExecutedCount(INTERACTIVE_ACTION));
+        assertEquals(0, queue.getTotalQueueDepth());
+        assertEquals(2, queue.getActionDefinitionNames().length);
+    }
+
+    @Test
+    public void testOnlyActionImplIsCoalesced() throws Exception
+    {
+        AsynchronousActionExecutionQueueImpl queue = createQueue(1,
+                Collections.<String, Integer>emptyMap(), Collections.<String, Integer>emptyMap(), BULK_ACTION);
+        holdThread();
+
+        Action action = mock(Action.class);
+        when(action.getId()).thenReturn(GUID.generate());
+        when(action.getActionDefinitionName()).thenReturn(BULK_ACTION);
+        NodeRef nodeRef = createNodeRef();
+        queue.executeAction(actionService, action, nodeRef, false, null);
+        queue.executeAction(actionService, action, nodeRef, false, null);
+
+        assertEquals(2, queue.getQueueDepth(BULK_ACTION));
+        assertEquals(0L, queue.getCoalescedCount(BULK_ACTION));
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception
+    {
+        AsynchronousActionExecutionQueueImpl queue = createQueue(2,
+                Collections.<String, Integer>emptyMap(), Collections.singletonMap(BULK_ACTION, 1), null);
+
+        queueAction(queue, BULK_ACTION, createNodeRef(), "blocking1");
+        queueAction(queue, BULK_ACTION, createNodeRef(), "bulk2");
+        queueAction(queue, INTERACTIVE_ACTION, createNodeRef(), "interactive1");
+
+        // The second thread is free for the interactive action while the second bulk action waits
+        waitForExecutions(1);
+        assertEquals(Arrays.asList("interactive1"), executedUsers);
+        assertEquals(1, queue.getRunningCount(BULK_ACTION));
+        assertEquals(1, queue.getQueueDepth(BULK_ACTION));
+
+        blockingLatch.countDown();
+        waitForExecutions(3);
+        waitForIdle(queue);
+        assertEquals(Arrays.asList("interactive1", "blocking1", "bulk2"), executedUsers);
+        assertEquals(0, queue.getRunningCount(BULK_ACTION));
+        assertEquals(0, queue.getQueueDepth(BULK_ACTION));
+    }
+
+    private AsynchronousActionExecutionQueueImpl createQueue(int threads,
+            Map<String, Integer> priorities, Map<String, Integer> limits, String coalescedAction)
+    {
+        threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        AsynchronousActionExecutionQueueImpl queue = new AsynchronousActionExecutionQueueImpl();
+        queue.setActionServiceImpl(mock(ActionServiceImpl.class));
+        queue.setPolicyComponent(mock(PolicyComponent.class));
+        queue.setTransactionService(transactionService);
+        queue.setThreadPoolExecutor(threadPoolExecutor);
+        queue.setId(GUID.generate());
+        queue.setActionPriorities(priorities);
+        queue.setActionConcurrencyLimits(limits);
+        queue.setCoalescedActions(coalescedAction == null ? Collections.<String>emptySet() : Collections.singleton(coalescedAction));
+        queue.init();
+        return queue;
+    }
+
+    /**
+     * Hold the only thread of the pool so that the actions queue up
+     */
+    private void holdThread() throws InterruptedException
+    {
+        final CountDownLatch threadHeld = new CountDownLatch(1);
+        threadPoolExecutor.execute(() -> {
+            threadHeld.countDown();
+            try
+            {
+                blockingLatch.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(threadHeld.await(10, TimeUnit.SECONDS));
+    }
+
+    private void queueAction(AsynchronousActionExecutionQueueImpl queue, String actionDefinitionName, NodeRef nodeRef, String runAsUser)
+    {
+        ActionImpl action = new ActionImpl(null, GUID.generate(), actionDefinitionName);
+        action.setRunAsUser(runAsUser);
+        action.setTenantId("");
+        queue.executeAction(actionService, action, nodeRef, false, null);
+    }
+
+    private NodeRef createNodeRef()
+    {
+        return new NodeRef("workspace://SpacesStore/" + GUID.generate());
+    }
+
+    private void waitForExecutions(int count) throws InterruptedException
+    {
+        long endTime = System.currentTimeMillis() + 10000L;
+        while (executedUsers.size() < count && System.currentTimeMillis() < endTime)
+        {
+            Thread.sleep(10L);
+        }
+        assertEquals(count, executedUsers.size());
+    }
+
+    private void waitForIdle(AsynchronousActionExecutionQueueImpl queue) throws InterruptedException
+    {
+        long endTime = System.currentTimeMillis() + 10000L;
+        while (System.currentTimeMillis() < endTime)
+        {
+            synchronized (queue.ongoingActions)
+            {
+                if (queue.ongoingActions.isEmpty())
+                {
+                    return;
+                }
+            }
+            Thread.sleep(10L);
+        }
+        fail("The queue still has ongoing actions");
+    }
+}
@@ -207,6 +207,48 @@ public class AttributeServiceTest extends TestCase
         assertPropDeleted(propertyValueDAO.getPropertyValue(dateValue));
     }
     
+    public void testRemoveOrphanedPropsIncrementally()
+    {
+        final Serializable[] stringKey = new String[] { "z", "q", "incremental-string" };
+        final Serializable[] doubleKey = new String[] { "z", "q", "incremental-double" };
+        final Serializable[] keptKey = new String[] { "z", "q", "incremental-kept" };
+        IncrementalPropTablesCleaner cleaner = (IncrementalPropTablesCleaner) ctx.getBean("incrementalPropTablesCleaner");
+
+        // Make sure there's nothing left from previous failed test runs etc.
+        attributeService.removeAttributes(stringKey);
+        attributeService.removeAttributes(doubleKey);
+        attributeService.removeAttributes(keptKey);
+        // Start a new pass over the tables
+        attributeService.removeAttributes(IncrementalPropTablesCleaner.ATTR_KEY_PROGRESS);
+
+        final PropValGenerator valueGen = new PropValGenerator(propertyValueDAO);
+        final String stringValue = valueGen.createUniqueString();
+        attributeService.createAttribute(stringValue, stringKey);
+        final Double doubleValue = valueGen.createUniqueDouble();
+        attributeService.createAttribute(doubleValue, doubleKey);
+        final String keptValue = valueGen.createUniqueString();
+        attributeService.createAttribute(keptValue, keptKey);
+
+        // Orphan two of the values
+        attributeService.removeAttributes(stringKey);
+        attributeService.removeAttributes(doubleKey);
+        assertEquals(stringValue, propertyValueDAO.getPropertyValue(stringValue).getSecond());
+        assertEquals(doubleValue, propertyValueDAO.getPropertyValue(doubleValue).getSecond());
+
+        long rowsCleanedBefore = cleaner.getRowsCleaned();
+        cleaner.execute(null);
+
+        assertPropDeleted(propertyValueDAO.getPropertyValue(stringValue));
+        assertPropDeleted(propertyValueDAO.getPropertyValue(doubleValue));
+        assertEquals(keptValue, attributeService.getAttribute(keptKey));
+        assertTrue(cleaner.getRowsCleaned() > rowsCleanedBefore);
+        assertFalse(cleaner.isRunning());
+        // The pass completed, so the next run starts from the beginning again
+        assertNull(attributeService.getAttribute(IncrementalPropTablesCleaner.ATTR_KEY_PROGRESS, "ROOT"));
+
+        attributeService.removeAttributes(keptKey);
+    }
+
     private void assertPropDeleted(Pair<Long, ?> value)
     {
         if (value != null)
@@ -0,0 +1,180 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.alfresco.repo.domain.audit.AuditDAO;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.transaction.TransactionService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * A low level unit test of the asynchronous, batched audit entry writer.
+ */
+public class AsynchronousAuditWriterTest
+{
+    private AsynchronousAuditWriter writer;
+    private AuditDAO auditDAO;
+    private RetryingTransactionHelper txnHelper;
+    private ThreadPoolExecutor threadPoolExecutor;
+    private Map<String, Serializable> values;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception
+    {
+        auditDAO = mock(AuditDAO.class);
+        threadPoolExecutor = mock(ThreadPoolExecutor.class);
+        txnHelper = mock(RetryingTransactionHelper.class);
+        TransactionService transactionService = mock(TransactionService.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), eq(false), eq(true))).thenAnswer(
+                invocation -> ((RetryingTransactionCallback<Object>) invocation.getArgument(0)).execute());
+
+        writer = new AsynchronousAuditWriter();
+        writer.setAuditDAO(auditDAO);
+        writer.setTransactionService(transactionService);
+        writer.setThreadPoolExecutor(threadPoolExecutor);
+        writer.setEnabled(true);
+        writer.setQueueCapacity(10);
+        writer.setBatchSize(10);
+        writer.setOfferTimeoutMs(0L);
+
+        values = Collections.<String, Serializable>singletonMap("/test/value", "x");
+    }
+
+    @Test
+    public void testEntriesWrittenInOneBatch()
+    {
+        writer.init();
+        writer.write(1L, 100L, "user1", values);
+        writer.write(1L, 101L, "user1", values);
+        writer.write(1L, 102L, "user2", values);
+        assertEquals("Entries should wait in the queue", 3, writer.getQueueSize());
+
+        // Only one drain is scheduled while one is pending
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(threadPoolExecutor, times(1)).execute(drain.capture());
+        drain.getValue().run();
+
+        assertEquals(0, writer.getQueueSize());
+        verify(auditDAO, times(3)).createAuditEntry(eq(1L), anyLong(), anyString(), eq(values));
+        verify(txnHelper, times(1)).doInTransaction(any(RetryingTransactionCallback.class), eq(false), eq(true));
+    }
+
+    @Test
+    public void testCallerWritesWhenQueueIsFull()
+    {
+        writer.setQueueCapacity(1);
+        writer.init();
+        writer.write(1L, 100L, "user1", values);
+        verify(auditDAO, times(0)).createAuditEntry(any(), anyLong(), any(), anyMap());
+
+        // The queue is full, so the caller writes the entry itself
+        writer.write(1L, 101L, "user1", values);
+        assertEquals(1, writer.getQueueSize());
+        verify(auditDAO, times(1)).createAuditEntry(1L, 101L, "user1", values);
+    }
+
+    @Test
+    public void testFailedEntryDoesNotDropBatch()
+    {
+        doThrow(new IllegalStateException("Test failure")).when(auditDAO).createAuditEntry(1L, 101L, "user1", values);
+        writer.init();
+        writer.write(1L, 100L, "user1", values);
+        writer.write(1L, 101L, "user1", values);
+        writer.write(1L, 102L, "user1", values);
+        writer.destroy();
+
+        // The batch is abandoned at the failing entry and then written one entry at a time
+        assertEquals(0, writer.getQueueSize());
+        verify(auditDAO, times(2)).createAuditEntry(1L, 100L, "user1", values);
+        verify(auditDAO, times(2)).createAuditEntry(1L, 101L, "user1", values);
+        verify(auditDAO, times(1)).createAuditEntry(1L, 102L, "user1", values);
+        verify(txnHelper, times(4)).doInTransaction(any(RetryingTransactionCallback.class), eq(false), eq(true));
+    }
+
+    @Test
+    public void testCallerWritesWhenPoolRejects()
+    {
+        doThrow(new RejectedExecutionException("Test rejection")).when(threadPoolExecutor).execute(any(Runnable.class));
+        writer.init();
+        writer.write(1L, 100L, "user1", values);
+        assertEquals(0, writer.getQueueSize());
+        verify(auditDAO, times(1)).createAuditEntry(1L, 100L, "user1", values);
+
+        // The writer is not left marked as draining
+        writer.write(1L, 101L, "user1", values);
+        assertEquals(0, writer.getQueueSize());
+        verify(auditDAO, times(1)).createAuditEntry(1L, 101L, "user1", values);
+        verify(threadPoolExecutor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void testValuesCopiedWhenQueued()
+    {
+        writer.init();
+        Map<String, Serializable> reused = new HashMap<String, Serializable>(values);
+        writer.write(1L, 100L, "user1", reused);
+        reused.put("/test/value", "y");
+        writer.destroy();
+
+        verify(auditDAO, times(1)).createAuditEntry(1L, 100L, "user1", values);
+    }
+
+    @Test
+    public void testDestroyDrainsQueue()
+    {
+        writer.init();
+        writer.write(1L, 100L, "user1", values);
+        writer.write(1L, 101L, "user1", values);
+        writer.destroy();
+
+        assertEquals(0, writer.getQueueSize());
+        verify(auditDAO, times(2)).createAuditEntry(eq(1L), anyLong(), anyString(), eq(values));
+    }
+}
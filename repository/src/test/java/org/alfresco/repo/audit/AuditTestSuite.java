@@ -51,6 +51,7 @@ public class AuditTestSuite extends TestSuite
         suite.addTestSuite(AuditMethodInterceptorTest.class);
         
         suite.addTest(new JUnit4TestAdapter(PropertyAuditFilterTest.class));
+        suite.addTest(new JUnit4TestAdapter(AsynchronousAuditWriterTest.class));
         suite.addTest(new JUnit4TestAdapter(AccessAuditorTest.class));
                 
         return suite;
@@ -0,0 +1,339 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.content.delta;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.repo.content.ContentStore;
+import org.alfresco.repo.content.filestore.FileContentStore;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.cmr.attributes.AttributeService.AttributeQueryCallback;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.DirectAccessUrl;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.TempFileProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Unit tests for {@link ContentDeltaCodec} and {@link DeltaContentStore}, using a file store in a temporary folder.
+ * <p/>
+ * The transaction helper runs the callbacks directly and the attributes are kept in memory.
+ */
+public class DeltaContentStoreTest
+{
+    private static final int BLOCK_SIZE = 256;
+
+    private final Map<List<Serializable>, Serializable> attributes = new ConcurrentHashMap<>();
+    private final Random random = new Random(42L);
+    private ContentStore backingStore;
+    private DeltaContentStore store;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        RetryingTransactionHelper txnHelper = mock(RetryingTransactionHelper.class);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            RetryingTransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.execute();
+        });
+        TransactionService transactionService = mock(TransactionService.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+
+        AttributeService attributeService = mock(AttributeService.class, invocation -> {
+            Object[] args = invocation.getRawArguments();
+            switch (invocation.getMethod().getName())
+            {
+            case "setAttribute":
+                attributes.put(Arrays.asList((Serializable[]) args[1]), (Serializable) args[0]);
+                return null;
+            case "removeAttribute":
+                attributes.remove(Arrays.asList((Serializable[]) args[0]));
+                return null;
+            case "removeAttributes":
+            case "getAttributes":
+                boolean remove = args.length == 1;
+                List<Serializable> prefix = Arrays.asList((Serializable[]) args[remove ? 0 : 1]);
+                for (List<Serializable> key : new ArrayList<>(attributes.keySet()))
+                {
+                    if (key.size() >= prefix.size() && key.subList(0, prefix.size()).equals(prefix))
+                    {
+                        if (remove)
+                        {
+                            attributes.remove(key);
+                        }
+                        else
+                        {
+                            ((AttributeQueryCallback) args[0]).handleAttribute(0L, attributes.get(key), key.toArray(new Serializable[0]));
+                        }
+                    }
+                }
+                return null;
+            default:
+                return null;
+            }
+        });
+
+        File root = TempFileProvider.getTempDir("DeltaContentStoreTest-" + System.nanoTime());
+        backingStore = new FileContentStore(mock(ApplicationContext.class), root);
+        store = new DeltaContentStore();
+        store.setBackingStore(backingStore);
+        store.setTransactionService(transactionService);
+        store.setAttributeService(attributeService);
+        store.setBlockSize(BLOCK_SIZE);
+        store.setEnabled(true);
+        store.init();
+    }
+
+    private byte[] randomBytes(int length)
+    {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return                  Returns the content with some bytes changed, some inserted and some removed
+     */
+    private byte[] edit(byte[] content)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(content, 0, 10000);
+        out.writeBytes(randomBytes(300));
+        out.write(content, 10000, 20000);
+        out.write(content, 31000, 10000);
+        byte[] edited = out.toByteArray();
+        edited[5000] ^= 0xFF;
+        edited = Arrays.copyOf(edited, edited.length + 1234);
+        System.arraycopy(content, content.length - 1234, edited, edited.length - 1234, 1234);
+        return edited;
+    }
+
+    private String write(byte[] content)
+    {
+        ContentWriter writer = store.getWriter(ContentStore.NEW_CONTENT_CONTEXT);
+        writer.putContent(new ByteArrayInputStream(content));
+        return writer.getContentUrl();
+    }
+
+    private byte[] read(String contentUrl) throws Exception
+    {
+        ContentReader reader = store.getReader(contentUrl);
+        assertTrue("Content missing: " + contentUrl, reader.exists());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reader.getContent(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testCodecRoundTrip() throws Exception
+    {
+        byte[] base = randomBytes(50000);
+        byte[] target = edit(base);
+        ContentDeltaCodec codec = new ContentDeltaCodec(BLOCK_SIZE);
+
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        codec.encode(new ByteArrayInputStream(base), "base", base.length, new ByteArrayInputStream(target), target.length, delta);
+        assertTrue("Delta should be much smaller than the content: " + delta.size(), delta.size() < target.length / 10);
+
+        File baseFile = TempFileProvider.createTempFile("DeltaContentStoreTest", ".bin");
+        Files.write(baseFile.toPath(), base);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta.toByteArray()));
+        ContentDeltaCodec.Header header = codec.readHeader(in);
+        assertEquals("base", header.getBaseUrl());
+        assertEquals(target.length, header.getTargetLength());
+        ByteArrayOutputStream rebuilt = new ByteArrayOutputStream();
+        try (FileChannel channel = FileChannel.open(baseFile.toPath(), StandardOpenOption.READ))
+        {
+            codec.decode(in, header, channel, rebuilt);
+        }
+        assertArrayEquals(target, rebuilt.toByteArray());
+    }
+
+    @Test
+    public void testEncodeAndRead() throws Exception
+    {
+        byte[] oldContent = randomBytes(50000);
+        byte[] newContent = edit(oldContent);
+        String oldUrl = write(oldContent);
+        String newUrl = write(newContent);
+
+        assertTrue(store.encode(oldUrl, newUrl));
+        assertTrue(store.isDelta(oldUrl));
+        assertFalse("The full copy should be gone", backingStore.exists(oldUrl));
+        assertTrue(store.exists(oldUrl));
+        assertArrayEquals(oldContent, read(oldUrl));
+        assertArrayEquals(newContent, read(newUrl));
+    }
+
+    @Test
+    public void testUnrelatedContentKeptInFull() throws Exception
+    {
+        byte[] oldContent = randomBytes(50000);
+        String oldUrl = write(oldContent);
+        String newUrl = write(randomBytes(50000));
+
+        assertFalse(store.encode(oldUrl, newUrl));
+        assertFalse(store.isDelta(oldUrl));
+        assertTrue(backingStore.exists(oldUrl));
+        assertArrayEquals(oldContent, read(oldUrl));
+    }
+
+    @Test
+    public void testChainAndDeleteOfBase() throws Exception
+    {
+        byte[] v1 = randomBytes(50000);
+        byte[] v2 = edit(v1);
+        byte[] v3 = edit(v2);
+        String url1 = write(v1);
+        String url2 = write(v2);
+        String url3 = write(v3);
+
+        assertTrue(store.encode(url1, url2));
+        assertTrue(store.encode(url2, url3));
+        assertArrayEquals(v1, read(url1));
+        assertArrayEquals(v2, read(url2));
+
+        // Deleting the full copy at the end of the chain rebuilds the content depending on it
+        assertTrue(store.delete(url3));
+        assertFalse(store.exists(url3));
+        assertFalse(store.isDelta(url2));
+        assertTrue(backingStore.exists(url2));
+        assertArrayEquals(v1, read(url1));
+        assertArrayEquals(v2, read(url2));
+
+        // Deleting a delta drops it and its dependency
+        assertTrue(store.delete(url1));
+        assertFalse(store.exists(url1));
+        assertTrue(attributes.isEmpty());
+    }
+
+    @Test
+    public void testMaxChainLength() throws Exception
+    {
+        store.setMaxChainLength(1);
+        byte[] v1 = randomBytes(50000);
+        byte[] v2 = edit(v1);
+        byte[] v3 = edit(v2);
+        String url1 = write(v1);
+        String url2 = write(v2);
+        String url3 = write(v3);
+
+        assertTrue(store.encode(url1, url2));
+        assertFalse("The chain would be too long", store.encode(url2, url3));
+        assertTrue(backingStore.exists(url2));
+        assertArrayEquals(v1, read(url1));
+    }
+
+    @Test
+    public void testEncodeAgainstDeltaRebuildsBase() throws Exception
+    {
+        byte[] v1 = randomBytes(50000);
+        byte[] v2 = edit(v1);
+        String url1 = write(v1);
+        String url2 = write(v2);
+        assertTrue(store.encode(url1, url2));
+
+        // For example after reverting to the first version and editing it again
+        byte[] v3 = edit(v1);
+        String url3 = write(v3);
+        assertTrue(store.encode(url3, url1));
+        assertFalse(store.isDelta(url1));
+        assertTrue(backingStore.exists(url1));
+        assertArrayEquals(v3, read(url3));
+        assertArrayEquals(v1, read(url1));
+    }
+
+    @Test
+    public void testDirectUrlRebuildsDelta() throws Exception
+    {
+        byte[] oldContent = randomBytes(50000);
+        String oldUrl = write(oldContent);
+        String newUrl = write(edit(oldContent));
+        assertTrue(store.encode(oldUrl, newUrl));
+
+        // For example after reverting to the older version
+        DirectAccessUrl directAccessUrl = new DirectAccessUrl();
+        ContentStore directUrlStore = spy(backingStore);
+        doReturn(directAccessUrl).when(directUrlStore).requestContentDirectUrl(anyString(), anyBoolean(), anyString(), any(), any());
+        store.setBackingStore(directUrlStore);
+        assertEquals(directAccessUrl, store.requestContentDirectUrl(oldUrl, true, "old.bin", null, 30L));
+        assertFalse(store.isDelta(oldUrl));
+        assertTrue("The full copy should be back", backingStore.exists(oldUrl));
+        assertTrue(attributes.isEmpty());
+        assertArrayEquals(oldContent, read(oldUrl));
+    }
+
+    @Test
+    public void testDisabledStorePassesThrough() throws Exception
+    {
+        // No transaction or attribute service: a disabled store must not need them
+        DeltaContentStore disabledStore = new DeltaContentStore();
+        disabledStore.setBackingStore(backingStore);
+        disabledStore.init();
+
+        byte[] v1 = randomBytes(50000);
+        String url1 = write(v1);
+        String url2 = write(edit(v1));
+        assertFalse(disabledStore.encode(url1, url2));
+        assertFalse(disabledStore.isDelta(url1));
+        assertTrue(disabledStore.exists(url1));
+        assertFalse(disabledStore.exists(url1 + "-missing"));
+        assertTrue(disabledStore.delete(url1));
+        assertFalse(backingStore.exists(url1));
+        assertTrue(backingStore.exists(url2));
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.copy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.alfresco.model.ApplicationModel;
+import org.alfresco.model.ContentModel;
+import org.alfresco.model.ForumModel;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.cmr.attributes.AttributeService.AttributeQueryCallback;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.CopyService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.service.cmr.security.PersonService;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.namespace.RegexQNamePattern;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.test_category.OwnJVMTestsCategory;
+import org.alfresco.util.ApplicationContextHelper;
+import org.alfresco.util.GUID;
+import org.alfresco.util.Pair;
+import org.junit.experimental.categories.Category;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * @see HierarchyCopier
+ *
+ * @since 23.2
+ */
+@Category(OwnJVMTestsCategory.class)
+public class HierarchyCopierTest extends TestCase
+{
+    private static final int CHUNK_SIZE = 4;
+    private static final QName QNAME_COPY = QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "copy");
+
+    private ApplicationContext ctx;
+    private HierarchyCopier hierarchyCopier;
+    private CopyService copyService;
+    private NodeService nodeService;
+    private PermissionService permissionService;
+    private PersonService personService;
+    private AttributeService attributeService;
+    private RetryingTransactionHelper txnHelper;
+
+    private NodeRef rootNodeRef;
+    private NodeRef topNodeRef;
+    private NodeRef bigNodeRef;
+    private NodeRef big0NodeRef;
+    private NodeRef f0NodeRef;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        ctx = ApplicationContextHelper.getApplicationContext();
+        hierarchyCopier = (HierarchyCopier) ctx.getBean("hierarchyCopier");
+        copyService = (CopyService) ctx.getBean("CopyService");
+        nodeService = (NodeService) ctx.getBean("NodeService");
+        permissionService = (PermissionService) ctx.getBean("PermissionService");
+        personService = (PersonService) ctx.getBean("PersonService");
+        attributeService = (AttributeService) ctx.getBean("attributeService");
+        TransactionService transactionService = (TransactionService) ctx.getBean("TransactionService");
+        txnHelper = transactionService.getRetryingTransactionHelper();
+
+        hierarchyCopier.setChunkSize(CHUNK_SIZE);
+        AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
+
+        /*
+         * top
+         *   f0           3 files: copied whole
+         *   big          staged
+         *     big0       staged: 5 files copied in batches
+         *     big1       staged: 5 files copied in batches
+         */
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                StoreRef storeRef = nodeService.createStore(StoreRef.PROTOCOL_WORKSPACE, "HierarchyCopierTest-" + GUID.generate());
+                rootNodeRef = nodeService.getRootNode(storeRef);
+                topNodeRef = createFolder(rootNodeRef, "top");
+                f0NodeRef = createFolder(topNodeRef, "f0");
+                createFiles(f0NodeRef, 3);
+                bigNodeRef = createFolder(topNodeRef, "big");
+                big0NodeRef = createFolder(bigNodeRef, "big0");
+                createFiles(big0NodeRef, 5);
+                createFiles(createFolder(bigNodeRef, "big1"), 5);
+                return null;
+            }
+        }, false, true);
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        hierarchyCopier.setChunkSize(1000);
+        AuthenticationUtil.clearCurrentSecurityContext();
+    }
+
+    private NodeRef createFolder(NodeRef parentNodeRef, String name)
+    {
+        return nodeService.createNode(
+                parentNodeRef,
+                ContentModel.ASSOC_CONTAINS,
+                QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, name),
+                ContentModel.TYPE_FOLDER,
+                Collections.<QName, Serializable>singletonMap(ContentModel.PROP_NAME, name)).getChildRef();
+    }
+
+    private void createFiles(NodeRef parentNodeRef, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            nodeService.createNode(
+                    parentNodeRef,
+                    ContentModel.ASSOC_CONTAINS,
+                    QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "file" + i),
+                    ContentModel.TYPE_CONTENT,
+                    Collections.<QName, Serializable>singletonMap(ContentModel.PROP_NAME, "file" + i));
+        }
+    }
+
+    /**
+     * Describe a hierarchy by the types and names of the associations leading to its nodes, in a stable
+     * order, so that two copies can be compared
+     */
+    private String describe(final NodeRef nodeRef)
+    {
+        return txnHelper.doInTransaction(new RetryingTransactionCallback<String>()
+        {
+            @Override
+            public String execute() throws Throwable
+            {
+                return describeImpl(nodeRef);
+            }
+        }, true, true);
+    }
+
+    private String describeImpl(NodeRef nodeRef)
+    {
+        List<String> children = new ArrayList<String>();
+        for (ChildAssociationRef childAssocRef : nodeService.getChildAssocs(nodeRef))
+        {
+            String child = childAssocRef.getTypeQName().getLocalName()
+                    + (childAssocRef.isPrimary() ? ":" : "~:")
+                    + childAssocRef.getQName().getLocalName();
+            if (childAssocRef.isPrimary())
+            {
+                child += describeImpl(childAssocRef.getChildRef());
+            }
+            children.add(child);
+        }
+        Collections.sort(children);
+        return children.toString();
+    }
+
+    private NodeRef copyInOneGo()
+    {
+        return txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef>()
+        {
+            @Override
+            public NodeRef execute() throws Throwable
+            {
+                return copyService.copy(topNodeRef, rootNodeRef, ContentModel.ASSOC_CHILDREN, QNAME_COPY, true);
+            }
+        }, false, true);
+    }
+
+    private int countPending(final NodeRef copyNodeRef)
+    {
+        return txnHelper.doInTransaction(new RetryingTransactionCallback<Integer>()
+        {
+            @Override
+            public Integer execute() throws Throwable
+            {
+                final int[] pending = new int[1];
+                attributeService.getAttributes(new AttributeQueryCallback()
+                {
+                    @Override
+                    public boolean handleAttribute(Long id, Serializable value, Serializable[] keys)
+                    {
+                        pending[0]++;
+                        return true;
+                    }
+                }, HierarchyCopier.ATTR_KEY_COPIES, copyNodeRef.toString());
+                return pending[0];
+            }
+        }, true, true);
+    }
+
+    public void testCopyInStages() throws Exception
+    {
+        NodeRef copyNodeRef = hierarchyCopier.copyHierarchy(topNodeRef, rootNodeRef, ContentModel.ASSOC_CHILDREN, QNAME_COPY);
+        assertFalse(topNodeRef.equals(copyNodeRef));
+        assertEquals("The copy should match a copy made in one go", describe(copyInOneGo()), describe(copyNodeRef));
+        assertEquals("Nothing should be left to copy", 0, countPending(copyNodeRef));
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                // The staged children keep their names
+                NodeRef bigCopyNodeRef = nodeService.getChildByName(copyNodeRef, ContentModel.ASSOC_CONTAINS, "big");
+                assertNotNull("Staged folder not found by name", bigCopyNodeRef);
+                assertNotNull(nodeService.getChildByName(bigCopyNodeRef, ContentModel.ASSOC_CONTAINS, "big0"));
+                return null;
+            }
+        }, true, true);
+    }
+
+    public void testChildrenCopiedAsByCopyService() throws Exception
+    {
+        final NodeRef linkedNodeRef = txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef>()
+        {
+            @Override
+            public NodeRef execute() throws Throwable
+            {
+                // Copied with its parent, by default
+                nodeService.addAspect(bigNodeRef, ApplicationModel.ASPECT_CONFIGURABLE, null);
+                nodeService.createNode(
+                        bigNodeRef,
+                        ApplicationModel.ASSOC_CONFIGURATIONS,
+                        ApplicationModel.ASSOC_CONFIGURATIONS,
+                        ApplicationModel.TYPE_CONFIGURATIONS);
+                // Never copied: the forum is added along with the aspect
+                nodeService.addAspect(bigNodeRef, ForumModel.ASPECT_DISCUSSABLE, null);
+                // Linked rather than copied
+                NodeRef linkedNodeRef = nodeService.getChildByName(f0NodeRef, ContentModel.ASSOC_CONTAINS, "file0");
+                nodeService.addChild(big0NodeRef, linkedNodeRef, ContentModel.ASSOC_CONTAINS, QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "link"));
+                return linkedNodeRef;
+            }
+        }, false, true);
+
+        final NodeRef copyNodeRef = hierarchyCopier.copyHierarchy(topNodeRef, rootNodeRef, ContentModel.ASSOC_CHILDREN, QNAME_COPY);
+        assertEquals("The copy should match a copy made in one go", describe(copyInOneGo()), describe(copyNodeRef));
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                NodeRef bigCopyNodeRef = nodeService.getChildByName(copyNodeRef, ContentModel.ASSOC_CONTAINS, "big");
+                assertEquals(1, nodeService.getChildAssocs(bigCopyNodeRef, ApplicationModel.ASSOC_CONFIGURATIONS, RegexQNamePattern.MATCH_ALL).size());
+                assertTrue(nodeService.getChildAssocs(bigCopyNodeRef, ForumModel.ASSOC_DISCUSSION, RegexQNamePattern.MATCH_ALL).isEmpty());
+                NodeRef big0CopyNodeRef = nodeService.getChildByName(bigCopyNodeRef, ContentModel.ASSOC_CONTAINS, "big0");
+                List<ChildAssociationRef> linkAssocRefs = nodeService.getChildAssocs(big0CopyNodeRef, ContentModel.ASSOC_CONTAINS,
+                        QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "link"));
+                assertEquals(1, linkAssocRefs.size());
+                assertEquals("The secondary child should be linked to the original", linkedNodeRef, linkAssocRefs.get(0).getChildRef());
+                return null;
+            }
+        }, true, true);
+    }
+
+    public void testUnreadableChildrenNotCopied() throws Exception
+    {
+        final String userName = "HierarchyCopierTest-" + GUID.generate();
+        final NodeRef hiddenNodeRef = txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef>()
+        {
+            @Override
+            public NodeRef execute() throws Throwable
+            {
+                personService.createPerson(Collections.<QName, Serializable>singletonMap(ContentModel.PROP_USERNAME, userName));
+                permissionService.setPermission(rootNodeRef, userName, PermissionService.COORDINATOR, true);
+                NodeRef hiddenNodeRef = nodeService.getChildByName(big0NodeRef, ContentModel.ASSOC_CONTAINS, "file2");
+                permissionService.setInheritParentPermissions(hiddenNodeRef, false);
+                return hiddenNodeRef;
+            }
+        }, false, true);
+
+        AuthenticationUtil.setFullyAuthenticatedUser(userName);
+        final NodeRef copyNodeRef = hierarchyCopier.copyHierarchy(topNodeRef, rootNodeRef, ContentModel.ASSOC_CHILDREN, QNAME_COPY);
+        AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
+
+        assertEquals("Nothing should be left to copy", 0, countPending(copyNodeRef));
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                NodeRef bigCopyNodeRef = nodeService.getChildByName(copyNodeRef, ContentModel.ASSOC_CONTAINS, "big");
+                NodeRef big0CopyNodeRef = nodeService.getChildByName(bigCopyNodeRef, ContentModel.ASSOC_CONTAINS, "big0");
+                assertEquals("Only the readable children should have been copied", 4, nodeService.getChildAssocs(big0CopyNodeRef).size());
+                assertNull(nodeService.getChildByName(big0CopyNodeRef, ContentModel.ASSOC_CONTAINS, "file2"));
+                assertTrue("The original should be untouched", nodeService.exists(hiddenNodeRef));
+                return null;
+            }
+        }, true, true);
+    }
+
+    public void testResume() throws Exception
+    {
+        // Start as an interrupted copy would have left it: recorded, with the top node copied on its own
+        final NodeRef copyNodeRef = txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef>()
+        {
+            @Override
+            public NodeRef execute() throws Throwable
+            {
+                NodeRef copyNodeRef = copyService.copy(topNodeRef, rootNodeRef, ContentModel.ASSOC_CHILDREN, QNAME_COPY, false);
+                attributeService.setAttribute(
+                        new Pair<String, Long>(copyNodeRef.toString(), 0L),
+                        HierarchyCopier.ATTR_KEY_COPIES, copyNodeRef.toString(), topNodeRef.toString());
+                return copyNodeRef;
+            }
+        }, false, true);
+        assertEquals("[]", describe(copyNodeRef));
+
+        assertEquals(1, hierarchyCopier.resumeHierarchies());
+        assertEquals("The copy should match a copy made in one go", describe(copyInOneGo()), describe(copyNodeRef));
+        assertEquals("Nothing should be left to copy", 0, countPending(copyNodeRef));
+
+        assertEquals("Nothing left to resume", 0, hierarchyCopier.resumeHierarchies());
+    }
+}
@@ -726,6 +726,168 @@ public class AuditDAOTest extends TestCase
         scriptCanDeleteOrphanedPropsWork(false);
     }
 
+    /**
+     * Entries with compact values can be read back and found through the indexed search keys
+     */
+    public void testCompactValuesAndIndexedSearchKeys() throws Exception
+    {
+        final AbstractAuditDAOImpl auditDAOImpl = (AbstractAuditDAOImpl) auditDAO;
+        auditDAOImpl.setCompactValuesEnabled(true);
+        auditDAOImpl.setSearchableKeys(new String[] {"/a/b/indexed"});
+        try
+        {
+            final String indexedValue = GUID.generate();
+            final Date dateValue = new Date();
+            RetryingTransactionCallback<String> createCallback = new RetryingTransactionCallback<String>()
+            {
+                public String execute() throws Throwable
+                {
+                    AuditApplicationInfo appInfo = createAuditApp();
+                    Map<String, Serializable> values = new HashMap<String, Serializable>();
+                    values.put("/a/b/indexed", indexedValue);
+                    values.put("/a/b/date", dateValue);
+                    auditDAO.createAuditEntry(appInfo.getId(), System.currentTimeMillis(), "alexi", values);
+                    // Another entry that must not match the search
+                    values.put("/a/b/indexed", GUID.generate());
+                    auditDAO.createAuditEntry(appInfo.getId(), System.currentTimeMillis(), "alexi", values);
+                    return appInfo.getName();
+                }
+            };
+            final String appName = txnHelper.doInTransaction(createCallback);
+            
+            final List<Map<String, Serializable>> results = new ArrayList<Map<String, Serializable>>();
+            final AuditQueryCallback callback = new AuditQueryCallback()
+            {
+                public boolean valuesRequired()
+                {
+                    return true;
+                }
+
+                public boolean handleAuditEntry(
+                        Long entryId,
+                        String applicationName,
+                        String user,
+                        long time,
+                        Map<String, Serializable> values)
+                {
+                    assertEquals(appName, applicationName);
+                    assertEquals("alexi", user);
+                    results.add(values);
+                    return true;
+                }
+
+                public boolean handleAuditEntryError(Long entryId, String errorMsg, Throwable error)
+                {
+                    throw new AlfrescoRuntimeException(errorMsg, error);
+                }
+            };
+            final AuditQueryParameters params = new AuditQueryParameters();
+            params.setApplicationName(appName);
+            params.addSearchKey("/a/b/indexed", indexedValue);
+            RetryingTransactionCallback<Integer> findCallback = new RetryingTransactionCallback<Integer>()
+            {
+                public Integer execute() throws Throwable
+                {
+                    auditDAO.findAuditEntries(callback, params, 10);
+                    return auditDAO.getAuditEntriesCountByAppAndProperties(appName, params);
+                }
+            };
+            int count = txnHelper.doInTransaction(findCallback);
+            assertEquals("Expected only the entry with the indexed value", 1, results.size());
+            assertEquals(1, count);
+            assertEquals(indexedValue, results.get(0).get("/a/b/indexed"));
+            assertEquals(dateValue, results.get(0).get("/a/b/date"));
+        }
+        finally
+        {
+            auditDAOImpl.setCompactValuesEnabled(false);
+            auditDAOImpl.setSearchableKeys(null);
+        }
+    }
+
+    /**
+     * Entries written before a key is made searchable, and entries with compact values, are still
+     * found by searchable key searches.  Compact entries cannot be searched by other keys.
+     */
+    public void testSearchAcrossKeyPromotionAndCompactValues() throws Exception
+    {
+        final AbstractAuditDAOImpl auditDAOImpl = (AbstractAuditDAOImpl) auditDAO;
+        // Keys that have never been indexed
+        final String promotedKey = "/a/b/promoted-" + GUID.generate();
+        final String otherKey = "/a/b/other-" + GUID.generate();
+        final String searchValue = GUID.generate();
+        final AuditApplicationInfo appInfo = txnHelper.doInTransaction(new RetryingTransactionCallback<AuditApplicationInfo>()
+        {
+            public AuditApplicationInfo execute() throws Throwable
+            {
+                return createAuditApp();
+            }
+        });
+        final Map<String, Serializable> values = new HashMap<String, Serializable>();
+        values.put(promotedKey, searchValue);
+        values.put(otherKey, searchValue);
+        RetryingTransactionCallback<Void> createCallback = new RetryingTransactionCallback<Void>()
+        {
+            public Void execute() throws Throwable
+            {
+                auditDAO.createAuditEntry(appInfo.getId(), System.currentTimeMillis(), "alexi", values);
+                return null;
+            }
+        };
+        try
+        {
+            // Before the key is promoted
+            txnHelper.doInTransaction(createCallback);
+            // After the key is promoted
+            auditDAOImpl.setSearchableKeys(new String[] {promotedKey});
+            txnHelper.doInTransaction(createCallback);
+            // In compact form
+            auditDAOImpl.setCompactValuesEnabled(true);
+            txnHelper.doInTransaction(createCallback);
+            
+            RetryingTransactionCallback<Integer> countCallback = new RetryingTransactionCallback<Integer>()
+            {
+                public Integer execute() throws Throwable
+                {
+                    AuditQueryParameters params = new AuditQueryParameters();
+                    params.setApplicationName(appInfo.getName());
+                    params.addSearchKey(promotedKey, searchValue);
+                    return auditDAO.getAuditEntriesCountByAppAndProperties(appInfo.getName(), params);
+                }
+            };
+            assertEquals("Entries from before and after the promotion should be found", 3, (int) txnHelper.doInTransaction(countCallback));
+            
+            countCallback = new RetryingTransactionCallback<Integer>()
+            {
+                public Integer execute() throws Throwable
+                {
+                    AuditQueryParameters params = new AuditQueryParameters();
+                    params.setApplicationName(appInfo.getName());
+                    params.addSearchKey(otherKey, searchValue);
+                    return auditDAO.getAuditEntriesCountByAppAndProperties(appInfo.getName(), params);
+                }
+            };
+            try
+            {
+                txnHelper.doInTransaction(countCallback);
+                fail("Keys that are not searchable cannot find compact entries");
+            }
+            catch (IllegalArgumentException e)
+            {
+                // Expected
+            }
+            
+            // Without compact values, the other key finds the entries linked to the property tables
+            auditDAOImpl.setCompactValuesEnabled(false);
+            assertEquals("Only entries linked to the property tables should be found", 2, (int) txnHelper.doInTransaction(countCallback));
+        }
+        finally
+        {
+            auditDAOImpl.setCompactValuesEnabled(false);
+            auditDAOImpl.setSearchableKeys(null);
+        }
+    }
+
     public void testMaxResults() throws Exception
     {
         try
@@ -99,6 +99,7 @@ public class PropertyValueDAOTest
         ((AbstractPropertyValueDAOImpl)propertyValueDAO).setPropertyDoubleValueCache(null);
         ((AbstractPropertyValueDAOImpl)propertyValueDAO).setPropertyStringValueCache(null);
         ((AbstractPropertyValueDAOImpl)propertyValueDAO).setPropertyValueCache(null);
+        ((AbstractPropertyValueDAOImpl)propertyValueDAO).setPropertyValueStringIdCache(null);
     }
     
     @Test
@@ -761,6 +762,81 @@ public class PropertyValueDAOTest
         }
     }
     
+    @Test
+    public void testPropertyValues_Bulk() throws Exception
+    {
+        final String existing = getClass().getName() + "-" + GUID.generate();
+        final Pair<Long, Serializable> existingPair = txnHelper.doInTransaction(new RetryingTransactionCallback<Pair<Long, Serializable>>()
+        {
+            public Pair<Long, Serializable> execute() throws Throwable
+            {
+                return propertyValueDAO.getOrCreatePropertyValue(existing);
+            }
+        }, false);
+        final List<Serializable> values = Arrays.asList(
+                existing,
+                getClass().getName() + "-" + GUID.generate(),
+                null,
+                Long.valueOf(new Random().nextLong()),
+                Boolean.TRUE,
+                existing);
+        RetryingTransactionCallback<List<Pair<Long, Serializable>>> createCallback = new RetryingTransactionCallback<List<Pair<Long, Serializable>>>()
+        {
+            public List<Pair<Long, Serializable>> execute() throws Throwable
+            {
+                return propertyValueDAO.getOrCreatePropertyValues(values);
+            }
+        };
+        final List<Pair<Long, Serializable>> results = txnHelper.doInTransaction(createCallback, false);
+        assertEquals("Expected one result per value", values.size(), results.size());
+        for (int i = 0; i < values.size(); i++)
+        {
+            assertNotNull(results.get(i).getFirst());
+            assertEquals("Results must be in the order of the values", values.get(i), results.get(i).getSecond());
+        }
+        assertEquals("Existing value not reused", existingPair.getFirst(), results.get(0).getFirst());
+        assertEquals("Duplicate values must share an ID", results.get(0).getFirst(), results.get(5).getFirst());
+
+        // Resolving again must give the same IDs, which must match the individual lookups
+        List<Pair<Long, Serializable>> checkResults = txnHelper.doInTransaction(createCallback, false);
+        assertEquals(results, checkResults);
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            public Void execute() throws Throwable
+            {
+                for (int i = 0; i < values.size(); i++)
+                {
+                    assertEquals(results.get(i), propertyValueDAO.getPropertyValue(values.get(i)));
+                }
+                return null;
+            }
+        }, true);
+    }
+
+    @Test
+    public void testWarmCaches() throws Exception
+    {
+        final String value = getClass().getName() + "-" + GUID.generate();
+        final Pair<Long, Serializable> valuePair = txnHelper.doInTransaction(new RetryingTransactionCallback<Pair<Long, Serializable>>()
+        {
+            public Pair<Long, Serializable> execute() throws Throwable
+            {
+                return propertyValueDAO.getOrCreatePropertyValue(value);
+            }
+        }, false);
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            public Void execute() throws Throwable
+            {
+                propertyValueDAO.warmCaches(10);
+                // Warming must not change what is found
+                assertEquals(valuePair, propertyValueDAO.getPropertyValue(value));
+                assertEquals(valuePair, propertyValueDAO.getPropertyValueById(valuePair.getFirst()));
+                return null;
+            }
+        }, true);
+    }
+
     /*
      * Switch off caches and rerun some of the tests
      */
@@ -76,10 +76,12 @@ import org.junit.experimental.categories.Category;
 import org.junit.rules.RuleChain;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -349,6 +351,43 @@ public class DownloadServiceIntegrationTest
         validateEntries(entryNames, allEntries, true);
     }
 
+    @Test public void streamDownload() throws IOException
+    {
+        NodeRef[] requestedNodes = new NodeRef[] {rootFile, rootFolder};
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        int entryCount = DOWNLOAD_SERVICE.writeDownload(requestedNodes, outputStream, 0);
+        
+        List<String> entryNames = getEntries(outputStream.toByteArray());
+        Assert.assertEquals(entryCount, entryNames.size());
+        validateEntries(new TreeSet<String>(entryNames), allEntries, true);
+        
+        // Resume after the first two entries
+        outputStream = new ByteArrayOutputStream();
+        Assert.assertEquals(entryCount, DOWNLOAD_SERVICE.writeDownload(requestedNodes, outputStream, 2));
+        List<String> resumedEntryNames = getEntries(outputStream.toByteArray());
+        Assert.assertEquals(entryNames.subList(2, entryNames.size()), resumedEntryNames);
+    }
+
+    private List<String> getEntries(byte[] zip) throws IOException
+    {
+        List<String> entryNames = new ArrayList<String>();
+        ZipArchiveInputStream zipInputStream = new ZipArchiveInputStream(new ByteArrayInputStream(zip));
+        try 
+        {
+            ZipArchiveEntry zipEntry = zipInputStream.getNextZipEntry();
+            while (zipEntry != null)
+            {
+                entryNames.add(zipEntry.getName());
+                zipEntry = zipInputStream.getNextZipEntry();
+            }
+        }
+        finally
+        {
+            zipInputStream.close();
+        }
+        return entryNames;
+    }
+
     private void validateEntries(final Set<String> entryNames, final Set<String> expectedEntries, boolean onlyExpected)
     {
         Set<String> copy = new TreeSet<String>(entryNames);
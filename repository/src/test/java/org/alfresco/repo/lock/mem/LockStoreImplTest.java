@@ -25,6 +25,13 @@
  */
 package org.alfresco.repo.lock.mem;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.alfresco.service.cmr.lock.LockType;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.junit.Test;
 
 /**
  * Tests for the {@link LockStoreImpl} class.
@@ -38,4 +45,42 @@ public class LockStoreImplTest extends AbstractLockStoreTestBase<LockStoreImpl>
     {
         return new LockStoreImpl(20);
     }
+    
+    @Test
+    public void testMayBeLocked()
+    {
+        NodeRef nodeRef1 = new NodeRef("workspace://SpacesStore/12345");
+        LockState lock1 = LockState.createLock(nodeRef1, LockType.NODE_LOCK, "owner", null, Lifetime.EPHEMERAL, null);
+        
+        NodeRef nodeRef2 = new NodeRef("workspace://SpacesStore/5838743");
+        
+        assertFalse(lockStore.mayBeLocked(nodeRef1));
+        assertFalse(lockStore.mayBeLocked(nodeRef2));
+        
+        lockStore.set(nodeRef1, lock1);
+        lockStore.set(nodeRef2, LockState.createUnlocked(nodeRef2));
+        
+        assertTrue(lockStore.mayBeLocked(nodeRef1));
+        assertFalse("Unlocked state is not a lock", lockStore.mayBeLocked(nodeRef2));
+        
+        lockStore.set(nodeRef1, LockState.createUnlocked(nodeRef1));
+        assertFalse(lockStore.mayBeLocked(nodeRef1));
+        
+        lockStore.set(nodeRef1, lock1);
+        lockStore.clear();
+        assertFalse(lockStore.mayBeLocked(nodeRef1));
+    }
+    
+    @Test
+    public void testMayBeLockedAfterExpiry() throws InterruptedException
+    {
+        LockStoreImpl expiringLockStore = new LockStoreImpl(1);
+        NodeRef nodeRef = new NodeRef("workspace://SpacesStore/12345");
+        expiringLockStore.set(nodeRef, LockState.createLock(nodeRef, LockType.NODE_LOCK, "owner", null, Lifetime.EPHEMERAL, null));
+        assertTrue(expiringLockStore.mayBeLocked(nodeRef));
+        
+        Thread.sleep(1500);
+        assertNull(expiringLockStore.get(nodeRef));
+        assertFalse("Expired lock should be pruned from the index", expiringLockStore.mayBeLocked(nodeRef));
+    }
 }
@@ -0,0 +1,331 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.node.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.node.NodeServicePolicies;
+import org.alfresco.repo.node.StoreArchiveMap;
+import org.alfresco.repo.node.archive.NodeArchiveService;
+import org.alfresco.repo.policy.BehaviourDefinition;
+import org.alfresco.repo.policy.ClassBehaviourBinding;
+import org.alfresco.repo.policy.JavaBehaviour;
+import org.alfresco.repo.policy.PolicyComponent;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.namespace.RegexQNamePattern;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.test_category.OwnJVMTestsCategory;
+import org.alfresco.util.ApplicationContextHelper;
+import org.alfresco.util.GUID;
+import org.junit.experimental.categories.Category;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * @see HierarchyDeleter
+ *
+ * @since 23.2
+ */
+@Category(OwnJVMTestsCategory.class)
+public class HierarchyDeleterTest extends TestCase
+    implements NodeServicePolicies.BeforeDeleteHierarchyPolicy, NodeServicePolicies.OnDeleteHierarchyPolicy
+{
+    private static final int CHUNK_SIZE = 4;
+
+    private ApplicationContext ctx;
+    private HierarchyDeleter hierarchyDeleter;
+    private DbNodeServiceImpl dbNodeService;
+    private NodeService nodeService;
+    private AttributeService attributeService;
+    private RetryingTransactionHelper txnHelper;
+    private PolicyComponent policyComponent;
+    private StoreArchiveMap storeArchiveMap;
+    private BehaviourDefinition<ClassBehaviourBinding> beforeDeleteHierarchyBehaviour;
+    private BehaviourDefinition<ClassBehaviourBinding> onDeleteHierarchyBehaviour;
+
+    private StoreRef workStoreRef;
+    private StoreRef archiveStoreRef;
+    private NodeRef topNodeRef;
+    private int nodeCount;
+    private List<NodeRef> beforeDeleteHierarchyCalls = new ArrayList<NodeRef>();
+    private List<Long> onDeleteHierarchyCalls = new ArrayList<Long>();
+
+    @Override
+    public void setUp() throws Exception
+    {
+        ctx = ApplicationContextHelper.getApplicationContext();
+        hierarchyDeleter = (HierarchyDeleter) ctx.getBean("hierarchyDeleter");
+        dbNodeService = (DbNodeServiceImpl) ctx.getBean("dbNodeService");
+        nodeService = (NodeService) ctx.getBean("NodeService");
+        attributeService = (AttributeService) ctx.getBean("attributeService");
+        TransactionService transactionService = (TransactionService) ctx.getBean("TransactionService");
+        txnHelper = transactionService.getRetryingTransactionHelper();
+
+        storeArchiveMap = (StoreArchiveMap) ctx.getBean("storeArchiveMap");
+        policyComponent = (PolicyComponent) ctx.getBean("policyComponent");
+        beforeDeleteHierarchyBehaviour = policyComponent.bindClassBehaviour(
+                NodeServicePolicies.BeforeDeleteHierarchyPolicy.QNAME,
+                ContentModel.ASPECT_TITLED,
+                new JavaBehaviour(this, "beforeDeleteHierarchy"));
+        onDeleteHierarchyBehaviour = policyComponent.bindClassBehaviour(
+                NodeServicePolicies.OnDeleteHierarchyPolicy.QNAME,
+                ContentModel.ASPECT_TITLED,
+                new JavaBehaviour(this, "onDeleteHierarchy"));
+
+        hierarchyDeleter.setChunkSize(CHUNK_SIZE);
+        AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
+
+        /*
+         * top
+         *   f0 .. f2     3 files each: deleted in batches
+         *   big          10 files in 2 folders of 5: staged, as are the two folders
+         */
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                workStoreRef = nodeService.createStore(StoreRef.PROTOCOL_WORKSPACE, "HierarchyDeleterTest-" + GUID.generate());
+                archiveStoreRef = nodeService.createStore(StoreRef.PROTOCOL_WORKSPACE, "HierarchyDeleterTest-archive-" + GUID.generate());
+                storeArchiveMap.put(workStoreRef, archiveStoreRef);
+
+                nodeCount++;
+                topNodeRef = nodeService.createNode(
+                        nodeService.getRootNode(workStoreRef),
+                        ContentModel.ASSOC_CHILDREN,
+                        QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "top"),
+                        ContentModel.TYPE_FOLDER).getChildRef();
+                nodeService.addAspect(topNodeRef, ContentModel.ASPECT_TITLED, null);
+                for (int i = 0; i < 3; i++)
+                {
+                    NodeRef folderNodeRef = createFolder(topNodeRef, "f" + i);
+                    createFiles(folderNodeRef, 3);
+                }
+                NodeRef bigNodeRef = createFolder(topNodeRef, "big");
+                createFiles(createFolder(bigNodeRef, "big0"), 5);
+                createFiles(createFolder(bigNodeRef, "big1"), 5);
+                return null;
+            }
+        }, false, true);
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        policyComponent.removeClassDefinition(beforeDeleteHierarchyBehaviour);
+        policyComponent.removeClassDefinition(onDeleteHierarchyBehaviour);
+        storeArchiveMap.remove(workStoreRef);
+        hierarchyDeleter.setChunkSize(1000);
+        AuthenticationUtil.clearCurrentSecurityContext();
+    }
+
+    private NodeRef createFolder(NodeRef parentNodeRef, String name)
+    {
+        nodeCount++;
+        return nodeService.createNode(
+                parentNodeRef,
+                ContentModel.ASSOC_CONTAINS,
+                QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, name),
+                ContentModel.TYPE_FOLDER).getChildRef();
+    }
+
+    private void createFiles(NodeRef parentNodeRef, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            nodeCount++;
+            nodeService.createNode(
+                    parentNodeRef,
+                    ContentModel.ASSOC_CONTAINS,
+                    QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "file" + i),
+                    ContentModel.TYPE_CONTENT);
+        }
+    }
+
+    @Override
+    public void beforeDeleteHierarchy(NodeRef nodeRef, boolean isNodeArchived)
+    {
+        beforeDeleteHierarchyCalls.add(nodeRef);
+    }
+
+    @Override
+    public void onDeleteHierarchy(ChildAssociationRef childAssocRef, boolean isNodeArchived, long nodeCount)
+    {
+        onDeleteHierarchyCalls.add(nodeCount);
+    }
+
+    /**
+     * Count the nodes in a hierarchy, using the primary associations only
+     */
+    private int countHierarchy(final NodeRef nodeRef)
+    {
+        return txnHelper.doInTransaction(new RetryingTransactionCallback<Integer>()
+        {
+            @Override
+            public Integer execute() throws Throwable
+            {
+                return countHierarchyImpl(nodeRef);
+            }
+        }, true, true);
+    }
+
+    private int countHierarchyImpl(NodeRef nodeRef)
+    {
+        int count = 1;
+        for (ChildAssociationRef childAssocRef : nodeService.getChildAssocs(nodeRef))
+        {
+            if (childAssocRef.isPrimary())
+            {
+                count += countHierarchyImpl(childAssocRef.getChildRef());
+            }
+        }
+        return count;
+    }
+
+    private boolean exists(final NodeRef nodeRef)
+    {
+        return txnHelper.doInTransaction(new RetryingTransactionCallback<Boolean>()
+        {
+            @Override
+            public Boolean execute() throws Throwable
+            {
+                return nodeService.exists(nodeRef);
+            }
+        }, true, true);
+    }
+
+    public void testArchiveInStages() throws Exception
+    {
+        long deleted = hierarchyDeleter.deleteHierarchy(topNodeRef);
+        assertEquals(nodeCount, deleted);
+        assertFalse("The hierarchy should have been removed", exists(topNodeRef));
+
+        // The whole hierarchy is archived as a single item
+        final NodeRef archivedNodeRef = new NodeRef(archiveStoreRef, topNodeRef.getId());
+        assertTrue("The top node should have been archived", exists(archivedNodeRef));
+        assertEquals(nodeCount, countHierarchy(archivedNodeRef));
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                assertTrue(nodeService.hasAspect(archivedNodeRef, ContentModel.ASPECT_ARCHIVED));
+                assertEquals(1, nodeService.getChildAssocs(nodeService.getRootNode(archiveStoreRef),
+                        ContentModel.ASSOC_CHILDREN, RegexQNamePattern.MATCH_ALL).size());
+                for (ChildAssociationRef childAssocRef : nodeService.getChildAssocs(archivedNodeRef))
+                {
+                    assertFalse("Only the top node has the archival details",
+                            nodeService.hasAspect(childAssocRef.getChildRef(), ContentModel.ASPECT_ARCHIVED));
+                }
+                assertNull(attributeService.getAttribute(HierarchyDeleter.ATTR_KEY_HIERARCHIES, topNodeRef.toString()));
+                return null;
+            }
+        }, true, true);
+
+        // The hierarchy policies are called once
+        assertEquals(1, beforeDeleteHierarchyCalls.size());
+        assertEquals(1, onDeleteHierarchyCalls.size());
+        assertEquals(Long.valueOf(nodeCount), onDeleteHierarchyCalls.get(0));
+    }
+
+    public void testDeleteInStages() throws Exception
+    {
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                // Temporary nodes are not archived
+                nodeService.addAspect(topNodeRef, ContentModel.ASPECT_TEMPORARY, null);
+                return null;
+            }
+        }, false, true);
+
+        long deleted = hierarchyDeleter.deleteHierarchy(topNodeRef);
+        assertEquals(nodeCount, deleted);
+        assertFalse("The hierarchy should have been removed", exists(topNodeRef));
+        assertFalse("Nothing should have been archived", exists(new NodeRef(archiveStoreRef, topNodeRef.getId())));
+    }
+
+    public void testResume() throws Exception
+    {
+        // Start as an interrupted deletion would have left it: recorded, with the top node archived on its own
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                attributeService.setAttribute(Boolean.TRUE, HierarchyDeleter.ATTR_KEY_HIERARCHIES, topNodeRef.toString());
+                dbNodeService.archiveStagedNode(topNodeRef, null);
+                return null;
+            }
+        }, false, true);
+        final NodeRef archivedNodeRef = new NodeRef(archiveStoreRef, topNodeRef.getId());
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                // The copy is kept out of the trashcan while the original is still there
+                assertEquals(NodeArchiveService.QNAME_STAGED_ARCHIVED_ITEM, nodeService.getPrimaryParent(archivedNodeRef).getQName());
+                assertTrue(nodeService.getParentAssocs(archivedNodeRef, ContentModel.ASSOC_ARCHIVED_LINK, RegexQNamePattern.MATCH_ALL).isEmpty());
+                return null;
+            }
+        }, true, true);
+
+        assertEquals(1, hierarchyDeleter.resumeHierarchies());
+        assertFalse("The hierarchy should have been removed", exists(topNodeRef));
+        assertEquals("The hierarchy should have been archived beneath the existing copy",
+                nodeCount, countHierarchy(archivedNodeRef));
+        txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                // Now it is a normal archived item
+                assertEquals(NodeArchiveService.QNAME_ARCHIVED_ITEM, nodeService.getPrimaryParent(archivedNodeRef).getQName());
+                assertEquals(1, nodeService.getParentAssocs(archivedNodeRef, ContentModel.ASSOC_ARCHIVED_LINK, RegexQNamePattern.MATCH_ALL).size());
+                return null;
+            }
+        }, true, true);
+        assertEquals("The deletion had already started", 0, beforeDeleteHierarchyCalls.size());
+        assertEquals(1, onDeleteHierarchyCalls.size());
+
+        assertEquals("Nothing left to resume", 0, hierarchyDeleter.resumeHierarchies());
+    }
+}
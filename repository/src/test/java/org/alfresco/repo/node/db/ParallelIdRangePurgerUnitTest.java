@@ -0,0 +1,221 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2026 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.node.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.transaction.TransactionService;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the range allocation, retries and checkpointing of {@link ParallelIdRangePurger}.
+ * <p/>
+ * The transaction helper runs the callbacks directly and the attributes are kept in memory.
+ */
+public class ParallelIdRangePurgerUnitTest
+{
+    private static final String NAME = "test";
+
+    private final Map<List<Serializable>, Serializable> attributes = new ConcurrentHashMap<>();
+    private TransactionService transactionService;
+    private AttributeService attributeService;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        RetryingTransactionHelper txnHelper = mock(RetryingTransactionHelper.class);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), anyBoolean(), anyBoolean())).thenAnswer(invocation -> {
+            RetryingTransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.execute();
+        });
+        transactionService = mock(TransactionService.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+
+        attributeService = mock(AttributeService.class, invocation -> {
+            Object[] args = invocation.getRawArguments();
+            switch (invocation.getMethod().getName())
+            {
+            case "getAttribute":
+                return attributes.get(Arrays.asList((Serializable[]) args[0]));
+            case "setAttribute":
+                attributes.put(Arrays.asList((Serializable[]) args[1]), (Serializable) args[0]);
+                return null;
+            case "removeAttributes":
+                List<Serializable> prefix = Arrays.asList((Serializable[]) args[0]);
+                attributes.keySet().removeIf(key -> key.size() >= prefix.size() && key.subList(0, prefix.size()).equals(prefix));
+                return null;
+            default:
+                return null;
+            }
+        });
+    }
+
+    private ParallelIdRangePurger createPurger()
+    {
+        ParallelIdRangePurger purger = new ParallelIdRangePurger(NAME, transactionService, attributeService);
+        purger.setThreadCount(4);
+        purger.setRangeSize(100);
+        purger.setMinRangeSize(10);
+        purger.setMaxRangeSize(1000);
+        return purger;
+    }
+
+    private Long getCheckpoint(String attribute)
+    {
+        return (Long) attributes.get(Arrays.<Serializable> asList(ParallelIdRangePurger.ATTR_KEY_CHECKPOINT, NAME, attribute));
+    }
+
+    @Test
+    public void testAllRangesPurgedOnce()
+    {
+        final boolean[] purged = new boolean[10001];
+        final List<String> overlaps = Collections.synchronizedList(new ArrayList<String>());
+        ParallelIdRangePurger purger = createPurger();
+        List<String> results = purger.purge(1L, 10000L, 12345L, (fromId, toId, maxCommitTime) -> {
+            assertEquals(12345L, maxCommitTime);
+            synchronized (purged)
+            {
+                for (long id = fromId; id <= toId; id++)
+                {
+                    if (purged[(int) id])
+                    {
+                        overlaps.add(fromId + "-" + toId);
+                    }
+                    purged[(int) id] = true;
+                }
+            }
+            return (int) (toId - fromId + 1);
+        }, null);
+
+        assertTrue("Ranges overlap: " + overlaps, overlaps.isEmpty());
+        for (int id = 1; id <= 10000; id++)
+        {
+            assertTrue("ID not purged: " + id, purged[id]);
+        }
+        String summary = results.get(results.size() - 1);
+        assertTrue(summary, summary.contains("Purge count:     10000"));
+        assertTrue(summary, summary.contains("Complete:        true"));
+        assertNull("The checkpoint should be removed once the pass completes", getCheckpoint(ParallelIdRangePurger.ATTR_NEXT_ID));
+    }
+
+    @Test
+    public void testFailedRangesAreSplitAndResumed()
+    {
+        final Set<Long> purged = Collections.synchronizedSet(new HashSet<Long>());
+        ParallelIdRangePurger purger = createPurger();
+        List<String> results = purger.purge(1L, 1000L, 12345L, (fromId, toId, maxCommitTime) -> {
+            if (fromId <= 555L && 555L <= toId)
+            {
+                throw new IllegalStateException("Bad row 555");
+            }
+            for (long id = fromId; id <= toId; id++)
+            {
+                purged.add(id);
+            }
+            return (int) (toId - fromId + 1);
+        }, null);
+
+        String summary = results.get(results.size() - 1);
+        assertTrue(summary, summary.contains("Complete:        true"));
+        assertEquals("Expected a single error and the summary: " + results, 2, results.size());
+        assertTrue(results.get(0), results.get(0).contains("Bad row 555"));
+        // Only the narrowest range around the bad row is left
+        assertFalse(purged.contains(555L));
+        int skipped = 1000 - purged.size();
+        assertTrue("Too many IDs skipped: " + skipped, skipped <= 10);
+    }
+
+    @Test
+    public void testInterruptedPassResumesFromCheckpoint()
+    {
+        ParallelIdRangePurger purger = createPurger();
+        purger.setThreadCount(1);
+        purger.setLockRefreshIntervalMs(50L);
+        // Lose the lock after the first few ranges
+        try
+        {
+            purger.purge(1L, 100000L, 12345L, (fromId, toId, maxCommitTime) -> {
+                try
+                {
+                    Thread.sleep(20L);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                return 0;
+            }, () -> {
+                throw new IllegalStateException("Lock lost");
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            assertEquals("Lock lost", e.getMessage());
+        }
+        Long nextId = getCheckpoint(ParallelIdRangePurger.ATTR_NEXT_ID);
+        assertNotNull("The checkpoint should be kept when the pass is interrupted", nextId);
+        assertTrue(nextId > 1L);
+        assertEquals(Long.valueOf(100000L), getCheckpoint(ParallelIdRangePurger.ATTR_MAX_ID));
+
+        // The next run carries on with the interrupted pass, not the new one
+        final long[] lowestId = {Long.MAX_VALUE};
+        List<String> results = purger.purge(1L, 200000L, 99999L, (fromId, toId, maxCommitTime) -> {
+            assertEquals(12345L, maxCommitTime);
+            assertTrue(toId <= 100000L);
+            synchronized (lowestId)
+            {
+                lowestId[0] = Math.min(lowestId[0], fromId);
+            }
+            return 0;
+        }, null);
+        assertTrue(results.get(0), results.get(0).startsWith("Resuming the purge of " + NAME));
+        assertEquals(nextId.longValue(), lowestId[0]);
+        assertFalse(attributes.containsKey(Arrays.<Serializable> asList(ParallelIdRangePurger.ATTR_KEY_CHECKPOINT, NAME, ParallelIdRangePurger.ATTR_NEXT_ID)));
+    }
+}
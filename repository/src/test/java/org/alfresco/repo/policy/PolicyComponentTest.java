@@ -30,6 +30,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 import junit.framework.TestCase;
 
 import org.alfresco.repo.cache.MemoryCache;
@@ -361,6 +365,58 @@ public class PolicyComponentTest extends TestCase
     }
 
 
+    public void testClassCacheClearedOnDictionaryChange()
+    {
+        ClassPolicyDelegate<TestClassPolicy> delegate = policyComponent.registerClassPolicy(TestClassPolicy.class);
+        QName policyName = QName.createQName(TEST_NAMESPACE, "test");
+        Behaviour baseBehaviour = new JavaBehaviour(this, "baseTest");
+        policyComponent.bindClassBehaviour(policyName, BASE_TYPE, baseBehaviour);
+
+        TestClassPolicy filePolicy = delegate.get(FILE_TYPE);
+        assertTrue(filePolicy == delegate.get(FILE_TYPE));
+
+        // A dictionary change rebuilds the dispatch tables
+        ((PolicyComponentImpl) policyComponent).afterDictionaryInit();
+        TestClassPolicy filePolicy2 = delegate.get(FILE_TYPE);
+        assertTrue(filePolicy2 != filePolicy);
+        assertEquals("Base: file", filePolicy2.test("file"));
+    }
+
+
+    public void testClassCacheWithFilter()
+    {
+        // The behaviour indexes pick up the filter when the policy is registered
+        BehaviourFilter filter = mock(BehaviourFilter.class);
+        when(filter.isActivated()).thenReturn(true);
+        when(filter.isEnabled(any(QName.class))).thenReturn(true);
+        when(filter.isEnabled(FILE_TYPE)).thenReturn(false);
+        ((PolicyComponentImpl) policyComponent).setBehaviourFilter(filter);
+
+        ClassPolicyDelegate<TestClassPolicy> delegate = policyComponent.registerClassPolicy(TestClassPolicy.class);
+        QName policyName = QName.createQName(TEST_NAMESPACE, "test");
+        Behaviour baseBehaviour = new JavaBehaviour(this, "baseTest");
+        policyComponent.bindClassBehaviour(policyName, BASE_TYPE, baseBehaviour);
+
+        // Filtered policies are resolved once
+        TestClassPolicy basePolicy = delegate.get(BASE_TYPE);
+        assertEquals("Base: base", basePolicy.test("base"));
+        assertTrue(basePolicy == delegate.get(BASE_TYPE));
+        assertTrue(delegate.getList(BASE_TYPE) == delegate.getList(BASE_TYPE));
+
+        // The class behaviours of a disabled class are not invoked
+        TestClassPolicy filePolicy = delegate.get(FILE_TYPE);
+        assertNull(filePolicy.test("file"));
+        assertTrue(filePolicy == delegate.get(FILE_TYPE));
+        assertEquals(0, delegate.getList(FILE_TYPE).size());
+
+        // Deactivating the filter restores them
+        when(filter.isActivated()).thenReturn(false);
+        TestClassPolicy filePolicy2 = delegate.get(FILE_TYPE);
+        assertEquals("Base: file", filePolicy2.test("file"));
+        assertTrue(basePolicy == delegate.get(BASE_TYPE));
+    }
+
+
     public void testPropertyDelegate()
     {
         // Register Policy
@@ -43,6 +43,7 @@ import org.alfresco.repo.action.executer.MoveActionExecuter;
 import org.alfresco.repo.content.MimetypeMap;
 import org.alfresco.repo.content.transform.AbstractContentTransformerTest;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.cmr.action.Action;
 import org.alfresco.service.cmr.action.ActionCondition;
@@ -461,6 +462,110 @@ public class RuleServiceImplTest extends BaseRuleTest
         assertEquals("rule6", rules3.get(3).getTitle());        
     }
     
+    /**
+     * Check that the inherited rules follow changes to the rules and to the folder structure made
+     * in the same transaction
+     */
+    @Test
+    public void testInheritedRulesFollowChanges()
+    {
+        this.ruleService.saveRule(this.nodeRef, createTestRule(true, "rule1"));
+        NodeRef nodeRef1 = createNewNode(this.nodeRef);
+        NodeRef nodeRef2 = createNewNode(nodeRef1);
+        
+        List<Rule> rules1 = this.ruleService.getRules(nodeRef2);
+        assertEquals(1, rules1.size());
+        assertEquals("rule1", rules1.get(0).getTitle());
+        
+        // Add a rule to an ancestor
+        Rule rule2 = createTestRule(true, "rule2");
+        this.ruleService.saveRule(nodeRef1, rule2);
+        List<Rule> rules2 = this.ruleService.getRules(nodeRef2);
+        assertEquals(2, rules2.size());
+        assertEquals("rule1", rules2.get(0).getTitle());
+        assertEquals("rule2", rules2.get(1).getTitle());
+        
+        // Stop the rule from applying to children
+        rule2.applyToChildren(false);
+        this.ruleService.saveRule(nodeRef1, rule2);
+        List<Rule> rules3 = this.ruleService.getRules(nodeRef2);
+        assertEquals(1, rules3.size());
+        assertEquals("rule1", rules3.get(0).getTitle());
+        
+        // Move the node away from the rules
+        NodeRef nodeRef3 = createNewNode(this.rootNodeRef);
+        this.nodeService.moveNode(nodeRef2, nodeRef3, ContentModel.ASSOC_CHILDREN, QName.createQName("{test}testnode"));
+        assertEquals(0, this.ruleService.getRules(nodeRef2).size());
+        
+        // Give the node a second parent with rules
+        this.nodeService.addChild(nodeRef1, nodeRef2, ContentModel.ASSOC_CHILDREN, QName.createQName("{test}testnode"));
+        rule2.applyToChildren(true);
+        this.ruleService.saveRule(nodeRef1, rule2);
+        List<Rule> rules4 = this.ruleService.getRules(nodeRef2);
+        assertEquals(2, rules4.size());
+        assertEquals("rule1", rules4.get(0).getTitle());
+        assertEquals("rule2", rules4.get(1).getTitle());
+        
+        // Remove the rules of the ancestor
+        this.ruleService.removeAllRules(this.nodeRef);
+        List<Rule> rules5 = this.ruleService.getRules(nodeRef2);
+        assertEquals(1, rules5.size());
+        assertEquals("rule2", rules5.get(0).getTitle());
+    }
+    
+    /**
+     * Check that the inherited rules shared across transactions follow changes to the folder structure
+     * and to the rules of the ancestors
+     */
+    @Test
+    public void testInheritedRulesFollowChangesAcrossTransactions()
+    {
+        this.ruleService.saveRule(this.nodeRef, createTestRule(true, "rule1"));
+        final NodeRef nodeRef1 = createNewNode(this.nodeRef);
+        final NodeRef nodeRef2 = createNewNode(nodeRef1);
+        final NodeRef nodeRef3 = createNewNode(this.rootNodeRef);
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        final RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        
+        // Build the shared chain
+        List<Rule> rules1 = txnHelper.doInTransaction(() -> ruleService.getRules(nodeRef2), true, true);
+        assertEquals(1, rules1.size());
+        assertEquals("rule1", rules1.get(0).getTitle());
+        
+        // Add a rule to an ancestor
+        txnHelper.doInTransaction(() -> {
+            ruleService.saveRule(nodeRef1, createTestRule(true, "rule2"));
+            return null;
+        }, false, true);
+        List<Rule> rules2 = txnHelper.doInTransaction(() -> ruleService.getRules(nodeRef2), true, true);
+        assertEquals(2, rules2.size());
+        assertEquals("rule1", rules2.get(0).getTitle());
+        assertEquals("rule2", rules2.get(1).getTitle());
+        
+        // Move an ancestor away from the rules
+        txnHelper.doInTransaction(() -> {
+            nodeService.moveNode(nodeRef1, nodeRef3, ContentModel.ASSOC_CHILDREN, QName.createQName("{test}testnode"));
+            return null;
+        }, false, true);
+        List<Rule> rules3 = txnHelper.doInTransaction(() -> ruleService.getRules(nodeRef2), true, true);
+        assertEquals(1, rules3.size());
+        assertEquals("rule2", rules3.get(0).getTitle());
+        
+        // Stop the node from inheriting rules
+        txnHelper.doInTransaction(() -> {
+            nodeService.addAspect(nodeRef2, RuleModel.ASPECT_IGNORE_INHERITED_RULES, null);
+            return null;
+        }, false, true);
+        assertEquals(0, txnHelper.doInTransaction(() -> ruleService.getRules(nodeRef2), true, true).size());
+        
+        txnHelper.doInTransaction(() -> {
+            nodeService.deleteNode(nodeRef3);
+            nodeService.deleteNode(nodeRef);
+            return null;
+        }, false, true);
+    }
+    
     /**
      * Test disabling the rules
      */
@@ -29,9 +29,12 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -211,6 +214,33 @@ public class DBQueryEngineTest
         verify(resultContext).stop();
     }
     
+    @Test
+    public void shouldHydrateOnlyTheRequestedPageWhenBulkFetchIsEnabled()
+    {
+        withMaxItems(5);
+        List<Node> nodes = createNodes(20);
+        prepareTemplate(dbQuery, nodes);
+        when(assessor.isIncluded(any(Node.class))).thenReturn(true);
+        when(options.isBulkFetchEnabled()).thenReturn(true);
+
+        engine.acceleratedNodeSelection(options, dbQuery, assessor);
+
+        verify(nodeDAO).cacheNodeDetails(nodes.subList(0, 5), true, true);
+    }
+
+    @Test
+    public void shouldNotHydrateNodesWhenBulkFetchIsDisabled()
+    {
+        withMaxItems(5);
+        prepareTemplate(dbQuery, createNodes(20));
+        when(assessor.isIncluded(any(Node.class))).thenReturn(true);
+        when(options.isBulkFetchEnabled()).thenReturn(false);
+
+        engine.acceleratedNodeSelection(options, dbQuery, assessor);
+
+        verify(nodeDAO, never()).cacheNodeDetails(anyList(), anyBoolean(), anyBoolean());
+    }
+
     private void prepareTemplate(DBQuery dbQuery, List<Node> nodes)
     {
         doAnswer(invocation -> {
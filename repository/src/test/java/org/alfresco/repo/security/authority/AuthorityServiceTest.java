@@ -49,6 +49,7 @@ import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.model.ContentModel;
 import org.alfresco.query.PagingRequest;
 import org.alfresco.query.PagingResults;
+import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.domain.permissions.AclDAO;
 import org.alfresco.repo.node.NodeServicePolicies;
 import org.alfresco.repo.node.archive.NodeArchiveService;
@@ -62,8 +63,10 @@ import org.alfresco.repo.security.authority.AuthorityServicePolicies.OnAuthority
 import org.alfresco.repo.security.authority.AuthorityServicePolicies.OnAuthorityRemovedFromGroup;
 import org.alfresco.repo.security.authority.AuthorityServicePolicies.OnGroupDeleted;
 import org.alfresco.repo.security.permissions.AccessDeniedException;
+import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.ServiceRegistry;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.DuplicateChildNodeNameException;
@@ -84,6 +87,7 @@ import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.test_category.OwnJVMTestsCategory;
 import org.alfresco.util.ApplicationContextHelper;
 import org.alfresco.util.Pair;
+import org.alfresco.util.cache.RefreshableCacheEvent;
 import org.alfresco.util.testing.category.LuceneTests;
 import org.alfresco.util.testing.category.RedundantTests;
 import org.junit.FixMethodOrder;
@@ -112,6 +116,7 @@ public class AuthorityServiceTest extends TestCase
     private PolicyComponent policyComponent;
     private TransactionService transactionService;
     private AuthorityDAO authorityDAO;
+    private SimpleCache<String, Set<String>> userAuthorityCache;
     
     public AuthorityServiceTest()
     {
@@ -151,6 +156,7 @@ public class AuthorityServiceTest extends TestCase
         policyComponent = (PolicyComponent) ctx.getBean("policyComponent");
         transactionService = (TransactionService) ctx.getBean(ServiceRegistry.TRANSACTION_SERVICE.getLocalName());
         authorityDAO = ctx.getBean("authorityDAO", AuthorityDAO.class);
+        userAuthorityCache = (SimpleCache<String, Set<String>>) ctx.getBean("userToAuthorityCache");
         
         String defaultAdminUser = AuthenticationUtil.getAdminUserName();
         AuthenticationUtil.setFullyAuthenticatedUser(defaultAdminUser);
@@ -903,6 +909,118 @@ public class AuthorityServiceTest extends TestCase
         assertEquals(0, pubAuthorityService.getContainedAuthorities(null, auth5, false).size());
     }
     
+    /**
+     * A group membership change only removes the cached authorities of the users in the group
+     */
+    public void testUserAuthorityCacheInvalidation()
+    {
+        personService.getPerson("andy");
+        personService.getPerson("administrator");
+        
+        String auth1 = pubAuthorityService.createAuthority(AuthorityType.GROUP, "one");
+        String auth2 = pubAuthorityService.createAuthority(AuthorityType.GROUP, "two");
+        String auth3 = pubAuthorityService.createAuthority(AuthorityType.GROUP, "three");
+        pubAuthorityService.addAuthority(auth1, "andy");
+        pubAuthorityService.addAuthority(auth2, "administrator");
+        authorityBridgeTableCache.forceInChangesForThisUncommittedTransaction();
+        
+        assertEquals(Collections.singleton(auth1), pubAuthorityService.getContainingAuthorities(null, "andy", false));
+        assertEquals(Collections.singleton(auth2), pubAuthorityService.getContainingAuthorities(null, "administrator", false));
+        assertNotNull(userAuthorityCache.get("andy"));
+        assertNotNull(userAuthorityCache.get("administrator"));
+        
+        // Only the users in the group that has been moved are affected
+        pubAuthorityService.addAuthority(auth3, auth1);
+        assertNull(userAuthorityCache.get("andy"));
+        assertEquals(Collections.singleton(auth2), userAuthorityCache.get("administrator"));
+        
+        authorityBridgeTableCache.forceInChangesForThisUncommittedTransaction();
+        Set<String> andyAuthorities = pubAuthorityService.getContainingAuthorities(null, "andy", false);
+        assertEquals(2, andyAuthorities.size());
+        assertTrue(andyAuthorities.contains(auth1));
+        assertTrue(andyAuthorities.contains(auth3));
+        
+        pubAuthorityService.removeAuthority(auth3, auth1);
+        assertNull(userAuthorityCache.get("andy"));
+        assertEquals(Collections.singleton(auth2), userAuthorityCache.get("administrator"));
+        
+        pubAuthorityService.deleteAuthority(auth1);
+        authorityBridgeTableCache.forceInChangesForThisUncommittedTransaction();
+        assertEquals(0, pubAuthorityService.getContainingAuthorities(null, "andy", false).size());
+        assertEquals(Collections.singleton(auth2), pubAuthorityService.getContainingAuthorities(null, "administrator", false));
+    }
+    
+    /**
+     * A change affecting more users than the targeted invalidation limit clears the cache
+     */
+    public void testUserAuthorityCacheClearedForLargeGroups()
+    {
+        personService.getPerson("andy");
+        personService.getPerson("administrator");
+        personService.getPerson("carol");
+        
+        String auth1 = pubAuthorityService.createAuthority(AuthorityType.GROUP, "one");
+        String auth2 = pubAuthorityService.createAuthority(AuthorityType.GROUP, "two");
+        String auth3 = pubAuthorityService.createAuthority(AuthorityType.GROUP, "three");
+        pubAuthorityService.addAuthority(auth1, "andy");
+        pubAuthorityService.addAuthority(auth2, "administrator");
+        pubAuthorityService.addAuthority(auth2, auth1);
+        pubAuthorityService.addAuthority(auth2, "carol");
+        authorityBridgeTableCache.forceInChangesForThisUncommittedTransaction();
+        
+        AuthorityDAOImpl authorityDAOImpl = (AuthorityDAOImpl) ctx.getBean("authorityDAO");
+        authorityDAOImpl.setMaxTargetedInvalidations(2);
+        try
+        {
+            assertEquals(1, pubAuthorityService.getContainingAuthorities(null, "carol", false).size());
+            assertNotNull(userAuthorityCache.get("carol"));
+            
+            // Three users are affected, so the walk stops and everyone is invalidated
+            pubAuthorityService.addAuthority(auth3, auth2);
+            assertNull(userAuthorityCache.get("carol"));
+        }
+        finally
+        {
+            authorityDAOImpl.setMaxTargetedInvalidations(5000);
+        }
+    }
+    
+    /**
+     * A bridge table refresh with no invalidations pending here, such as one triggered by another
+     * cluster member, clears the cache
+     */
+    public void testUserAuthorityCacheClearedForRefreshWithoutPendingInvalidations()
+    {
+        final AuthorityDAOImpl authorityDAOImpl = (AuthorityDAOImpl) ctx.getBean("authorityDAO");
+        // A transaction of its own, so that there are no invalidations made by the current transaction
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                userAuthorityCache.put("andy", Collections.singleton("GROUP_one"));
+                authorityDAOImpl.onRefreshableCacheEvent(new RefreshableCacheEvent()
+                {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public String getCacheId()
+                    {
+                        return authorityBridgeTableCache.getCacheId();
+                    }
+
+                    @Override
+                    public String getKey()
+                    {
+                        return TenantService.DEFAULT_DOMAIN;
+                    }
+                });
+                assertNull(userAuthorityCache.get("andy"));
+                return null;
+            }
+        }, false, true);
+    }
+    
     public void testCreateAuthNet()
     {
         personService.getPerson("andy");
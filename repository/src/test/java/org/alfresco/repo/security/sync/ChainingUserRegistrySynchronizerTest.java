@@ -441,6 +441,79 @@ public class ChainingUserRegistrySynchronizerTest extends TestCase
         tearDownTestUsersAndGroups();
     }
 
+    /**
+     * Tests that a differential update skips the users and groups that have not changed in the user registry since they
+     * were last synchronized, whilst still applying those that have, and that a forced update skips nothing.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    public void testDifferentialUpdateSkipsUnchanged() throws Exception
+    {
+        setUpTestUsersAndGroups();
+
+        // Make local changes that re-applying the unchanged users would revert
+        this.retryingTransactionHelper.doInTransaction(new RetryingTransactionCallback<Object>()
+        {
+
+            public Object execute() throws Throwable
+            {
+                nodeService.setProperty(personService.getPerson("U1"), ContentModel.PROP_EMAIL, "local@alfresco.com");
+                nodeService.setProperty(personService.getPerson("U2"), ContentModel.PROP_EMAIL, "local@alfresco.com");
+                return null;
+            }
+        }, false, true);
+
+        // Synchronize the changes again with U2 changed in the registry. All entries have a new modification time.
+        this.applicationContextManager.setUserRegistries(new MockUserRegistry("Z0", new NodeDescription[]
+        {
+            newPerson("U6")
+        }, new NodeDescription[]
+        {
+            newGroup("G1")
+        }), new MockUserRegistry("Z1", new NodeDescription[]
+        {
+            newPerson("U1"), newPerson("U2", "changed@alfresco.com"), newPerson("U7")
+        }, new NodeDescription[]
+        {
+            newGroup("G2", "U1", "G3"), newGroup("G3", "U2", "G4", "G5"), newGroup("G4"), newGroup("G5")
+        }), new MockUserRegistry("Z2", new NodeDescription[]
+        {
+            newPerson("U1"), newPerson("U3"), newPerson("U4"), newPerson("U5")
+        }, new NodeDescription[]
+        {
+            newGroup("G2", "U1", "U3", "U4"), newGroup("G6", "U3", "U4", "G7"), newGroup("G7", "U5")
+        }));
+        this.synchronizer.synchronize(false, false);
+        this.retryingTransactionHelper.doInTransaction(new RetryingTransactionCallback<Object>()
+        {
+
+            public Object execute() throws Throwable
+            {
+                assertEmailEquals("U1", "local@alfresco.com");
+                assertEmailEquals("U2", "changed@alfresco.com");
+                assertExists("Z1", "G2", "U1", "G3");
+                assertExists("Z1", "G3", "U2", "G4", "G5");
+                assertExists("Z2", "G6", "U3", "U4", "G7");
+                return null;
+            }
+        }, false, true);
+
+        // A forced update re-applies the unchanged users, reverting the local change
+        this.synchronizer.synchronize(true, true);
+        this.retryingTransactionHelper.doInTransaction(new RetryingTransactionCallback<Object>()
+        {
+
+            public Object execute() throws Throwable
+            {
+                assertEmailEquals("U1", "U1@alfresco.com");
+                assertEmailEquals("U2", "changed@alfresco.com");
+                return null;
+            }
+        }, false, true);
+        tearDownTestUsersAndGroups();
+    }
+
     private class MockLDAPUserRegistry extends LDAPUserRegistry implements IMockUserRegistry
     {
         MockUserRegistry mockUserRegistry;
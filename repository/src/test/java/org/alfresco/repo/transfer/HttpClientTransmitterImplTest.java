@@ -28,14 +28,22 @@ package org.alfresco.repo.transfer;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
 
 import junit.framework.TestCase;
 
+import org.alfresco.repo.transfer.requisite.RequsiteModel;
+import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentService;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeService;
 import org.alfresco.service.cmr.transfer.TransferException;
@@ -49,8 +57,10 @@ import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.HttpState;
 import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.RequestEntity;
 import org.apache.commons.httpclient.params.HttpConnectionParams;
 import org.apache.commons.httpclient.protocol.SecureProtocolSocketFactory;
+import org.apache.commons.io.IOUtils;
 import org.json.JSONObject;
 import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
@@ -281,6 +291,60 @@ public class HttpClientTransmitterImplTest extends TestCase
         }
     }
     
+    public void testSendContentCompressedWhenAccepted() throws Exception
+    {
+        final byte[] text = "Some content that the target has asked for, repeated. Some content that the target has asked for, repeated.".getBytes("UTF-8");
+        ContentData content = new ContentData("store://2026/10/19/content.bin", "text/plain", text.length, "UTF-8");
+        ContentService mockedContentService = mock(ContentService.class);
+        ContentReader mockedReader = mock(ContentReader.class);
+        when(mockedContentService.getRawReader(content.getContentUrl())).thenReturn(mockedReader);
+        when(mockedReader.getSize()).thenReturn((long)text.length);
+        when(mockedReader.getContentInputStream()).thenAnswer(new Answer<ByteArrayInputStream>() {
+            @Override
+            public ByteArrayInputStream answer(InvocationOnMock invocation) throws Throwable
+            {
+                return new ByteArrayInputStream(text);
+            }
+        });
+        transmitter.setContentService(mockedContentService);
+        when(mockedHttpClient.executeMethod(any(HostConfiguration.class), any(HttpMethod.class), 
+                any(HttpState.class))).thenReturn(200);
+        
+        Transfer transfer = new Transfer();
+        transfer.setTransferId("1234");
+        transfer.setTransferTarget(target);
+        
+        // The target has not accepted an encoding, so the content is sent as is
+        transmitter.sendContent(transfer, Collections.singleton(content));
+        PostMethod postMethod = mockedHttpMethodFactory.latestPostMethod;
+        assertFalse(postMethod.getQueryString().contains(RequsiteModel.ATTRIBUTE_CONTENT_ENCODING));
+        assertTrue("length is known", postMethod.getRequestEntity().getContentLength() > 0);
+        
+        // The target accepts gzip, so the content is compressed and the target told so
+        mockedHttpMethodFactory.reset();
+        transfer.setContentEncoding(RequsiteModel.CONTENT_ENCODING_GZIP);
+        transmitter.sendContent(transfer, Collections.singleton(content));
+        postMethod = mockedHttpMethodFactory.latestPostMethod;
+        assertTrue(postMethod.getQueryString().contains(RequsiteModel.ATTRIBUTE_CONTENT_ENCODING + "=" + RequsiteModel.CONTENT_ENCODING_GZIP));
+        RequestEntity requestEntity = postMethod.getRequestEntity();
+        assertEquals("compressed length is not known up front", -1, requestEntity.getContentLength());
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        requestEntity.writeRequest(body);
+        byte[] bytes = body.toByteArray();
+        int start = -1;
+        for (int i = 0; i < bytes.length - 1 && start < 0; i++)
+        {
+            if (bytes[i] == (byte)0x1f && bytes[i + 1] == (byte)0x8b)
+            {
+                start = i;
+            }
+        }
+        assertTrue("gzip part not found", start >= 0);
+        GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes, start, bytes.length - start));
+        assertTrue(Arrays.equals(text, IOUtils.toByteArray(gzip)));
+    }
+    
     private static class CustomSocketFactory implements SecureProtocolSocketFactory 
     {
 
@@ -664,6 +664,121 @@ public class RepoTransferReceiverImplTest extends BaseAlfrescoSpringTest
         tran.doInTransaction(validateCB, false, true);
     }
     
+    /**
+     * Test that a manifest committed in chunks smaller than the manifest is applied in full
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testChunkedCommit() throws Exception
+    {
+        log.info("start testChunkedCommit");
+        final RetryingTransactionHelper tran = transactionService.getRetryingTransactionHelper();
+
+        class TestContext
+        {
+            List<TransferManifestNode> nodes = new ArrayList<TransferManifestNode>();
+            TransferManifestNormalNode node1 = null;
+            TransferManifestNormalNode node2 = null;
+            TransferManifestNormalNode folder = null;
+            String transferId = null;
+        };
+
+        RetryingTransactionCallback<TestContext> setupCB = new RetryingTransactionCallback<TestContext>()
+        {
+            @Override
+            public TestContext execute() throws Throwable
+            {
+                TestContext tc = new TestContext();
+                tc.node1 = createContentNode();
+                tc.nodes.add(tc.node1);
+                tc.node2 = createContentNode();
+                tc.nodes.add(tc.node2);
+                tc.nodes.add(createContentNode());
+                tc.nodes.add(createContentNode());
+                tc.folder = createFolderNode();
+                tc.nodes.add(tc.folder);
+
+                associatePeers(tc.node1, tc.node2);
+                moveNode(tc.node2, tc.folder);
+                return tc;
+            }
+        };
+
+        final TestContext tc = tran.doInTransaction(setupCB, false, true);
+
+        RetryingTransactionCallback<Void> doPrepareCB = new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                tc.transferId = receiver.start("1234", true, receiver.getVersion());
+                String snapshot = createSnapshot(tc.nodes);
+
+                receiver.saveSnapshot(tc.transferId, new ByteArrayInputStream(snapshot.getBytes("UTF-8")));
+
+                for (TransferManifestNode node : tc.nodes)
+                {
+                    receiver.saveContent(tc.transferId, node.getUuid(), new ByteArrayInputStream(dummyContentBytes));
+                }
+                return null;
+            }
+        };
+
+        RetryingTransactionCallback<Void> doCommitCB = new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                receiver.commit(tc.transferId);
+                return null;
+            }
+        };
+
+        RetryingTransactionCallback<Void> doEndCB = new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                receiver.end(tc.transferId);
+                return null;
+            }
+        };
+
+        int commitChunkSize = receiver.getCommitChunkSize();
+        receiver.setCommitChunkSize(2);
+        try
+        {
+            tran.doInTransaction(doPrepareCB, false, true);
+            tran.doInTransaction(doCommitCB, false, true);
+        }
+        finally
+        {
+            receiver.setCommitChunkSize(commitChunkSize);
+            if(tc.transferId != null)
+            {
+                tran.doInTransaction(doEndCB, false, true);
+            }
+        }
+
+        RetryingTransactionCallback<Void> validateCB = new RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                assertEquals(TransferProgress.Status.COMPLETE, receiver.getStatus(tc.transferId).getStatus());
+                for (TransferManifestNode node : tc.nodes)
+                {
+                    assertTrue(nodeService.exists(node.getNodeRef()));
+                }
+                assertEquals(tc.folder.getNodeRef(), nodeService.getPrimaryParent(tc.node2.getNodeRef()).getParentRef());
+                assertFalse(nodeService.getSourceAssocs(tc.node2.getNodeRef(), ContentModel.ASSOC_ATTACHMENTS).isEmpty());
+                return null;
+            }
+        };
+        tran.doInTransaction(validateCB, false, true);
+    }
+
     /**
      * Test Node Delete And Restore
      * 
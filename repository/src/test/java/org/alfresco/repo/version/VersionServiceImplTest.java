@@ -43,6 +43,8 @@ import jakarta.transaction.UserTransaction;
 import org.alfresco.model.ApplicationModel;
 import org.alfresco.model.ContentModel;
 import org.alfresco.model.ForumModel;
+import org.alfresco.query.PagingRequest;
+import org.alfresco.query.PagingResults;
 import org.alfresco.repo.content.MimetypeMap;
 import org.alfresco.repo.jscript.ScriptNode;
 import org.alfresco.repo.policy.JavaBehaviour;
@@ -56,6 +58,7 @@ import org.alfresco.repo.version.VersionServicePolicies.AfterVersionRevertPolicy
 import org.alfresco.repo.version.VersionServicePolicies.BeforeCreateVersionPolicy;
 import org.alfresco.repo.version.VersionServicePolicies.OnCreateVersionPolicy;
 import org.alfresco.repo.version.VersionServicePolicies.OnRevertVersionPolicy;
+import org.alfresco.repo.version.common.LazyVersionImpl;
 import org.alfresco.repo.version.common.VersionUtil;
 import org.alfresco.service.ServiceRegistry;
 import org.alfresco.service.cmr.coci.CheckOutCheckInService;
@@ -541,6 +544,56 @@ public class VersionServiceImplTest extends BaseVersionStoreTest
         addToVersionHistory(versionableNode, version4);    
     }
     
+    /**
+     * Test paging through the version history
+     */
+    @Test
+    public void testGetVersionHistoryPaged()
+    {
+        NodeRef versionableNode = createNewVersionableNode();
+        
+        // No version history yet
+        PagingResults<Version> noVersions = versionService.getVersionHistory(versionableNode, new PagingRequest(10));
+        assertTrue(noVersions.getPage().isEmpty());
+        assertFalse(noVersions.hasMoreItems());
+        
+        for (int i = 0; i < 5; i++)
+        {
+            createVersion(versionableNode);
+        }
+        List<Version> allVersions = new ArrayList<Version>(versionService.getVersionHistory(versionableNode).getAllVersions());
+        assertEquals(5, allVersions.size());
+        
+        // First page, most recent first
+        PagingResults<Version> page = versionService.getVersionHistory(versionableNode, new PagingRequest(0, 2));
+        assertEquals(2, page.getPage().size());
+        assertTrue(page.hasMoreItems());
+        assertEquals(Integer.valueOf(5), page.getTotalResultCount().getFirst());
+        
+        // The version properties are only read when first needed
+        Version first = page.getPage().get(0);
+        if (first instanceof LazyVersionImpl)
+        {
+            assertFalse(((LazyVersionImpl) first).isLoaded());
+            assertEquals(allVersions.get(0).getFrozenStateNodeRef(), first.getFrozenStateNodeRef());
+            assertFalse(((LazyVersionImpl) first).isLoaded());
+        }
+        assertEquals(allVersions.get(0).getVersionLabel(), first.getVersionLabel());
+        assertEquals(allVersions.get(1).getVersionLabel(), page.getPage().get(1).getVersionLabel());
+        
+        // Last (partial) page
+        page = versionService.getVersionHistory(versionableNode, new PagingRequest(4, 2));
+        assertEquals(1, page.getPage().size());
+        assertFalse(page.hasMoreItems());
+        assertEquals(allVersions.get(4).getVersionLabel(), page.getPage().get(0).getVersionLabel());
+        assertEquals(allVersions.get(4).getFrozenStateNodeRef(), page.getPage().get(0).getFrozenStateNodeRef());
+        
+        // Beyond the end
+        page = versionService.getVersionHistory(versionableNode, new PagingRequest(5, 2));
+        assertTrue(page.getPage().isEmpty());
+        assertFalse(page.hasMoreItems());
+    }
+    
     /**
      * Same as testGetVersionHistorySameWorkspace except that the order of
      * of db ids is mixed up and a comparator is need to fix it (MNT-226).